@@ -0,0 +1,23 @@
+@echo off
+rem Empaqueta la aplicación y crea su archivo de clases compartidas (AppCDS).
+rem Uso: crear-archivo-cds.bat [directorio de clases]   (por defecto, bin)
+rem Ver crear-archivo-cds.sh para más detalles.
+
+cd /d "%~dp0"
+set CLASES=%~1
+if "%CLASES%"=="" set CLASES=bin
+set JAR=hotel-continental.jar
+set ARCHIVO=hotel-continental.jsa
+
+(echo Main-Class: Main& echo SplashScreen-Image: recursos/anagrama.png)> manifiesto.tmp
+jar --create --file %JAR% --manifest manifiesto.tmp -C "%CLASES%" . || exit /b 1
+del manifiesto.tmp
+
+echo Ejecucion de entrenamiento (sin archivo CDS):
+java -XX:ArchiveClassesAtExit=%ARCHIVO% -jar %JAR% --medir-arranque || exit /b 1
+
+echo Ejecucion con el archivo CDS:
+java -XX:SharedArchiveFile=%ARCHIVO% -jar %JAR% --medir-arranque || exit /b 1
+
+echo Archivo creado: %ARCHIVO%
+echo Arranque: java -XX:SharedArchiveFile=%ARCHIVO% -jar %JAR%
@@ -0,0 +1,32 @@
+#!/bin/sh
+# Empaqueta la aplicación y crea su archivo de clases compartidas (AppCDS).
+#
+# El archivo CDS solo admite clases dentro de archivos JAR, así que primero se
+# empaquetan las clases compiladas en hotel-continental.jar, cuyo manifiesto
+# declara además la pantalla de carga nativa. Después se arranca la aplicación
+# una vez con --medir-arranque, que la cierra en cuanto se muestra la ventana
+# principal, y se guardan en hotel-continental.jsa las clases cargadas hasta
+# ese momento. Las siguientes ejecuciones con
+#   java -XX:SharedArchiveFile=hotel-continental.jsa -jar hotel-continental.jar
+# no tienen que cargar ni verificar esas clases y arrancan antes.
+#
+# Uso: ./crear-archivo-cds.sh [directorio de clases]   (por defecto, bin)
+# Requiere Java 13 o posterior.
+
+cd "$(dirname "$0")" || exit 1
+CLASES="${1:-bin}"
+JAR=hotel-continental.jar
+ARCHIVO=hotel-continental.jsa
+
+printf 'Main-Class: Main\nSplashScreen-Image: recursos/anagrama.png\n' > manifiesto.tmp
+jar --create --file "$JAR" --manifest manifiesto.tmp -C "$CLASES" . || exit 1
+rm -f manifiesto.tmp
+
+echo "Ejecución de entrenamiento (sin archivo CDS):"
+java -XX:ArchiveClassesAtExit="$ARCHIVO" -jar "$JAR" --medir-arranque || exit 1
+
+echo "Ejecución con el archivo CDS:"
+java -XX:SharedArchiveFile="$ARCHIVO" -jar "$JAR" --medir-arranque || exit 1
+
+echo "Archivo creado: $ARCHIVO"
+echo "Arranque: java -XX:SharedArchiveFile=$ARCHIVO -jar $JAR"
@@ -0,0 +1,180 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Totales de las reservas activas que se mantienen al día con cada alta y
+ * cada baja, para consultarlos sin recorrer las reservas: los ingresos y el
+ * número de reservas por tipo de habitación y mes de entrada, y los ingresos
+ * totales de cada tipo. La ocupación por noche la lleva
+ * {@link DisponibilidadHabitaciones}.
+ *
+ * <p>Los meses cubren el mismo horizonte que la ocupación, desde enero de 2020.
+ * Las reservas que entran fuera de él solo cuentan en los totales. Los
+ * contadores son atómicos, de modo que el panel de resumen los lee desde el hilo
+ * de eventos sin esperar a que termine una importación.</p>
+ */
+public final class AgregadosReservas {
+
+    /** Año del primer mes del horizonte. */
+    private static final int ANIO_INICIAL = CalculadoraEstancia.anio(DisponibilidadHabitaciones.DIA_INICIAL);
+
+    /** Número de meses del horizonte. */
+    static final int NUM_MESES = DisponibilidadHabitaciones.NUM_DIAS / 366 * 12;
+
+    /** Ingresos en céntimos, indexados por tipo y mes. */
+    private final AtomicLongArray ingresos;
+
+    /** Número de reservas, indexado por tipo y mes. */
+    private final AtomicIntegerArray reservas;
+
+    /** Ingresos totales en céntimos de cada tipo. */
+    private final AtomicLongArray ingresosTotales;
+
+    /** Número total de reservas de cada tipo. */
+    private final AtomicIntegerArray reservasTotales;
+
+    /**
+     * Crea unos totales a cero.
+     */
+    public AgregadosReservas() {
+        this(new long[TipoHabitacion.numTipos() * NUM_MESES], new int[TipoHabitacion.numTipos() * NUM_MESES],
+                new long[TipoHabitacion.numTipos()], new int[TipoHabitacion.numTipos()]);
+    }
+
+    /**
+     * Crea unos totales con valores iniciales, que se copian.
+     *
+     * @param ingresos        los ingresos por tipo y mes.
+     * @param reservas        el número de reservas por tipo y mes.
+     * @param ingresosTotales los ingresos totales de cada tipo.
+     * @param reservasTotales el número total de reservas de cada tipo.
+     */
+    private AgregadosReservas(long[] ingresos, int[] reservas, long[] ingresosTotales, int[] reservasTotales) {
+        this.ingresos = new AtomicLongArray(ingresos);
+        this.reservas = new AtomicIntegerArray(reservas);
+        this.ingresosTotales = new AtomicLongArray(ingresosTotales);
+        this.reservasTotales = new AtomicIntegerArray(reservasTotales);
+    }
+
+    /**
+     * Suma una reserva a los totales, o la resta si se cancela.
+     *
+     * @param tipo            el código del tipo de habitación.
+     * @param diaEntrada      el día de entrada, en días desde 1970.
+     * @param importeCentimos el importe de la reserva en céntimos.
+     * @param signo           1 para un alta, -1 para una baja.
+     */
+    void sumar(int tipo, int diaEntrada, int importeCentimos, int signo) {
+        ingresosTotales.addAndGet(tipo, (long) signo * importeCentimos);
+        reservasTotales.addAndGet(tipo, signo);
+        int mes = indiceMes(CalculadoraEstancia.anio(diaEntrada), CalculadoraEstancia.mes(diaEntrada));
+        if (mes >= 0) {
+            ingresos.addAndGet(tipo * NUM_MESES + mes, (long) signo * importeCentimos);
+            reservas.addAndGet(tipo * NUM_MESES + mes, signo);
+        }
+    }
+
+    /**
+     * Obtiene los ingresos de las reservas de un tipo que entran en un mes.
+     *
+     * @param tipo el código del tipo de habitación.
+     * @param anio el año.
+     * @param mes  el mes, de 1 a 12.
+     * @return los ingresos en céntimos, o 0 si el mes está fuera del horizonte.
+     */
+    public long getIngresos(int tipo, int anio, int mes) {
+        int indice = indiceMes(anio, mes);
+        return indice >= 0 ? ingresos.get(tipo * NUM_MESES + indice) : 0;
+    }
+
+    /**
+     * Obtiene el número de reservas de un tipo que entran en un mes.
+     *
+     * @param tipo el código del tipo de habitación.
+     * @param anio el año.
+     * @param mes  el mes, de 1 a 12.
+     * @return el número de reservas, o 0 si el mes está fuera del horizonte.
+     */
+    public int getReservas(int tipo, int anio, int mes) {
+        int indice = indiceMes(anio, mes);
+        return indice >= 0 ? reservas.get(tipo * NUM_MESES + indice) : 0;
+    }
+
+    /**
+     * Obtiene los ingresos de todas las reservas activas de un tipo.
+     *
+     * @param tipo el código del tipo de habitación.
+     * @return los ingresos en céntimos.
+     */
+    public long getIngresosTotales(int tipo) {
+        return ingresosTotales.get(tipo);
+    }
+
+    /**
+     * Obtiene el número de reservas activas de un tipo.
+     *
+     * @param tipo el código del tipo de habitación.
+     * @return el número de reservas.
+     */
+    public int getReservasTotales(int tipo) {
+        return reservasTotales.get(tipo);
+    }
+
+    /**
+     * Escribe los totales en una instantánea.
+     *
+     * @param salida el flujo de la instantánea.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    void escribir(DataOutputStream salida) throws IOException {
+        salida.writeInt(NUM_MESES);
+        for (int i = 0; i < ingresos.length(); i++) {
+            salida.writeLong(ingresos.get(i));
+        }
+        for (int i = 0; i < reservas.length(); i++) {
+            salida.writeInt(reservas.get(i));
+        }
+        for (int tipo = 0; tipo < ingresosTotales.length(); tipo++) {
+            salida.writeLong(ingresosTotales.get(tipo));
+            salida.writeInt(reservasTotales.get(tipo));
+        }
+    }
+
+    /**
+     * Lee unos totales escritos con {@link #escribir}.
+     *
+     * @param entrada la instantánea, en la posición de los totales.
+     * @return los totales leídos.
+     * @throws IllegalArgumentException si la instantánea cubre otro número de meses.
+     */
+    static AgregadosReservas leer(ByteBuffer entrada) {
+        if (entrada.getInt() != NUM_MESES) {
+            throw new IllegalArgumentException("Horizonte de meses distinto");
+        }
+        int numTipos = TipoHabitacion.numTipos();
+        long[] ingresos = InstantaneaReservas.leerLargos(entrada, numTipos * NUM_MESES);
+        int[] reservas = InstantaneaReservas.leerEnteros(entrada, numTipos * NUM_MESES);
+        long[] ingresosTotales = new long[numTipos];
+        int[] reservasTotales = new int[numTipos];
+        for (int tipo = 0; tipo < numTipos; tipo++) {
+            ingresosTotales[tipo] = entrada.getLong();
+            reservasTotales[tipo] = entrada.getInt();
+        }
+        return new AgregadosReservas(ingresos, reservas, ingresosTotales, reservasTotales);
+    }
+
+    /**
+     * Convierte un mes en su posición dentro del horizonte.
+     *
+     * @param anio el año.
+     * @param mes  el mes, de 1 a 12.
+     * @return la posición, o -1 si el mes está fuera del horizonte.
+     */
+    private static int indiceMes(int anio, int mes) {
+        int indice = (anio - ANIO_INICIAL) * 12 + mes - 1;
+        return indice >= 0 && indice < NUM_MESES ? indice : -1;
+    }
+}
@@ -0,0 +1,1286 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Almacén local de reservas en un archivo binario de solo anexado.
+ * Cada registro ocupa un hueco de tamaño fijo, por lo que la posición de un
+ * registro se calcula directamente a partir de su índice y añadir un registro
+ * cuesta lo mismo sea cual sea el tamaño del archivo. El archivo se proyecta en
+ * memoria por regiones que se van añadiendo a medida que crece.
+ *
+ * <p>Formato del archivo: una cabecera de {@value #TAM_CABECERA} bytes con la
+ * versión y el tamaño de los huecos, seguida de los huecos. El espacio
+ * reservado y aún no escrito queda a ceros. Todos los huecos empiezan con la
+ * marca de tiempo y el tipo de registro y terminan con un CRC32 de su
+ * contenido, lo que permite detectar al abrir el archivo un último registro
+ * escrito a medias tras una caída y descartarlo. Un hueco dañado en medio del
+ * archivo, con registros válidos detrás, no se descarta con todo lo que le
+ * sigue: se marca como {@link #DANADO} y se avisa.</p>
+ *
+ * <p>En la versión {@value #VERSION}, los huecos son de {@value #TAM_REGISTRO}
+ * bytes y guardan el DNI y el teléfono como números (la letra del DNI se
+ * calcula a partir del número), las fechas como días desde 1970 y el importe
+ * en céntimos. El nombre y los apellidos del titular se guardan una sola vez,
+ * en una entrada del diccionario de titulares que ocupa uno o varios huecos
+ * justo antes de la primera alta que los usa, y cada alta guarda solo el número
+ * de la entrada. Al estar en el mismo archivo, una entrada siempre llega al
+ * disco antes que las altas que la usan, y si queda a medias se descarta como
+ * cualquier otro registro. Los archivos de la versión {@value #VERSION_1}, con
+ * huecos de {@value #TAM_REGISTRO_V1} bytes y los textos dentro de cada
+ * registro, se siguen leyendo y ampliando en su formato; al compactarlos se
+ * escriben en el formato nuevo.</p>
+ */
+public final class AlmacenReservas implements Closeable {
+
+    /** Tipo de registro: alta de una reserva. */
+    public static final byte ALTA = 1;
+
+    /** Tipo de registro: baja de todas las reservas activas de un DNI. */
+    public static final byte BAJA = 2;
+
+    /** Tipo de registro: primer hueco de una entrada del diccionario de titulares. */
+    static final byte TITULAR = 3;
+
+    /** Tipo de registro: hueco que continúa el texto de una entrada del diccionario. */
+    static final byte CONTINUACION = 4;
+
+    /** Tipo de registro: hueco dañado en medio del archivo, que se conserva para no mover los siguientes. */
+    static final byte DANADO = 5;
+
+    /** Número mágico de la cabecera ("HCRV"). */
+    static final int MAGICO = 0x48435256;
+
+    /** Versión del formato de los archivos nuevos. */
+    static final short VERSION = 2;
+
+    /** Versión del formato con los textos dentro de cada registro. */
+    static final short VERSION_1 = 1;
+
+    /** Tamaño de la cabecera del archivo en bytes. */
+    static final int TAM_CABECERA = 64;
+
+    /** Tamaño de cada hueco en bytes en la versión {@value #VERSION}. */
+    static final int TAM_REGISTRO = 40;
+
+    /** Tamaño de cada hueco en bytes en la versión {@value #VERSION_1}. */
+    static final int TAM_REGISTRO_V1 = 160;
+
+    /** Número de registros de cada región proyectada en memoria. */
+    static final int REGISTROS_POR_REGION = 8192;
+
+    // Desplazamientos comunes a todos los huecos
+    private static final int POS_MARCA_TIEMPO = 0;
+    private static final int POS_TIPO_REGISTRO = 8;
+
+    // Desplazamientos de los campos de las altas y bajas en la versión 2
+    private static final int POS_TIPO_HABITACION = 9;
+    private static final int POS_NUM_HABITACIONES = 10;
+    private static final int POS_EDAD_NINOS = 11;
+    private static final int POS_DNI = 12;
+    private static final int POS_TELEFONO = 16;
+    private static final int POS_FECHA_ENTRADA = 20;
+    private static final int POS_FECHA_SALIDA = 24;
+    private static final int POS_IMPORTE = 28;
+    private static final int POS_TITULAR = 32;
+
+    // Desplazamientos de los campos de las entradas del diccionario en la versión 2
+    private static final int POS_NUM_CONTINUACIONES = 9;
+    private static final int POS_LON_NOMBRE = 10;
+    private static final int POS_LON_APELLIDOS = 11;
+    private static final int POS_TEXTO = 12;
+    private static final int POS_TEXTO_CONTINUACION = 9;
+
+    /** Bytes de texto del primer hueco de una entrada del diccionario. */
+    private static final int TEXTO_PRIMER_HUECO = TAM_REGISTRO - 4 - POS_TEXTO;
+
+    /** Bytes de texto de cada hueco de continuación. */
+    private static final int TEXTO_CONTINUACION = TAM_REGISTRO - 4 - POS_TEXTO_CONTINUACION;
+
+    // Desplazamientos de los campos en la versión 1
+    private static final int POS_TIPO_HABITACION_V1 = 9;
+    private static final int POS_NUM_HABITACIONES_V1 = 10;
+    private static final int POS_EDAD_NINOS_V1 = 11;
+    private static final int POS_FECHA_ENTRADA_V1 = 12;
+    private static final int POS_FECHA_SALIDA_V1 = 16;
+    private static final int POS_IMPORTE_V1 = 20;
+    private static final int POS_DNI_V1 = 24;
+    private static final int POS_TELEFONO_V1 = 33;
+    private static final int POS_NOMBRE_V1 = 42;
+    private static final int POS_APELLIDOS_V1 = 91;
+
+    // Longitudes máximas de los campos de texto
+    private static final int LON_DNI = 9;
+    private static final int LON_TELEFONO = 9;
+    private static final int LON_NOMBRE = 48;
+    private static final int LON_APELLIDOS = 64;
+
+    /** Número máximo de huecos de continuación de una entrada del diccionario. */
+    private static final int MAX_CONTINUACIONES =
+            (LON_NOMBRE + LON_APELLIDOS - TEXTO_PRIMER_HUECO + TEXTO_CONTINUACION - 1) / TEXTO_CONTINUACION;
+
+    /** Almacén compartido por la aplicación, abierto la primera vez que se usa. */
+    private static AlmacenReservas compartido;
+
+    /** Ruta del archivo de reservas. */
+    private final Path ruta;
+
+    /** Canal del archivo de reservas; cambia si el archivo se sustituye al compactarlo. */
+    private FileChannel canal;
+
+    /** Versión del formato del archivo. */
+    private short version;
+
+    /** Tamaño de cada hueco en bytes, según la versión. */
+    private int tamRegistro;
+
+    /** Tamaño en bytes de cada región proyectada en memoria. */
+    private long tamRegion;
+
+    /** Regiones del archivo proyectadas en memoria. */
+    private final List<MappedByteBuffer> regiones = new ArrayList<>();
+
+    /** Búfer auxiliar para codificar y decodificar registros. */
+    private byte[] registro;
+
+    /** Calculador del CRC de los registros. */
+    private final CRC32 crc = new CRC32();
+
+    /** Número de registros válidos del archivo, incluidos los huecos del diccionario. */
+    private long numRegistros;
+
+    /** Número de huecos ocupados por el diccionario de titulares. */
+    private long numHuecosDiccionario;
+
+    /** Número de entradas del diccionario de titulares. */
+    private int numTitulares;
+
+    /** Índice del primer hueco de cada entrada del diccionario, indexado por el número del titular. */
+    private long[] entradasTitulares;
+
+    /** Nombres de los titulares ya leídos o escritos, indexados por su número; null si aún no se han leído. */
+    private String[] nombresTitulares;
+
+    /** Apellidos de los titulares ya leídos o escritos, indexados por su número. */
+    private String[] apellidosTitulares;
+
+    /**
+     * Titulares ya leídos o escritos, con el nombre y los apellidos separados
+     * por un carácter nulo, para no repetir su entrada al escribir otra alta.
+     */
+    private PoolCadenas titularesConocidos;
+
+    /** Número del titular de cada cadena de {@link #titularesConocidos}, indexado por el identificador. */
+    private int[] numerosConocidos;
+
+    /** Indica si ya se han leído todas las entradas del diccionario que había al abrir el archivo. */
+    private boolean diccionarioLeido;
+
+    /** Búfer auxiliar para leer las entradas del diccionario. */
+    private final byte[] hueco = new byte[TAM_REGISTRO];
+
+    /** Búfer auxiliar con el texto de una entrada del diccionario. */
+    private final byte[] textoEntrada = new byte[TEXTO_PRIMER_HUECO + MAX_CONTINUACIONES * TEXTO_CONTINUACION];
+
+    /** Índice del primer hueco de la entrada que se está leyendo al recuperar el archivo. */
+    private long inicioEntrada;
+
+    /** Huecos de continuación de la entrada que se está leyendo al recuperar el archivo. */
+    private int continuacionesEntrada;
+
+    /** Huecos de continuación que faltan por leer de la entrada que se está recuperando. */
+    private int continuacionesPendientes;
+
+    /** Bytes descartados al abrir el archivo por un registro incompleto. */
+    private long bytesDescartados;
+
+    /** Huecos dañados en medio del archivo marcados como {@link #DANADO} al abrirlo. */
+    private long registrosDanados;
+
+    /**
+     * Constructor privado: los almacenes se obtienen con {@link #abrir(Path)}.
+     *
+     * @param ruta  la ruta del archivo.
+     * @param canal el canal del archivo ya abierto.
+     */
+    private AlmacenReservas(Path ruta, FileChannel canal) {
+        this.ruta = ruta;
+        this.canal = canal;
+    }
+
+    /**
+     * Abre un almacén de reservas, creándolo si no existe, y recupera su estado.
+     * Si el último registro quedó escrito a medias, se descarta.
+     *
+     * @param ruta la ruta del archivo de reservas.
+     * @return el almacén abierto.
+     * @throws IOException si el archivo no se puede abrir o no es un archivo de reservas.
+     */
+    public static AlmacenReservas abrir(Path ruta) throws IOException {
+        return abrir(ruta, VERSION);
+    }
+
+    /**
+     * Abre un almacén de reservas como {@link #abrir(Path)}, indicando con qué
+     * versión del formato se crea si no existe. Un archivo existente se abre en
+     * su versión.
+     *
+     * @param ruta    la ruta del archivo de reservas.
+     * @param version la versión con la que se crea el archivo ({@link #VERSION} o {@link #VERSION_1}).
+     * @return el almacén abierto.
+     * @throws IOException si el archivo no se puede abrir o no es un archivo de reservas.
+     */
+    static AlmacenReservas abrir(Path ruta, short version) throws IOException {
+        if (version != VERSION && version != VERSION_1) {
+            throw new IllegalArgumentException("Versión del almacén de reservas no soportada: " + version);
+        }
+        FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        AlmacenReservas almacen = new AlmacenReservas(ruta, canal);
+        try {
+            if (canal.size() == 0) {
+                almacen.usarVersion(version);
+                almacen.escribirCabecera();
+            } else {
+                almacen.comprobarCabecera();
+            }
+            almacen.recuperar();
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        return almacen;
+    }
+
+    /**
+     * Obtiene el almacén compartido por la aplicación, ubicado en el directorio
+     * de datos. Se cierra automáticamente al terminar la aplicación.
+     *
+     * @return el almacén compartido.
+     * @throws IOException si el archivo no se puede abrir.
+     */
+    public static synchronized AlmacenReservas getCompartido() throws IOException {
+        if (compartido == null) {
+            AlmacenReservas almacen = abrir(DirectorioDatos.archivo("reservas.dat"));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    almacen.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, "cierre-almacen-reservas"));
+            compartido = almacen;
+        }
+        return compartido;
+    }
+
+    /**
+     * Escribe la cabecera de un archivo nuevo.
+     *
+     * @throws IOException si ocurre un error de escritura.
+     */
+    private void escribirCabecera() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAM_CABECERA);
+        cabecera.putInt(MAGICO).putShort(version).putShort((short) tamRegistro);
+        cabecera.clear();
+        canal.write(cabecera, 0);
+        canal.force(true);
+    }
+
+    /**
+     * Comprueba que la cabecera corresponde a un archivo de reservas compatible.
+     *
+     * @throws IOException si el archivo no es un archivo de reservas válido.
+     */
+    private void comprobarCabecera() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAM_CABECERA);
+        while (cabecera.hasRemaining() && canal.read(cabecera, cabecera.position()) > 0) {
+            // Se lee la cabecera completa
+        }
+        if (cabecera.position() < TAM_CABECERA || cabecera.getInt(0) != MAGICO) {
+            throw new IOException("El archivo no es un almacén de reservas: " + ruta);
+        }
+        short leida = cabecera.getShort(4);
+        short tamano = cabecera.getShort(6);
+        if (!(leida == VERSION && tamano == TAM_REGISTRO) && !(leida == VERSION_1 && tamano == TAM_REGISTRO_V1)) {
+            throw new IOException("Versión del almacén de reservas no soportada: " + ruta);
+        }
+        usarVersion(leida);
+    }
+
+    /**
+     * Prepara el almacén para leer y escribir huecos de una versión del formato.
+     *
+     * @param version la versión.
+     */
+    private void usarVersion(short version) {
+        this.version = version;
+        tamRegistro = version == VERSION ? TAM_REGISTRO : TAM_REGISTRO_V1;
+        tamRegion = (long) tamRegistro * REGISTROS_POR_REGION;
+        registro = new byte[tamRegistro];
+    }
+
+    /**
+     * Recorre el archivo para contar los registros válidos y reconstruir el
+     * diccionario de titulares. El recorrido se detiene en el primer hueco
+     * vacío; si encuentra un registro incompleto, con el CRC incorrecto o que no
+     * encaja con los anteriores y detrás no queda ningún registro válido, es el
+     * final de una escritura interrumpida: trunca el archivo a partir de él, o a
+     * partir del principio de la entrada del diccionario que lo contiene. Si
+     * detrás hay registros válidos, que pueden estar confirmados, no los descarta:
+     * marca el hueco dañado con {@link #marcarDanado}. También lo
+     * trunca si detrás del primer hueco vacío queda algún byte escrito: son
+     * registros que llegaron al disco sin los anteriores, y si se dejaran, el
+     * siguiente registro ocuparía el hueco y volverían a aparecer. Se hace antes
+     * de proyectar el archivo en memoria, ya que algunos sistemas no permiten
+     * truncar un archivo proyectado.
+     *
+     * @throws IOException si ocurre un error de lectura o escritura, o si hay un
+     *                     hueco dañado en medio del archivo que no se puede marcar.
+     */
+    private void recuperar() throws IOException {
+        registrosDanados = 0;
+        numRegistros = 0;
+        numHuecosDiccionario = 0;
+        numTitulares = 0;
+        entradasTitulares = new long[256];
+        nombresTitulares = new String[256];
+        apellidosTitulares = new String[256];
+        titularesConocidos = new PoolCadenas();
+        numerosConocidos = new int[256];
+        diccionarioLeido = false;
+        continuacionesPendientes = 0;
+        long tamano = canal.size();
+        ByteBuffer lectura = ByteBuffer.allocate(tamRegistro * 256);
+        long posicion = TAM_CABECERA;
+        boolean fin = false;
+        while (!fin && posicion < tamano) {
+            lectura.clear();
+            int leidos = canal.read(lectura, posicion);
+            if (leidos <= 0) {
+                break;
+            }
+            lectura.flip();
+            while (lectura.remaining() >= tamRegistro) {
+                lectura.get(registro);
+                if (estaVacio(registro)) {
+                    fin = true;
+                    break;
+                }
+                if (!crcCorrecto(registro) || !recuperarHueco()) {
+                    if (!hayRegistroValidoDesde(posicion + tamRegistro)) {
+                        truncar(posicionCorte());
+                        return;
+                    }
+                    marcarDanado(posicion);
+                }
+                numRegistros++;
+                posicion += tamRegistro;
+            }
+            if (!fin && lectura.hasRemaining() && posicion + lectura.remaining() >= tamano) {
+                // Registro incompleto al final del archivo
+                truncar(posicionCorte());
+                return;
+            }
+        }
+        if (continuacionesPendientes > 0 || (fin && hayDatosDesde(posicion))) {
+            // Entrada del diccionario sin terminar, o registros sueltos tras un hueco vacío
+            truncar(posicionCorte());
+        }
+        if (registrosDanados > 0) {
+            System.err.println("Almacén de reservas: " + registrosDanados
+                    + " registros dañados marcados como descartados en " + ruta);
+        }
+    }
+
+    /**
+     * Marca como dañado el hueco del búfer, que está en medio del archivo, y lo
+     * escribe en su posición con un CRC correcto para que no vuelva a detenerse
+     * ahí la recuperación. Un alta o una baja se marca como {@link #DANADO}, que
+     * no se lee al recorrer el almacén; una continuación del diccionario se
+     * conserva con el texto sustituido por interrogaciones, para que no cambie
+     * el número de los titulares siguientes.
+     *
+     * @param posicion la posición del hueco en bytes.
+     * @throws IOException si el hueco es el primero de una entrada del diccionario
+     *                     o no se reconoce, ya que saltarlo cambiaría el titular de
+     *                     las altas siguientes, o si ocurre un error de escritura.
+     */
+    private void marcarDanado(long posicion) throws IOException {
+        byte tipo = registro[POS_TIPO_REGISTRO];
+        long indice = (posicion - TAM_CABECERA) / tamRegistro;
+        if (version == VERSION_1 || (continuacionesPendientes == 0 && (tipo == ALTA || tipo == BAJA))) {
+            registro[POS_TIPO_REGISTRO] = DANADO;
+        } else if (version == VERSION && continuacionesPendientes > 0 && tipo == CONTINUACION) {
+            Arrays.fill(registro, POS_TEXTO_CONTINUACION, tamRegistro - 4, (byte) '?');
+        } else {
+            throw new IOException("Almacén de reservas dañado en el registro " + indice + " de " + ruta
+                    + ": no se puede recuperar sin descartar los registros siguientes");
+        }
+        crc.reset();
+        crc.update(registro, 0, tamRegistro - 4);
+        ByteBuffer.wrap(registro).putInt(tamRegistro - 4, (int) crc.getValue());
+        canal.write(ByteBuffer.wrap(registro), posicion);
+        canal.force(false);
+        if (tipo == CONTINUACION && --continuacionesPendientes == 0) {
+            terminarEntrada();
+        }
+        registrosDanados++;
+    }
+
+    /**
+     * Comprueba si queda algún registro válido, con el CRC correcto, a partir de
+     * una posición. Si no queda ninguno, lo que hay desde la posición es el final
+     * de una escritura interrumpida.
+     *
+     * @param posicion la posición en bytes del primer hueco que se comprueba.
+     * @return verdadero si hay algún registro válido.
+     * @throws IOException si ocurre un error de lectura.
+     */
+    private boolean hayRegistroValidoDesde(long posicion) throws IOException {
+        ByteBuffer lectura = ByteBuffer.allocate(tamRegistro * 256);
+        byte[] datos = new byte[tamRegistro];
+        long tamano = canal.size();
+        while (posicion + tamRegistro <= tamano) {
+            lectura.clear();
+            int leidos = canal.read(lectura, posicion);
+            if (leidos <= 0) {
+                break;
+            }
+            lectura.flip();
+            while (lectura.remaining() >= tamRegistro) {
+                lectura.get(datos);
+                if (!estaVacio(datos) && crcCorrecto(datos)) {
+                    return true;
+                }
+                posicion += tamRegistro;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba si queda algún byte distinto de cero en el archivo a partir de
+     * una posición. Lo normal es que solo queden los ceros del final de la
+     * última región proyectada.
+     *
+     * @param posicion la posición en bytes.
+     * @return verdadero si hay algún byte escrito.
+     * @throws IOException si ocurre un error de lectura.
+     */
+    private boolean hayDatosDesde(long posicion) throws IOException {
+        ByteBuffer lectura = ByteBuffer.allocate(1 << 16);
+        long tamano = canal.size();
+        while (posicion < tamano) {
+            lectura.clear();
+            int leidos = canal.read(lectura, posicion);
+            if (leidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < leidos; i++) {
+                if (lectura.get(i) != 0) {
+                    return true;
+                }
+            }
+            posicion += leidos;
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba un hueco leído al recuperar el archivo y, si completa una
+     * entrada del diccionario, apunta dónde empieza. Los textos de las entradas
+     * no se leen hasta que se necesitan, para que abrir el archivo no dependa
+     * del número de titulares. En la versión 1 no hay nada que comprobar.
+     *
+     * @return falso si el hueco no encaja con los anteriores.
+     */
+    private boolean recuperarHueco() {
+        if (version == VERSION_1) {
+            return true;
+        }
+        byte tipo = registro[POS_TIPO_REGISTRO];
+        if (continuacionesPendientes > 0) {
+            if (tipo != CONTINUACION) {
+                return false;
+            }
+            if (--continuacionesPendientes == 0) {
+                terminarEntrada();
+            }
+            return true;
+        }
+        switch (tipo) {
+            case ALTA:
+                int titular = ByteBuffer.wrap(registro).getInt(POS_TITULAR);
+                return titular >= 0 && titular < numTitulares;
+            case BAJA:
+            case DANADO:
+                return true;
+            case TITULAR:
+                continuacionesEntrada = registro[POS_NUM_CONTINUACIONES];
+                int longitud = (registro[POS_LON_NOMBRE] & 0xFF) + (registro[POS_LON_APELLIDOS] & 0xFF);
+                if (continuacionesEntrada < 0 || continuacionesEntrada > MAX_CONTINUACIONES
+                        || longitud > TEXTO_PRIMER_HUECO + continuacionesEntrada * TEXTO_CONTINUACION) {
+                    return false;
+                }
+                inicioEntrada = numRegistros;
+                continuacionesPendientes = continuacionesEntrada;
+                if (continuacionesPendientes == 0) {
+                    terminarEntrada();
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Añade al diccionario la entrada que se acaba de leer al recuperar el archivo.
+     */
+    private void terminarEntrada() {
+        anadirEntrada(inicioEntrada);
+        numHuecosDiccionario += 1 + continuacionesEntrada;
+    }
+
+    /**
+     * Calcula dónde se corta el archivo al recuperarlo: tras el último registro
+     * válido o, si hay una entrada del diccionario a medias, antes de ella, que
+     * deja de contar.
+     *
+     * @return la posición de corte en bytes.
+     */
+    private long posicionCorte() {
+        if (continuacionesPendientes > 0) {
+            numRegistros = inicioEntrada;
+            continuacionesPendientes = 0;
+        }
+        return TAM_CABECERA + numRegistros * tamRegistro;
+    }
+
+    /**
+     * Trunca el archivo en la posición indicada, descartando lo que haya detrás.
+     *
+     * @param posicion la posición de corte en bytes.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    private void truncar(long posicion) throws IOException {
+        bytesDescartados = canal.size() - posicion;
+        System.err.println("Almacén de reservas: descartados registros incompletos (" + bytesDescartados
+                + " bytes) en " + ruta);
+        canal.truncate(posicion);
+        canal.force(true);
+    }
+
+    /**
+     * Añade el alta de una reserva al final del almacén.
+     *
+     * @param reserva la reserva.
+     * @return el índice del registro añadido.
+     */
+    public long anadirAlta(Reserva reserva) {
+        return anadir(ALTA, reserva);
+    }
+
+    /**
+     * Añade la baja de las reservas activas de un cliente al final del almacén.
+     *
+     * @param dni el DNI del cliente.
+     * @return el índice del registro añadido.
+     */
+    public long anadirBaja(String dni) {
+        return anadir(BAJA, new Reserva("", "", dni, "", 0, 0, TipoHabitacion.SIMPLE, 0, Reserva.SIN_NINOS, 0));
+    }
+
+    /**
+     * Codifica un registro y lo escribe en el siguiente hueco libre, con la
+     * hora actual como marca de tiempo.
+     *
+     * @param tipoRegistro el tipo de registro ({@link #ALTA} o {@link #BAJA}).
+     * @param reserva      los datos de la reserva.
+     * @return el índice del registro añadido.
+     */
+    private long anadir(byte tipoRegistro, Reserva reserva) {
+        return anadir(tipoRegistro, reserva, System.currentTimeMillis());
+    }
+
+    /**
+     * Codifica un registro en el formato del archivo y lo escribe en el
+     * siguiente hueco libre. En la versión {@value #VERSION}, si el titular de un
+     * alta no está en el diccionario, antes se escribe su entrada.
+     *
+     * @param tipoRegistro el tipo de registro ({@link #ALTA} o {@link #BAJA}).
+     * @param reserva      los datos de la reserva.
+     * @param marca        la marca de tiempo del registro.
+     * @return el índice del registro añadido.
+     * @throws IllegalArgumentException si, en la versión {@value #VERSION}, el DNI
+     *                                  o el teléfono de un alta no tienen el formato correcto.
+     */
+    private synchronized long anadir(byte tipoRegistro, Reserva reserva, long marca) {
+        if (version == VERSION_1) {
+            codificarV1(tipoRegistro, reserva, marca);
+        } else {
+            codificar(tipoRegistro, reserva, marca);
+        }
+        return escribirHueco();
+    }
+
+    /**
+     * Codifica un alta o una baja en el búfer del registro con el formato de la
+     * versión {@value #VERSION}.
+     *
+     * @param tipoRegistro el tipo de registro.
+     * @param reserva      los datos de la reserva.
+     * @param marca        la marca de tiempo.
+     * @throws IllegalArgumentException si el DNI o, en un alta, el teléfono no tienen el formato correcto.
+     */
+    private void codificar(byte tipoRegistro, Reserva reserva, long marca) {
+        int dni = ValidadorDatos.numeroDNI(reserva.getDNI());
+        int telefono = ValidadorDatos.numeroTelefono(reserva.getTelefono());
+        if (dni < 0 || (tipoRegistro == ALTA && telefono < 0)) {
+            throw new IllegalArgumentException("DNI o teléfono sin el formato correcto: " + reserva.getDNI() + ", "
+                    + reserva.getTelefono());
+        }
+        int titular = tipoRegistro == ALTA ? titular(reserva.getNombre(), reserva.getApellidos(), marca) : -1;
+        ByteBuffer datos = ByteBuffer.wrap(registro);
+        Arrays.fill(registro, (byte) 0);
+        datos.putLong(POS_MARCA_TIEMPO, marca);
+        datos.put(POS_TIPO_REGISTRO, tipoRegistro);
+        datos.put(POS_TIPO_HABITACION, (byte) reserva.getTipoHabitacion().getCodigo());
+        datos.put(POS_NUM_HABITACIONES, (byte) reserva.getNumHabitaciones());
+        datos.put(POS_EDAD_NINOS, (byte) reserva.getEdadNinos());
+        datos.putInt(POS_DNI, dni);
+        datos.putInt(POS_TELEFONO, telefono);
+        datos.putInt(POS_FECHA_ENTRADA, reserva.getFechaEntrada());
+        datos.putInt(POS_FECHA_SALIDA, reserva.getFechaSalida());
+        datos.putInt(POS_IMPORTE, reserva.getImporteCentimos());
+        datos.putInt(POS_TITULAR, titular);
+    }
+
+    /**
+     * Codifica un registro en el búfer con el formato de la versión {@value #VERSION_1}.
+     *
+     * @param tipoRegistro el tipo de registro.
+     * @param reserva      los datos de la reserva.
+     * @param marca        la marca de tiempo.
+     */
+    private void codificarV1(byte tipoRegistro, Reserva reserva, long marca) {
+        ByteBuffer datos = ByteBuffer.wrap(registro);
+        Arrays.fill(registro, (byte) 0);
+        datos.putLong(POS_MARCA_TIEMPO, marca);
+        datos.put(POS_TIPO_REGISTRO, tipoRegistro);
+        datos.put(POS_TIPO_HABITACION_V1, (byte) reserva.getTipoHabitacion().getCodigo());
+        datos.put(POS_NUM_HABITACIONES_V1, (byte) reserva.getNumHabitaciones());
+        datos.put(POS_EDAD_NINOS_V1, (byte) reserva.getEdadNinos());
+        datos.putInt(POS_FECHA_ENTRADA_V1, reserva.getFechaEntrada());
+        datos.putInt(POS_FECHA_SALIDA_V1, reserva.getFechaSalida());
+        datos.putInt(POS_IMPORTE_V1, reserva.getImporteCentimos());
+        escribirTexto(reserva.getDNI(), POS_DNI_V1, LON_DNI, false);
+        escribirTexto(reserva.getTelefono(), POS_TELEFONO_V1, LON_TELEFONO, false);
+        escribirTexto(reserva.getNombre(), POS_NOMBRE_V1, LON_NOMBRE, true);
+        escribirTexto(reserva.getApellidos(), POS_APELLIDOS_V1, LON_APELLIDOS, true);
+    }
+
+    /**
+     * Obtiene el número de un titular en el diccionario y, si no está, escribe
+     * su entrada. La primera vez que no se encuentra un titular entre los ya
+     * leídos o escritos se leen todas las entradas que había al abrir el
+     * archivo, para no repetir la de un cliente que vuelve; así abrir el archivo
+     * sigue sin depender del número de titulares, y la lectura se paga una vez
+     * por sesión y solo si se añaden altas. Los textos se recortan a la misma
+     * longitud que en la versión {@value #VERSION_1}. Antes de escribir se
+     * proyectan todas las regiones que ocupa la entrada, para no dejarla nunca
+     * a medias.
+     *
+     * @param nombre    el nombre.
+     * @param apellidos los apellidos.
+     * @param marca     la marca de tiempo de los huecos de la entrada.
+     * @return el número del titular.
+     */
+    private int titular(String nombre, String apellidos, long marca) {
+        nombre = recortar(nombre, LON_NOMBRE);
+        apellidos = recortar(apellidos, LON_APELLIDOS);
+        int conocido = titularesConocidos.buscar(nombre + '\0' + apellidos);
+        if (conocido < 0 && !diccionarioLeido) {
+            leerDiccionario();
+            conocido = titularesConocidos.buscar(nombre + '\0' + apellidos);
+        }
+        if (conocido >= 0) {
+            return numerosConocidos[conocido];
+        }
+        byte[] bytesNombre = nombre.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesApellidos = apellidos.getBytes(StandardCharsets.UTF_8);
+        byte[] texto = Arrays.copyOf(bytesNombre, bytesNombre.length + bytesApellidos.length);
+        System.arraycopy(bytesApellidos, 0, texto, bytesNombre.length, bytesApellidos.length);
+        int continuaciones = Math.max(0, texto.length - TEXTO_PRIMER_HUECO + TEXTO_CONTINUACION - 1)
+                / TEXTO_CONTINUACION;
+        region(numRegistros + continuaciones);
+
+        int titular = anadirEntrada(numRegistros);
+        ByteBuffer datos = ByteBuffer.wrap(registro);
+        int copiados = 0;
+        for (int hueco = 0; hueco <= continuaciones; hueco++) {
+            Arrays.fill(registro, (byte) 0);
+            datos.putLong(POS_MARCA_TIEMPO, marca);
+            int posicion = POS_TEXTO_CONTINUACION;
+            if (hueco == 0) {
+                datos.put(POS_TIPO_REGISTRO, TITULAR);
+                datos.put(POS_NUM_CONTINUACIONES, (byte) continuaciones);
+                datos.put(POS_LON_NOMBRE, (byte) bytesNombre.length);
+                datos.put(POS_LON_APELLIDOS, (byte) bytesApellidos.length);
+                posicion = POS_TEXTO;
+            } else {
+                datos.put(POS_TIPO_REGISTRO, CONTINUACION);
+            }
+            int numero = Math.min(texto.length - copiados, tamRegistro - 4 - posicion);
+            System.arraycopy(texto, copiados, registro, posicion, numero);
+            copiados += numero;
+            escribirHueco();
+        }
+        numHuecosDiccionario += 1 + continuaciones;
+        conocerTitular(titular, nombre, apellidos);
+        return titular;
+    }
+
+    /**
+     * Lee todas las entradas del diccionario que todavía no se han leído, para
+     * que las altas de clientes que vuelven no tengan que esperar a hacerlo.
+     * Conviene llamarlo en un hilo de fondo después de cargar las reservas.
+     */
+    public synchronized void leerDiccionario() {
+        if (diccionarioLeido) {
+            return;
+        }
+        for (int t = 0; t < numTitulares; t++) {
+            leerTitular(t);
+        }
+        diccionarioLeido = true;
+    }
+
+    /**
+     * Apunta una entrada nueva del diccionario.
+     *
+     * @param inicio el índice de su primer hueco.
+     * @return el número del titular.
+     */
+    private int anadirEntrada(long inicio) {
+        if (numTitulares == entradasTitulares.length) {
+            entradasTitulares = Arrays.copyOf(entradasTitulares, numTitulares * 2);
+            nombresTitulares = Arrays.copyOf(nombresTitulares, numTitulares * 2);
+            apellidosTitulares = Arrays.copyOf(apellidosTitulares, numTitulares * 2);
+        }
+        entradasTitulares[numTitulares] = inicio;
+        return numTitulares++;
+    }
+
+    /**
+     * Guarda en memoria el nombre y los apellidos de un titular, para no volver
+     * a leerlos ni repetir su entrada.
+     *
+     * @param titular   el número del titular.
+     * @param nombre    el nombre.
+     * @param apellidos los apellidos.
+     */
+    private void conocerTitular(int titular, String nombre, String apellidos) {
+        nombresTitulares[titular] = nombre;
+        apellidosTitulares[titular] = apellidos;
+        int conocido = titularesConocidos.identificador(nombre + '\0' + apellidos);
+        if (conocido == numerosConocidos.length) {
+            numerosConocidos = Arrays.copyOf(numerosConocidos, conocido * 2);
+        }
+        numerosConocidos[conocido] = titular;
+    }
+
+    /**
+     * Lee el nombre y los apellidos de un titular del archivo si todavía no se
+     * han leído.
+     *
+     * @param titular el número del titular.
+     */
+    private void leerTitular(int titular) {
+        if (nombresTitulares[titular] != null) {
+            return;
+        }
+        long indice = entradasTitulares[titular];
+        region(indice).get(desplazamiento(indice), hueco);
+        int continuaciones = hueco[POS_NUM_CONTINUACIONES];
+        int lonNombre = hueco[POS_LON_NOMBRE] & 0xFF;
+        int lonApellidos = hueco[POS_LON_APELLIDOS] & 0xFF;
+        System.arraycopy(hueco, POS_TEXTO, textoEntrada, 0, TEXTO_PRIMER_HUECO);
+        for (int c = 0; c < continuaciones; c++) {
+            indice++;
+            region(indice).get(desplazamiento(indice), hueco);
+            System.arraycopy(hueco, POS_TEXTO_CONTINUACION, textoEntrada, TEXTO_PRIMER_HUECO + c * TEXTO_CONTINUACION,
+                    TEXTO_CONTINUACION);
+        }
+        conocerTitular(titular, new String(textoEntrada, 0, lonNombre, StandardCharsets.UTF_8),
+                new String(textoEntrada, lonNombre, lonApellidos, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Calcula el CRC del registro del búfer y lo escribe en el siguiente hueco libre.
+     *
+     * @return el índice del hueco.
+     */
+    private long escribirHueco() {
+        long indice = numRegistros;
+        crc.reset();
+        crc.update(registro, 0, tamRegistro - 4);
+        ByteBuffer.wrap(registro).putInt(tamRegistro - 4, (int) crc.getValue());
+        region(indice).put(desplazamiento(indice), registro);
+        numRegistros++;
+        return indice;
+    }
+
+    /**
+     * Lee el tipo de un registro.
+     *
+     * @param indice el índice del registro.
+     * @return {@link #ALTA}, {@link #BAJA}, {@link #DANADO} o, en los huecos del
+     *         diccionario, {@link #TITULAR} o {@link #CONTINUACION}.
+     */
+    public synchronized byte leerTipoRegistro(long indice) {
+        comprobarIndice(indice);
+        return region(indice).get(desplazamiento(indice) + POS_TIPO_REGISTRO);
+    }
+
+    /**
+     * Lee la marca de tiempo de un registro.
+     *
+     * @param indice el índice del registro.
+     * @return la marca de tiempo, en milisegundos desde 1970.
+     */
+    synchronized long leerMarcaTiempo(long indice) {
+        comprobarIndice(indice);
+        return region(indice).getLong(desplazamiento(indice) + POS_MARCA_TIEMPO);
+    }
+
+    /**
+     * Lee los datos de un registro.
+     *
+     * @param indice el índice del registro.
+     * @return la reserva guardada en el registro.
+     * @throws IllegalArgumentException si el registro es un hueco del diccionario de titulares.
+     */
+    public synchronized Reserva leer(long indice) {
+        comprobarIndice(indice);
+        region(indice).get(desplazamiento(indice), registro);
+        if (version == VERSION_1) {
+            return decodificarV1();
+        }
+        byte tipo = registro[POS_TIPO_REGISTRO];
+        if (tipo != ALTA && tipo != BAJA) {
+            throw new IllegalArgumentException("El registro " + indice + " no es un alta ni una baja");
+        }
+        ByteBuffer datos = ByteBuffer.wrap(registro);
+        int titular = datos.getInt(POS_TITULAR);
+        int dni = datos.getInt(POS_DNI);
+        int telefono = datos.getInt(POS_TELEFONO);
+        if (titular >= 0) {
+            leerTitular(titular);
+        }
+        return new Reserva(
+                titular < 0 ? "" : nombresTitulares[titular],
+                titular < 0 ? "" : apellidosTitulares[titular],
+                digitos(dni, 8, ValidadorDatos.letraDNI(dni)),
+                telefono < 0 ? "" : digitos(telefono, 9, '\0'),
+                datos.getInt(POS_FECHA_ENTRADA),
+                datos.getInt(POS_FECHA_SALIDA),
+                TipoHabitacion.desdeCodigo(datos.get(POS_TIPO_HABITACION)),
+                datos.get(POS_NUM_HABITACIONES),
+                datos.get(POS_EDAD_NINOS),
+                datos.getInt(POS_IMPORTE));
+    }
+
+    /**
+     * Decodifica el registro del búfer con el formato de la versión {@value #VERSION_1}.
+     *
+     * @return la reserva guardada en el registro.
+     */
+    private Reserva decodificarV1() {
+        ByteBuffer datos = ByteBuffer.wrap(registro);
+        return new Reserva(
+                leerTexto(POS_NOMBRE_V1, LON_NOMBRE, true),
+                leerTexto(POS_APELLIDOS_V1, LON_APELLIDOS, true),
+                leerTexto(POS_DNI_V1, LON_DNI, false),
+                leerTexto(POS_TELEFONO_V1, LON_TELEFONO, false),
+                datos.getInt(POS_FECHA_ENTRADA_V1),
+                datos.getInt(POS_FECHA_SALIDA_V1),
+                TipoHabitacion.desdeCodigo(datos.get(POS_TIPO_HABITACION_V1)),
+                datos.get(POS_NUM_HABITACIONES_V1),
+                datos.get(POS_EDAD_NINOS_V1),
+                datos.getInt(POS_IMPORTE_V1));
+    }
+
+    /**
+     * Recorre todos los registros del almacén en orden.
+     *
+     * @param visitante el visitante que recibe cada registro.
+     */
+    public void recorrer(Visitante visitante) {
+        recorrer(0, visitante);
+    }
+
+    /**
+     * Recorre en orden los registros del almacén a partir de uno, por ejemplo
+     * los añadidos después de una instantánea. Los huecos del diccionario de
+     * titulares se saltan.
+     *
+     * @param desde     el índice del primer registro.
+     * @param visitante el visitante que recibe cada registro.
+     */
+    public void recorrer(long desde, Visitante visitante) {
+        long total = getNumRegistros();
+        for (long i = desde; i < total; i++) {
+            byte tipo = leerTipoRegistro(i);
+            if (tipo == ALTA || tipo == BAJA) {
+                visitante.visitar(i, tipo, leer(i));
+            }
+        }
+    }
+
+    /**
+     * Obtiene una huella de un registro, formada por su marca de tiempo y su
+     * CRC. Sirve para comprobar que una instantánea se hizo sobre este archivo:
+     * si el registro que tenía en una posición sigue ahí, los anteriores también.
+     *
+     * @param indice el índice del registro.
+     * @return la huella del registro.
+     */
+    public synchronized long huella(long indice) {
+        comprobarIndice(indice);
+        MappedByteBuffer region = region(indice);
+        int inicio = desplazamiento(indice);
+        return region.getLong(inicio + POS_MARCA_TIEMPO) ^ ((long) region.getInt(inicio + tamRegistro - 4) << 32);
+    }
+
+    /**
+     * Añade al final del almacén una copia de un alta o una baja de otro almacén,
+     * conservando su marca de tiempo, para llevarla a un almacén compactado. El
+     * registro se escribe en el formato de este almacén, que puede ser distinto
+     * del de origen.
+     *
+     * @param origen el almacén de origen.
+     * @param indice el índice del registro en el almacén de origen.
+     * @return el índice del registro añadido.
+     * @throws IllegalArgumentException si el registro de origen es un hueco del diccionario.
+     */
+    synchronized long anadirCopia(AlmacenReservas origen, long indice) {
+        byte tipo = origen.leerTipoRegistro(indice);
+        return anadir(tipo, origen.leer(indice), origen.leerMarcaTiempo(indice));
+    }
+
+    /**
+     * Sustituye el archivo del almacén por otro, normalmente una versión
+     * compactada del mismo, y lo abre en su lugar. Si el sistema no permite
+     * sustituirlo (Windows no deja reemplazar un archivo proyectado en memoria),
+     * se vuelve a abrir el archivo de antes y se lanza la excepción.
+     *
+     * @param nuevo la ruta del archivo nuevo, que se mueve a la ruta del almacén.
+     * @throws IOException si no se puede sustituir o abrir el archivo.
+     */
+    synchronized void reemplazar(Path nuevo) throws IOException {
+        forzar();
+        regiones.clear();
+        canal.close();
+        try {
+            Files.move(nuevo, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            canal = FileChannel.open(ruta, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            numRegistros = 0;
+            comprobarCabecera();
+            recuperar();
+        }
+    }
+
+    /**
+     * Obtiene la ruta del archivo de reservas.
+     *
+     * @return la ruta.
+     */
+    public Path getRuta() {
+        return ruta;
+    }
+
+    /**
+     * Obtiene la versión del formato del archivo.
+     *
+     * @return {@link #VERSION} o {@link #VERSION_1}.
+     */
+    public synchronized short getVersion() {
+        return version;
+    }
+
+    /**
+     * Obtiene el número de huecos que ocupa el diccionario de titulares, que se
+     * cuentan entre los registros del almacén.
+     *
+     * @return el número de huecos del diccionario.
+     */
+    public synchronized long getNumHuecosDiccionario() {
+        return numHuecosDiccionario;
+    }
+
+    /**
+     * Obtiene el número de registros del almacén, incluidos los huecos del
+     * diccionario de titulares.
+     *
+     * @return el número de registros.
+     */
+    public synchronized long getNumRegistros() {
+        return numRegistros;
+    }
+
+    /**
+     * Obtiene los bytes descartados al abrir el archivo por un registro incompleto.
+     *
+     * @return los bytes descartados, o 0 si el archivo estaba íntegro.
+     */
+    public long getBytesDescartados() {
+        return bytesDescartados;
+    }
+
+    /**
+     * Obtiene el número de huecos dañados en medio del archivo que se han
+     * marcado como descartados al abrirlo, conservando los registros siguientes.
+     *
+     * @return el número de huecos dañados.
+     */
+    public long getRegistrosDanados() {
+        return registrosDanados;
+    }
+
+    /**
+     * Obliga a escribir en disco los registros pendientes.
+     */
+    public synchronized void forzar() {
+        for (MappedByteBuffer region : regiones) {
+            region.force();
+        }
+    }
+
+    /**
+     * Obliga a escribir en disco solo un tramo de registros, que es lo que
+     * necesita el {@link DiarioReservas} para confirmar un grupo de altas. Las
+     * regiones se toman reteniendo el almacén, pero la escritura se hace sin
+     * retenerlo, de modo que se pueden seguir añadiendo registros mientras tanto.
+     *
+     * @param desde el índice del primer registro.
+     * @param hasta el índice siguiente al último registro (no incluido).
+     */
+    public void forzar(long desde, long hasta) {
+        if (desde >= hasta) {
+            return;
+        }
+        int primera = (int) (desde / REGISTROS_POR_REGION);
+        int ultima = (int) ((hasta - 1) / REGISTROS_POR_REGION);
+        MappedByteBuffer[] aForzar;
+        int inicioPrimera;
+        int finUltima;
+        synchronized (this) {
+            comprobarIndice(hasta - 1);
+            aForzar = regiones.subList(primera, ultima + 1).toArray(new MappedByteBuffer[0]);
+            inicioPrimera = desplazamiento(desde);
+            finUltima = desplazamiento(hasta - 1) + tamRegistro;
+        }
+        for (int r = primera; r <= ultima; r++) {
+            int inicio = r == primera ? inicioPrimera : 0;
+            int fin = r == ultima ? finUltima : aForzar[r - primera].capacity();
+            aForzar[r - primera].force(inicio, fin - inicio);
+        }
+    }
+
+    /**
+     * Escribe en disco los registros pendientes y cierra el archivo.
+     *
+     * @throws IOException si ocurre un error al cerrar el archivo.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (canal.isOpen()) {
+            forzar();
+            regiones.clear();
+            canal.close();
+        }
+    }
+
+    /**
+     * Obtiene la región proyectada que contiene un registro, proyectando en
+     * memoria las regiones que falten. Al proyectar más allá del final, el
+     * archivo crece automáticamente.
+     *
+     * @param indice el índice del registro.
+     * @return la región que contiene el registro.
+     */
+    private MappedByteBuffer region(long indice) {
+        int numRegion = (int) (indice / REGISTROS_POR_REGION);
+        try {
+            while (regiones.size() <= numRegion) {
+                long inicio = TAM_CABECERA + regiones.size() * tamRegion;
+                regiones.add(canal.map(FileChannel.MapMode.READ_WRITE, inicio, tamRegion));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("No se puede ampliar el almacén de reservas: " + ruta, e);
+        }
+        return regiones.get(numRegion);
+    }
+
+    /**
+     * Calcula la posición de un registro dentro de su región.
+     *
+     * @param indice el índice del registro.
+     * @return el desplazamiento en bytes dentro de la región.
+     */
+    private int desplazamiento(long indice) {
+        return (int) (indice % REGISTROS_POR_REGION) * tamRegistro;
+    }
+
+    /**
+     * Comprueba que un índice corresponde a un registro existente.
+     *
+     * @param indice el índice del registro.
+     */
+    private void comprobarIndice(long indice) {
+        if (indice < 0 || indice >= numRegistros) {
+            throw new IndexOutOfBoundsException("Registro inexistente: " + indice);
+        }
+    }
+
+    /**
+     * Escribe un texto en el búfer del registro. Los textos largos se recortan
+     * sin partir ningún carácter.
+     *
+     * @param texto          el texto a escribir.
+     * @param posicion       la posición del campo.
+     * @param longitud       la longitud máxima del campo en bytes.
+     * @param conLongitud    si el campo empieza con un byte que indica su longitud.
+     */
+    private void escribirTexto(String texto, int posicion, int longitud, boolean conLongitud) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        int lon = Math.min(bytes.length, longitud);
+        while (lon < bytes.length && lon > 0 && (bytes[lon] & 0xC0) == 0x80) {
+            lon--; // Retrocede hasta el inicio de un carácter UTF-8
+        }
+        if (conLongitud) {
+            registro[posicion++] = (byte) lon;
+        }
+        System.arraycopy(bytes, 0, registro, posicion, lon);
+    }
+
+    /**
+     * Lee un texto del búfer del registro.
+     *
+     * @param posicion    la posición del campo.
+     * @param longitud    la longitud máxima del campo en bytes.
+     * @param conLongitud si el campo empieza con un byte que indica su longitud.
+     * @return el texto leído.
+     */
+    private String leerTexto(int posicion, int longitud, boolean conLongitud) {
+        int lon;
+        if (conLongitud) {
+            lon = registro[posicion++] & 0xFF;
+        } else {
+            lon = 0;
+            while (lon < longitud && registro[posicion + lon] != 0) {
+                lon++;
+            }
+        }
+        return new String(registro, posicion, lon, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Recorta un texto a una longitud máxima en bytes UTF-8 sin partir ningún
+     * carácter, igual que {@link #escribirTexto}.
+     *
+     * @param texto    el texto.
+     * @param longitud la longitud máxima en bytes.
+     * @return el texto recortado, o el mismo si ya cabe.
+     */
+    private static String recortar(String texto, int longitud) {
+        if (texto.length() * 3 <= longitud) {
+            return texto;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= longitud) {
+            return texto;
+        }
+        int lon = longitud;
+        while (lon > 0 && (bytes[lon] & 0xC0) == 0x80) {
+            lon--; // Retrocede hasta el inicio de un carácter UTF-8
+        }
+        return new String(bytes, 0, lon, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe un número con un número fijo de dígitos, con ceros a la izquierda,
+     * seguido opcionalmente de una letra.
+     *
+     * @param numero   el número.
+     * @param longitud el número de dígitos.
+     * @param letra    la letra final, o el carácter nulo si no lleva.
+     * @return el texto.
+     */
+    private static String digitos(int numero, int longitud, char letra) {
+        char[] texto = new char[letra == '\0' ? longitud : longitud + 1];
+        if (letra != '\0') {
+            texto[longitud] = letra;
+        }
+        for (int i = longitud - 1; i >= 0; i--) {
+            texto[i] = (char) ('0' + numero % 10);
+            numero /= 10;
+        }
+        return new String(texto);
+    }
+
+    /**
+     * Comprueba si un registro está completamente a ceros (hueco sin escribir).
+     *
+     * @param datos los bytes del registro.
+     * @return verdadero si todos los bytes son cero.
+     */
+    private static boolean estaVacio(byte[] datos) {
+        for (byte b : datos) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Comprueba el CRC de un registro.
+     *
+     * @param datos los bytes del registro.
+     * @return verdadero si el CRC guardado coincide con el contenido.
+     */
+    private boolean crcCorrecto(byte[] datos) {
+        crc.reset();
+        crc.update(datos, 0, tamRegistro - 4);
+        return ByteBuffer.wrap(datos).getInt(tamRegistro - 4) == (int) crc.getValue();
+    }
+
+    /**
+     * Interfaz para recorrer los registros del almacén.
+     */
+    public interface Visitante {
+
+        /**
+         * Recibe un registro del almacén.
+         *
+         * @param indice       el índice del registro.
+         * @param tipoRegistro el tipo de registro ({@link #ALTA} o {@link #BAJA}).
+         * @param reserva      los datos de la reserva; en las bajas solo contiene el DNI.
+         */
+        void visitar(long indice, byte tipoRegistro, Reserva reserva);
+    }
+}
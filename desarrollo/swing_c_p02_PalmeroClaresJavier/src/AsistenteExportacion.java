@@ -0,0 +1,109 @@
+import java.awt.Component;
+import java.awt.Cursor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * Asistente que pide al usuario el archivo y el formato de una exportación y la
+ * ejecuta en segundo plano, para que el hilo de despacho de eventos no se
+ * bloquee mientras se escribe el documento.
+ */
+final class AsistenteExportacion {
+
+    /**
+     * Origen de las reservas que se exportan.
+     */
+    interface Fuente {
+
+        /**
+         * Escribe las reservas en el exportador. Se llama fuera del hilo de eventos.
+         *
+         * @param exportador el exportador abierto sobre el archivo elegido.
+         * @throws IOException si no se puede escribir el documento.
+         */
+        void escribir(ExportadorReservas exportador) throws IOException;
+    }
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private AsistenteExportacion() {
+    }
+
+    /**
+     * Pide el archivo de destino y exporta las reservas en segundo plano,
+     * avisando al usuario al terminar.
+     *
+     * @param padre         el componente sobre el que se muestran los diálogos.
+     * @param nombreArchivo el nombre propuesto para el archivo, sin extensión.
+     * @param titulo        el título del documento.
+     * @param fuente        el origen de las reservas.
+     */
+    static void exportar(Component padre, String nombreArchivo, String titulo, Fuente fuente) {
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle(titulo);
+        selector.setAcceptAllFileFilterUsed(false);
+        for (ExportadorReservas.Formato formato : ExportadorReservas.Formato.values()) {
+            FileFilter filtro = new FileNameExtensionFilter(formato.getDescripcion(), formato.getExtension());
+            selector.addChoosableFileFilter(filtro);
+            if (formato == ExportadorReservas.Formato.HTML) {
+                selector.setFileFilter(filtro);
+            }
+        }
+        selector.setSelectedFile(new File(nombreArchivo));
+        if (selector.showSaveDialog(padre) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        // El formato es el del filtro elegido, y se añade su extensión si falta
+        ExportadorReservas.Formato formato = ExportadorReservas.Formato.values()[0];
+        for (ExportadorReservas.Formato f : ExportadorReservas.Formato.values()) {
+            if (selector.getFileFilter().getDescription().equals(f.getDescripcion())) {
+                formato = f;
+            }
+        }
+        File archivo = selector.getSelectedFile();
+        if (!archivo.getName().toLowerCase().endsWith("." + formato.getExtension())) {
+            archivo = new File(archivo.getParentFile(), archivo.getName() + "." + formato.getExtension());
+        }
+        if (archivo.exists() && JOptionPane.showConfirmDialog(padre, "El archivo ya existe. ¿Desea sustituirlo?",
+                titulo, JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        Path destino = archivo.toPath();
+        ExportadorReservas.Formato formatoElegido = formato;
+        padre.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws IOException {
+                try (ExportadorReservas exportador = new ExportadorReservas(destino, formatoElegido, titulo)) {
+                    fuente.escribir(exportador);
+                    return exportador.getNumReservas();
+                }
+            }
+
+            @Override
+            protected void done() {
+                padre.setCursor(Cursor.getDefaultCursor());
+                try {
+                    JOptionPane.showMessageDialog(padre,
+                            String.format("Reservas exportadas: %d\n%s", get(), destino), "Éxito",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    JOptionPane.showMessageDialog(padre, "No se ha podido exportar el documento", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+}
@@ -0,0 +1,373 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Caché de imágenes compartida por toda la aplicación.
+ * Guarda tanto las imágenes originales decodificadas desde {@code /recursos/}
+ * como sus versiones escaladas, identificadas por la ruta del recurso y el
+ * tamaño de destino. La memoria ocupada está acotada en bytes y, al superarse
+ * el límite, se descartan las entradas usadas hace más tiempo (LRU).
+ */
+public final class CacheImagenes {
+
+    /** Límite de memoria por defecto de la caché: 64 MB. */
+    private static final long LIMITE_POR_DEFECTO = 64L * 1024 * 1024;
+
+    /** Instancia única compartida por todas las ventanas y paneles. */
+    private static final CacheImagenes INSTANCIA = new CacheImagenes(LIMITE_POR_DEFECTO);
+
+    static {
+        // Los recursos se leen en memoria, sin copiarlos antes a un archivo temporal
+        ImageIO.setUseCache(false);
+    }
+
+    /** Entradas de la caché en orden de acceso (la primera es la menos usada). */
+    private final LinkedHashMap<Clave, BufferedImage> entradas = new LinkedHashMap<>(32, 0.75f, true);
+
+    /** Número máximo de bytes que pueden ocupar las imágenes guardadas. */
+    private final long limiteBytes;
+
+    /** Bytes ocupados actualmente por las imágenes guardadas. */
+    private long bytesOcupados;
+
+    // Contadores de uso de la caché
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong decodificaciones = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    /**
+     * Crea una caché con el límite de memoria indicado.
+     *
+     * @param limiteBytes el número máximo de bytes que pueden ocupar las imágenes.
+     */
+    CacheImagenes(long limiteBytes) {
+        this.limiteBytes = limiteBytes;
+    }
+
+    /**
+     * Obtiene la caché compartida de la aplicación.
+     *
+     * @return la instancia única de la caché.
+     */
+    public static CacheImagenes getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Obtiene la imagen original de un recurso, decodificándola solo la primera vez.
+     *
+     * @param ruta la ruta del recurso, por ejemplo {@code /recursos/nuevo.png}.
+     * @return la imagen decodificada, o null si el recurso no existe o no se puede leer.
+     */
+    public BufferedImage obtenerOriginal(String ruta) {
+        EventosHotel.Imagen evento = new EventosHotel.Imagen();
+        evento.begin();
+        Clave clave = new Clave(ruta, 0, 0);
+        BufferedImage imagen = buscar(clave);
+        boolean acierto = imagen != null;
+        if (!acierto) {
+            imagen = decodificar(ruta);
+            if (imagen != null) {
+                guardar(clave, imagen);
+            }
+        }
+        registrar(evento, ruta, "Decodificación", imagen, acierto);
+        return imagen;
+    }
+
+    /**
+     * Obtiene un recurso escalado exactamente al tamaño indicado, con escalado suave.
+     *
+     * @param ruta  la ruta del recurso.
+     * @param ancho el ancho de destino en píxeles.
+     * @param alto  el alto de destino en píxeles.
+     * @return la imagen escalada, o null si el recurso no existe o el tamaño no es válido.
+     */
+    public BufferedImage obtenerEscalada(String ruta, int ancho, int alto) {
+        if (ancho <= 0 || alto <= 0) {
+            return null;
+        }
+        EventosHotel.Imagen evento = new EventosHotel.Imagen();
+        evento.begin();
+        Clave clave = new Clave(ruta, ancho, alto);
+        BufferedImage imagen = buscar(clave);
+        boolean acierto = imagen != null;
+        if (!acierto) {
+            BufferedImage original = obtenerOriginal(ruta);
+            if (original != null) {
+                imagen = escalarSuave(original, ancho, alto);
+                guardar(clave, imagen);
+            }
+        }
+        registrar(evento, ruta, "Escalado", imagen, acierto);
+        return imagen;
+    }
+
+    /**
+     * Termina el evento de JFR de una imagen obtenida de la caché.
+     *
+     * @param evento    el evento.
+     * @param ruta      la ruta del recurso.
+     * @param operacion la operación realizada si la imagen no estaba en la caché.
+     * @param imagen    la imagen obtenida, o null.
+     * @param acierto   verdadero si la imagen ya estaba en la caché.
+     */
+    private static void registrar(EventosHotel.Imagen evento, String ruta, String operacion, BufferedImage imagen,
+            boolean acierto) {
+        if (evento.shouldCommit()) {
+            evento.ruta = ruta;
+            evento.operacion = operacion;
+            evento.aciertoCache = acierto;
+            if (imagen != null) {
+                evento.ancho = imagen.getWidth();
+                evento.alto = imagen.getHeight();
+                evento.bytes = calcularBytes(imagen);
+            }
+            evento.commit();
+        }
+    }
+
+    /**
+     * Obtiene un recurso escalado para que quepa en el tamaño indicado
+     * manteniendo su proporción original.
+     *
+     * @param ruta     la ruta del recurso.
+     * @param anchoMax el ancho máximo disponible.
+     * @param altoMax  el alto máximo disponible.
+     * @return la imagen escalada, o null si el recurso no existe o el tamaño no es válido.
+     */
+    public BufferedImage obtenerAjustada(String ruta, int anchoMax, int altoMax) {
+        BufferedImage original = obtenerOriginal(ruta);
+        if (original == null || anchoMax <= 0 || altoMax <= 0) {
+            return null;
+        }
+        double escala = Math.min((double) anchoMax / original.getWidth(), (double) altoMax / original.getHeight());
+        return obtenerEscalada(ruta, Math.max(1, (int) (original.getWidth() * escala)),
+                Math.max(1, (int) (original.getHeight() * escala)));
+    }
+
+    /**
+     * Consulta si un recurso ya está en la caché escalado al tamaño indicado,
+     * sin decodificar ni escalar nada si no lo está. Pensado para el hilo de
+     * despacho de eventos, que no debe esperar a estas operaciones.
+     *
+     * @param ruta  la ruta del recurso.
+     * @param ancho el ancho de destino en píxeles.
+     * @param alto  el alto de destino en píxeles.
+     * @return la imagen escalada guardada, o null si todavía no está en la caché.
+     */
+    public BufferedImage consultarEscalada(String ruta, int ancho, int alto) {
+        return buscar(new Clave(ruta, ancho, alto));
+    }
+
+    /**
+     * Consulta si la imagen original de un recurso ya está decodificada en la caché.
+     *
+     * @param ruta la ruta del recurso.
+     * @return la imagen original guardada, o null si todavía no se ha decodificado.
+     */
+    public BufferedImage consultarOriginal(String ruta) {
+        return buscar(new Clave(ruta, 0, 0));
+    }
+
+    /**
+     * Busca una entrada en la caché y actualiza los contadores de aciertos y fallos.
+     *
+     * @param clave la clave de la entrada.
+     * @return la imagen guardada, o null si no estaba en la caché.
+     */
+    private BufferedImage buscar(Clave clave) {
+        BufferedImage imagen;
+        synchronized (entradas) {
+            imagen = entradas.get(clave);
+        }
+        (imagen != null ? aciertos : fallos).incrementAndGet();
+        return imagen;
+    }
+
+    /**
+     * Guarda una imagen en la caché y desaloja las entradas menos usadas si se supera el límite.
+     *
+     * @param clave  la clave de la entrada.
+     * @param imagen la imagen a guardar.
+     */
+    private void guardar(Clave clave, BufferedImage imagen) {
+        long tamano = calcularBytes(imagen);
+        if (tamano > limiteBytes) {
+            return; // Una imagen mayor que toda la caché no se guarda
+        }
+        synchronized (entradas) {
+            BufferedImage anterior = entradas.put(clave, imagen);
+            if (anterior != null) {
+                bytesOcupados -= calcularBytes(anterior);
+            }
+            bytesOcupados += tamano;
+
+            Iterator<Map.Entry<Clave, BufferedImage>> it = entradas.entrySet().iterator();
+            while (bytesOcupados > limiteBytes && it.hasNext()) {
+                Map.Entry<Clave, BufferedImage> entrada = it.next();
+                if (entrada.getKey().equals(clave)) {
+                    continue; // No se desaloja la entrada recién guardada
+                }
+                bytesOcupados -= calcularBytes(entrada.getValue());
+                it.remove();
+                desalojos.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Decodifica un recurso PNG desde el classpath.
+     *
+     * @param ruta la ruta del recurso.
+     * @return la imagen decodificada, o null si ocurre un error.
+     */
+    private BufferedImage decodificar(String ruta) {
+        URL url = CacheImagenes.class.getResource(ruta);
+        if (url == null) {
+            System.err.println("Error al cargar la imagen: " + ruta);
+            return null;
+        }
+        try {
+            decodificaciones.incrementAndGet();
+            return ImageIO.read(url);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Escala una imagen con el algoritmo suave de AWT y la vuelca a una imagen
+     * en memoria, de modo que el escalado se realiza una sola vez.
+     *
+     * @param original la imagen original.
+     * @param ancho    el ancho de destino.
+     * @param alto     el alto de destino.
+     * @return la imagen escalada.
+     */
+    static BufferedImage escalarSuave(BufferedImage original, int ancho, int alto) {
+        Image escalada = original.getScaledInstance(ancho, alto, Image.SCALE_SMOOTH);
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = destino.createGraphics();
+        g.drawImage(escalada, 0, 0, null);
+        g.dispose();
+        return destino;
+    }
+
+    /**
+     * Escala una imagen con interpolación por vecino más próximo. Es mucho más
+     * rápido que el escalado suave y se usa como vista previa provisional.
+     *
+     * @param original la imagen original.
+     * @param ancho    el ancho de destino.
+     * @param alto     el alto de destino.
+     * @return la imagen escalada, que no se guarda en la caché.
+     */
+    static BufferedImage escalarRapido(BufferedImage original, int ancho, int alto) {
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = destino.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g.drawImage(original, 0, 0, ancho, alto, null);
+        g.dispose();
+        return destino;
+    }
+
+    /**
+     * Estima la memoria que ocupa una imagen guardada.
+     *
+     * @param imagen la imagen.
+     * @return el número aproximado de bytes de sus píxeles.
+     */
+    private static long calcularBytes(BufferedImage imagen) {
+        int bitsPorPixel = imagen.getColorModel().getPixelSize();
+        return (long) imagen.getWidth() * imagen.getHeight() * Math.max(1, (bitsPorPixel + 7) / 8);
+    }
+
+    /**
+     * Vacía la caché por completo, sin reiniciar los contadores.
+     */
+    public void limpiar() {
+        synchronized (entradas) {
+            entradas.clear();
+            bytesOcupados = 0;
+        }
+    }
+
+    /** @return el número de búsquedas que encontraron la imagen en la caché. */
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    /** @return el número de búsquedas que no encontraron la imagen en la caché. */
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    /** @return el número de veces que se ha decodificado un PNG desde los recursos. */
+    public long getDecodificaciones() {
+        return decodificaciones.get();
+    }
+
+    /** @return el número de entradas desalojadas por falta de espacio. */
+    public long getDesalojos() {
+        return desalojos.get();
+    }
+
+    /** @return los bytes ocupados actualmente por las imágenes guardadas. */
+    public long getBytesOcupados() {
+        synchronized (entradas) {
+            return bytesOcupados;
+        }
+    }
+
+    /**
+     * Obtiene un resumen legible del estado de la caché.
+     *
+     * @return el resumen con aciertos, fallos, decodificaciones y memoria ocupada.
+     */
+    public String obtenerResumen() {
+        return String.format("Caché de imágenes: %d aciertos, %d fallos, %d decodificaciones, %d desalojos, %d KB de %d KB",
+                getAciertos(), getFallos(), getDecodificaciones(), getDesalojos(),
+                getBytesOcupados() / 1024, limiteBytes / 1024);
+    }
+
+    /**
+     * Clave de una entrada de la caché: ruta del recurso y tamaño de destino.
+     * El tamaño 0x0 identifica la imagen original sin escalar.
+     */
+    private static final class Clave {
+        private final String ruta;
+        private final int ancho;
+        private final int alto;
+
+        Clave(String ruta, int ancho, int alto) {
+            this.ruta = ruta;
+            this.ancho = ancho;
+            this.alto = alto;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clave)) {
+                return false;
+            }
+            Clave otra = (Clave) o;
+            return ancho == otra.ancho && alto == otra.alto && ruta.equals(otra.ruta);
+        }
+
+        @Override
+        public int hashCode() {
+            return (ruta.hashCode() * 31 + ancho) * 31 + alto;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Cálculos con las fechas de las estancias, expresadas como días desde el 1 de
+ * enero de 1970 (días de época). El número de noches es la diferencia entre el
+ * día de salida y el de entrada, de modo que los cambios de horario de verano
+ * no afectan al resultado.
+ *
+ * <p>La clase no tiene estado mutable compartido salvo una caché inmutable del
+ * desfase horario, así que puede usarse desde cualquier hilo. Ninguno de sus
+ * métodos reserva memoria, salvo al calcular el desfase de un periodo horario
+ * distinto del último consultado. La zona horaria es la predeterminada del
+ * sistema al cargar la clase.</p>
+ */
+public final class CalculadoraEstancia {
+
+    /** Milisegundos de un día. */
+    private static final long MILLIS_DIA = 24L * 60 * 60 * 1000;
+
+    /** Días desde el 1 de marzo del año 0 hasta el 1 de enero de 1970. */
+    private static final int DIAS_HASTA_1970 = 719468;
+
+    /** Días de un ciclo de 400 años del calendario gregoriano. */
+    private static final int DIAS_CICLO = 146097;
+
+    /** Reglas de la zona horaria del sistema. */
+    private static final ZoneRules REGLAS = ZoneId.systemDefault().getRules();
+
+    /** Último periodo consultado en el que el desfase horario no cambia. */
+    private static volatile Tramo tramo = calcularTramo(System.currentTimeMillis());
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private CalculadoraEstancia() {
+    }
+
+    /**
+     * Calcula el número de noches de una estancia.
+     *
+     * @param entrada el día de entrada.
+     * @param salida  el día de salida.
+     * @return el número de noches, o 0 si la salida no es posterior a la entrada.
+     */
+    public static int noches(int entrada, int salida) {
+        return Math.max(0, salida - entrada);
+    }
+
+    /**
+     * Obtiene el día de hoy según la zona horaria del sistema.
+     *
+     * @return el día de hoy, en días desde 1970.
+     */
+    public static int hoy() {
+        return diaLocal(System.currentTimeMillis());
+    }
+
+    /**
+     * Obtiene el día local al que corresponde un instante.
+     *
+     * @param millis el instante, en milisegundos desde 1970 (por ejemplo, {@code Date.getTime()}).
+     * @return el día local, en días desde 1970.
+     */
+    public static int diaLocal(long millis) {
+        return (int) Math.floorDiv(millis + desfase(millis), MILLIS_DIA);
+    }
+
+    /**
+     * Obtiene el instante en que empieza un día local. Si la medianoche se repite
+     * por un cambio de hora se toma la primera, y si no existe porque cae en un
+     * salto de hora, el día empieza al terminar el salto.
+     *
+     * @param dia el día, en días desde 1970.
+     * @return el instante en que empieza el día, en milisegundos desde 1970.
+     */
+    public static long inicioDia(int dia) {
+        long medianocheUTC = dia * MILLIS_DIA;
+        // Medianoche con el desfase de antes y con el de después de un posible cambio de hora
+        long conDesfaseAnterior = medianocheUTC - desfase(medianocheUTC - MILLIS_DIA * 3 / 2);
+        long conDesfasePosterior = medianocheUTC - desfase(medianocheUTC + MILLIS_DIA * 3 / 2);
+        boolean anteriorValida = medianocheUTC - desfase(conDesfaseAnterior) == conDesfaseAnterior;
+        boolean posteriorValida = medianocheUTC - desfase(conDesfasePosterior) == conDesfasePosterior;
+        if (anteriorValida && posteriorValida) {
+            return Math.min(conDesfaseAnterior, conDesfasePosterior);
+        }
+        if (anteriorValida || posteriorValida) {
+            return anteriorValida ? conDesfaseAnterior : conDesfasePosterior;
+        }
+        return calcularTramo(Math.min(conDesfaseAnterior, conDesfasePosterior)).hasta;
+    }
+
+    /**
+     * Convierte una fecha del calendario en días desde 1970.
+     *
+     * @param anio el año.
+     * @param mes  el mes, de 1 a 12.
+     * @param dia  el día del mes.
+     * @return la fecha, en días desde 1970.
+     * @throws IllegalArgumentException si la fecha no existe.
+     */
+    public static int diaDeFecha(int anio, int mes, int dia) {
+        if (mes < 1 || mes > 12 || dia < 1 || dia > diasDelMes(anio, mes)) {
+            throw new IllegalArgumentException("Fecha no válida: " + dia + "/" + mes + "/" + anio);
+        }
+        int a = mes <= 2 ? anio - 1 : anio;
+        int ciclo = Math.floorDiv(a, 400);
+        int anioDelCiclo = a - ciclo * 400;
+        int diaDelAnio = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5 + dia - 1;
+        int diaDelCiclo = anioDelCiclo * 365 + anioDelCiclo / 4 - anioDelCiclo / 100 + diaDelAnio;
+        return ciclo * DIAS_CICLO + diaDelCiclo - DIAS_HASTA_1970;
+    }
+
+    /**
+     * Obtiene el año de un día.
+     *
+     * @param dia el día, en días desde 1970.
+     * @return el año.
+     */
+    public static int anio(int dia) {
+        return civil(dia) >> 9;
+    }
+
+    /**
+     * Obtiene el mes de un día.
+     *
+     * @param dia el día, en días desde 1970.
+     * @return el mes, de 1 a 12.
+     */
+    public static int mes(int dia) {
+        return (civil(dia) >> 5) & 0xF;
+    }
+
+    /**
+     * Obtiene el día del mes de un día.
+     *
+     * @param dia el día, en días desde 1970.
+     * @return el día del mes, de 1 a 31.
+     */
+    public static int diaDelMes(int dia) {
+        return civil(dia) & 0x1F;
+    }
+
+    /**
+     * Añade un día con el formato {@code dd/MM/yyyy}, el mismo de los campos de fecha.
+     *
+     * @param dia     el día, en días desde 1970.
+     * @param destino el texto donde se añade.
+     * @return el texto, para encadenar llamadas.
+     */
+    public static StringBuilder formatear(int dia, StringBuilder destino) {
+        int fecha = civil(dia);
+        dosDigitos(fecha & 0x1F, destino).append('/');
+        dosDigitos((fecha >> 5) & 0xF, destino).append('/');
+        return destino.append(fecha >> 9);
+    }
+
+    /**
+     * Añade un día con el formato ISO {@code yyyy-MM-dd}.
+     *
+     * @param dia     el día, en días desde 1970.
+     * @param destino el texto donde se añade.
+     * @return el texto, para encadenar llamadas.
+     */
+    public static StringBuilder formatearISO(int dia, StringBuilder destino) {
+        int fecha = civil(dia);
+        destino.append(fecha >> 9).append('-');
+        dosDigitos((fecha >> 5) & 0xF, destino).append('-');
+        return dosDigitos(fecha & 0x1F, destino);
+    }
+
+    /**
+     * Calcula el número de días de un mes.
+     *
+     * @param anio el año.
+     * @param mes  el mes, de 1 a 12.
+     * @return el número de días.
+     */
+    private static int diasDelMes(int anio, int mes) {
+        if (mes == 2) {
+            boolean bisiesto = (anio & 3) == 0 && (anio % 100 != 0 || anio % 400 == 0);
+            return bisiesto ? 29 : 28;
+        }
+        return mes == 4 || mes == 6 || mes == 9 || mes == 11 ? 30 : 31;
+    }
+
+    /**
+     * Convierte un día en su fecha del calendario, empaquetada en un entero
+     * como {@code anio << 9 | mes << 5 | dia}.
+     *
+     * @param dia el día, en días desde 1970.
+     * @return la fecha empaquetada.
+     */
+    private static int civil(int dia) {
+        int z = dia + DIAS_HASTA_1970;
+        int ciclo = Math.floorDiv(z, DIAS_CICLO);
+        int diaDelCiclo = z - ciclo * DIAS_CICLO;
+        int anioDelCiclo = (diaDelCiclo - diaDelCiclo / 1460 + diaDelCiclo / 36524 - diaDelCiclo / 146096) / 365;
+        int diaDelAnio = diaDelCiclo - (365 * anioDelCiclo + anioDelCiclo / 4 - anioDelCiclo / 100);
+        int mesDesdeMarzo = (5 * diaDelAnio + 2) / 153;
+        int diaDelMes = diaDelAnio - (153 * mesDesdeMarzo + 2) / 5 + 1;
+        int mes = mesDesdeMarzo < 10 ? mesDesdeMarzo + 3 : mesDesdeMarzo - 9;
+        int anio = anioDelCiclo + ciclo * 400 + (mes <= 2 ? 1 : 0);
+        return anio << 9 | mes << 5 | diaDelMes;
+    }
+
+    /**
+     * Añade un número de 0 a 99 con dos dígitos.
+     *
+     * @param numero  el número.
+     * @param destino el texto donde se añade.
+     * @return el texto, para encadenar llamadas.
+     */
+    private static StringBuilder dosDigitos(int numero, StringBuilder destino) {
+        return destino.append((char) ('0' + numero / 10)).append((char) ('0' + numero % 10));
+    }
+
+    /**
+     * Obtiene el desfase de la hora local respecto a UTC en un instante.
+     *
+     * @param millis el instante, en milisegundos desde 1970.
+     * @return el desfase, en milisegundos.
+     */
+    private static long desfase(long millis) {
+        Tramo actual = tramo;
+        if (millis < actual.desde || millis >= actual.hasta) {
+            actual = calcularTramo(millis);
+            tramo = actual;
+        }
+        return actual.desfase;
+    }
+
+    /**
+     * Calcula el periodo sin cambios de hora que contiene un instante.
+     *
+     * @param millis el instante, en milisegundos desde 1970.
+     * @return el periodo con su desfase.
+     */
+    private static Tramo calcularTramo(long millis) {
+        Instant instante = Instant.ofEpochMilli(millis);
+        long desfase = REGLAS.getOffset(instante).getTotalSeconds() * 1000L;
+        if (REGLAS.isFixedOffset()) {
+            return new Tramo(Long.MIN_VALUE, Long.MAX_VALUE, desfase);
+        }
+        ZoneOffsetTransition anterior = REGLAS.previousTransition(instante);
+        ZoneOffsetTransition siguiente = REGLAS.nextTransition(instante);
+        long desde = anterior != null && anterior.getOffsetAfter().getTotalSeconds() * 1000L == desfase
+                ? anterior.toEpochSecond() * 1000 : millis;
+        long hasta = siguiente != null ? siguiente.toEpochSecond() * 1000 : Long.MAX_VALUE;
+        return new Tramo(desde, hasta, desfase);
+    }
+
+    /**
+     * Periodo de tiempo en el que el desfase horario no cambia. Es inmutable,
+     * así que puede compartirse entre hilos sin sincronización.
+     */
+    private static final class Tramo {
+
+        /** Inicio del periodo, incluido, en milisegundos desde 1970. */
+        final long desde;
+
+        /** Fin del periodo, no incluido, en milisegundos desde 1970. */
+        final long hasta;
+
+        /** Desfase de la hora local respecto a UTC, en milisegundos. */
+        final long desfase;
+
+        Tramo(long desde, long hasta, long desfase) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.desfase = desfase;
+        }
+    }
+}
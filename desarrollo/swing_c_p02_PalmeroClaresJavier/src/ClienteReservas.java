@@ -0,0 +1,219 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Cliente del {@link ServidorReservas}, para que los puestos de recepción den
+ * de alta, den de baja y consulten la disponibilidad de las reservas en un
+ * servidor compartido en lugar de en el almacén local. La
+ * dirección del servidor se configura con la propiedad del sistema
+ * {@value #PROPIEDAD}, por ejemplo {@code -Dhotel.servidor=http://127.0.0.1:8470}.
+ *
+ * <p>Es seguro entre hilos: todas las peticiones comparten una sola conexión
+ * HTTP, que se mantiene abierta entre peticiones. Los métodos asíncronos no
+ * bloquean el hilo que los llama, así que pueden usarse desde el hilo de eventos.</p>
+ */
+public final class ClienteReservas {
+
+    /** Nombre de la propiedad del sistema con la dirección del servidor. */
+    public static final String PROPIEDAD = "hotel.servidor";
+
+    /** Tiempo máximo de espera de una respuesta. */
+    private static final Duration ESPERA = Duration.ofSeconds(10);
+
+    /** Cliente HTTP del JDK. */
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(ESPERA).build();
+
+    /** Dirección base de las peticiones, terminada en {@code /reservas}. */
+    private final String base;
+
+    /**
+     * Crea un cliente de un servidor de reservas.
+     *
+     * @param direccion la dirección del servidor, por ejemplo {@code http://127.0.0.1:8470}.
+     */
+    public ClienteReservas(String direccion) {
+        this.base = (direccion.endsWith("/") ? direccion.substring(0, direccion.length() - 1) : direccion)
+                + ServidorReservas.RUTA;
+    }
+
+    /**
+     * Crea el cliente del servidor configurado con la propiedad {@value #PROPIEDAD}.
+     *
+     * @return el cliente, o null si no hay ningún servidor configurado.
+     */
+    public static ClienteReservas configurado() {
+        String direccion = System.getProperty(PROPIEDAD);
+        return direccion == null || direccion.isBlank() ? null : new ClienteReservas(direccion.trim());
+    }
+
+    /**
+     * Obtiene el importe que el servidor calcula para una reserva.
+     *
+     * @param reserva la reserva.
+     * @return el importe en céntimos, o -1 si no quedan habitaciones libres para toda la estancia.
+     * @throws IOException si el servidor no responde o rechaza la reserva.
+     */
+    public long cotizar(Reserva reserva) throws IOException {
+        Map<String, String> respuesta = enviar(HttpRequest.newBuilder(URI.create(base + "/cotizacion"))
+                .POST(HttpRequest.BodyPublishers.ofString(ReservaJSON.escribir(reserva))), 200);
+        int libres = ReservaJSON.entero(ReservaJSON.obligatorio(respuesta, "libres"), "libres");
+        return libres < reserva.getNumHabitaciones() ? -1
+                : Long.parseLong(ReservaJSON.obligatorio(respuesta, "importeCentimos"));
+    }
+
+    /**
+     * Guarda una reserva en el servidor si quedan habitaciones libres.
+     *
+     * @param reserva la reserva.
+     * @return el índice del registro guardado, o -1 si no quedan habitaciones suficientes.
+     * @throws IOException si el servidor no responde o rechaza la reserva.
+     */
+    public long guardar(Reserva reserva) throws IOException {
+        Map<String, String> respuesta = enviar(HttpRequest.newBuilder(URI.create(base))
+                .POST(HttpRequest.BodyPublishers.ofString(ReservaJSON.escribir(reserva))), 201);
+        return respuesta == null ? -1 : Long.parseLong(ReservaJSON.obligatorio(respuesta, "registro"));
+    }
+
+    /**
+     * Guarda una reserva en el servidor sin esperar a la respuesta.
+     *
+     * @param reserva la reserva.
+     * @return el índice del registro guardado, o -1 si no quedan habitaciones
+     *         suficientes; si falla, termina con una {@link CompletionException}
+     *         causada por una {@link IOException}.
+     */
+    public CompletableFuture<Long> guardarAsincrono(Reserva reserva) {
+        return enviarAsincrono(HttpRequest.newBuilder(URI.create(base))
+                .POST(HttpRequest.BodyPublishers.ofString(ReservaJSON.escribir(reserva))), 201)
+                .thenApply(respuesta -> respuesta == null ? -1
+                        : Long.parseLong(ReservaJSON.obligatorio(respuesta, "registro")));
+    }
+
+    /**
+     * Consulta sin esperar a la respuesta las habitaciones libres de cada tipo
+     * para toda una estancia.
+     *
+     * @param entrada el día de entrada, en días desde 1970.
+     * @param salida  el día de salida, en días desde 1970.
+     * @return las habitaciones libres, con el código del tipo como posición.
+     */
+    public CompletableFuture<int[]> libres(int entrada, int salida) {
+        StringBuilder consulta = new StringBuilder(base).append("/libres?entrada=");
+        CalculadoraEstancia.formatearISO(entrada, consulta).append("&salida=");
+        CalculadoraEstancia.formatearISO(salida, consulta);
+        return enviarAsincrono(HttpRequest.newBuilder(URI.create(consulta.toString())).GET(), 200)
+                .thenApply(respuesta -> {
+                    int[] libres = new int[TipoHabitacion.numTipos()];
+                    for (TipoHabitacion tipo : TipoHabitacion.values()) {
+                        libres[tipo.getCodigo()] = ReservaJSON.entero(
+                                ReservaJSON.obligatorio(respuesta, tipo.getEtiqueta()), tipo.getEtiqueta());
+                    }
+                    return libres;
+                });
+    }
+
+    /**
+     * Cuenta en el servidor las reservas activas de un cliente.
+     *
+     * @param dni el DNI del cliente.
+     * @return el número de reservas activas.
+     * @throws IOException si el servidor no responde o rechaza la petición.
+     */
+    public int contarActivas(String dni) throws IOException {
+        Map<String, String> respuesta = enviar(HttpRequest.newBuilder(URI.create(base + "/" + dni)).GET(), 200);
+        return ReservaJSON.entero(ReservaJSON.obligatorio(respuesta, "activas"), "activas");
+    }
+
+    /**
+     * Cancela en el servidor las reservas activas de un cliente.
+     *
+     * @param dni el DNI del cliente.
+     * @return el número de reservas canceladas.
+     * @throws IOException si el servidor no responde o rechaza la petición.
+     */
+    public int cancelar(String dni) throws IOException {
+        Map<String, String> respuesta = enviar(HttpRequest.newBuilder(URI.create(base + "/" + dni)).DELETE(), 200);
+        return ReservaJSON.entero(ReservaJSON.obligatorio(respuesta, "canceladas"), "canceladas");
+    }
+
+    /**
+     * Envía una petición y lee el objeto JSON de la respuesta.
+     *
+     * @param peticion la petición sin enviar.
+     * @param esperado el código de estado de una respuesta correcta.
+     * @return los campos de la respuesta, o null si el servidor responde 409 (sin habitaciones).
+     * @throws IOException si el servidor no responde o responde con un error.
+     */
+    private Map<String, String> enviar(HttpRequest.Builder peticion, int esperado) throws IOException {
+        HttpResponse<String> respuesta;
+        try {
+            respuesta = http.send(preparar(peticion), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Petición interrumpida", e);
+        }
+        return leerRespuesta(respuesta, esperado);
+    }
+
+    /**
+     * Envía una petición sin esperar a la respuesta.
+     *
+     * @param peticion la petición sin enviar.
+     * @param esperado el código de estado de una respuesta correcta.
+     * @return los campos de la respuesta, o null si el servidor responde 409; si
+     *         falla, termina con una {@link CompletionException} causada por una
+     *         {@link IOException}.
+     */
+    private CompletableFuture<Map<String, String>> enviarAsincrono(HttpRequest.Builder peticion, int esperado) {
+        return http.sendAsync(preparar(peticion), HttpResponse.BodyHandlers.ofString()).thenApply(respuesta -> {
+            try {
+                return leerRespuesta(respuesta, esperado);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Completa una petición con el tiempo máximo de espera y el tipo del cuerpo.
+     *
+     * @param peticion la petición sin enviar.
+     * @return la petición lista para enviar.
+     */
+    private static HttpRequest preparar(HttpRequest.Builder peticion) {
+        return peticion.timeout(ESPERA).header("Content-Type", "application/json; charset=utf-8").build();
+    }
+
+    /**
+     * Lee el objeto JSON de una respuesta.
+     *
+     * @param respuesta la respuesta del servidor.
+     * @param esperado  el código de estado de una respuesta correcta.
+     * @return los campos de la respuesta, o null si el servidor responde 409 (sin habitaciones).
+     * @throws IOException si el servidor responde con un error o con un cuerpo no válido.
+     */
+    private static Map<String, String> leerRespuesta(HttpResponse<String> respuesta, int esperado)
+            throws IOException {
+        if (respuesta.statusCode() == 409) {
+            return null;
+        }
+        Map<String, String> campos;
+        try {
+            campos = ReservaJSON.leer(respuesta.body());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Respuesta no válida del servidor (" + respuesta.statusCode() + ")", e);
+        }
+        if (respuesta.statusCode() != esperado) {
+            throw new IOException("El servidor ha respondido " + respuesta.statusCode() + ": "
+                    + campos.getOrDefault("error", ""));
+        }
+        return campos;
+    }
+}
@@ -0,0 +1,157 @@
+import java.awt.*;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.*;
+
+/**
+ * Diálogo que importa un archivo CSV de reservas en segundo plano, mostrando
+ * una barra de progreso mientras dura la importación y, al terminar, un
+ * resumen con los errores encontrados.
+ */
+public class DialogoImportacion extends JDialog {
+
+    /** Valor máximo de la barra de progreso. */
+    private static final int ESCALA_PROGRESO = 1000;
+
+    /** Archivo que se importa. */
+    private final Path archivo;
+
+    /** Barra que muestra la parte del archivo ya procesada. */
+    private final JProgressBar barraProgreso = new JProgressBar(0, ESCALA_PROGRESO);
+
+    /** Etiqueta con el número de reservas importadas y rechazadas. */
+    private final JLabel lbEstado = new JLabel("Preparando la importación...");
+
+    /** Área donde se muestran los errores al terminar. */
+    private final JTextArea areaErrores = new JTextArea(12, 60);
+
+    /** Botón que cancela la importación o cierra el diálogo al terminar. */
+    private final JButton btnCancelar = new JButton("Cancelar");
+
+    /** Indica si el usuario ha pedido detener la importación. */
+    private volatile boolean cancelada;
+
+    /** Tarea que ejecuta la importación fuera del hilo de eventos. */
+    private SwingWorker<ImportadorCSV.Resultado, long[]> tarea;
+
+    /**
+     * Constructor del diálogo de importación.
+     *
+     * @param owner   la ventana propietaria del diálogo.
+     * @param archivo el archivo CSV que se va a importar.
+     */
+    public DialogoImportacion(JFrame owner, Path archivo) {
+        super(owner, "Importar Reservas", true);
+        this.archivo = archivo;
+        setIconImage(CacheImagenes.getInstancia().obtenerOriginal("/recursos/anagrama.png"));
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        setLayout(new BorderLayout(10, 10));
+
+        // Panel superior con el archivo, la barra de progreso y el estado
+        JPanel panelProgreso = new JPanel(new GridLayout(3, 1, 5, 5));
+        panelProgreso.setBorder(BorderFactory.createEmptyBorder(10, 10, 0, 10));
+        panelProgreso.add(new JLabel("Archivo: " + archivo.getFileName()));
+        barraProgreso.setStringPainted(true);
+        panelProgreso.add(barraProgreso);
+        panelProgreso.add(lbEstado);
+        add(panelProgreso, BorderLayout.NORTH);
+
+        // Área de errores, visible al terminar
+        areaErrores.setEditable(false);
+        areaErrores.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JScrollPane scrollErrores = new JScrollPane(areaErrores);
+        scrollErrores.setBorder(BorderFactory.createTitledBorder("Errores"));
+        add(scrollErrores, BorderLayout.CENTER);
+
+        // Panel inferior con el botón
+        JPanel panelBotones = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        btnCancelar.addActionListener(e -> cancelarOCerrar());
+        panelBotones.add(btnCancelar);
+        add(panelBotones, BorderLayout.SOUTH);
+
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Lanza la importación y muestra el diálogo hasta que el usuario lo cierra.
+     */
+    public void importar() {
+        tarea = new SwingWorker<ImportadorCSV.Resultado, long[]>() {
+            @Override
+            protected ImportadorCSV.Resultado doInBackground() throws Exception {
+                ImportadorCSV importador = new ImportadorCSV(ServicioReservas.getCompartido(), MotorPrecios.getEstandar());
+                return importador.importar(archivo,
+                        (leidos, totales, importadas, erroneas) -> {
+                            publish(new long[] { leidos, totales, importadas, erroneas });
+                            return !cancelada;
+                        });
+            }
+
+            @Override
+            protected void process(List<long[]> avances) {
+                long[] avance = avances.get(avances.size() - 1);
+                barraProgreso.setValue(avance[1] > 0 ? (int) (avance[0] * ESCALA_PROGRESO / avance[1]) : 0);
+                lbEstado.setText(String.format("Importadas: %d   Rechazadas: %d", avance[2], avance[3]));
+            }
+
+            @Override
+            protected void done() {
+                mostrarResultado();
+            }
+        };
+        tarea.execute();
+        setVisible(true);
+    }
+
+    /**
+     * Muestra el resultado de la importación al terminar la tarea.
+     */
+    private void mostrarResultado() {
+        btnCancelar.setText("Cerrar");
+        btnCancelar.setEnabled(true);
+        try {
+            ImportadorCSV.Resultado resultado = tarea.get();
+            if (!resultado.isCancelada()) {
+                barraProgreso.setValue(ESCALA_PROGRESO);
+            }
+            lbEstado.setText(String.format("%sLíneas: %d   Importadas: %d   Rechazadas: %d",
+                    resultado.isCancelada() ? "Cancelada. " : "", resultado.getLeidas(), resultado.getImportadas(),
+                    resultado.getErroneas()));
+            StringBuilder texto = new StringBuilder();
+            for (String error : resultado.getErrores()) {
+                texto.append(error).append('\n');
+            }
+            if (resultado.getErroneas() > resultado.getErrores().size()) {
+                texto.append("...\n");
+            }
+            if (resultado.getErroneas() > 0) {
+                texto.append("\nInforme completo: ").append(resultado.getInforme());
+            }
+            areaErrores.setText(texto.toString());
+            areaErrores.setCaretPosition(0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            lbEstado.setText("No se ha podido importar el archivo: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Pide que se detenga la importación si todavía está en marcha, o cierra el
+     * diálogo si ya ha terminado. La importación se detiene al acabar el lote en
+     * curso y las reservas de los lotes ya procesados quedan guardadas.
+     */
+    private void cancelarOCerrar() {
+        if (tarea != null && !tarea.isDone()) {
+            cancelada = true;
+            btnCancelar.setEnabled(false);
+            lbEstado.setText("Cancelando...");
+        } else {
+            dispose();
+        }
+    }
+}
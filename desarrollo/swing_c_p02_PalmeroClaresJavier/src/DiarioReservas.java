@@ -0,0 +1,263 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diario de escritura anticipada de las altas, con confirmación en grupo. El
+ * propio {@link AlmacenReservas} hace de diario: es un archivo de solo anexado
+ * cuyos registros llevan CRC y cuya cola incompleta se descarta al abrirlo, así
+ * que una alta escrita en disco no se pierde aunque la aplicación caiga. Lo que
+ * añade esta clase es cuándo se escribe en disco.
+ *
+ * <p>Escribir en disco cada alta por separado costaría una escritura síncrona
+ * por reserva, y con muchas altas a la vez (una importación, o varios puestos
+ * durante la llegada de un grupo) el disco sería el cuello de botella. En su
+ * lugar, quien añade un registro pide su confirmación con {@link #confirmar} y
+ * recibe un futuro. Un único hilo escritor junta las confirmaciones pedidas
+ * mientras tanto y fuerza de una sola vez el tramo del almacén que las cubre;
+ * después completa todos sus futuros.</p>
+ *
+ * <p>El escritor espera a juntar más confirmaciones como mucho un tiempo desde
+ * la primera que está pendiente (propiedad del sistema {@value #PROPIEDAD_ESPERA},
+ * en microsegundos), y deja de esperar en cuanto hay un número de ellas
+ * pendientes (propiedad {@value #PROPIEDAD_LOTE}). Con una espera de 0 escribe
+ * en cuanto hay algo pendiente, y se agrupan solo las confirmaciones que llegan
+ * mientras escribe el grupo anterior.</p>
+ */
+public final class DiarioReservas {
+
+    /** Nombre de la propiedad del sistema con la espera máxima en microsegundos. */
+    public static final String PROPIEDAD_ESPERA = "hotel.diario.espera";
+
+    /** Nombre de la propiedad del sistema con el número de pendientes que provoca la escritura. */
+    public static final String PROPIEDAD_LOTE = "hotel.diario.lote";
+
+    /** Espera máxima por defecto, en microsegundos. */
+    private static final long ESPERA_POR_DEFECTO = 200;
+
+    /** Número de pendientes por defecto que provoca la escritura sin esperar más. */
+    private static final int LOTE_POR_DEFECTO = 16;
+
+    /** El almacén cuyos registros se confirman. */
+    private final AlmacenReservas almacen;
+
+    /** Espera máxima desde la primera confirmación pendiente, en nanosegundos. */
+    private final long espera;
+
+    /** Número de confirmaciones pendientes que provoca la escritura sin esperar más. */
+    private final int lote;
+
+    /** Confirmaciones pedidas y todavía no escritas, en orden de llegada. Se protege con el propio diario. */
+    private List<Pendiente> pendientes = new ArrayList<>();
+
+    /** Número de registros del almacén que ya se sabe que están escritos en disco. */
+    private long confirmadosHasta;
+
+    /** Hilo escritor, o null si todavía no se ha pedido ninguna confirmación. */
+    private Thread escritor;
+
+    /** Indica si el diario está cerrado. */
+    private boolean cerrado;
+
+    /** Número de escrituras en disco hechas. */
+    private long numEscrituras;
+
+    /** Número de confirmaciones completadas. */
+    private long numConfirmaciones;
+
+    /**
+     * Crea un diario sobre un almacén, con la espera y el lote configurados en
+     * las propiedades del sistema.
+     *
+     * @param almacen el almacén.
+     */
+    public DiarioReservas(AlmacenReservas almacen) {
+        this(almacen, Long.getLong(PROPIEDAD_ESPERA, ESPERA_POR_DEFECTO), Integer.getInteger(PROPIEDAD_LOTE,
+                LOTE_POR_DEFECTO));
+    }
+
+    /**
+     * Crea un diario sobre un almacén.
+     *
+     * @param almacen      el almacén.
+     * @param esperaMicros la espera máxima desde la primera confirmación pendiente, en microsegundos.
+     * @param lote         el número de pendientes que provoca la escritura sin esperar más.
+     */
+    public DiarioReservas(AlmacenReservas almacen, long esperaMicros, int lote) {
+        if (esperaMicros < 0 || lote < 1) {
+            throw new IllegalArgumentException("Espera o lote no válidos: " + esperaMicros + ", " + lote);
+        }
+        this.almacen = almacen;
+        this.espera = TimeUnit.MICROSECONDS.toNanos(esperaMicros);
+        this.lote = lote;
+    }
+
+    /**
+     * Pide que un registro ya añadido al almacén se escriba en disco.
+     *
+     * @param registro el índice del registro.
+     * @return un futuro que se completa con el índice del registro cuando está
+     *         escrito en disco, o con una excepción si no se ha podido escribir.
+     */
+    public synchronized CompletableFuture<Long> confirmar(long registro) {
+        if (registro < confirmadosHasta) {
+            return CompletableFuture.completedFuture(registro);
+        }
+        if (cerrado) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Diario de reservas cerrado"));
+        }
+        if (escritor == null) {
+            escritor = new Thread(this::escribir, "diario-reservas");
+            escritor.setDaemon(true);
+            escritor.start();
+        }
+        Pendiente pendiente = new Pendiente(registro, System.nanoTime());
+        pendientes.add(pendiente);
+        if (pendientes.size() == 1 || pendientes.size() == lote) {
+            notifyAll();
+        }
+        return pendiente.futuro;
+    }
+
+    /**
+     * Indica que el almacén se ha sustituido por otro con todos sus registros ya
+     * escritos en disco, como ocurre al compactarlo. Quien lo sustituye debe
+     * haber esperado antes a las confirmaciones pendientes y no dejar añadir
+     * registros mientras tanto.
+     *
+     * @param numRegistros el número de registros del almacén nuevo.
+     */
+    synchronized void reiniciar(long numRegistros) {
+        confirmadosHasta = numRegistros;
+    }
+
+    /**
+     * Escribe en disco las confirmaciones pendientes y detiene el hilo escritor.
+     * Las confirmaciones pedidas después fallan.
+     *
+     * @throws InterruptedException si se interrumpe la espera al hilo escritor.
+     */
+    public void cerrar() throws InterruptedException {
+        Thread hilo;
+        synchronized (this) {
+            cerrado = true;
+            notifyAll();
+            hilo = escritor;
+        }
+        if (hilo != null) {
+            hilo.join();
+        }
+    }
+
+    /**
+     * Obtiene el número de escrituras en disco hechas hasta ahora.
+     *
+     * @return el número de escrituras.
+     */
+    public synchronized long getNumEscrituras() {
+        return numEscrituras;
+    }
+
+    /**
+     * Obtiene el número de confirmaciones completadas hasta ahora. Dividido por
+     * el número de escrituras da el tamaño medio de los grupos.
+     *
+     * @return el número de confirmaciones.
+     */
+    public synchronized long getNumConfirmaciones() {
+        return numConfirmaciones;
+    }
+
+    /**
+     * Bucle del hilo escritor: espera a que haya un grupo, lo escribe en disco y
+     * completa sus futuros, hasta que el diario se cierra y no queda nada pendiente.
+     */
+    private void escribir() {
+        while (true) {
+            List<Pendiente> grupo;
+            long desde;
+            synchronized (this) {
+                try {
+                    esperarGrupo();
+                } catch (InterruptedException e) {
+                    cerrado = true;
+                }
+                if (pendientes.isEmpty()) {
+                    return;
+                }
+                grupo = pendientes;
+                pendientes = new ArrayList<>();
+                desde = confirmadosHasta;
+            }
+            // Todos los registros del grupo se añadieron antes de pedir su confirmación
+            long hasta = almacen.getNumRegistros();
+            try {
+                almacen.forzar(desde, hasta);
+            } catch (RuntimeException e) {
+                for (Pendiente pendiente : grupo) {
+                    pendiente.futuro.completeExceptionally(e);
+                }
+                continue;
+            }
+            synchronized (this) {
+                confirmadosHasta = Math.max(confirmadosHasta, hasta);
+                numEscrituras++;
+                numConfirmaciones += grupo.size();
+            }
+            for (Pendiente pendiente : grupo) {
+                pendiente.futuro.complete(pendiente.registro);
+            }
+        }
+    }
+
+    /**
+     * Espera, reteniendo el diario, a que haya algo pendiente y después a que se
+     * junte un lote completo o pase la espera máxima desde la primera
+     * confirmación pendiente. Al cerrar el diario deja de esperar.
+     *
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    private void esperarGrupo() throws InterruptedException {
+        while (pendientes.isEmpty() && !cerrado) {
+            wait();
+        }
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        long limite = pendientes.get(0).llegada + espera;
+        while (pendientes.size() < lote && !cerrado) {
+            long resto = limite - System.nanoTime();
+            if (resto <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, resto);
+        }
+    }
+
+    /**
+     * Confirmación pedida y todavía no escrita en disco.
+     */
+    private static final class Pendiente {
+
+        /** Índice del registro. */
+        final long registro;
+
+        /** Instante en que se pidió la confirmación, según {@link System#nanoTime()}. */
+        final long llegada;
+
+        /** Futuro que se completa al escribir el registro en disco. */
+        final CompletableFuture<Long> futuro = new CompletableFuture<>();
+
+        /**
+         * Crea una confirmación pendiente.
+         *
+         * @param registro el índice del registro.
+         * @param llegada  el instante en que se pidió.
+         */
+        Pendiente(long registro, long llegada) {
+            this.registro = registro;
+            this.llegada = llegada;
+        }
+    }
+}
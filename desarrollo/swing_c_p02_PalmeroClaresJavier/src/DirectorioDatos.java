@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Clase de utilidad que localiza el directorio local donde la aplicación
+ * guarda sus datos (reservas, índices e informes). Por defecto es la carpeta
+ * {@code .hotel-continental} del usuario, y puede cambiarse con la propiedad
+ * del sistema {@code hotel.datos}.
+ */
+public final class DirectorioDatos {
+
+    /** Nombre de la propiedad del sistema que permite cambiar el directorio. */
+    public static final String PROPIEDAD = "hotel.datos";
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private DirectorioDatos() {
+    }
+
+    /**
+     * Obtiene el directorio de datos, creándolo si todavía no existe.
+     *
+     * @return la ruta del directorio de datos.
+     * @throws IOException si no se puede crear el directorio.
+     */
+    public static Path obtener() throws IOException {
+        String configurado = System.getProperty(PROPIEDAD);
+        Path directorio = configurado != null
+                ? Paths.get(configurado)
+                : Paths.get(System.getProperty("user.home"), ".hotel-continental");
+        return Files.createDirectories(directorio);
+    }
+
+    /**
+     * Obtiene la ruta de un archivo dentro del directorio de datos.
+     *
+     * @param nombre el nombre del archivo.
+     * @return la ruta del archivo.
+     * @throws IOException si no se puede crear el directorio de datos.
+     */
+    public static Path archivo(String nombre) throws IOException {
+        return obtener().resolve(nombre);
+    }
+}
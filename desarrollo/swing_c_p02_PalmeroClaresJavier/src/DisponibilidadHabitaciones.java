@@ -0,0 +1,233 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Motor de disponibilidad de habitaciones. Lleva, para cada tipo de habitación
+ * y cada día, un contador de las habitaciones ocupadas esa noche, guardado en un
+ * array de enteros atómicos que cubre un horizonte fijo de fechas. Saber si
+ * quedan N habitaciones libres entre dos fechas consiste en recorrer los
+ * contadores de esas noches, lo que lleva microsegundos incluso para estancias
+ * largas.
+ *
+ * <p>No usa cerrojos. {@link #reservar} ocupa las noches de una en una con
+ * compare-and-set, sin pasar nunca de {@link #CAPACIDAD}; si alguna noche está
+ * completa, devuelve las que ya había ocupado y la reserva no se hace. Así dos
+ * recepcionistas no pueden vender la última habitación de una noche, y las
+ * reservas de tipos o fechas distintos no se esperan entre sí. Mientras una
+ * reserva que no cabe deshace lo ocupado, las consultas pueden ver durante un
+ * instante menos habitaciones libres de las que hay, pero nunca más.</p>
+ */
+public final class DisponibilidadHabitaciones {
+
+    /** Número de habitaciones de cada tipo que tiene el hotel. */
+    public static final int CAPACIDAD = 50;
+
+    /** Primer día del horizonte: 1 de enero de 2020, en días desde 1970. */
+    static final int DIA_INICIAL = 18262;
+
+    /** Número de días del horizonte (unos 40 años). */
+    static final int NUM_DIAS = 40 * 366;
+
+    /** Día siguiente al último del horizonte, en días desde 1970: la salida más tardía que se admite. */
+    static final int DIA_FINAL = DIA_INICIAL + NUM_DIAS;
+
+    /** Habitaciones ocupadas, indexadas por tipo de habitación y día ({@code tipo * NUM_DIAS + día}). */
+    private final AtomicIntegerArray ocupadas;
+
+    /**
+     * Crea una ocupación con todas las habitaciones libres.
+     */
+    public DisponibilidadHabitaciones() {
+        ocupadas = new AtomicIntegerArray(TipoHabitacion.numTipos() * NUM_DIAS);
+    }
+
+    /**
+     * Crea una ocupación con unos contadores iniciales, que se copian.
+     *
+     * @param ocupadas las habitaciones ocupadas por tipo y día.
+     */
+    private DisponibilidadHabitaciones(int[] ocupadas) {
+        this.ocupadas = new AtomicIntegerArray(ocupadas);
+    }
+
+    /**
+     * Calcula las habitaciones libres de un tipo durante todas las noches de una estancia.
+     *
+     * @param tipo  el código del tipo de habitación ({@link TipoHabitacion#getCodigo()}).
+     * @param desde el día de entrada, en días desde 1970.
+     * @param hasta el día de salida, en días desde 1970 (no incluido).
+     * @return el número de habitaciones libres todas las noches de la estancia,
+     *         o 0 si la estancia se sale del horizonte.
+     */
+    public int libres(int tipo, int desde, int hasta) {
+        if (!enHorizonte(desde, hasta)) {
+            return 0;
+        }
+        int base = tipo * NUM_DIAS;
+        int fin = base + posicion(hasta);
+        int maximo = 0;
+        for (int d = base + posicion(desde); d < fin; d++) {
+            maximo = Math.max(maximo, ocupadas.get(d));
+        }
+        return CAPACIDAD - maximo;
+    }
+
+    /**
+     * Obtiene las habitaciones de un tipo ocupadas una noche. Es una consulta
+     * directa al contador de ese día, sin recorrer reservas.
+     *
+     * @param tipo el código del tipo de habitación.
+     * @param dia  el día, en días desde 1970.
+     * @return el número de habitaciones ocupadas esa noche, o 0 si el día está fuera del horizonte.
+     */
+    public int ocupadas(int tipo, int dia) {
+        int pos = dia - DIA_INICIAL;
+        return pos >= 0 && pos < NUM_DIAS ? ocupadas.get(tipo * NUM_DIAS + pos) : 0;
+    }
+
+    /**
+     * Comprueba si se pueden reservar varias habitaciones de un tipo durante una estancia.
+     *
+     * @param tipo            el código del tipo de habitación.
+     * @param numHabitaciones el número de habitaciones.
+     * @param desde           el día de entrada.
+     * @param hasta           el día de salida (no incluido).
+     * @return verdadero si quedan habitaciones suficientes todas las noches.
+     */
+    public boolean hayDisponibilidad(int tipo, int numHabitaciones, int desde, int hasta) {
+        return libres(tipo, desde, hasta) >= numHabitaciones;
+    }
+
+    /**
+     * Ocupa las habitaciones de una reserva solo si quedan libres todas las
+     * noches de la estancia. La comprobación y la ocupación son atómicas para
+     * cada noche: si otro hilo ocupa la última habitación de una noche a la vez,
+     * solo uno de los dos lo consigue.
+     *
+     * @param tipo            el código del tipo de habitación.
+     * @param numHabitaciones el número de habitaciones.
+     * @param desde           el día de entrada.
+     * @param hasta           el día de salida (no incluido).
+     * @return verdadero si se han ocupado, falso si alguna noche no quedaban
+     *         habitaciones suficientes o la estancia se sale del horizonte, y no
+     *         se ha ocupado ninguna.
+     */
+    public boolean reservar(int tipo, int numHabitaciones, int desde, int hasta) {
+        if (!enHorizonte(desde, hasta)) {
+            return false;
+        }
+        int base = tipo * NUM_DIAS;
+        int inicio = base + posicion(desde);
+        int fin = base + posicion(hasta);
+        int limite = CAPACIDAD - numHabitaciones;
+        for (int d = inicio; d < fin; d++) {
+            int actual;
+            do {
+                actual = ocupadas.get(d);
+                if (actual > limite) {
+                    // Noche completa: se devuelven las noches ya ocupadas
+                    for (int r = inicio; r < d; r++) {
+                        ocupadas.addAndGet(r, -numHabitaciones);
+                    }
+                    return false;
+                }
+            } while (!ocupadas.compareAndSet(d, actual, actual + numHabitaciones));
+        }
+        return true;
+    }
+
+    /**
+     * Comprueba si todas las noches de una estancia caen dentro del horizonte de
+     * fechas. Las que no caen no tienen contador, así que no se pueden reservar.
+     *
+     * @param desde el día de entrada, en días desde 1970.
+     * @param hasta el día de salida, en días desde 1970 (no incluido).
+     * @return verdadero si la estancia está dentro del horizonte.
+     */
+    public static boolean enHorizonte(int desde, int hasta) {
+        return desde >= DIA_INICIAL && hasta <= DIA_FINAL;
+    }
+
+    /**
+     * Marca como ocupadas las habitaciones de una reserva sin comprobar la
+     * capacidad. Sirve para reconstruir la ocupación desde el almacén, donde
+     * todas las reservas ya se comprobaron al guardarlas.
+     *
+     * @param tipo            el código del tipo de habitación.
+     * @param numHabitaciones el número de habitaciones.
+     * @param desde           el día de entrada.
+     * @param hasta           el día de salida (no incluido).
+     */
+    public void ocupar(int tipo, int numHabitaciones, int desde, int hasta) {
+        sumar(tipo, numHabitaciones, desde, hasta);
+    }
+
+    /**
+     * Libera las habitaciones de una reserva cancelada.
+     *
+     * @param tipo            el código del tipo de habitación.
+     * @param numHabitaciones el número de habitaciones.
+     * @param desde           el día de entrada.
+     * @param hasta           el día de salida (no incluido).
+     */
+    public void liberar(int tipo, int numHabitaciones, int desde, int hasta) {
+        sumar(tipo, -numHabitaciones, desde, hasta);
+    }
+
+    /**
+     * Escribe los contadores en una instantánea.
+     *
+     * @param salida el flujo de la instantánea.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    void escribir(DataOutputStream salida) throws IOException {
+        salida.writeInt(DIA_INICIAL);
+        salida.writeInt(NUM_DIAS);
+        for (int i = 0; i < ocupadas.length(); i++) {
+            salida.writeInt(ocupadas.get(i));
+        }
+    }
+
+    /**
+     * Lee una ocupación escrita con {@link #escribir}.
+     *
+     * @param entrada la instantánea, en la posición de la ocupación.
+     * @return la ocupación leída.
+     * @throws IllegalArgumentException si la instantánea cubre otro horizonte de fechas.
+     */
+    static DisponibilidadHabitaciones leer(ByteBuffer entrada) {
+        if (entrada.getInt() != DIA_INICIAL || entrada.getInt() != NUM_DIAS) {
+            throw new IllegalArgumentException("Horizonte de fechas distinto");
+        }
+        return new DisponibilidadHabitaciones(
+                InstantaneaReservas.leerEnteros(entrada, TipoHabitacion.numTipos() * NUM_DIAS));
+    }
+
+    /**
+     * Suma una cantidad a los contadores de las noches de una estancia.
+     *
+     * @param tipo     el código del tipo de habitación.
+     * @param cantidad la cantidad a sumar (negativa para restar).
+     * @param desde    el día de entrada.
+     * @param hasta    el día de salida (no incluido).
+     */
+    private void sumar(int tipo, int cantidad, int desde, int hasta) {
+        int base = tipo * NUM_DIAS;
+        int fin = base + posicion(hasta);
+        for (int d = base + posicion(desde); d < fin; d++) {
+            ocupadas.addAndGet(d, cantidad);
+        }
+    }
+
+    /**
+     * Convierte un día en su posición dentro del horizonte, ajustándolo a sus límites.
+     *
+     * @param dia el día, en días desde 1970.
+     * @return la posición en el horizonte.
+     */
+    private static int posicion(int dia) {
+        return Math.max(0, Math.min(NUM_DIAS, dia - DIA_INICIAL));
+    }
+}
@@ -0,0 +1,150 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Eventos de Java Flight Recorder de las operaciones principales de la
+ * aplicación: la construcción del diálogo de alta, el guardado y la impresión
+ * de reservas, el cálculo de importes, la validación de los datos del cliente y
+ * la carga y el escalado de imágenes. Se graban con la aplicación en producción
+ * sin conectar ningún perfilador, por ejemplo arrancándola con
+ * {@code -XX:StartFlightRecording:filename=hotel.jfr}, y aparecen en JDK Mission
+ * Control bajo la categoría {@value #CATEGORIA}.
+ *
+ * <p>Mientras no se graba, crear un evento y llamar a {@code begin()} y
+ * {@code shouldCommit()} apenas cuesta nada: el compilador elimina el objeto.
+ * Los campos solo se rellenan si el evento se va a guardar.</p>
+ */
+final class EventosHotel {
+
+    /** Categoría de todos los eventos de la aplicación. */
+    static final String CATEGORIA = "Hotel Continental";
+
+    /**
+     * Constructor privado: la clase solo agrupa los eventos.
+     */
+    private EventosHotel() {
+    }
+
+    /** Construcción del diálogo de alta de reservas. */
+    @Name("hotel.ConstruccionDialogo")
+    @Label("Construcción del diálogo de alta")
+    @Category({ CATEGORIA, "Interfaz" })
+    static class ConstruccionDialogo extends Event {
+
+        @Label("Imágenes precargadas")
+        @Description("Si todas las imágenes del diálogo ya estaban decodificadas en la caché")
+        boolean imagenesPrecargadas;
+    }
+
+    /** Guardado de una reserva en el servicio de reservas. */
+    @Name("hotel.GuardarReserva")
+    @Label("Guardar reserva")
+    @Category({ CATEGORIA, "Reservas" })
+    static class GuardarReserva extends Event {
+
+        @Label("Tipo de habitación")
+        String tipoHabitacion;
+
+        @Label("Habitaciones")
+        int numHabitaciones;
+
+        @Label("Noches")
+        int noches;
+
+        @Label("Importe en céntimos")
+        long importeCentimos;
+
+        @Label("Resultado")
+        @Description("Guardada, Sin disponibilidad o Error")
+        String resultado;
+    }
+
+    /** Escritura del documento de una reserva. */
+    @Name("hotel.ImprimirDocumento")
+    @Label("Imprimir documento")
+    @Category({ CATEGORIA, "Reservas" })
+    static class ImprimirDocumento extends Event {
+
+        @Label("Tipo de habitación")
+        String tipoHabitacion;
+
+        @Label("Habitaciones")
+        int numHabitaciones;
+
+        @Label("Noches")
+        int noches;
+
+        @Label("Formato")
+        String formato;
+    }
+
+    /** Cálculo del importe de una estancia en el panel de la habitación. */
+    @Name("hotel.CalculoImporte")
+    @Label("Cálculo de importe")
+    @Category({ CATEGORIA, "Precios" })
+    static class CalculoImporte extends Event {
+
+        @Label("Tipo de habitación")
+        String tipoHabitacion;
+
+        @Label("Habitaciones")
+        int numHabitaciones;
+
+        @Label("Noches")
+        int noches;
+
+        @Label("Edad de los niños")
+        @Description("Edad de los niños, o -1 si no hay niños")
+        int edadNinos;
+
+        @Label("Importe en céntimos")
+        long importeCentimos;
+    }
+
+    /** Validación de un campo del cliente en el formulario de alta. */
+    @Name("hotel.Validacion")
+    @Label("Validación de datos del cliente")
+    @Category({ CATEGORIA, "Interfaz" })
+    static class Validacion extends Event {
+
+        @Label("Campo")
+        String campo;
+
+        @Label("Longitud del texto")
+        int longitud;
+
+        @Label("Resultado")
+        String resultado;
+    }
+
+    /** Obtención de una imagen de la caché, decodificándola o escalándola si no estaba. */
+    @Name("hotel.Imagen")
+    @Label("Carga de imagen")
+    @Category({ CATEGORIA, "Imágenes" })
+    static class Imagen extends Event {
+
+        @Label("Recurso")
+        String ruta;
+
+        @Label("Operación")
+        @Description("Decodificación de la imagen original o escalado a un tamaño")
+        String operacion;
+
+        @Label("Ancho")
+        int ancho;
+
+        @Label("Alto")
+        int alto;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Acierto de caché")
+        boolean aciertoCache;
+    }
+}
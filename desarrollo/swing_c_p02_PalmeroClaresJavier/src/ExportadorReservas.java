@@ -0,0 +1,426 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exportador de reservas a un documento CSV, JSON o HTML imprimible. Escribe en
+ * streaming a través de un canal de archivo: cada reserva se formatea en un
+ * mismo StringBuilder, se codifica en UTF-8 sobre un búfer de tamaño fijo y el
+ * búfer se vuelca al canal cada vez que se llena. Por eso exportar todo el libro
+ * de reservas usa la misma memoria que exportar una sola.
+ *
+ * <p>El CSV usa las mismas columnas que {@link ImportadorCSV} más el importe,
+ * de modo que un archivo exportado se puede volver a importar.</p>
+ */
+public final class ExportadorReservas implements Closeable {
+
+    /** Formatos de documento disponibles. */
+    public enum Formato {
+        /** Valores separados por punto y coma. */
+        CSV("csv", "Archivos CSV"),
+        /** Array JSON con un objeto por reserva. */
+        JSON("json", "Archivos JSON"),
+        /** Documento HTML con una tabla, preparado para imprimir. */
+        HTML("html", "Documentos HTML");
+
+        private final String extension;
+        private final String descripcion;
+
+        Formato(String extension, String descripcion) {
+            this.extension = extension;
+            this.descripcion = descripcion;
+        }
+
+        /** @return la extensión de los archivos del formato, sin el punto. */
+        public String getExtension() {
+            return extension;
+        }
+
+        /** @return la descripción del formato para los selectores de archivos. */
+        public String getDescripcion() {
+            return descripcion;
+        }
+    }
+
+    /** Tamaño del búfer de escritura. */
+    private static final int TAMANO_BUFER = 64 * 1024;
+
+    /** Separador de campos del CSV. */
+    private static final char SEPARADOR = ';';
+
+    /** Cabecera del CSV. */
+    private static final String CABECERA_CSV =
+            "nombre;apellidos;dni;telefono;entrada;salida;tipo;habitaciones;edadNinos;importe\n";
+
+    /** Títulos de las columnas del documento HTML. */
+    private static final String[] COLUMNAS_HTML = { "Nombre", "Apellidos", "DNI", "Teléfono", "Entrada", "Salida",
+            "Noches", "Tipo", "Habitaciones", "Niños", "Importe" };
+
+    /** Canal del archivo de destino. */
+    private final FileChannel canal;
+
+    /** Formato del documento. */
+    private final Formato formato;
+
+    /** Búfer de bytes que se vuelca al canal. */
+    private final ByteBuffer bufer = ByteBuffer.allocateDirect(TAMANO_BUFER);
+
+    /** Codificador UTF-8 reutilizado para todas las reservas. */
+    private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder();
+
+    /** Texto de la reserva que se está escribiendo. */
+    private final StringBuilder texto = new StringBuilder(256);
+
+    /** Número de reservas escritas. */
+    private long numReservas;
+
+    /** Suma de los importes de las reservas escritas, en céntimos. */
+    private long importeTotal;
+
+    /**
+     * Crea el documento de destino, sustituyéndolo si ya existe, y escribe su cabecera.
+     *
+     * @param destino el archivo de destino.
+     * @param formato el formato del documento.
+     * @param titulo  el título del documento (solo se usa en HTML).
+     * @throws IOException si no se puede crear el archivo.
+     */
+    public ExportadorReservas(Path destino, Formato formato, String titulo) throws IOException {
+        this.canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.formato = formato;
+        switch (formato) {
+            case CSV:
+                texto.append(CABECERA_CSV);
+                break;
+            case JSON:
+                texto.append('[');
+                break;
+            default:
+                escribirCabeceraHTML(titulo);
+                break;
+        }
+        volcarTexto();
+    }
+
+    /**
+     * Escribe una reserva en el documento.
+     *
+     * @param reserva la reserva.
+     * @throws IOException si no se puede escribir en el archivo.
+     */
+    public void escribir(Reserva reserva) throws IOException {
+        switch (formato) {
+            case CSV:
+                escribirCSV(reserva);
+                break;
+            case JSON:
+                escribirJSON(reserva);
+                break;
+            default:
+                escribirHTML(reserva);
+                break;
+        }
+        volcarTexto();
+        numReservas++;
+        importeTotal += reserva.getImporteCentimos();
+    }
+
+    /**
+     * Obtiene el número de reservas escritas hasta ahora.
+     *
+     * @return el número de reservas.
+     */
+    public long getNumReservas() {
+        return numReservas;
+    }
+
+    /**
+     * Obtiene el formato del documento.
+     *
+     * @return el formato.
+     */
+    public Formato getFormato() {
+        return formato;
+    }
+
+    /**
+     * Escribe el final del documento, vuelca lo que queda en el búfer y cierra el archivo.
+     *
+     * @throws IOException si no se puede escribir en el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (formato == Formato.JSON) {
+                texto.append(numReservas > 0 ? "\n]\n" : "]\n");
+            } else if (formato == Formato.HTML) {
+                texto.append("</tbody>\n<tfoot><tr><td colspan=\"").append(COLUMNAS_HTML.length - 1)
+                        .append("\">Total: ").append(numReservas).append(" reservas</td><td class=\"num\">");
+                escaparHTML(MotorPrecios.formatearEuros(importeTotal));
+                texto.append("</td></tr></tfoot>\n</table>\n</body>\n</html>\n");
+            }
+            volcarTexto();
+            CharBuffer vacio = CharBuffer.allocate(0);
+            codificar(vacio, true);
+            while (codificador.flush(bufer) == CoderResult.OVERFLOW) {
+                vaciarBufer();
+            }
+            vaciarBufer();
+        } finally {
+            canal.close();
+        }
+    }
+
+    /**
+     * Añade una reserva al texto en formato CSV.
+     *
+     * @param reserva la reserva.
+     */
+    private void escribirCSV(Reserva reserva) {
+        campoCSV(reserva.getNombre()).append(SEPARADOR);
+        campoCSV(reserva.getApellidos()).append(SEPARADOR);
+        texto.append(reserva.getDNI()).append(SEPARADOR);
+        texto.append(reserva.getTelefono()).append(SEPARADOR);
+        fecha(reserva.getFechaEntrada()).append(SEPARADOR);
+        fecha(reserva.getFechaSalida()).append(SEPARADOR);
+        texto.append(reserva.getTipoHabitacion().getEtiqueta()).append(SEPARADOR);
+        texto.append(reserva.getNumHabitaciones()).append(SEPARADOR);
+        if (reserva.getEdadNinos() != Reserva.SIN_NINOS) {
+            texto.append(reserva.getEdadNinos());
+        }
+        texto.append(SEPARADOR);
+        centimos(reserva.getImporteCentimos()).append('\n');
+    }
+
+    /**
+     * Añade una reserva al texto como objeto JSON.
+     *
+     * @param reserva la reserva.
+     */
+    private void escribirJSON(Reserva reserva) {
+        texto.append(numReservas > 0 ? ",\n" : "\n");
+        texto.append("  {\"nombre\": ");
+        cadenaJSON(reserva.getNombre());
+        texto.append(", \"apellidos\": ");
+        cadenaJSON(reserva.getApellidos());
+        texto.append(", \"dni\": ");
+        cadenaJSON(reserva.getDNI());
+        texto.append(", \"telefono\": ");
+        cadenaJSON(reserva.getTelefono());
+        texto.append(", \"entrada\": \"");
+        fecha(reserva.getFechaEntrada()).append("\", \"salida\": \"");
+        fecha(reserva.getFechaSalida()).append("\", \"noches\": ").append(reserva.getNoches());
+        texto.append(", \"tipo\": \"").append(reserva.getTipoHabitacion().getEtiqueta());
+        texto.append("\", \"habitaciones\": ").append(reserva.getNumHabitaciones());
+        texto.append(", \"edadNinos\": ");
+        if (reserva.getEdadNinos() == Reserva.SIN_NINOS) {
+            texto.append("null");
+        } else {
+            texto.append(reserva.getEdadNinos());
+        }
+        texto.append(", \"importeCentimos\": ").append(reserva.getImporteCentimos()).append('}');
+    }
+
+    /**
+     * Añade una reserva al texto como fila de la tabla HTML.
+     *
+     * @param reserva la reserva.
+     */
+    private void escribirHTML(Reserva reserva) {
+        texto.append("<tr><td>");
+        escaparHTML(reserva.getNombre());
+        texto.append("</td><td>");
+        escaparHTML(reserva.getApellidos());
+        texto.append("</td><td>");
+        escaparHTML(reserva.getDNI());
+        texto.append("</td><td>");
+        escaparHTML(reserva.getTelefono());
+        texto.append("</td><td>");
+        fecha(reserva.getFechaEntrada()).append("</td><td>");
+        fecha(reserva.getFechaSalida()).append("</td><td class=\"num\">");
+        texto.append(reserva.getNoches()).append("</td><td>");
+        texto.append(reserva.getTipoHabitacion().getEtiqueta()).append("</td><td class=\"num\">");
+        texto.append(reserva.getNumHabitaciones()).append("</td><td class=\"num\">");
+        if (reserva.getEdadNinos() != Reserva.SIN_NINOS) {
+            texto.append(reserva.getEdadNinos()).append(" años");
+        } else {
+            texto.append('-');
+        }
+        texto.append("</td><td class=\"num\">");
+        escaparHTML(MotorPrecios.formatearEuros(reserva.getImporteCentimos()));
+        texto.append("</td></tr>\n");
+    }
+
+    /**
+     * Añade al texto el principio del documento HTML, con los estilos de
+     * impresión y la cabecera de la tabla.
+     *
+     * @param titulo el título del documento.
+     */
+    private void escribirCabeceraHTML(String titulo) {
+        texto.append("<!DOCTYPE html>\n<html lang=\"es\">\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+        escaparHTML(titulo);
+        texto.append("</title>\n<style>\n")
+                .append("body { font-family: sans-serif; margin: 2em; }\n")
+                .append("table { border-collapse: collapse; width: 100%; font-size: 10pt; }\n")
+                .append("th, td { border: 1px solid #999; padding: 4px 6px; }\n")
+                .append("th { background: #cce5ff; }\n")
+                .append("td.num { text-align: right; }\n")
+                .append("tfoot td { font-weight: bold; }\n")
+                .append("@media print { body { margin: 0; } thead { display: table-header-group; } ")
+                .append("tr { page-break-inside: avoid; } }\n")
+                .append("</style>\n</head>\n<body>\n<h1>Hotel Continental</h1>\n<h2>");
+        escaparHTML(titulo);
+        texto.append("</h2>\n<table>\n<thead><tr>");
+        for (String columna : COLUMNAS_HTML) {
+            texto.append("<th>").append(columna).append("</th>");
+        }
+        texto.append("</tr></thead>\n<tbody>\n");
+    }
+
+    /**
+     * Añade un campo de texto al CSV, entre comillas si contiene el separador,
+     * comillas o saltos de línea.
+     *
+     * @param valor el valor del campo.
+     * @return el texto, para encadenar llamadas.
+     */
+    private StringBuilder campoCSV(String valor) {
+        boolean comillas = false;
+        for (int i = 0; i < valor.length() && !comillas; i++) {
+            char c = valor.charAt(i);
+            comillas = c == SEPARADOR || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            return texto.append(valor);
+        }
+        texto.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                texto.append('"');
+            }
+            texto.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+        return texto.append('"');
+    }
+
+    /**
+     * Añade una cadena JSON al texto, escapando los caracteres necesarios.
+     *
+     * @param valor el valor de la cadena.
+     */
+    private void cadenaJSON(String valor) {
+        ReservaJSON.cadena(valor, texto);
+    }
+
+    /**
+     * Añade un texto al documento HTML, escapando los caracteres especiales.
+     *
+     * @param valor el texto.
+     */
+    private void escaparHTML(String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '<':
+                    texto.append("&lt;");
+                    break;
+                case '>':
+                    texto.append("&gt;");
+                    break;
+                case '&':
+                    texto.append("&amp;");
+                    break;
+                case '"':
+                    texto.append("&quot;");
+                    break;
+                default:
+                    texto.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Añade una fecha al texto con el formato {@code yyyy-MM-dd}.
+     *
+     * @param dia la fecha, en días desde 1970.
+     * @return el texto, para encadenar llamadas.
+     */
+    private StringBuilder fecha(int dia) {
+        return CalculadoraEstancia.formatearISO(dia, texto);
+    }
+
+    /**
+     * Añade un importe en céntimos al texto como euros con dos decimales y punto.
+     *
+     * @param centimos el importe en céntimos.
+     * @return el texto, para encadenar llamadas.
+     */
+    private StringBuilder centimos(int centimos) {
+        texto.append(centimos / 100).append('.');
+        return dosDigitos(centimos % 100);
+    }
+
+    /**
+     * Añade un número de 0 a 99 al texto, siempre con dos dígitos.
+     *
+     * @param numero el número.
+     * @return el texto, para encadenar llamadas.
+     */
+    private StringBuilder dosDigitos(int numero) {
+        return texto.append((char) ('0' + numero / 10)).append((char) ('0' + numero % 10));
+    }
+
+    /**
+     * Codifica el texto acumulado en el búfer y lo vacía.
+     *
+     * @throws IOException si no se puede escribir en el archivo.
+     */
+    private void volcarTexto() throws IOException {
+        codificar(CharBuffer.wrap(texto), false);
+        texto.setLength(0);
+    }
+
+    /**
+     * Codifica caracteres en el búfer, volcándolo al canal cada vez que se llena.
+     *
+     * @param caracteres los caracteres a codificar.
+     * @param fin        verdadero si no van a llegar más caracteres.
+     * @throws IOException si no se puede escribir en el archivo.
+     */
+    private void codificar(CharBuffer caracteres, boolean fin) throws IOException {
+        while (true) {
+            CoderResult resultado = codificador.encode(caracteres, bufer, fin);
+            if (resultado.isOverflow()) {
+                vaciarBufer();
+            } else if (resultado.isUnderflow()) {
+                return;
+            } else {
+                resultado.throwException();
+            }
+        }
+    }
+
+    /**
+     * Escribe en el canal todo el contenido del búfer.
+     *
+     * @throws IOException si no se puede escribir en el archivo.
+     */
+    private void vaciarBufer() throws IOException {
+        bufer.flip();
+        while (bufer.hasRemaining()) {
+            canal.write(bufer);
+        }
+        bufer.clear();
+    }
+}
@@ -0,0 +1,479 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Importador de reservas desde archivos CSV, pensado para las reservas de
+ * grupos y agencias. El archivo se lee en streaming por lotes de líneas, sin
+ * cargarlo entero en memoria: cada lote se analiza, valida y cotiza en paralelo
+ * con el marco fork/join, y después se guarda de una vez en el servicio de
+ * reservas. Las líneas rechazadas se escriben en un informe de errores.
+ *
+ * <p>Cada línea tiene los campos {@code nombre, apellidos, dni, telefono,
+ * entrada, salida, tipo, habitaciones, edadNinos}, separados por punto y coma o
+ * por comas. Las fechas se escriben como {@code dd/MM/yyyy} o
+ * {@code yyyy-MM-dd}, el tipo es la etiqueta del tipo de habitación y la edad de
+ * los niños se deja vacía si la reserva no incluye niños. Si la primera línea
+ * empieza por "nombre" se trata como cabecera. Se admite una décima columna con
+ * el importe, como la que escribe {@link ExportadorReservas}, que se ignora
+ * porque el importe siempre se vuelve a calcular.</p>
+ */
+public final class ImportadorCSV {
+
+    /** Nombre del informe de errores dentro del directorio de datos. */
+    public static final String NOMBRE_INFORME = "errores-importacion.txt";
+
+    /** Número de líneas que se procesan en cada lote. */
+    private static final int TAMANO_LOTE = 16384;
+
+    /** Número de líneas por debajo del cual un lote se analiza sin dividirlo. */
+    private static final int UMBRAL_ANALISIS = 1024;
+
+    /** Número máximo de errores que se guardan en el resultado para mostrarlos. */
+    private static final int MAX_ERRORES_RESULTADO = 200;
+
+    /** Número de campos de cada línea. */
+    private static final int NUM_CAMPOS = 9;
+
+    /** Número de campos de cada línea contando el importe opcional. */
+    private static final int MAX_CAMPOS = NUM_CAMPOS + 1;
+
+    /** Servicio donde se guardan las reservas importadas. */
+    private final ServicioReservas servicio;
+
+    /** Motor de precios con el que se cotiza cada reserva. */
+    private final MotorPrecios motor;
+
+    /**
+     * Interfaz que recibe el avance de una importación.
+     */
+    public interface Progreso {
+
+        /**
+         * Se llama al terminar cada lote.
+         *
+         * @param bytesLeidos  los bytes del archivo leídos hasta ahora.
+         * @param bytesTotales el tamaño total del archivo.
+         * @param importadas   las reservas importadas hasta ahora.
+         * @param erroneas     las líneas rechazadas hasta ahora.
+         * @return verdadero para seguir importando, falso para detener la importación.
+         */
+        boolean actualizar(long bytesLeidos, long bytesTotales, long importadas, long erroneas);
+    }
+
+    /**
+     * Constructor del importador.
+     *
+     * @param servicio el servicio donde se guardan las reservas.
+     * @param motor    el motor de precios.
+     */
+    public ImportadorCSV(ServicioReservas servicio, MotorPrecios motor) {
+        this.servicio = servicio;
+        this.motor = motor;
+    }
+
+    /**
+     * Importa todas las reservas de un archivo CSV. La importación se detiene
+     * entre lotes si el receptor del avance lo pide; las reservas de los lotes ya
+     * terminados quedan guardadas. No se usa la interrupción del hilo porque
+     * cerraría el canal del almacén de reservas.
+     *
+     * @param archivo  el archivo CSV, en UTF-8.
+     * @param progreso el receptor del avance, o null si no se necesita.
+     * @return el resultado de la importación.
+     * @throws IOException si no se puede leer el archivo o escribir el informe.
+     */
+    public Resultado importar(Path archivo, Progreso progreso) throws IOException {
+        long bytesTotales = Files.size(archivo);
+        Path rutaInforme = DirectorioDatos.archivo(NOMBRE_INFORME);
+        Resultado resultado = new Resultado(rutaInforme);
+
+        String[] lineas = new String[TAMANO_LOTE];
+        Reserva[] reservas = new Reserva[TAMANO_LOTE];
+        String[] errores = new String[TAMANO_LOTE];
+        boolean[] guardadas = new boolean[TAMANO_LOTE];
+
+        try (ContadorBytes entrada = new ContadorBytes(Files.newInputStream(archivo));
+                BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), 1 << 16);
+                BufferedWriter informe = Files.newBufferedWriter(rutaInforme, StandardCharsets.UTF_8)) {
+            long numLinea = 0;
+            char separador = 0;
+            String linea = lector.readLine();
+            if (linea != null) {
+                separador = linea.indexOf(';') >= 0 ? ';' : ',';
+                if (linea.regionMatches(true, 0, "nombre", 0, 6)) {
+                    numLinea++;
+                    linea = lector.readLine();
+                }
+            }
+
+            while (linea != null) {
+                // Lectura de un lote de líneas, saltando las que están vacías
+                long primeraLinea = numLinea + 1;
+                int enLote = 0;
+                while (linea != null && enLote < TAMANO_LOTE) {
+                    numLinea++;
+                    lineas[enLote++] = linea.isBlank() ? null : linea;
+                    linea = lector.readLine();
+                }
+
+                // Análisis en paralelo y guardado de las reservas válidas
+                ForkJoinPool.commonPool().invoke(new TareaAnalisis(lineas, separador, reservas, errores, 0, enLote));
+                resultado.importadas += servicio.guardarLote(reservas, enLote, guardadas);
+                for (int i = 0; i < enLote; i++) {
+                    if (lineas[i] != null && !guardadas[i]) {
+                        anotarError(resultado, informe, primeraLinea + i,
+                                errores[i] != null ? errores[i] : "No quedan habitaciones disponibles");
+                    }
+                }
+                resultado.leidas += enLote;
+
+                if (progreso != null
+                        && !progreso.actualizar(entrada.getLeidos(), bytesTotales, resultado.importadas, resultado.erroneas)) {
+                    resultado.cancelada = linea != null;
+                    break;
+                }
+            }
+        } finally {
+            servicio.forzar();
+        }
+        return resultado;
+    }
+
+    /**
+     * Analiza una línea del archivo y crea su reserva.
+     *
+     * @param linea     la línea.
+     * @param separador el separador de campos.
+     * @return la reserva, ya cotizada.
+     * @throws IllegalArgumentException con el motivo si la línea no es válida.
+     */
+    Reserva analizarLinea(String linea, char separador) {
+        String[] campos = dividir(linea, separador);
+        if (campos == null) {
+            throw new IllegalArgumentException("Se esperaban " + NUM_CAMPOS + " campos");
+        }
+
+        // Mismas reglas que el panel de datos del cliente
+        String nombre = campos[0];
+        String apellidos = campos[1];
+        String dni = campos[2].toUpperCase();
+        String telefono = campos[3];
+        if (nombre.isEmpty()) {
+            throw new IllegalArgumentException("Falta el nombre");
+        }
+        if (apellidos.isEmpty()) {
+            throw new IllegalArgumentException("Faltan los apellidos");
+        }
+        switch (ValidadorDatos.comprobarDNI(dni)) {
+            case LETRA_INCORRECTA:
+                throw new IllegalArgumentException("DNI con letra incorrecta");
+            case FORMATO_INCORRECTO:
+                throw new IllegalArgumentException("DNI con formato incorrecto");
+            default:
+                break;
+        }
+        if (!ValidadorDatos.esTelefonoValido(telefono)) {
+            throw new IllegalArgumentException("Teléfono con formato incorrecto");
+        }
+        int entrada = leerFecha(campos[4], "entrada");
+        int salida = leerFecha(campos[5], "salida");
+        if (entrada >= salida) {
+            throw new IllegalArgumentException("La fecha de entrada no es anterior a la de salida");
+        }
+        if (!DisponibilidadHabitaciones.enHorizonte(entrada, salida)) {
+            throw new IllegalArgumentException("Las fechas de la estancia están fuera de las que admite el hotel");
+        }
+
+        // Mismas reglas que el panel de datos de la habitación
+        TipoHabitacion tipo = TipoHabitacion.desdeEtiqueta(campos[6]);
+        int numHabitaciones = leerEntero(campos[7], 1, DisponibilidadHabitaciones.CAPACIDAD, "Número de habitaciones");
+        int edadNinos = campos[8].isEmpty() ? Reserva.SIN_NINOS
+                : leerEntero(campos[8], 0, TablaTarifas.EDAD_MAXIMA_NINOS, "Edad de los niños");
+        long importe = motor.cotizar(tipo, numHabitaciones, CalculadoraEstancia.noches(entrada, salida), edadNinos);
+        if (importe > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Importe demasiado alto");
+        }
+        return new Reserva(nombre, apellidos, dni, telefono, entrada, salida, tipo, numHabitaciones, edadNinos,
+                (int) importe);
+    }
+
+    /**
+     * Divide una línea en sus campos, quitando los espacios de los extremos.
+     * Los campos pueden ir entre comillas dobles, y dentro de ellas una comilla
+     * se escribe duplicada.
+     *
+     * @param linea     la línea.
+     * @param separador el separador de campos.
+     * @return los campos, o null si la línea no tiene {@link #NUM_CAMPOS} o {@link #MAX_CAMPOS} campos.
+     */
+    private static String[] dividir(String linea, char separador) {
+        String[] campos = new String[MAX_CAMPOS];
+        int numCampos = 0;
+        int pos = 0;
+        int longitud = linea.length();
+        while (pos <= longitud) {
+            if (numCampos == MAX_CAMPOS) {
+                return null;
+            }
+            while (pos < longitud && linea.charAt(pos) == ' ') {
+                pos++;
+            }
+            String campo;
+            if (pos < longitud && linea.charAt(pos) == '"') {
+                StringBuilder texto = new StringBuilder();
+                pos++;
+                while (pos < longitud) {
+                    char c = linea.charAt(pos++);
+                    if (c == '"') {
+                        if (pos < longitud && linea.charAt(pos) == '"') {
+                            pos++;
+                        } else {
+                            break;
+                        }
+                    }
+                    texto.append(c);
+                }
+                campo = texto.toString().trim();
+                int fin = linea.indexOf(separador, pos);
+                pos = fin < 0 ? longitud : fin;
+            } else {
+                int fin = linea.indexOf(separador, pos);
+                if (fin < 0) {
+                    fin = longitud;
+                }
+                campo = linea.substring(pos, fin).trim();
+                pos = fin;
+            }
+            campos[numCampos++] = campo;
+            pos++; // Salta el separador
+        }
+        return numCampos >= NUM_CAMPOS ? campos : null;
+    }
+
+    /**
+     * Lee una fecha con el formato {@code dd/MM/yyyy} o {@code yyyy-MM-dd}.
+     *
+     * @param texto  el texto de la fecha.
+     * @param nombre el nombre del campo, para el mensaje de error.
+     * @return la fecha, en días desde 1970.
+     * @throws IllegalArgumentException si la fecha no es válida.
+     */
+    private static int leerFecha(String texto, String nombre) {
+        try {
+            if (texto.length() == 10 && texto.charAt(2) == '/' && texto.charAt(5) == '/') {
+                return CalculadoraEstancia.diaDeFecha(leerDigitos(texto, 6, 10), leerDigitos(texto, 3, 5),
+                        leerDigitos(texto, 0, 2));
+            }
+            if (texto.length() == 10 && texto.charAt(4) == '-' && texto.charAt(7) == '-') {
+                return CalculadoraEstancia.diaDeFecha(leerDigitos(texto, 0, 4), leerDigitos(texto, 5, 7),
+                        leerDigitos(texto, 8, 10));
+            }
+        } catch (IllegalArgumentException e) {
+            // Se informa abajo con el mismo mensaje que un formato desconocido
+        }
+        throw new IllegalArgumentException("Fecha de " + nombre + " no válida: " + texto);
+    }
+
+    /**
+     * Lee un número formado solo por dígitos en una parte de un texto.
+     *
+     * @param texto el texto.
+     * @param desde la posición del primer dígito.
+     * @param hasta la posición siguiente al último dígito.
+     * @return el número leído.
+     * @throws NumberFormatException si algún carácter no es un dígito.
+     */
+    private static int leerDigitos(String texto, int desde, int hasta) {
+        int numero = 0;
+        for (int i = desde; i < hasta; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException(texto);
+            }
+            numero = numero * 10 + (c - '0');
+        }
+        return numero;
+    }
+
+    /**
+     * Lee un número entero dentro de unos límites.
+     *
+     * @param texto  el texto del número.
+     * @param minimo el valor mínimo permitido.
+     * @param maximo el valor máximo permitido.
+     * @param nombre el nombre del campo, para el mensaje de error.
+     * @return el número leído.
+     * @throws IllegalArgumentException si no es un número o está fuera de los límites.
+     */
+    private static int leerEntero(String texto, int minimo, int maximo, String nombre) {
+        try {
+            int valor = Integer.parseInt(texto);
+            if (valor >= minimo && valor <= maximo) {
+                return valor;
+            }
+        } catch (NumberFormatException e) {
+            // Se informa abajo
+        }
+        throw new IllegalArgumentException(nombre + " debe estar entre " + minimo + " y " + maximo);
+    }
+
+    /**
+     * Anota una línea rechazada en el informe y en el resultado.
+     *
+     * @param resultado el resultado de la importación.
+     * @param informe   el informe de errores.
+     * @param numLinea  el número de la línea en el archivo.
+     * @param motivo    el motivo del rechazo.
+     * @throws IOException si no se puede escribir el informe.
+     */
+    private static void anotarError(Resultado resultado, BufferedWriter informe, long numLinea, String motivo)
+            throws IOException {
+        String error = "Línea " + numLinea + ": " + motivo;
+        informe.write(error);
+        informe.newLine();
+        if (resultado.errores.size() < MAX_ERRORES_RESULTADO) {
+            resultado.errores.add(error);
+        }
+        resultado.erroneas++;
+    }
+
+    /**
+     * Resultado de una importación.
+     */
+    public static final class Resultado {
+
+        private final Path informe;
+        private final List<String> errores = new ArrayList<>();
+        private long leidas;
+        private long importadas;
+        private long erroneas;
+        private boolean cancelada;
+
+        private Resultado(Path informe) {
+            this.informe = informe;
+        }
+
+        /** @return el número de líneas de datos leídas, sin contar la cabecera. */
+        public long getLeidas() {
+            return leidas;
+        }
+
+        /** @return el número de reservas importadas. */
+        public long getImportadas() {
+            return importadas;
+        }
+
+        /** @return el número de líneas rechazadas. */
+        public long getErroneas() {
+            return erroneas;
+        }
+
+        /** @return los primeros errores de la importación, para mostrarlos. */
+        public List<String> getErrores() {
+            return Collections.unmodifiableList(errores);
+        }
+
+        /** @return verdadero si la importación se detuvo antes del final del archivo. */
+        public boolean isCancelada() {
+            return cancelada;
+        }
+
+        /** @return la ruta del informe con todos los errores. */
+        public Path getInforme() {
+            return informe;
+        }
+    }
+
+    /**
+     * Tarea fork/join que analiza un rango de un lote de líneas, dividiéndolo en
+     * mitades mientras sea mayor que {@link #UMBRAL_ANALISIS}.
+     */
+    private final class TareaAnalisis extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] lineas;
+        private final char separador;
+        private final Reserva[] reservas;
+        private final String[] errores;
+        private final int desde;
+        private final int hasta;
+
+        TareaAnalisis(String[] lineas, char separador, Reserva[] reservas, String[] errores, int desde, int hasta) {
+            this.lineas = lineas;
+            this.separador = separador;
+            this.reservas = reservas;
+            this.errores = errores;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde <= UMBRAL_ANALISIS) {
+                for (int i = desde; i < hasta; i++) {
+                    reservas[i] = null;
+                    errores[i] = null;
+                    if (lineas[i] != null) {
+                        try {
+                            reservas[i] = analizarLinea(lineas[i], separador);
+                        } catch (IllegalArgumentException e) {
+                            errores[i] = e.getMessage();
+                        }
+                    }
+                }
+                return;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            invokeAll(new TareaAnalisis(lineas, separador, reservas, errores, desde, mitad),
+                    new TareaAnalisis(lineas, separador, reservas, errores, mitad, hasta));
+        }
+    }
+
+    /**
+     * Flujo de entrada que cuenta los bytes leídos, para calcular el avance.
+     */
+    private static final class ContadorBytes extends FilterInputStream {
+
+        private long leidos;
+
+        ContadorBytes(InputStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                leidos++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int desde, int longitud) throws IOException {
+            int n = super.read(b, desde, longitud);
+            if (n > 0) {
+                leidos += n;
+            }
+            return n;
+        }
+
+        /** @return el número de bytes leídos. */
+        long getLeidos() {
+            return leidos;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.Arrays;
+
+/**
+ * Índice hash de las reservas activas de cada cliente, con el DNI como clave.
+ * Usa direccionamiento abierto con sondeo lineal sobre arrays de enteros, sin
+ * objetos por entrada: la clave es la parte numérica del DNI (la letra se
+ * deduce de ella) y el valor es la fila de {@link TablaReservas} de la última
+ * reserva del cliente. Las reservas anteriores del mismo cliente quedan
+ * encadenadas en un array paralelo indexado por la fila.
+ *
+ * <p>Cancelar las reservas de un cliente solo desengancha su cadena (la marca
+ * como anulada), por lo que cuesta lo mismo tenga el índice las reservas que
+ * tenga. La clave se conserva y se reutiliza si el cliente vuelve a reservar.</p>
+ */
+final class IndiceDNI {
+
+    /** Valor de las posiciones de la tabla sin clave. */
+    private static final int LIBRE = -1;
+
+    /** Valor que indica que no hay fila (fin de cadena o cliente anulado). */
+    static final int NINGUNO = -1;
+
+    /** Factor de carga máximo de la tabla antes de ampliarla. */
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    /** Claves de la tabla: la parte numérica del DNI, o {@link #LIBRE}. */
+    private int[] claves;
+
+    /** Última fila activa de cada clave, o {@link #NINGUNO}. */
+    private int[] cabezas;
+
+    /** Fila anterior del mismo cliente, indexado por fila. */
+    private int[] anteriores = new int[1024];
+
+    /** Número de claves ocupadas en la tabla. */
+    private int numClaves;
+
+    /**
+     * Crea un índice vacío.
+     */
+    IndiceDNI() {
+        this(1024);
+    }
+
+    /**
+     * Crea un índice vacío con capacidad para el número de claves indicado.
+     *
+     * @param capacidadInicial el número de clientes previsto.
+     */
+    IndiceDNI(int capacidadInicial) {
+        int previstas = Math.min(Math.max(16, capacidadInicial), 1 << 24);
+        int capacidad = Integer.highestOneBit((int) (previstas / CARGA_MAXIMA) - 1) << 1;
+        claves = new int[capacidad];
+        cabezas = new int[capacidad];
+        Arrays.fill(claves, LIBRE);
+    }
+
+    /**
+     * Añade el alta de una reserva al índice.
+     *
+     * @param dni      el número del DNI del cliente.
+     * @param fila la fila de la reserva en la tabla.
+     */
+    void anadir(int dni, int fila) {
+        if (fila >= anteriores.length) {
+            anteriores = Arrays.copyOf(anteriores, Math.max(fila + 1, anteriores.length + (anteriores.length >> 1)));
+        }
+        int pos = posicion(dni);
+        if (claves[pos] == LIBRE) {
+            claves[pos] = dni;
+            cabezas[pos] = NINGUNO;
+            if (++numClaves > claves.length * CARGA_MAXIMA) {
+                ampliar();
+                pos = posicion(dni);
+            }
+        }
+        anteriores[fila] = cabezas[pos];
+        cabezas[pos] = fila;
+    }
+
+    /**
+     * Obtiene la última reserva activa de un cliente.
+     *
+     * @param dni el número del DNI del cliente.
+     * @return la fila de la reserva, o {@link #NINGUNO} si no tiene reservas activas.
+     */
+    int primero(int dni) {
+        int pos = posicion(dni);
+        return claves[pos] == LIBRE ? NINGUNO : cabezas[pos];
+    }
+
+    /**
+     * Obtiene la reserva activa anterior del mismo cliente.
+     *
+     * @param fila la fila de una reserva obtenida del índice.
+     * @return la fila de la reserva anterior, o {@link #NINGUNO} si no hay más.
+     */
+    int siguiente(int fila) {
+        return anteriores[fila];
+    }
+
+    /**
+     * Anula todas las reservas activas de un cliente.
+     *
+     * @param dni el número del DNI del cliente.
+     * @return la última fila que estaba activa (inicio de la cadena
+     *         anulada), o {@link #NINGUNO} si no tenía reservas activas.
+     */
+    int anular(int dni) {
+        int pos = posicion(dni);
+        if (claves[pos] == LIBRE) {
+            return NINGUNO;
+        }
+        int cabeza = cabezas[pos];
+        cabezas[pos] = NINGUNO;
+        return cabeza;
+    }
+
+    /**
+     * Obtiene el número de clientes distintos registrados en el índice.
+     *
+     * @return el número de claves.
+     */
+    int getNumClaves() {
+        return numClaves;
+    }
+
+    /**
+     * Busca la posición de una clave en la tabla, o la posición libre donde iría.
+     *
+     * @param dni la clave.
+     * @return la posición en la tabla.
+     */
+    private int posicion(int dni) {
+        int mascara = claves.length - 1;
+        int pos = mezclar(dni) & mascara;
+        while (claves[pos] != LIBRE && claves[pos] != dni) {
+            pos = (pos + 1) & mascara;
+        }
+        return pos;
+    }
+
+    /**
+     * Duplica la capacidad de la tabla y recoloca las claves.
+     */
+    private void ampliar() {
+        int[] clavesAntiguas = claves;
+        int[] cabezasAntiguas = cabezas;
+        claves = new int[clavesAntiguas.length * 2];
+        cabezas = new int[clavesAntiguas.length * 2];
+        Arrays.fill(claves, LIBRE);
+        for (int i = 0; i < clavesAntiguas.length; i++) {
+            if (clavesAntiguas[i] != LIBRE) {
+                int pos = posicion(clavesAntiguas[i]);
+                claves[pos] = clavesAntiguas[i];
+                cabezas[pos] = cabezasAntiguas[i];
+            }
+        }
+    }
+
+    /**
+     * Dispersa los bits de la clave para que los DNI consecutivos no caigan en
+     * posiciones consecutivas de la tabla.
+     *
+     * @param clave la clave.
+     * @return el valor de dispersión.
+     */
+    private static int mezclar(int clave) {
+        int h = clave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,355 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Índice para buscar reservas por el principio de las palabras del nombre y
+ * los apellidos del cliente, sin distinguir mayúsculas ni acentos. Cada palabra
+ * se guarda normalizada en un árbol ordenado junto con las filas de
+ * {@link TablaReservas} en que aparece, de modo que las palabras que empiezan
+ * por un prefijo forman un tramo contiguo del árbol y se localizan sin recorrer
+ * todas las reservas.
+ *
+ * <p>El índice se actualiza con cada alta. Las bajas no lo modifican: las filas
+ * anuladas se descartan al buscar consultando la tabla, lo que cuesta lo mismo
+ * que quitarlas de unas listas que pueden tener cientos de miles de filas. No es
+ * seguro entre hilos: {@link ServicioReservas} sincroniza el acceso.</p>
+ */
+final class IndicePrefijos {
+
+    /** Número máximo de palabras de la búsqueda que se tienen en cuenta. */
+    private static final int MAX_PALABRAS = 4;
+
+    /** Número máximo de filas que se examinan en una búsqueda, para acotar su duración. */
+    private static final int MAX_EXAMINADAS = 50_000;
+
+    /** Número de palabras del índice que se cuentan como mucho para elegir la palabra más selectiva. */
+    private static final int MAX_PALABRAS_CONTADAS = 64;
+
+    /** Primer carácter de la tabla de caracteres latinos con acento. */
+    private static final char PRIMER_LATINO = 'À';
+
+    /** Forma normalizada de los caracteres latinos con acento, o 0 si separan palabras. */
+    private static final char[] LATINOS = new char['ƀ' - PRIMER_LATINO];
+
+    static {
+        for (int i = 0; i < LATINOS.length; i++) {
+            char c = (char) (PRIMER_LATINO + i);
+            if (Character.isLetter(c)) {
+                // La descomposición canónica separa la letra base de su acento
+                char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+                LATINOS[i] = Character.toLowerCase(base);
+            }
+        }
+    }
+
+    /** Filas en que aparece cada palabra normalizada. */
+    private final TreeMap<String, Apariciones> palabras = new TreeMap<>();
+
+    /**
+     * Añade al índice las palabras del nombre y los apellidos de una reserva.
+     *
+     * @param fila      la fila de la reserva en la tabla.
+     * @param nombre    el nombre del cliente.
+     * @param apellidos los apellidos del cliente.
+     */
+    void anadir(int fila, String nombre, String apellidos) {
+        anadirPalabras(fila, normalizar(nombre));
+        anadirPalabras(fila, normalizar(apellidos));
+    }
+
+    /**
+     * Busca las reservas activas en las que cada palabra del texto es el principio
+     * de alguna palabra del nombre o los apellidos. Los resultados salen por orden
+     * alfabético de la palabra encontrada y, para una misma palabra, de la reserva
+     * más reciente a la más antigua.
+     *
+     * @param texto   el texto buscado.
+     * @param tabla   la tabla de reservas, para descartar las anuladas y comprobar
+     *                las demás palabras.
+     * @param destino el array donde se guardan las filas encontradas; su longitud
+     *                es el número máximo de resultados.
+     * @return el número de filas encontradas o, si se ha dejado de buscar al llegar
+     *         a {@value #MAX_EXAMINADAS} filas examinadas y puede haber más,
+     *         {@code -(encontradas + 1)}.
+     */
+    int buscar(String texto, TablaReservas tabla, int[] destino) {
+        String[] buscadas = separar(normalizar(texto), MAX_PALABRAS).toArray(new String[0]);
+        if (buscadas.length == 0 || destino.length == 0) {
+            return 0;
+        }
+
+        // Se recorren las apariciones de la palabra con menos filas y se comprueban las demás
+        int elegida = 0;
+        long menor = Long.MAX_VALUE;
+        for (int i = 0; i < buscadas.length; i++) {
+            long apariciones = contar(tramo(buscadas[i]));
+            if (apariciones < menor) {
+                menor = apariciones;
+                elegida = i;
+            }
+        }
+
+        int encontradas = 0;
+        int examinadas = 0;
+        for (Apariciones apariciones : tramo(buscadas[elegida]).values()) {
+            for (int i = apariciones.numero - 1; i >= 0; i--) {
+                int fila = apariciones.filas[i];
+                if (++examinadas > MAX_EXAMINADAS) {
+                    return -(encontradas + 1);
+                }
+                if (tabla.estaActiva(fila) && !contiene(destino, encontradas, fila)
+                        && coinciden(buscadas, elegida, tabla, fila)) {
+                    destino[encontradas++] = fila;
+                    if (encontradas == destino.length) {
+                        return encontradas;
+                    }
+                }
+            }
+        }
+        return encontradas;
+    }
+
+    /**
+     * Obtiene el número de palabras distintas del índice.
+     *
+     * @return el número de palabras.
+     */
+    int getNumPalabras() {
+        return palabras.size();
+    }
+
+    /**
+     * Escribe el índice en una instantánea: cada palabra, en orden, con sus filas.
+     *
+     * @param salida el flujo de la instantánea.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    void escribir(DataOutputStream salida) throws IOException {
+        salida.writeInt(palabras.size());
+        for (Map.Entry<String, Apariciones> entrada : palabras.entrySet()) {
+            Apariciones apariciones = entrada.getValue();
+            InstantaneaReservas.escribirTexto(salida, entrada.getKey());
+            salida.writeInt(apariciones.numero);
+            InstantaneaReservas.escribirEnteros(salida, apariciones.filas, apariciones.numero);
+        }
+    }
+
+    /**
+     * Lee un índice escrito con {@link #escribir}, sin volver a normalizar los textos.
+     *
+     * @param entrada la instantánea, en la posición del índice.
+     * @return el índice leído.
+     */
+    static IndicePrefijos leer(ByteBuffer entrada) {
+        IndicePrefijos indice = new IndicePrefijos();
+        int numPalabras = entrada.getInt();
+        for (int i = 0; i < numPalabras; i++) {
+            String palabra = InstantaneaReservas.leerTexto(entrada);
+            Apariciones apariciones = new Apariciones();
+            apariciones.numero = entrada.getInt();
+            apariciones.filas = InstantaneaReservas.leerEnteros(entrada, apariciones.numero);
+            indice.palabras.put(palabra, apariciones);
+        }
+        return indice;
+    }
+
+    /**
+     * Normaliza un texto para compararlo: lo pasa a minúsculas, quita los acentos
+     * y deja un espacio entre palabras en lugar de cualquier otro carácter.
+     *
+     * @param texto el texto.
+     * @return el texto normalizado.
+     */
+    static String normalizar(String texto) {
+        StringBuilder resultado = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            resultado.append(plegar(texto.charAt(i)));
+        }
+        return resultado.toString();
+    }
+
+    /**
+     * Normaliza un carácter: lo pasa a minúscula y le quita el acento.
+     *
+     * @param c el carácter.
+     * @return el carácter normalizado, o un espacio si no es una letra ni un dígito.
+     */
+    private static char plegar(char c) {
+        char normal;
+        if (c < 128) {
+            normal = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A'))
+                    : (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : 0;
+        } else if (c >= PRIMER_LATINO && c < PRIMER_LATINO + LATINOS.length) {
+            normal = LATINOS[c - PRIMER_LATINO];
+        } else {
+            normal = Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : 0;
+        }
+        return normal != 0 ? normal : ' ';
+    }
+
+    /**
+     * Añade las palabras de un texto normalizado al índice.
+     *
+     * @param fila  la fila de la reserva.
+     * @param texto el texto normalizado.
+     */
+    private void anadirPalabras(int fila, String texto) {
+        for (String palabra : separar(texto, Integer.MAX_VALUE)) {
+            palabras.computeIfAbsent(palabra, p -> new Apariciones()).anadir(fila);
+        }
+    }
+
+    /**
+     * Obtiene el tramo del índice con las palabras que empiezan por un prefijo.
+     *
+     * @param prefijo el prefijo normalizado.
+     * @return las palabras del tramo con sus apariciones.
+     */
+    private NavigableMap<String, Apariciones> tramo(String prefijo) {
+        return palabras.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Cuenta las apariciones de las palabras de un tramo, sin pasar de las
+     * primeras {@value #MAX_PALABRAS_CONTADAS} palabras.
+     *
+     * @param tramo el tramo del índice.
+     * @return el número de apariciones, o un valor muy grande si el tramo es más largo.
+     */
+    private static long contar(NavigableMap<String, Apariciones> tramo) {
+        long total = 0;
+        int contadas = 0;
+        for (Apariciones apariciones : tramo.values()) {
+            if (++contadas > MAX_PALABRAS_CONTADAS) {
+                return Long.MAX_VALUE - 1;
+            }
+            total += apariciones.numero;
+        }
+        return total;
+    }
+
+    /**
+     * Comprueba si todas las palabras buscadas, salvo la ya encontrada, son el
+     * principio de alguna palabra del nombre o los apellidos de una reserva.
+     *
+     * @param buscadas las palabras buscadas, normalizadas.
+     * @param elegida  la posición de la palabra que ya se sabe que coincide.
+     * @param tabla    la tabla de reservas.
+     * @param fila     la fila de la reserva.
+     * @return verdadero si coinciden todas.
+     */
+    private static boolean coinciden(String[] buscadas, int elegida, TablaReservas tabla, int fila) {
+        for (int i = 0; i < buscadas.length; i++) {
+            if (i != elegida && !tienePalabra(tabla.getNombre(fila), buscadas[i])
+                    && !tienePalabra(tabla.getApellidos(fila), buscadas[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Comprueba si alguna palabra de un texto empieza por un prefijo, normalizando
+     * el texto carácter a carácter sin crear cadenas intermedias.
+     *
+     * @param texto   el texto original.
+     * @param prefijo el prefijo normalizado.
+     * @return verdadero si alguna palabra del texto empieza por el prefijo.
+     */
+    private static boolean tienePalabra(String texto, String prefijo) {
+        int limite = texto.length() - prefijo.length();
+        boolean inicioPalabra = true;
+        for (int i = 0; i <= limite; i++) {
+            char c = plegar(texto.charAt(i));
+            if (inicioPalabra && c == prefijo.charAt(0)) {
+                int j = 1;
+                while (j < prefijo.length() && plegar(texto.charAt(i + j)) == prefijo.charAt(j)) {
+                    j++;
+                }
+                if (j == prefijo.length()) {
+                    return true;
+                }
+            }
+            inicioPalabra = c == ' ';
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba si una fila ya está entre los resultados.
+     *
+     * @param filas  los resultados.
+     * @param numero el número de resultados.
+     * @param fila   la fila.
+     * @return verdadero si ya está.
+     */
+    private static boolean contiene(int[] filas, int numero, int fila) {
+        for (int i = 0; i < numero; i++) {
+            if (filas[i] == fila) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Separa un texto normalizado en sus palabras, sin repetir ninguna.
+     *
+     * @param texto  el texto normalizado.
+     * @param maximo el número máximo de palabras.
+     * @return las palabras, en el orden del texto.
+     */
+    private static List<String> separar(String texto, int maximo) {
+        List<String> resultado = new ArrayList<>(4);
+        int inicio = -1;
+        for (int i = 0; i <= texto.length() && resultado.size() < maximo; i++) {
+            boolean espacio = i == texto.length() || texto.charAt(i) == ' ';
+            if (!espacio && inicio < 0) {
+                inicio = i;
+            } else if (espacio && inicio >= 0) {
+                String palabra = texto.substring(inicio, i);
+                if (!resultado.contains(palabra)) {
+                    resultado.add(palabra);
+                }
+                inicio = -1;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Filas en que aparece una palabra, en orden de alta, en un array que crece
+     * según hace falta.
+     */
+    private static final class Apariciones {
+
+        /** Las filas; solo son válidas las {@link #numero} primeras. */
+        int[] filas = new int[2];
+
+        /** Número de filas. */
+        int numero;
+
+        /**
+         * Añade una fila, salvo que sea la última añadida (palabra repetida en la misma reserva).
+         *
+         * @param fila la fila.
+         */
+        void anadir(int fila) {
+            if (numero > 0 && filas[numero - 1] == fila) {
+                return;
+            }
+            if (numero == filas.length) {
+                filas = Arrays.copyOf(filas, numero * 2);
+            }
+            filas[numero++] = fila;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Instantánea del estado de las reservas en un archivo junto al almacén, para
+ * que el arranque no tenga que leer todo el historial. Guarda la tabla de
+ * reservas activas, el índice de búsqueda por nombre, la ocupación y los
+ * totales tal como estaban tras un número de registros del almacén. Al
+ * arrancar se proyecta en memoria, las columnas se copian de una vez y solo se
+ * aplican los registros añadidos después.
+ *
+ * <p>Formato del archivo: una cabecera de {@value #TAM_CABECERA} bytes con el
+ * número mágico, la versión, el número de registros del almacén que cubre, la
+ * huella del último de ellos ({@link AlmacenReservas#huella}), la longitud del
+ * contenido y su CRC32; después, el contenido de cada estructura en el orden
+ * en que se lee. El índice por DNI no se guarda: se reconstruye a partir de la
+ * tabla, que es más rápido que leerlo.</p>
+ *
+ * <p>Las instantáneas se escriben en un archivo temporal que después sustituye
+ * al anterior, de modo que una caída a medias deja la instantánea anterior.
+ * Si la instantánea está dañada o no corresponde al almacén, se ignora y el
+ * estado se reconstruye desde el almacén como siempre.</p>
+ */
+final class InstantaneaReservas {
+
+    /** Número mágico de la cabecera ("HCIN"). */
+    static final int MAGICO = 0x4843494E;
+
+    /** Versión del formato del archivo. */
+    static final short VERSION = 1;
+
+    /** Tamaño de la cabecera del archivo en bytes. */
+    static final int TAM_CABECERA = 64;
+
+    /** Número de registros del almacén que cubre la instantánea. */
+    final long cubiertos;
+
+    /** La tabla de reservas. */
+    final TablaReservas tabla;
+
+    /** El índice de búsqueda por nombre. */
+    final IndicePrefijos prefijos;
+
+    /** La ocupación de las habitaciones. */
+    final DisponibilidadHabitaciones disponibilidad;
+
+    /** Los totales de ingresos y reservas. */
+    final AgregadosReservas agregados;
+
+    /**
+     * Crea una instantánea leída.
+     *
+     * @param cubiertos      el número de registros del almacén que cubre.
+     * @param tabla          la tabla de reservas.
+     * @param prefijos       el índice de búsqueda por nombre.
+     * @param disponibilidad la ocupación.
+     * @param agregados      los totales.
+     */
+    private InstantaneaReservas(long cubiertos, TablaReservas tabla, IndicePrefijos prefijos,
+            DisponibilidadHabitaciones disponibilidad, AgregadosReservas agregados) {
+        this.cubiertos = cubiertos;
+        this.tabla = tabla;
+        this.prefijos = prefijos;
+        this.disponibilidad = disponibilidad;
+        this.agregados = agregados;
+    }
+
+    /**
+     * Obtiene la ruta de la instantánea de un almacén, junto a su archivo.
+     *
+     * @param almacen el almacén.
+     * @return la ruta de la instantánea.
+     */
+    static Path ruta(AlmacenReservas almacen) {
+        return almacen.getRuta().resolveSibling(almacen.getRuta().getFileName() + ".instantanea");
+    }
+
+    /**
+     * Escribe una instantánea en un archivo temporal. Para que sustituya a la
+     * anterior se publica después con {@link #publicar}.
+     *
+     * @param ruta           la ruta de la instantánea.
+     * @param cubiertos      el número de registros del almacén que cubre.
+     * @param huella         la huella del último registro cubierto, o 0 si no cubre ninguno.
+     * @param tabla          la tabla de reservas.
+     * @param prefijos       el índice de búsqueda por nombre de la tabla.
+     * @param disponibilidad la ocupación de las reservas de la tabla.
+     * @param agregados      los totales de las reservas de la tabla.
+     * @return la ruta del archivo temporal.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    static Path escribir(Path ruta, long cubiertos, long huella, TablaReservas tabla, IndicePrefijos prefijos,
+            DisponibilidadHabitaciones disponibilidad, AgregadosReservas agregados) throws IOException {
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            canal.position(TAM_CABECERA);
+            CRC32 crc = new CRC32();
+            DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(canal), crc), 1 << 16));
+            tabla.escribir(salida);
+            prefijos.escribir(salida);
+            disponibilidad.escribir(salida);
+            agregados.escribir(salida);
+            salida.flush();
+
+            ByteBuffer cabecera = ByteBuffer.allocate(TAM_CABECERA);
+            cabecera.putInt(MAGICO).putShort(VERSION).putShort((short) 0).putLong(cubiertos).putLong(huella)
+                    .putLong(salida.size()).putInt((int) crc.getValue());
+            cabecera.clear();
+            canal.write(cabecera, 0);
+            canal.force(true);
+        }
+        return temporal;
+    }
+
+    /**
+     * Sustituye la instantánea anterior por una escrita con {@link #escribir}.
+     *
+     * @param temporal el archivo temporal.
+     * @param ruta     la ruta de la instantánea.
+     * @throws IOException si no se puede sustituir.
+     */
+    static void publicar(Path temporal, Path ruta) throws IOException {
+        Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lee la instantánea de un almacén si existe, está íntegra y corresponde a
+     * los registros que tiene ahora el almacén.
+     *
+     * @param almacen el almacén.
+     * @return la instantánea, o null si no hay ninguna que sirva.
+     */
+    static InstantaneaReservas leer(AlmacenReservas almacen) {
+        Path ruta = ruta(almacen);
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            if (canal.size() < TAM_CABECERA) {
+                return descartar(ruta, "archivo incompleto");
+            }
+            MappedByteBuffer archivo = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (archivo.getInt(0) != MAGICO || archivo.getShort(4) != VERSION) {
+                return descartar(ruta, "formato no soportado");
+            }
+            long cubiertos = archivo.getLong(8);
+            long huella = archivo.getLong(16);
+            long longitud = archivo.getLong(24);
+            if (longitud != canal.size() - TAM_CABECERA) {
+                return descartar(ruta, "longitud incorrecta");
+            }
+            if (cubiertos > almacen.getNumRegistros()
+                    || (cubiertos > 0 && almacen.huella(cubiertos - 1) != huella)) {
+                return descartar(ruta, "no corresponde al almacén");
+            }
+            ByteBuffer contenido = archivo.position(TAM_CABECERA).slice();
+            CRC32 crc = new CRC32();
+            crc.update(contenido.duplicate());
+            if ((int) crc.getValue() != archivo.getInt(32)) {
+                return descartar(ruta, "CRC incorrecto");
+            }
+            return new InstantaneaReservas(cubiertos, TablaReservas.leer(contenido), IndicePrefijos.leer(contenido),
+                    DisponibilidadHabitaciones.leer(contenido), AgregadosReservas.leer(contenido));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return descartar(ruta, e.toString());
+        }
+    }
+
+    /**
+     * Avisa de que una instantánea no se puede usar.
+     *
+     * @param ruta   la ruta de la instantánea.
+     * @param motivo el motivo.
+     * @return null, para devolverlo directamente.
+     */
+    private static InstantaneaReservas descartar(Path ruta, String motivo) {
+        System.err.println("Instantánea de reservas descartada (" + motivo + "): " + ruta);
+        return null;
+    }
+
+    /**
+     * Escribe los primeros elementos de un array de enteros.
+     *
+     * @param salida el flujo.
+     * @param datos  el array.
+     * @param numero el número de elementos.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    static void escribirEnteros(DataOutputStream salida, int[] datos, int numero) throws IOException {
+        for (int i = 0; i < numero; i++) {
+            salida.writeInt(datos[i]);
+        }
+    }
+
+    /**
+     * Escribe los primeros elementos de un array de enteros largos.
+     *
+     * @param salida el flujo.
+     * @param datos  el array.
+     * @param numero el número de elementos.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    static void escribirLargos(DataOutputStream salida, long[] datos, int numero) throws IOException {
+        for (int i = 0; i < numero; i++) {
+            salida.writeLong(datos[i]);
+        }
+    }
+
+    /**
+     * Escribe un texto en UTF-8 precedido de su longitud en bytes.
+     *
+     * @param salida el flujo.
+     * @param texto  el texto.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+    }
+
+    /**
+     * Lee de una vez un array de enteros y avanza la posición del búfer.
+     *
+     * @param entrada el búfer.
+     * @param numero  el número de elementos.
+     * @return el array leído.
+     */
+    static int[] leerEnteros(ByteBuffer entrada, int numero) {
+        int[] datos = new int[numero];
+        entrada.asIntBuffer().get(datos);
+        entrada.position(entrada.position() + numero * Integer.BYTES);
+        return datos;
+    }
+
+    /**
+     * Lee de una vez un array de enteros largos y avanza la posición del búfer.
+     *
+     * @param entrada el búfer.
+     * @param numero  el número de elementos.
+     * @return el array leído.
+     */
+    static long[] leerLargos(ByteBuffer entrada, int numero) {
+        long[] datos = new long[numero];
+        entrada.asLongBuffer().get(datos);
+        entrada.position(entrada.position() + numero * Long.BYTES);
+        return datos;
+    }
+
+    /**
+     * Lee de una vez un array de bytes.
+     *
+     * @param entrada el búfer.
+     * @param numero  el número de elementos.
+     * @return el array leído.
+     */
+    static byte[] leerBytes(ByteBuffer entrada, int numero) {
+        byte[] datos = new byte[numero];
+        entrada.get(datos);
+        return datos;
+    }
+
+    /**
+     * Lee un texto escrito con {@link #escribirTexto}.
+     *
+     * @param entrada el búfer.
+     * @return el texto.
+     */
+    static String leerTexto(ByteBuffer entrada) {
+        return new String(leerBytes(entrada, entrada.getInt()), StandardCharsets.UTF_8);
+    }
+}
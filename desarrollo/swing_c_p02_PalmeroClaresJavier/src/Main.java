@@ -1,15 +1,123 @@
+import java.awt.SplashScreen;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+
+import javax.swing.SwingUtilities;
+
 /**
  * Clase principal que ejecuta la aplicación de gestión del hotel.
+ *
+ * <p>El arranque muestra primero una pantalla de carga (la nativa del JAR, o
+ * {@link PantallaCarga} si no la hay) y, mientras tanto, precarga en paralelo
+ * las imágenes de la aplicación. La ventana principal se construye después en
+ * el hilo de despacho de eventos. Con {@code --medir-arranque}, o con la
+ * propiedad del sistema {@value #PROPIEDAD_MEDIR}, al mostrarse se indica cuánto
+ * ha tardado desde que arrancó la máquina virtual.</p>
+ *
+ * <p>Antes de crear ninguna ventana se instala el {@link VigilanteEDT}, que
+ * anota en un informe los eventos que bloquean el hilo de eventos.</p>
+ *
+ * <p>Con {@code --servidor [puerto]} no se abre ninguna ventana: se arranca el
+ * {@link ServidorReservas} para que lo usen los puestos de recepción.</p>
  */
 public class Main {
 
+    /** Argumento que termina la aplicación en cuanto se muestra la ventana principal. */
+    static final String MEDIR_ARRANQUE = "--medir-arranque";
+
+    /** Propiedad del sistema que muestra el tiempo de arranque sin terminar la aplicación. */
+    static final String PROPIEDAD_MEDIR = "hotel.arranque.medir";
+
+    /** Argumento que arranca el servidor de reservas sin interfaz gráfica. */
+    static final String SERVIDOR = "--servidor";
+
+    /** Tiempo máximo que se espera a la precarga de imágenes antes de construir la ventana. */
+    private static final long ESPERA_PRECARGA_MS = 3000;
+
     /**
      * Método principal que inicia la aplicación.
      *
-     * @param args los argumentos de línea de comandos (no utilizados)
+     * @param args {@code --medir-arranque} para salir tras mostrar la ventana
+     *             principal, por ejemplo al crear el archivo CDS, o
+     *             {@code --servidor [puerto]} para arrancar el servidor de reservas.
+     * @throws InterruptedException      si se interrumpe el arranque.
+     * @throws InvocationTargetException si falla la creación de la pantalla de carga.
+     * @throws IOException               si no se puede arrancar el servidor de reservas.
+     */
+    public static void main(String[] args) throws InterruptedException, InvocationTargetException, IOException {
+        if (args.length > 0 && args[0].equals(SERVIDOR)) {
+            iniciarServidor(args.length > 1 ? Integer.parseInt(args[1]) : ServidorReservas.PUERTO_POR_DEFECTO);
+            return;
+        }
+        long inicio = instanteInicio();
+        boolean soloMedir = args.length > 0 && args[0].equals(MEDIR_ARRANQUE);
+        boolean medir = soloMedir || Boolean.getBoolean(PROPIEDAD_MEDIR);
+        VigilanteEDT.instalar();
+
+        // Precarga de imágenes en paralelo mientras se muestra la pantalla de carga.
+        // Si se arranca desde el JAR ya se ve la pantalla de carga nativa, que se
+        // cierra sola al mostrarse la ventana principal.
+        PrecargaRecursos precarga = PrecargaRecursos.iniciar();
+        PantallaCarga[] pantalla = new PantallaCarga[1];
+        SwingUtilities.invokeAndWait(() -> {
+            if (SplashScreen.getSplashScreen() == null) {
+                pantalla[0] = new PantallaCarga(precarga);
+                pantalla[0].setVisible(true);
+            }
+        });
+        precarga.esperar(ESPERA_PRECARGA_MS);
+
+        // Crea e inicia la ventana principal de la aplicación en el hilo de eventos.
+        SwingUtilities.invokeLater(() -> {
+            VentanaPrincipal ventana = new VentanaPrincipal();
+            ventana.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    if (pantalla[0] != null) {
+                        pantalla[0].dispose();
+                    }
+                    if (medir) {
+                        System.out.printf(
+                                "Ventana principal visible en %d ms desde el arranque (precarga con hilos %s)%n",
+                                System.currentTimeMillis() - inicio,
+                                precarga.usaHilosVirtuales() ? "virtuales" : "de plataforma");
+                    }
+                    if (soloMedir) {
+                        System.exit(0);
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Carga las reservas y arranca el servidor de reservas, que sigue atendiendo
+     * peticiones hasta que se detiene la máquina virtual.
+     *
+     * @param puerto el puerto del servidor.
+     * @throws IOException si no se pueden cargar las reservas o abrir el puerto.
+     */
+    private static void iniciarServidor(int puerto) throws IOException {
+        ServicioReservas servicio = ServicioReservas.getCompartido();
+        servicio.prepararIndice();
+        servicio.prepararAltas();
+        ServidorReservas servidor = ServidorReservas.iniciar(servicio, puerto);
+        Runtime.getRuntime().addShutdownHook(new Thread(servidor::detener, "detener-servidor"));
+        System.out.printf("Servidor de reservas escuchando en http://127.0.0.1:%d%s (hilos %s)%n", servidor.getPuerto(),
+                ServidorReservas.RUTA, servidor.usaHilosVirtuales() ? "virtuales" : "de plataforma");
+    }
+
+    /**
+     * Obtiene el instante en que arrancó la máquina virtual. Si el sistema no lo
+     * ofrece, se usa el instante actual.
+     *
+     * @return el instante de arranque, en milisegundos desde 1970.
      */
-    public static void main(String[] args) {
-        // Crea e inicia la ventana principal de la aplicación.
-        new VentanaPrincipal();
+    private static long instanteInicio() {
+        return ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli)
+                .orElseGet(System::currentTimeMillis);
     }
 }
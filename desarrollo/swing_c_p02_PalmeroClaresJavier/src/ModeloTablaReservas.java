@@ -0,0 +1,350 @@
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo de tabla que muestra las reservas activas sin cargarlas todas. Solo
+ * guarda un índice con las filas de {@link TablaReservas} en el orden de la
+ * vista, obtenido de {@link ServicioReservas#ordenarActivas}, y pide los datos
+ * por páginas de {@value #TAMANO_PAGINA} filas a medida que la tabla las pinta.
+ * Así solo se cargan las filas que se ven en pantalla. Con una búsqueda por
+ * nombre, el índice se limita a los {@value #MAX_RESULTADOS} mejores resultados.
+ *
+ * <p>Las páginas se leen y se formatean en un hilo de fondo. Mientras una página
+ * se carga, sus celdas muestran {@link #CARGANDO}. Se guardan como mucho
+ * {@value #MAX_PAGINAS} páginas, y se descartan primero las que llevan más
+ * tiempo sin consultarse. Por eso la memoria no depende del número de reservas,
+ * salvo el índice de cuatro bytes por fila. Todos los métodos deben llamarse
+ * desde el hilo de despacho de eventos.</p>
+ */
+public class ModeloTablaReservas extends AbstractTableModel {
+
+    /** Texto de las celdas cuya página todavía se está cargando. */
+    static final String CARGANDO = "…";
+
+    /** Número de filas de cada página. */
+    private static final int TAMANO_PAGINA = 128;
+
+    /** Número máximo de páginas guardadas. */
+    private static final int MAX_PAGINAS = 32;
+
+    /** Número máximo de reservas que se muestran al buscar por nombre. */
+    static final int MAX_RESULTADOS = 200;
+
+    /** Columnas del modelo, en el orden en que se muestran. */
+    private static final TablaReservas.Columna[] COLUMNAS = TablaReservas.Columna.values();
+
+    /** Servicio del que se obtienen las reservas. */
+    private final ServicioReservas servicio;
+
+    /** Hilo de fondo que ordena y carga las páginas. */
+    private final ExecutorService cargador = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "listado-reservas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /** Páginas cargadas, con los valores ya formateados, de la menos a la más usada. */
+    private final LinkedHashMap<Integer, Object[][]> paginas = new LinkedHashMap<Integer, Object[][]>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> mayor) {
+            return size() > MAX_PAGINAS;
+        }
+    };
+
+    /** Páginas pedidas al hilo de fondo que aún no han llegado. */
+    private final Set<Integer> pendientes = new HashSet<>();
+
+    /** Filas de la tabla de reservas en el orden de la vista. */
+    private int[] filas = new int[0];
+
+    /** Número de veces que ha cambiado el índice, para descartar páginas de un índice anterior. */
+    private int generacion;
+
+    /** Última página pedida, que indica por dónde va la vista. */
+    private volatile int ultimaPagina;
+
+    /** Columna por la que se ordena, o null para el orden de alta. */
+    private TablaReservas.Columna columnaOrden;
+
+    /** Indica si el orden es ascendente. */
+    private boolean ascendente = true;
+
+    /** Texto buscado en los nombres y apellidos, o cadena vacía para mostrar todas las reservas. */
+    private String busqueda = "";
+
+    /** Indica si la búsqueda mostrada tiene más resultados de los que se muestran. */
+    private boolean hayMasResultados;
+
+    /**
+     * Crea un modelo vacío sobre un servicio de reservas. Para mostrar las
+     * reservas hay que llamar a {@link #recargar(Runnable)}.
+     *
+     * @param servicio el servicio de reservas.
+     */
+    public ModeloTablaReservas(ServicioReservas servicio) {
+        this.servicio = servicio;
+    }
+
+    /**
+     * Ordena las reservas por una columna. Si ya estaban ordenadas por ella, se
+     * invierte el sentido.
+     *
+     * @param columna    el índice de la columna en el modelo.
+     * @param alTerminar acción que se ejecuta en el hilo de eventos con el nuevo orden aplicado.
+     */
+    public void ordenar(int columna, Runnable alTerminar) {
+        TablaReservas.Columna nueva = COLUMNAS[columna];
+        ascendente = nueva != columnaOrden || !ascendente;
+        columnaOrden = nueva;
+        recargar(alTerminar);
+    }
+
+    /**
+     * Muestra solo las reservas de los clientes cuyo nombre o apellidos tienen
+     * palabras que empiezan por las del texto, o todas si el texto está vacío.
+     * Sin columna de ordenación, los resultados salen de más a menos parecidos.
+     *
+     * @param texto      el texto buscado.
+     * @param alTerminar acción que se ejecuta en el hilo de eventos con el resultado aplicado.
+     */
+    public void buscar(String texto, Runnable alTerminar) {
+        busqueda = texto.trim();
+        recargar(alTerminar);
+    }
+
+    /**
+     * Indica si se está mostrando el resultado de una búsqueda.
+     *
+     * @return verdadero si hay una búsqueda por nombre activa.
+     */
+    public boolean hayBusqueda() {
+        return !busqueda.isEmpty();
+    }
+
+    /**
+     * Indica si la búsqueda mostrada ha dejado reservas que coinciden sin mostrar.
+     *
+     * @return verdadero si hay más resultados de los que se muestran.
+     */
+    public boolean hayMasResultados() {
+        return hayMasResultados;
+    }
+
+    /**
+     * Vuelve a obtener del servicio el índice de las reservas activas con la
+     * búsqueda y el orden actuales, de modo que aparecen las altas y desaparecen
+     * las bajas recientes.
+     *
+     * @param alTerminar acción que se ejecuta en el hilo de eventos con el índice nuevo.
+     */
+    public void recargar(Runnable alTerminar) {
+        TablaReservas.Columna columna = columnaOrden;
+        boolean sentido = ascendente;
+        String texto = busqueda;
+        cargador.execute(() -> {
+            try {
+                ServicioReservas.ResultadoBusqueda nuevas = obtenerIndice(texto, columna, sentido);
+                SwingUtilities.invokeLater(() -> {
+                    filas = nuevas.getFilas();
+                    hayMasResultados = nuevas.hayMas();
+                    generacion++;
+                    paginas.clear();
+                    pendientes.clear();
+                    fireTableDataChanged();
+                    alTerminar.run();
+                });
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Obtiene del servicio el índice de filas de la vista. Se ejecuta en el hilo de fondo.
+     *
+     * @param texto      el texto buscado, o cadena vacía para todas las reservas.
+     * @param columna    la columna de ordenación, o null.
+     * @param ascendente verdadero para orden ascendente.
+     * @return las filas de la tabla de reservas en el orden de la vista, e
+     *         indicación de si la búsqueda tiene más resultados.
+     */
+    private ServicioReservas.ResultadoBusqueda obtenerIndice(String texto, TablaReservas.Columna columna,
+            boolean ascendente) {
+        if (texto.isEmpty()) {
+            return new ServicioReservas.ResultadoBusqueda(servicio.ordenarActivas(columna, ascendente), false);
+        }
+        ServicioReservas.ResultadoBusqueda encontradas = servicio.buscarPorNombre(texto, MAX_RESULTADOS);
+        return columna == null ? encontradas : new ServicioReservas.ResultadoBusqueda(
+                servicio.ordenarFilas(encontradas.getFilas(), columna, ascendente), encontradas.hayMas());
+    }
+
+    /**
+     * Detiene el hilo de fondo. Se llama al cerrar la ventana del listado. No se
+     * interrumpe la tarea en curso porque una interrupción cerraría el canal del
+     * almacén de reservas.
+     */
+    public void cerrar() {
+        cargador.shutdown();
+    }
+
+    /**
+     * Obtiene la columna por la que se ordena.
+     *
+     * @return el índice de la columna en el modelo, o -1 si se muestra el orden de alta.
+     */
+    public int getColumnaOrden() {
+        return columnaOrden == null ? -1 : columnaOrden.ordinal();
+    }
+
+    /**
+     * Indica si el orden es ascendente.
+     *
+     * @return verdadero si el orden es ascendente.
+     */
+    public boolean isAscendente() {
+        return ascendente;
+    }
+
+    @Override
+    public int getRowCount() {
+        return filas.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int columna) {
+        return COLUMNAS[columna].getTitulo();
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columna) {
+        // Las columnas numéricas se alinean a la derecha
+        TablaReservas.Columna c = COLUMNAS[columna];
+        return c == TablaReservas.Columna.NOCHES || c == TablaReservas.Columna.HABITACIONES ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        int numPagina = fila / TAMANO_PAGINA;
+        Object[][] pagina = paginas.get(numPagina);
+        if (pagina == null) {
+            solicitar(numPagina);
+            return CARGANDO;
+        }
+        return pagina[fila % TAMANO_PAGINA][columna];
+    }
+
+    /**
+     * Pide al hilo de fondo una página que no está cargada, si no se ha pedido ya.
+     * Al llegar se avisa a la tabla para que vuelva a pintar sus filas. Si cuando
+     * le toca el turno la vista ya se ha alejado de ella, como al arrastrar la
+     * barra de desplazamiento, la página no se carga y se podrá pedir de nuevo.
+     *
+     * @param numPagina el número de la página.
+     */
+    private void solicitar(int numPagina) {
+        if (!pendientes.add(numPagina)) {
+            return;
+        }
+        int[] indice = filas;
+        int version = generacion;
+        int desde = numPagina * TAMANO_PAGINA;
+        int numero = Math.min(TAMANO_PAGINA, indice.length - desde);
+        ultimaPagina = numPagina;
+        cargador.execute(() -> {
+            if (Math.abs(numPagina - ultimaPagina) > MAX_PAGINAS / 2) {
+                SwingUtilities.invokeLater(() -> {
+                    if (version == generacion) {
+                        pendientes.remove(numPagina);
+                    }
+                });
+                return;
+            }
+            try {
+                Object[][] pagina = cargarPagina(indice, desde, numero);
+                SwingUtilities.invokeLater(() -> {
+                    if (version == generacion) {
+                        pendientes.remove(numPagina);
+                        paginas.put(numPagina, pagina);
+                        fireTableRowsUpdated(desde, desde + numero - 1);
+                    }
+                });
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Lee del servicio las reservas de una página y formatea los valores de sus
+     * celdas. Se ejecuta en el hilo de fondo.
+     *
+     * @param indice el índice de filas con el que se pidió la página.
+     * @param desde  la primera posición de la página en el índice.
+     * @param numero el número de filas de la página.
+     * @return los valores de las celdas, por fila y columna.
+     */
+    private Object[][] cargarPagina(int[] indice, int desde, int numero) {
+        Reserva[] reservas = new Reserva[numero];
+        servicio.obtenerFilas(indice, desde, numero, reservas);
+        Object[][] pagina = new Object[numero][];
+        StringBuilder texto = new StringBuilder(16);
+        for (int i = 0; i < numero; i++) {
+            Reserva reserva = reservas[i];
+            Object[] valores = new Object[COLUMNAS.length];
+            for (int c = 0; c < COLUMNAS.length; c++) {
+                valores[c] = valor(reserva, COLUMNAS[c], texto);
+            }
+            pagina[i] = valores;
+        }
+        return pagina;
+    }
+
+    /**
+     * Obtiene el valor que se muestra en una celda.
+     *
+     * @param reserva la reserva de la fila.
+     * @param columna la columna.
+     * @param texto   un texto auxiliar para formatear las fechas.
+     * @return el valor de la celda.
+     */
+    private static Object valor(Reserva reserva, TablaReservas.Columna columna, StringBuilder texto) {
+        switch (columna) {
+            case NOMBRE:
+                return reserva.getNombre();
+            case APELLIDOS:
+                return reserva.getApellidos();
+            case DNI:
+                return reserva.getDNI();
+            case TELEFONO:
+                return reserva.getTelefono();
+            case ENTRADA:
+                texto.setLength(0);
+                return CalculadoraEstancia.formatear(reserva.getFechaEntrada(), texto).toString();
+            case SALIDA:
+                texto.setLength(0);
+                return CalculadoraEstancia.formatear(reserva.getFechaSalida(), texto).toString();
+            case NOCHES:
+                return reserva.getNoches();
+            case TIPO:
+                return reserva.getTipoHabitacion().getEtiqueta();
+            case HABITACIONES:
+                return reserva.getNumHabitaciones();
+            case EDAD_NINOS:
+                return reserva.getEdadNinos() == Reserva.SIN_NINOS ? "" : String.valueOf(reserva.getEdadNinos());
+            default:
+                return MotorPrecios.formatearEuros(reserva.getImporteCentimos());
+        }
+    }
+}
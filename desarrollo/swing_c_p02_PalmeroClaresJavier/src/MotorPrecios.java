@@ -0,0 +1,102 @@
+/**
+ * Motor de cálculo de importes de las reservas, independiente de Swing.
+ * Trabaja con céntimos en aritmética entera y no crea ningún objeto al
+ * calcular, por lo que sirve tanto para la interfaz, que recalcula el importe
+ * a cada cambio, como para recalcular de golpe todas las reservas guardadas.
+ */
+public final class MotorPrecios {
+
+    /** Motor con las tarifas estándar del hotel. */
+    private static final MotorPrecios ESTANDAR = new MotorPrecios(TablaTarifas.ESTANDAR);
+
+    /** Tabla de tarifas que aplica el motor. */
+    private final TablaTarifas tarifas;
+
+    /**
+     * Crea un motor de precios con una tabla de tarifas.
+     *
+     * @param tarifas la tabla de tarifas.
+     */
+    public MotorPrecios(TablaTarifas tarifas) {
+        this.tarifas = tarifas;
+    }
+
+    /**
+     * Obtiene el motor con las tarifas estándar del hotel.
+     *
+     * @return el motor de precios estándar.
+     */
+    public static MotorPrecios getEstandar() {
+        return ESTANDAR;
+    }
+
+    /**
+     * Calcula el importe de una reserva.
+     *
+     * @param tipo            el tipo de habitación.
+     * @param numHabitaciones el número de habitaciones.
+     * @param noches          el número de noches.
+     * @param edadNinos       la edad de los niños, o {@link Reserva#SIN_NINOS} si no hay niños.
+     * @return el importe total en céntimos.
+     */
+    public long cotizar(TipoHabitacion tipo, int numHabitaciones, int noches, int edadNinos) {
+        return cotizar(tipo.getCodigo(), numHabitaciones, noches, edadNinos);
+    }
+
+    /**
+     * Calcula el importe de una reserva a partir del código del tipo de habitación.
+     * El total es (precio por noche + suplemento por niños) × habitaciones × noches.
+     *
+     * @param codigoTipo      el código del tipo de habitación.
+     * @param numHabitaciones el número de habitaciones.
+     * @param noches          el número de noches.
+     * @param edadNinos       la edad de los niños, o {@link Reserva#SIN_NINOS} si no hay niños.
+     * @return el importe total en céntimos.
+     */
+    public long cotizar(int codigoTipo, int numHabitaciones, int noches, int edadNinos) {
+        if (numHabitaciones <= 0 || noches <= 0) {
+            return 0;
+        }
+        long precioNoche = tarifas.getPrecioNoche(codigoTipo);
+        if (edadNinos >= 0 && edadNinos <= TablaTarifas.EDAD_MAXIMA_NINOS) {
+            precioNoche += tarifas.getSuplementoNinos();
+        }
+        return precioNoche * numHabitaciones * noches;
+    }
+
+    /**
+     * Calcula los importes de un lote de reservas guardadas por columnas. Cada
+     * posición de los arrays corresponde a una reserva; solo se calcula el rango
+     * indicado y los resultados se escriben en el array de importes.
+     *
+     * @param codigosTipo     los códigos de tipo de habitación.
+     * @param numHabitaciones los números de habitaciones.
+     * @param noches          los números de noches.
+     * @param edadesNinos     las edades de los niños, o {@link Reserva#SIN_NINOS}.
+     * @param importes        el array donde se escriben los importes en céntimos.
+     * @param desde           la primera posición a calcular.
+     * @param hasta           la posición siguiente a la última a calcular.
+     */
+    public void cotizarLote(byte[] codigosTipo, byte[] numHabitaciones, int[] noches, byte[] edadesNinos,
+            long[] importes, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            importes[i] = cotizar(codigosTipo[i], numHabitaciones[i], noches[i], edadesNinos[i]);
+        }
+    }
+
+    /**
+     * Da formato a un importe en céntimos para mostrarlo al usuario. Los importes
+     * sin céntimos se muestran como un número entero de euros.
+     *
+     * @param centimos el importe en céntimos.
+     * @return el importe con el símbolo del euro, por ejemplo "125 €" o "12,50 €".
+     */
+    public static String formatearEuros(long centimos) {
+        long euros = centimos / 100;
+        long resto = Math.abs(centimos % 100);
+        if (resto == 0) {
+            return euros + " €";
+        }
+        return euros + (resto < 10 ? ",0" : ",") + resto + " €";
+    }
+}
@@ -1,12 +1,12 @@
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 /**
  * Clase que representa un panel para la captura de datos de un cliente.
@@ -15,12 +15,6 @@ import javax.swing.event.ChangeEvent;
  */
 public class PanelDatosCliente extends JPanel {
 
-    /** Formato de fecha utilizado en los campos de fecha. */
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd/MM/yyyy");
-
-    /** Fecha actual utilizada como base para los campos de fecha. */
-    private final Date fechaActual = new Date();
-
     // Campos de entrada de texto para los datos del cliente
     private JTextField tfNombre, tfApellidos, tfDNI, tfTelefono, tfDiasEstancia;
 
@@ -60,6 +54,7 @@ public class PanelDatosCliente extends JPanel {
         lbErrorTelefono = new JLabel(" "); // Espacio inicial para el mensaje de error
         tfDiasEstancia = new JTextField(10);
         tfDiasEstancia.setEditable(false); // El campo de días de estancia no es editable
+        tfDiasEstancia.setFont(new Font("SansSerif", Font.PLAIN, 14));
 
         // Adición de los campos al panel
         agregarCampo("Nombre:", tfNombre, gbc, 0);
@@ -67,9 +62,11 @@ public class PanelDatosCliente extends JPanel {
         agregarCampoConValidacion("DNI:", tfDNI, lbErrorDNI, gbc, 2);
         agregarCampoConValidacion("Teléfono:", tfTelefono, lbErrorTelefono, gbc, 3);
 
-        // Configuración de los spinners para las fechas
-        spFechaEntrada = configurarSpinnerFecha(fechaActual);
-        spFechaSalida = configurarSpinnerFecha(sumarDias(fechaActual, 1));
+        // Configuración de los spinners para las fechas: hoy y mañana, sin pasar del
+        // horizonte de fechas en el que se pueden reservar habitaciones
+        int hoy = CalculadoraEstancia.hoy();
+        spFechaEntrada = configurarSpinnerFecha(aFecha(hoy), aFecha(DisponibilidadHabitaciones.DIA_FINAL - 1));
+        spFechaSalida = configurarSpinnerFecha(aFecha(hoy + 1), aFecha(DisponibilidadHabitaciones.DIA_FINAL));
 
         // Adición de eventos para actualización dinámica de fechas
         spFechaEntrada.addChangeListener(this::actualizarFechas);
@@ -193,10 +190,11 @@ public class PanelDatosCliente extends JPanel {
      * Configurar spinner para la fecha.
      *
      * @param fechaInicial la fecha inicial para el spinner
+     * @param fechaMaxima la fecha más tardía que se puede elegir
      * @return el spinner configurado
      */
-    private JSpinner configurarSpinnerFecha(Date fechaInicial) {
-        JSpinner spinner = new JSpinner(new SpinnerDateModel(fechaInicial, null, null, Calendar.DAY_OF_MONTH));
+    private JSpinner configurarSpinnerFecha(Date fechaInicial, Date fechaMaxima) {
+        JSpinner spinner = new JSpinner(new SpinnerDateModel(fechaInicial, null, fechaMaxima, Calendar.DAY_OF_MONTH));
         spinner.setEditor(new JSpinner.DateEditor(spinner, "dd/MM/yyyy"));
         ((JSpinner.DefaultEditor) spinner.getEditor()).getTextField().setEditable(false);
         spinner.setFont(new Font("SansSerif", Font.PLAIN, 14));
@@ -209,42 +207,63 @@ public class PanelDatosCliente extends JPanel {
      * @param e el evento del cambio en el spinner
      */
     private void actualizarFechas(ChangeEvent e) {
-        Date fechaEntrada = (Date) spFechaEntrada.getValue();
-        Date fechaSalida = (Date) spFechaSalida.getValue();
+        // Las fechas se comparan por días, sin tener en cuenta la hora
+        int diaEntrada = getDiaEntrada();
+        int diaSalida = getDiaSalida();
 
         if (e.getSource() == spFechaEntrada) {
-            if (fechaEntrada.before(fechaActual)) {
-                spFechaEntrada.setValue(fechaActual);
+            int hoy = CalculadoraEstancia.hoy();
+            if (diaEntrada < hoy) {
+                diaEntrada = hoy;
+                spFechaEntrada.setValue(aFecha(hoy));
             }
-            if (!fechaEntrada.before(fechaSalida)) {
-                ajustarFechaSalida(fechaEntrada);
+            if (diaEntrada >= diaSalida) {
+                ajustarFechaSalida(diaEntrada);
             }
         } else if (e.getSource() == spFechaSalida) {
-            if (!fechaSalida.after(fechaEntrada)) {
-                ajustarFechaSalida(fechaEntrada);
+            if (diaSalida <= diaEntrada) {
+                ajustarFechaSalida(diaEntrada);
             }
         }
         calcularDiasEstancia();
+        notificarCambioFechas();
+    }
+
+    /**
+     * Registrar un listener que se avisa cada vez que cambian las fechas de la
+     * estancia, después de recalcular los días de estancia.
+     *
+     * @param listener el listener a registrar
+     */
+    public void agregarListenerFechas(ChangeListener listener) {
+        listenerList.add(ChangeListener.class, listener);
+    }
+
+    /**
+     * Avisar a los listeners registrados de que han cambiado las fechas.
+     */
+    private void notificarCambioFechas() {
+        ChangeEvent evento = new ChangeEvent(this);
+        for (ChangeListener listener : listenerList.getListeners(ChangeListener.class)) {
+            listener.stateChanged(evento);
+        }
     }
 
     /**
      * Ajustar la fecha de salida, sumando un día a la fecha de entrada.
      *
-     * @param fechaEntrada la fecha de entrada
+     * @param diaEntrada el día de entrada, en días desde el 1 de enero de 1970
      */
-    private void ajustarFechaSalida(Date fechaEntrada) {
-        spFechaSalida.setValue(sumarDias(fechaEntrada, 1));
+    private void ajustarFechaSalida(int diaEntrada) {
+        spFechaSalida.setValue(aFecha(diaEntrada + 1));
     }
 
     /**
      * Calcular los días de estancia entre las fechas de entrada y salida.
      */
     private void calcularDiasEstancia() {
-        Date fechaEntrada = (Date) spFechaEntrada.getValue();
-        Date fechaSalida = (Date) spFechaSalida.getValue();
-        tfDiasEstancia
-                .setText(String.valueOf((fechaSalida.getTime() - fechaEntrada.getTime()) / (1000 * 60 * 60 * 24)));
-        tfDiasEstancia.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        // Se cuentan días del calendario, así que los cambios de hora no restan ninguna noche
+        tfDiasEstancia.setText(String.valueOf(getNochesEstancia()));
     }
 
     /**
@@ -256,6 +275,55 @@ public class PanelDatosCliente extends JPanel {
         return tfDiasEstancia.getText();
     }
 
+    /**
+     * Obtener el número de noches de la estancia a partir de las fechas elegidas.
+     *
+     * @return el número de noches
+     */
+    public int getNochesEstancia() {
+        return CalculadoraEstancia.noches(getDiaEntrada(), getDiaSalida());
+    }
+
+    /**
+     * Obtener el día de entrada.
+     *
+     * @return el día de entrada, en días desde el 1 de enero de 1970
+     */
+    public int getDiaEntrada() {
+        return aDiaEpoca((Date) spFechaEntrada.getValue());
+    }
+
+    /**
+     * Obtener el día de salida.
+     *
+     * @return el día de salida, en días desde el 1 de enero de 1970
+     */
+    public int getDiaSalida() {
+        return aDiaEpoca((Date) spFechaSalida.getValue());
+    }
+
+    /**
+     * Convertir una fecha en el número de días desde el 1 de enero de 1970
+     * según la zona horaria local.
+     *
+     * @param fecha la fecha a convertir
+     * @return el número de días
+     */
+    private static int aDiaEpoca(Date fecha) {
+        return CalculadoraEstancia.diaLocal(fecha.getTime());
+    }
+
+    /**
+     * Convertir un número de días desde el 1 de enero de 1970 en la fecha del
+     * comienzo de ese día según la zona horaria local.
+     *
+     * @param dia el número de días
+     * @return la fecha
+     */
+    private static Date aFecha(int dia) {
+        return new Date(CalculadoraEstancia.inicioDia(dia));
+    }
+
     /**
      * Obtener el nombre del cliente.
      *
@@ -316,15 +384,23 @@ public class PanelDatosCliente extends JPanel {
      * @return verdadero si el DNI es válido
      */
     private boolean validarDNI() {
+        EventosHotel.Validacion evento = new EventosHotel.Validacion();
+        evento.begin();
         String dni = tfDNI.getText();
-        if (!dni.matches("\\d{8}[A-Za-z]") || !"TRWAGMYFPDXBNJZSQVHLCKE"
-                .substring(Integer.parseInt(dni.substring(0, 8)) % 23, Integer.parseInt(dni.substring(0, 8)) % 23 + 1)
-                .equalsIgnoreCase(dni.substring(8))) {
-            lbErrorDNI.setText(dni.matches("\\d{8}[A-Za-z]") ? "Letra incorrecta" : "Formato incorrecto");
-            return false;
+        ValidadorDatos.ResultadoDNI resultado = ValidadorDatos.comprobarDNI(dni);
+        switch (resultado) {
+            case VALIDO:
+                lbErrorDNI.setText(" ");
+                break;
+            case LETRA_INCORRECTA:
+                lbErrorDNI.setText("Letra incorrecta");
+                break;
+            default:
+                lbErrorDNI.setText("Formato incorrecto");
+                break;
         }
-        lbErrorDNI.setText(" ");
-        return true;
+        registrarValidacion(evento, "DNI", dni, resultado.name());
+        return resultado == ValidadorDatos.ResultadoDNI.VALIDO;
     }
 
     /**
@@ -333,22 +409,31 @@ public class PanelDatosCliente extends JPanel {
      * @return verdadero si el teléfono es válido
      */
     private boolean validarTelefono() {
-        lbErrorTelefono.setText(tfTelefono.getText().matches("\\d{9}") ? " " : "Formato incorrecto");
-        return tfTelefono.getText().matches("\\d{9}");
+        EventosHotel.Validacion evento = new EventosHotel.Validacion();
+        evento.begin();
+        String telefono = tfTelefono.getText();
+        boolean valido = ValidadorDatos.esTelefonoValido(telefono);
+        lbErrorTelefono.setText(valido ? " " : "Formato incorrecto");
+        registrarValidacion(evento, "Teléfono", telefono, valido ? "VALIDO" : "FORMATO_INCORRECTO");
+        return valido;
     }
 
     /**
-     * Sumar días a una fecha.
+     * Termina el evento de una validación.
      *
-     * @param fecha la fecha base
-     * @param dias los días a sumar
-     * @return la nueva fecha
+     * @param evento    el evento.
+     * @param campo     el nombre del campo validado.
+     * @param texto     el texto validado.
+     * @param resultado el resultado de la validación.
      */
-    private Date sumarDias(Date fecha, int dias) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(fecha);
-        cal.add(Calendar.DAY_OF_YEAR, dias);
-        return cal.getTime();
+    private static void registrarValidacion(EventosHotel.Validacion evento, String campo, String texto,
+            String resultado) {
+        if (evento.shouldCommit()) {
+            evento.campo = campo;
+            evento.longitud = texto.length();
+            evento.resultado = resultado;
+            evento.commit();
+        }
     }
 
     /**
@@ -381,22 +466,40 @@ public class PanelDatosCliente extends JPanel {
      * @return los datos del cliente en formato texto
      */
     public String obtenerDatos() {
+        return formatearDatos(tfNombre.getText(), tfApellidos.getText(), tfDNI.getText(), tfTelefono.getText(),
+                getDiasEstancia());
+    }
+
+    /**
+     * Dar formato de texto a los datos de un cliente.
+     *
+     * @param nombre el nombre del cliente
+     * @param apellidos los apellidos del cliente
+     * @param dni el DNI del cliente
+     * @param telefono el teléfono del cliente
+     * @param diasEstancia los días de estancia
+     * @return los datos del cliente en formato texto
+     */
+    public static String formatearDatos(String nombre, String apellidos, String dni, String telefono,
+            String diasEstancia) {
         return String.format("Nombre: %s\nApellidos: %s\nDNI: %s\nTeléfono: %s\nDías de estancia: %s",
-                tfNombre.getText(), tfApellidos.getText(), tfDNI.getText(), tfTelefono.getText(), getDiasEstancia());
+                nombre, apellidos, dni, telefono, diasEstancia);
     }
 
     /**
      * Resetear los campos del formulario.
      */
     public void resetearCampos() {
+        // El formulario se reutiliza entre reservas, así que se parte siempre del día actual
+        int hoy = CalculadoraEstancia.hoy();
         tfNombre.setText("");
         tfApellidos.setText("");
         tfDNI.setText("");
         tfTelefono.setText("");
         lbErrorDNI.setText(" ");
         lbErrorTelefono.setText(" ");
-        spFechaEntrada.setValue(fechaActual);
-        spFechaSalida.setValue(sumarDias(fechaActual, 1));
+        spFechaEntrada.setValue(aFecha(hoy));
+        spFechaSalida.setValue(aFecha(hoy + 1));
         tfDiasEstancia.setText("");
         tfNombre.requestFocusInWindow();
     }
@@ -11,7 +11,7 @@ import javax.swing.border.*;
 public class PanelDatosHabitacion extends JPanel {
 	
 	/** El combo box para seleccionar el tipo de habitación. */
-	private JComboBox<String> tipoHabitacion;
+	private JComboBox<TipoHabitacion> tipoHabitacion;
 	
 	/** El spinner para seleccionar el número de habitaciones. */
 	private JSpinner numHabitaciones;
@@ -31,19 +31,34 @@ public class PanelDatosHabitacion extends JPanel {
 	/** La etiqueta para mostrar el importe calculado de la habitación. */
 	private JLabel importeLabel;
 	
+	/** Habitaciones libres de cada tipo para las fechas elegidas, o null si no se conocen. */
+	private int[] libres;
+	
+	/** El último importe calculado, en céntimos. */
+	private long importeCentimos;
+	
 	/** El panel de datos del cliente, utilizado para obtener información como los días de estancia. */
 	private PanelDatosCliente panelCliente;
 
+	/** Cliente del servidor de reservas compartido, o null si las reservas están en el almacén local. */
+	private final ClienteReservas servidor;
+
+	/** Número de la última consulta de disponibilidad al servidor, para descartar las respuestas atrasadas. */
+	private int consultaDisponibilidad;
+
 	/**
 	 * Constructor de PanelDatosHabitacion.
 	 * Inicializa los componentes de la interfaz de usuario y establece la disposición y eventos.
 	 *
 	 * @param panelCliente El panel de datos del cliente.
 	 * @param panelImagenes El panel de imágenes, aunque no se utiliza en este panel.
+	 * @param servidor El cliente del servidor de reservas, o null si las reservas están en el almacén local.
 	 */
-	public PanelDatosHabitacion(PanelDatosCliente panelCliente, PanelImagenes panelImagenes) {
+	public PanelDatosHabitacion(PanelDatosCliente panelCliente, PanelImagenes panelImagenes,
+			ClienteReservas servidor) {
 		// Se asigna el panel de cliente para utilizar datos del cliente en los cálculos
 		this.panelCliente = panelCliente;
+		this.servidor = servidor;
 
 		// Establecemos el fondo y el borde con título del panel
 		setBackground(new Color(230, 230, 250));  // Color lavanda claro
@@ -65,8 +80,9 @@ public class PanelDatosHabitacion extends JPanel {
 		// Configuración del combo box para seleccionar el tipo de habitación
 		gbc.gridx = 1;
 		gbc.gridy = 0;
-		tipoHabitacion = new JComboBox<>(new String[] { "Simple", "Doble", "Suite" });  // Opciones de tipo de habitación
+		tipoHabitacion = new JComboBox<>(TipoHabitacion.values());  // Opciones de tipo de habitación
 		tipoHabitacion.setFont(tipoHabitacion.getFont().deriveFont(Font.PLAIN, 16));  // Estilo de fuente
+		tipoHabitacion.setRenderer(new RenderizadorDisponibilidad());  // Muestra las habitaciones libres de cada tipo
 		add(tipoHabitacion, gbc);
 
 		// Configuración de la etiqueta para el número de habitaciones
@@ -150,7 +166,13 @@ public class PanelDatosHabitacion extends JPanel {
 		tipoHabitacion.addActionListener(e -> calcularImporte());  // Si cambia el tipo de habitación, se recalcula el importe
 		numHabitaciones.addChangeListener(e -> calcularImporte());  // Si cambia el número de habitaciones, se recalcula el importe
 		checkNiños.addActionListener(e -> calcularImporte());  // Si se marca o desmarca el check, se recalcula el importe
+		numHabitaciones.addChangeListener(e -> tipoHabitacion.repaint());  // Se avisa si no quedan tantas habitaciones libres
+		panelCliente.agregarListenerFechas(e -> {  // Si cambian las fechas, se actualizan la disponibilidad y el importe
+			actualizarDisponibilidad();
+			calcularImporte();
+		});
 
+		actualizarDisponibilidad();  // Consultamos la disponibilidad al inicio
 		calcularImporte();  // Calculamos el importe al inicio
 	}
 
@@ -183,61 +205,143 @@ public class PanelDatosHabitacion extends JPanel {
 	}
 
 	/**
-	 * Método que calcula el importe total de la habitación en función de los datos seleccionados.
+	 * Método que consulta las habitaciones libres de cada tipo para las fechas
+	 * elegidas en el panel del cliente. Si las reservas todavía se están cargando,
+	 * no se muestra la disponibilidad en lugar de esperar. Con un servidor de
+	 * reservas, la consulta se hace sin bloquear la ventana y la disponibilidad
+	 * se muestra cuando llega la respuesta.
 	 */
-	private void calcularImporte() {
-		int diasEstancia;
-		try {
-			// Intentamos obtener los días de estancia del panel de datos del cliente
-			diasEstancia = Integer.parseInt(panelCliente.getDiasEstancia());  
-		} catch (NumberFormatException e) {
-			diasEstancia = 0;  // Si no se puede obtener, asumimos 0 días de estancia
+	public void actualizarDisponibilidad() {
+		if (servidor != null) {
+			consultarServidor();
+			return;
 		}
-
-		// Determinamos el precio base en función del tipo de habitación
-		String tipo = (String) tipoHabitacion.getSelectedItem();
-		int precioBase;
-		switch (tipo) {
-		case "Simple":
-			precioBase = 50;  // Precio base para habitación simple
-			break;
-		case "Doble":
-			precioBase = 75;  // Precio base para habitación doble
-			break;
-		case "Suite":
-			precioBase = 125;  // Precio base para suite
-			break;
-		default:
-			precioBase = 0;  // Si no se selecciona un tipo, el precio es 0
+		ServicioReservas servicio = ServicioReservas.getCompartidoSiCargado();
+		if (servicio == null) {
+			libres = null;
+		} else {
+			int desde = panelCliente.getDiaEntrada();
+			int hasta = panelCliente.getDiaSalida();
+			libres = new int[TipoHabitacion.numTipos()];
+			for (int i = 0; i < libres.length; i++) {
+				libres[i] = servicio.libres(i, desde, hasta);
+			}
 		}
+		tipoHabitacion.repaint();  // El combo box muestra los nuevos valores
+	}
 
-		// Obtenemos el número de habitaciones
-		int numHab = (int) numHabitaciones.getValue();
-		int extraCoste = 0;  // Inicializamos el coste extra
+	/**
+	 * Método que pide al servidor las habitaciones libres de cada tipo. Mientras
+	 * llega la respuesta no se muestra la disponibilidad, y si el servidor no
+	 * responde se deja sin mostrar: al guardar, el servidor decide igualmente.
+	 */
+	private void consultarServidor() {
+		int consulta = ++consultaDisponibilidad;
+		libres = null;
+		tipoHabitacion.repaint();
+		servidor.libres(panelCliente.getDiaEntrada(), panelCliente.getDiaSalida())
+				.whenComplete((respuesta, error) -> SwingUtilities.invokeLater(() -> {
+					if (consulta != consultaDisponibilidad) {
+						return;  // Ya se han cambiado las fechas: esta respuesta está atrasada
+					}
+					if (error != null) {
+						error.printStackTrace();
+					}
+					libres = respuesta;
+					tipoHabitacion.repaint();
+				}));
+	}
 
-		// Si hay niños, sumamos un coste adicional
-		if (checkNiños.isSelected()) {
-			int edad = (int) edadNiñosSpinner.getValue();
-			if (edad >= 0 && edad <= 14) {
-				extraCoste = 20;  // Coste extra si hay niños
-			}
-		}
+	/**
+	 * Método que comprueba si quedan libres las habitaciones seleccionadas.
+	 *
+	 * @return verdadero si hay disponibilidad o si todavía no se conoce.
+	 */
+	public boolean hayDisponibilidad() {
+		return libres == null || libres[tipoHabitacion.getSelectedIndex()] >= getNumHabitaciones();
+	}
 
-		// Calculamos el total: (precio base + coste extra) * número de habitaciones * días de estancia
-		int total = (precioBase + extraCoste) * numHab * diasEstancia;
-		importeLabel.setText(total + " €");  // Actualizamos la etiqueta con el total calculado
+	/**
+	 * Método que calcula el importe total de la habitación en función de los datos seleccionados.
+	 * El cálculo lo realiza el motor de precios, con las noches obtenidas directamente de las
+	 * fechas del panel del cliente.
+	 */
+	private void calcularImporte() {
+		EventosHotel.CalculoImporte evento = new EventosHotel.CalculoImporte();  // Evento de JFR con la duración del cálculo
+		evento.begin();
+		// Calculamos el total: (precio base + coste extra por niños) * número de habitaciones * noches
+		importeCentimos = MotorPrecios.getEstandar().cotizar(getTipoHabitacion(), getNumHabitaciones(),
+				panelCliente.getNochesEstancia(), getEdadNinos());
+		importeLabel.setText(MotorPrecios.formatearEuros(importeCentimos));  // Actualizamos la etiqueta con el total calculado
+		if (evento.shouldCommit()) {  // Los campos solo se rellenan si se está grabando
+			evento.tipoHabitacion = getTipoHabitacion().getEtiqueta();
+			evento.numHabitaciones = getNumHabitaciones();
+			evento.noches = panelCliente.getNochesEstancia();
+			evento.edadNinos = getEdadNinos();
+			evento.importeCentimos = importeCentimos;
+			evento.commit();
+		}
 	}
 	
+	/**
+	 * Método que obtiene el tipo de habitación seleccionado.
+	 *
+	 * @return El tipo de habitación.
+	 */
+	public TipoHabitacion getTipoHabitacion() {
+		return (TipoHabitacion) tipoHabitacion.getSelectedItem();
+	}
+
+	/**
+	 * Método que obtiene el número de habitaciones seleccionado.
+	 *
+	 * @return El número de habitaciones.
+	 */
+	public int getNumHabitaciones() {
+		return (int) numHabitaciones.getValue();
+	}
+
+	/**
+	 * Método que obtiene la edad de los niños, si los hay.
+	 *
+	 * @return La edad de los niños, o {@link Reserva#SIN_NINOS} si no hay niños.
+	 */
+	public int getEdadNinos() {
+		return checkNiños.isSelected() ? (int) edadNiñosSpinner.getValue() : Reserva.SIN_NINOS;
+	}
+
+	/**
+	 * Método que obtiene el último importe calculado.
+	 *
+	 * @return El importe total en céntimos.
+	 */
+	public long getImporteCentimos() {
+		return importeCentimos;
+	}
+
 	/**
 	 * Método que obtiene los datos seleccionados por el usuario en un formato de texto.
 	 *
 	 * @return Una cadena con los datos de la habitación seleccionada.
 	 */
 	public String obtenerDatos() {
-	    String tipo = (String) tipoHabitacion.getSelectedItem();
+	    TipoHabitacion tipo = getTipoHabitacion();
 	    int numHab = (int) numHabitaciones.getValue();
 	    String extras = checkNiños.isSelected() ? extrasTextField.getText() : "Ninguno";
-	    return String.format("Tipo: %s\nHabitaciones: %d\nExtras: %s\nImporte: %s", tipo, numHab, extras, importeLabel.getText());
+	    return formatearDatos(tipo, numHab, extras, importeLabel.getText());
+	}
+
+	/**
+	 * Método que da formato de texto a los datos de una habitación.
+	 *
+	 * @param tipo    El tipo de habitación.
+	 * @param numHab  El número de habitaciones.
+	 * @param extras  Los extras para niños, o "Ninguno".
+	 * @param importe El importe ya formateado.
+	 * @return Una cadena con los datos de la habitación.
+	 */
+	public static String formatearDatos(TipoHabitacion tipo, int numHab, String extras, String importe) {
+	    return String.format("Tipo: %s\nHabitaciones: %d\nExtras: %s\nImporte: %s", tipo, numHab, extras, importe);
 	}
 
 	/**
@@ -250,6 +354,30 @@ public class PanelDatosHabitacion extends JPanel {
 		panelExtrasNiños.setVisible(false);  // Ocultar el panel de extras para niños
 		edadNiñosSpinner.setValue(0);  // Restablecer la edad del niño a 0
 		extrasTextField.setText("");  // Limpiar el campo de texto de extras
+		importeCentimos = 0;
 		importeLabel.setText("0 €");  // Restablecer el importe a 0 €
+		actualizarDisponibilidad();  // Volver a consultar la disponibilidad
+	}
+
+	/**
+	 * Renderizador del combo box de tipos de habitación que muestra, junto a cada
+	 * tipo, las habitaciones que quedan libres para las fechas elegidas. Si no hay
+	 * tantas como las seleccionadas, el tipo se muestra en rojo.
+	 */
+	private class RenderizadorDisponibilidad extends DefaultListCellRenderer {
+
+		@Override
+		public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+				boolean cellHasFocus) {
+			super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+			int posicion = index >= 0 ? index : tipoHabitacion.getSelectedIndex();
+			if (libres != null && posicion >= 0) {
+				setText(value + " (" + libres[posicion] + " libres)");
+				if (!isSelected && libres[posicion] < getNumHabitaciones()) {
+					setForeground(Color.RED);  // No quedan suficientes habitaciones de este tipo
+				}
+			}
+			return this;
+		}
 	}
 }
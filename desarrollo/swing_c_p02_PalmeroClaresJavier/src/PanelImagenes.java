@@ -1,4 +1,6 @@
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
 /**
@@ -60,13 +62,14 @@ public class PanelImagenes extends JPanel {
 		panel.add(etiquetaTitulo, BorderLayout.SOUTH);
 
 		// Añadimos un listener al panel para que ajuste la imagen cuando el tamaño del
-		// panel cambie
+		// panel cambie. El reescalado se agrupa y se hace fuera del hilo de eventos.
+		Reescalado reescalado = new Reescalado(etiquetaImagen, rutaImagen);
 		panel.addComponentListener(new java.awt.event.ComponentAdapter() {
 			@Override
 			public void componentResized(java.awt.event.ComponentEvent e) {
-				// Llamamos al método para ajustar la imagen al nuevo tamaño del panel
+				// Solicitamos el ajuste de la imagen al nuevo tamaño del panel
 				// (considerando un margen para el título)
-				ajustarImagen(etiquetaImagen, rutaImagen, panel.getWidth(), panel.getHeight() - 30);
+				reescalado.solicitar(panel.getWidth(), panel.getHeight() - 30);
 			}
 		});
 
@@ -75,46 +78,128 @@ public class PanelImagenes extends JPanel {
 	}
 
 	/**
-	 * Método para ajustar la imagen a las dimensiones del panel. Mantiene la imagen
-	 * escalada de forma suave, ajustando el tamaño según el panel disponible.
-	 *
-	 * @param etiquetaImagen La etiqueta donde se mostrará la imagen.
-	 * @param rutaImagen     La ruta de la imagen.
-	 * @param ancho          El ancho disponible en el panel.
-	 * @param alto           El alto disponible en el panel (restando espacio para
-	 *                       el título).
+	 * Reescalado diferido de la imagen de un panel. La imagen se muestra desde su
+	 * pirámide de miniaturas ({@link PiramideImagenes}), así que redimensionar no
+	 * escala nada: si el nivel que corresponde al nuevo tamaño ya está en memoria,
+	 * se muestra al momento. Si no, agrupa las ráfagas de eventos de redimensionado
+	 * con un temporizador y lee o construye el nivel en un hilo de fondo; mientras
+	 * tanto, si la imagen original ya está decodificada, muestra una vista previa
+	 * rápida de baja calidad, de modo que el hilo de despacho de eventos nunca
+	 * decodifica ni lee imágenes.
 	 */
-	private void ajustarImagen(JLabel etiquetaImagen, String rutaImagen, int ancho, int alto) {
-		// Cargamos la imagen desde los recursos
-		ImageIcon icono = cargarImagen(rutaImagen);
-		if (icono != null && ancho > 0 && alto > 0) {
-			// Escalamos la imagen al tamaño del panel, manteniendo la calidad
-			// (SCALE_SMOOTH)
-			Image imagen = icono.getImage().getScaledInstance(ancho, alto, Image.SCALE_SMOOTH);
-			// Establecemos la imagen escalada en la etiqueta
-			etiquetaImagen.setIcon(new ImageIcon(imagen));
-		} else {
-			// Si la imagen no se puede cargar, mostramos un mensaje de error
-			etiquetaImagen.setText("Imagen no encontrada");
-			etiquetaImagen.setIcon(null); // Limpiamos la imagen
+	private static final class Reescalado {
+
+		/** Tiempo de espera sin nuevos redimensionados antes de escalar, en milisegundos. */
+		private static final int RETARDO_MS = 120;
+
+		/** La etiqueta donde se muestra la imagen. */
+		private final JLabel etiquetaImagen;
+
+		/** La ruta de la imagen. */
+		private final String rutaImagen;
+
+		/** Temporizador que agrupa los eventos de redimensionado. */
+		private final Timer temporizador;
+
+		/** Último tamaño solicitado. */
+		private int ancho, alto;
+
+		/** Escala de la pantalla en la última solicitud. */
+		private double escala = 1;
+
+		/** Número de la última solicitud, para descartar resultados obsoletos. */
+		private int generacion;
+
+		/**
+		 * Crea el reescalado para una etiqueta.
+		 *
+		 * @param etiquetaImagen La etiqueta donde se mostrará la imagen.
+		 * @param rutaImagen     La ruta de la imagen.
+		 */
+		Reescalado(JLabel etiquetaImagen, String rutaImagen) {
+			this.etiquetaImagen = etiquetaImagen;
+			this.rutaImagen = rutaImagen;
+			this.temporizador = new Timer(RETARDO_MS, e -> escalarEnSegundoPlano());
+			this.temporizador.setRepeats(false);
 		}
-	}
 
-	/**
-	 * Método para cargar una imagen desde los recursos del proyecto.
-	 *
-	 * @param ruta La ruta de la imagen que queremos cargar.
-	 * @return El ImageIcon con la imagen cargada.
-	 */
-	private ImageIcon cargarImagen(String ruta) {
-		try {
-			// Intentamos cargar la imagen desde los recursos con la ruta especificada
-			return new ImageIcon(getClass().getResource(ruta));
-		} catch (Exception e) {
-			// Si ocurre un error al cargar la imagen, lo registramos en la consola
-			System.err.println("Error al cargar la imagen: " + ruta);
-			// Retornamos null si no se pudo cargar la imagen
-			return null;
+		/**
+		 * Solicita ajustar la imagen a un nuevo tamaño. Se ejecuta en el hilo de eventos.
+		 *
+		 * @param ancho El ancho disponible en el panel.
+		 * @param alto  El alto disponible en el panel.
+		 */
+		void solicitar(int ancho, int alto) {
+			if (ancho <= 0 || alto <= 0 || ancho == this.ancho && alto == this.alto) {
+				return; // El panel todavía no tiene tamaño o no ha cambiado
+			}
+			this.ancho = ancho;
+			this.alto = alto;
+			generacion++;
+
+			escala = PiramideImagenes.escala(etiquetaImagen);
+			Image imagen = PiramideImagenes.getInstancia().consultarVista(rutaImagen, ancho, alto, escala);
+			if (imagen != null) {
+				// El nivel de la pirámide para este tamaño ya está en memoria
+				temporizador.stop();
+				mostrar(imagen);
+				return;
+			}
+
+			// Vista previa rápida mientras se lee o se construye el nivel
+			BufferedImage original = CacheImagenes.getInstancia().consultarOriginal(rutaImagen);
+			if (original != null) {
+				mostrar(CacheImagenes.escalarRapido(original, ancho, alto));
+			}
+			temporizador.restart();
+		}
+
+		/**
+		 * Prepara en un hilo de fondo el nivel de la pirámide del último tamaño
+		 * solicitado, leyéndolo del disco o construyendo la pirámide si hace falta.
+		 */
+		private void escalarEnSegundoPlano() {
+			final int anchoSolicitado = ancho;
+			final int altoSolicitado = alto;
+			final double escalaSolicitada = escala;
+			final int generacionSolicitada = generacion;
+			new SwingWorker<Image, Void>() {
+				@Override
+				protected Image doInBackground() {
+					return PiramideImagenes.getInstancia().obtenerVista(rutaImagen, anchoSolicitado, altoSolicitado,
+							escalaSolicitada);
+				}
+
+				@Override
+				protected void done() {
+					if (generacionSolicitada != generacion) {
+						return; // Ha llegado otro tamaño mientras se escalaba
+					}
+					try {
+						mostrar(get());
+					} catch (InterruptedException | ExecutionException e) {
+						e.printStackTrace();
+						mostrar(null);
+					}
+				}
+			}.execute();
+		}
+
+		/**
+		 * Muestra una imagen en la etiqueta, o un mensaje si no se ha podido cargar.
+		 *
+		 * @param imagen La imagen a mostrar, o null si no se ha encontrado.
+		 */
+		private void mostrar(Image imagen) {
+			if (imagen != null) {
+				// Establecemos la imagen escalada en la etiqueta
+				etiquetaImagen.setText(null);
+				etiquetaImagen.setIcon(PiramideImagenes.icono(imagen));
+			} else {
+				// Si la imagen no se puede cargar, mostramos un mensaje de error
+				etiquetaImagen.setText("Imagen no encontrada");
+				etiquetaImagen.setIcon(null); // Limpiamos la imagen
+			}
 		}
 	}
 }
@@ -0,0 +1,164 @@
+import java.awt.*;
+
+import javax.swing.*;
+
+/**
+ * Panel de resumen de la ventana principal con la ocupación de esta noche y
+ * los ingresos del mes por tipo de habitación. Se refresca cada segundo con un
+ * temporizador leyendo los contadores de {@link DisponibilidadHabitaciones} y
+ * {@link AgregadosReservas}, que se mantienen al día con cada alta y cada baja,
+ * así que cada refresco cuesta lo mismo haya diez reservas o diez millones.
+ */
+public class PanelResumen extends JPanel {
+
+    /** Intervalo entre refrescos, en milisegundos. */
+    private static final int INTERVALO = 1000;
+
+    /** Etiquetas con la ocupación de cada tipo de habitación. */
+    private final JLabel[] lbOcupacion = new JLabel[TipoHabitacion.numTipos()];
+
+    /** Etiquetas con los ingresos del mes de cada tipo de habitación. */
+    private final JLabel[] lbIngresos = new JLabel[TipoHabitacion.numTipos()];
+
+    /** Etiqueta con la ocupación total. */
+    private final JLabel lbOcupacionTotal = new JLabel();
+
+    /** Etiqueta con los ingresos del mes de todos los tipos. */
+    private final JLabel lbIngresosTotal = new JLabel();
+
+    /** Etiqueta con el número de reservas activas. */
+    private final JLabel lbReservas = new JLabel("Cargando...");
+
+    /** Temporizador que refresca el panel. */
+    private final Timer temporizador = new Timer(INTERVALO, e -> refrescar());
+
+    /**
+     * Constructor del panel. El temporizador empieza a funcionar al mostrarse el
+     * panel y se detiene al quitarlo de la ventana.
+     */
+    public PanelResumen() {
+        setLayout(new GridBagLayout());
+        setOpaque(false);
+        setPreferredSize(new Dimension(230, 0));
+        setBorder(BorderFactory.createCompoundBorder(BorderFactory.createEmptyBorder(0, 0, 0, 10),
+                BorderFactory.createTitledBorder("Resumen")));
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 5, 2, 5);
+        gbc.gridy = 0;
+        anadirTitulo("Ocupación esta noche", gbc);
+        for (TipoHabitacion tipo : TipoHabitacion.values()) {
+            lbOcupacion[tipo.getCodigo()] = anadirFila(tipo.getEtiqueta(), gbc);
+        }
+        anadirFila("Total", lbOcupacionTotal, gbc);
+
+        anadirTitulo("Ingresos del mes", gbc);
+        for (TipoHabitacion tipo : TipoHabitacion.values()) {
+            lbIngresos[tipo.getCodigo()] = anadirFila(tipo.getEtiqueta(), gbc);
+        }
+        anadirFila("Total", lbIngresosTotal, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridwidth = 2;
+        gbc.insets = new Insets(10, 5, 2, 5);
+        add(lbReservas, gbc);
+
+        temporizador.setInitialDelay(0);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        temporizador.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        temporizador.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Añade el título de un grupo de filas.
+     *
+     * @param texto el título.
+     * @param gbc   las restricciones de colocación, que avanzan a la fila siguiente.
+     */
+    private void anadirTitulo(String texto, GridBagConstraints gbc) {
+        JLabel titulo = new JLabel(texto);
+        titulo.setFont(titulo.getFont().deriveFont(Font.BOLD));
+        gbc.gridx = 0;
+        gbc.gridwidth = 2;
+        gbc.insets = new Insets(gbc.gridy == 0 ? 2 : 10, 5, 2, 5);
+        add(titulo, gbc);
+        gbc.gridy++;
+        gbc.gridwidth = 1;
+        gbc.insets = new Insets(2, 5, 2, 5);
+    }
+
+    /**
+     * Añade una fila con un texto y una etiqueta para su valor.
+     *
+     * @param texto el texto de la fila.
+     * @param gbc   las restricciones de colocación, que avanzan a la fila siguiente.
+     * @return la etiqueta del valor.
+     */
+    private JLabel anadirFila(String texto, GridBagConstraints gbc) {
+        JLabel valor = new JLabel();
+        anadirFila(texto, valor, gbc);
+        return valor;
+    }
+
+    /**
+     * Añade una fila con un texto y la etiqueta de su valor, alineada a la derecha.
+     *
+     * @param texto el texto de la fila.
+     * @param valor la etiqueta del valor.
+     * @param gbc   las restricciones de colocación, que avanzan a la fila siguiente.
+     */
+    private void anadirFila(String texto, JLabel valor, GridBagConstraints gbc) {
+        gbc.gridx = 0;
+        gbc.weightx = 1;
+        gbc.anchor = GridBagConstraints.WEST;
+        add(new JLabel(texto), gbc);
+        gbc.gridx = 1;
+        gbc.weightx = 0;
+        gbc.anchor = GridBagConstraints.EAST;
+        add(valor, gbc);
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.gridy++;
+    }
+
+    /**
+     * Muestra los valores actuales de los contadores. Mientras el servicio de
+     * reservas se carga en segundo plano no se espera a él: el panel sigue
+     * mostrando "Cargando..." hasta el siguiente refresco.
+     */
+    private void refrescar() {
+        ServicioReservas servicio = ServicioReservas.getCompartidoSiCargado();
+        if (servicio == null) {
+            return;
+        }
+        AgregadosReservas agregados = servicio.getAgregados();
+        int hoy = CalculadoraEstancia.hoy();
+        int anio = CalculadoraEstancia.anio(hoy);
+        int mes = CalculadoraEstancia.mes(hoy);
+
+        int ocupadasTotal = 0;
+        long ingresosTotal = 0;
+        int reservas = 0;
+        for (int tipo = 0; tipo < lbOcupacion.length; tipo++) {
+            int ocupadas = servicio.ocupadas(tipo, hoy);
+            long ingresos = agregados.getIngresos(tipo, anio, mes);
+            lbOcupacion[tipo].setText(ocupadas + " / " + DisponibilidadHabitaciones.CAPACIDAD);
+            lbIngresos[tipo].setText(MotorPrecios.formatearEuros(ingresos));
+            ocupadasTotal += ocupadas;
+            ingresosTotal += ingresos;
+            reservas += agregados.getReservasTotales(tipo);
+        }
+        lbOcupacionTotal.setText(ocupadasTotal + " / " + DisponibilidadHabitaciones.CAPACIDAD * lbOcupacion.length);
+        lbIngresosTotal.setText(MotorPrecios.formatearEuros(ingresosTotal));
+        lbReservas.setText(reservas + " reservas activas");
+    }
+}
@@ -0,0 +1,62 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import javax.swing.*;
+
+/**
+ * Pantalla de carga que se muestra nada más arrancar la aplicación, mientras
+ * se precargan las imágenes y se construye la ventana principal. Se muestra
+ * sin esperar a ninguna imagen: el anagrama aparece cuando la precarga lo ha
+ * decodificado.
+ */
+public class PantallaCarga extends JWindow {
+
+    /** Ruta del anagrama del hotel. */
+    private static final String ANAGRAMA = "/recursos/anagrama.png";
+
+    /** Lado máximo del anagrama, en píxeles. */
+    private static final int LADO_ANAGRAMA = 96;
+
+    /**
+     * Constructor de la pantalla de carga. Debe llamarse desde el hilo de
+     * despacho de eventos.
+     *
+     * @param precarga la precarga de imágenes en curso, que decodifica el anagrama.
+     */
+    public PantallaCarga(PrecargaRecursos precarga) {
+        JPanel contenido = new JPanel(new BorderLayout(0, 10));
+        contenido.setBackground(new Color(204, 229, 255));
+        contenido.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createLineBorder(Color.GRAY),
+                BorderFactory.createEmptyBorder(20, 30, 20, 30)));
+
+        // Hueco para el anagrama del hotel, que se escala fuera del hilo de eventos
+        // en cuanto la precarga lo decodifica, sin decodificarlo otra vez
+        JLabel etiquetaAnagrama = new JLabel();
+        etiquetaAnagrama.setHorizontalAlignment(SwingConstants.CENTER);
+        etiquetaAnagrama.setPreferredSize(new Dimension(LADO_ANAGRAMA, LADO_ANAGRAMA));
+        contenido.add(etiquetaAnagrama, BorderLayout.NORTH);
+        precarga.original(ANAGRAMA).thenRunAsync(() -> {
+            BufferedImage anagrama = CacheImagenes.getInstancia().obtenerAjustada(ANAGRAMA, LADO_ANAGRAMA,
+                    LADO_ANAGRAMA);
+            if (anagrama != null) {
+                SwingUtilities.invokeLater(() -> etiquetaAnagrama.setIcon(new ImageIcon(anagrama)));
+            }
+        });
+
+        JLabel titulo = new JLabel("Hotel Continental", SwingConstants.CENTER);
+        titulo.setFont(new Font("Arial", Font.BOLD, 24));
+        titulo.setForeground(Color.DARK_GRAY);
+        contenido.add(titulo, BorderLayout.CENTER);
+
+        // Barra de progreso indeterminada mientras dura la carga
+        JProgressBar barra = new JProgressBar();
+        barra.setIndeterminate(true);
+        barra.setString("Cargando...");
+        barra.setStringPainted(true);
+        contenido.add(barra, BorderLayout.SOUTH);
+
+        setContentPane(contenido);
+        pack();
+        setLocationRelativeTo(null);
+    }
+}
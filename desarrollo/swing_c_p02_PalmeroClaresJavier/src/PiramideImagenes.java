@@ -0,0 +1,790 @@
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AbstractMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.ImageIcon;
+
+/**
+ * Pirámides de miniaturas de las imágenes de {@code /recursos/}, guardadas en
+ * disco para escalar cada imagen una sola vez por versión y no en cada
+ * redimensionado. Cada nivel de la pirámide mide la mitad que el anterior,
+ * desde la imagen original hasta que su lado mayor no pasa de
+ * {@value #LADO_MINIMO} píxeles, y se obtiene promediando cada bloque de 2x2
+ * píxeles del nivel anterior.
+ *
+ * <p>Los niveles se guardan como PNG en la carpeta {@code miniaturas} del
+ * {@link DirectorioDatos}, con un nombre que incluye el hash SHA-256 del
+ * contenido del recurso. Si el recurso cambia, su hash también, los niveles
+ * anteriores dejan de encontrarse y se borran al construir los nuevos. Los
+ * niveles se leen del disco solo cuando se dibujan por primera vez; el nivel
+ * cero es la imagen original de la {@link CacheImagenes}.</p>
+ *
+ * <p>Las imágenes se entregan como {@link java.awt.image.MultiResolutionImage}
+ * del tamaño lógico pedido: al dibujarlas, Java2D pide la variante para el
+ * tamaño en píxeles del dispositivo y se le da el nivel más pequeño que no es
+ * menor que ese tamaño, de modo que en pantallas HiDPI se usa un nivel más
+ * grande en lugar de ampliar uno pequeño. Dibujar nunca lee ni escala nada: si
+ * ese nivel todavía no está en memoria, se dibuja el más parecido que ya lo
+ * está, se lee en un hilo de fondo y se vuelven a pintar las ventanas. Con
+ * {@link #icono(Image)} la imagen se dibuja con interpolación bilineal.</p>
+ */
+public final class PiramideImagenes {
+
+    /** Nombre de la carpeta de las miniaturas dentro del directorio de datos. */
+    private static final String CARPETA = "miniaturas";
+
+    /** Lado mayor a partir del cual ya no se reduce más una imagen, en píxeles. */
+    static final int LADO_MINIMO = 32;
+
+    /** Número de bytes del hash que forman parte del nombre de los niveles. */
+    private static final int BYTES_HASH = 8;
+
+    /** Instancia única, creada al usarla por primera vez. */
+    private static volatile PiramideImagenes instancia;
+
+    /** Hilo que lee los niveles que se han pedido al dibujar y no estaban en memoria. */
+    private static final ExecutorService CARGADOR = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "carga-miniaturas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /** Imagen transparente que se dibuja si no hay en memoria ningún nivel del recurso. */
+    private static final BufferedImage VACIA = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+    /** Directorio de las miniaturas, o null si no se pueden guardar en disco. */
+    private final Path directorio;
+
+    /** Pirámides ya comprobadas o construidas, por ruta del recurso. */
+    private final ConcurrentHashMap<String, Piramide> piramides = new ConcurrentHashMap<>();
+
+    /** Rutas de los recursos que no existen o no se pueden leer, para no volver a buscarlos. */
+    private final Set<String> ausentes = ConcurrentHashMap.newKeySet();
+
+    /** Pirámides que se están preparando en segundo plano para {@link #obtenerAjustada}, por ruta. */
+    private final ConcurrentHashMap<String, CompletableFuture<Piramide>> preparando = new ConcurrentHashMap<>();
+
+    // Contadores de uso de las pirámides
+    private final AtomicLong construcciones = new AtomicLong();
+    private final AtomicLong nivelesEscalados = new AtomicLong();
+    private final AtomicLong nivelesLeidos = new AtomicLong();
+
+    /**
+     * Crea las pirámides sobre un directorio.
+     *
+     * @param directorio el directorio de las miniaturas, o null para no guardarlas en disco.
+     */
+    PiramideImagenes(Path directorio) {
+        this.directorio = directorio;
+    }
+
+    /**
+     * Obtiene las pirámides compartidas de la aplicación, guardadas en el
+     * directorio de datos. Si no se puede crear la carpeta, las pirámides se
+     * construyen igualmente, pero solo en memoria.
+     *
+     * @return la instancia única.
+     */
+    public static PiramideImagenes getInstancia() {
+        PiramideImagenes actual = instancia;
+        if (actual == null) {
+            synchronized (PiramideImagenes.class) {
+                actual = instancia;
+                if (actual == null) {
+                    Path carpeta;
+                    try {
+                        carpeta = Files.createDirectories(DirectorioDatos.archivo(CARPETA));
+                    } catch (IOException e) {
+                        System.err.println("No se pueden guardar las miniaturas: " + e);
+                        carpeta = null;
+                    }
+                    actual = new PiramideImagenes(carpeta);
+                    instancia = actual;
+                }
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Obtiene la escala entre los píxeles lógicos y los del dispositivo de la
+     * pantalla donde está un componente, o de la pantalla principal si todavía
+     * no se muestra.
+     *
+     * @param componente el componente.
+     * @return la escala, 1 en pantallas normales y 2 en la mayoría de HiDPI.
+     */
+    public static double escala(Component componente) {
+        GraphicsConfiguration configuracion = componente.getGraphicsConfiguration();
+        if (configuracion == null) {
+            if (GraphicsEnvironment.isHeadless()) {
+                return 1;
+            }
+            configuracion = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration();
+        }
+        AffineTransform transformacion = configuracion.getDefaultTransform();
+        return Math.max(transformacion.getScaleX(), transformacion.getScaleY());
+    }
+
+    /**
+     * Comprueba la pirámide de un recurso y la construye si no está en disco o
+     * corresponde a otra versión del recurso.
+     *
+     * @param ruta la ruta del recurso, por ejemplo {@code /recursos/doble.png}.
+     * @return verdadero si el recurso existe y tiene su pirámide.
+     */
+    public boolean preparar(String ruta) {
+        return piramide(ruta) != null;
+    }
+
+    /**
+     * Obtiene un recurso con un tamaño lógico exacto, dejando ya leído el nivel
+     * que se usará al dibujarlo con la escala indicada.
+     *
+     * @param ruta   la ruta del recurso.
+     * @param ancho  el ancho lógico.
+     * @param alto   el alto lógico.
+     * @param escala la escala de la pantalla, según {@link #escala(Component)}.
+     * @return la imagen de varias resoluciones, o null si el recurso no existe o el tamaño no es válido.
+     */
+    public Image obtenerVista(String ruta, int ancho, int alto, double escala) {
+        Piramide piramide = ancho > 0 && alto > 0 ? piramide(ruta) : null;
+        if (piramide == null) {
+            return null;
+        }
+        piramide.nivel(piramide.elegir(ancho * escala, alto * escala));
+        return new Vista(piramide, ancho, alto);
+    }
+
+    /**
+     * Obtiene un recurso escalado para que quepa en el tamaño indicado
+     * manteniendo su proporción original. No lee nada, así que se puede llamar
+     * desde el hilo de despacho de eventos: si la pirámide todavía no está
+     * preparada, se prepara en segundo plano y se avisa al terminar, y el nivel
+     * que haga falta se lee en segundo plano la primera vez que se dibuja.
+     *
+     * @param ruta       la ruta del recurso.
+     * @param anchoMax   el ancho lógico máximo.
+     * @param altoMax    el alto lógico máximo.
+     * @param alPreparar acción que se ejecuta en el hilo de eventos cuando la
+     *                   pirámide queda preparada, si no lo estaba; por ejemplo,
+     *                   volver a pedir la imagen.
+     * @return la imagen de varias resoluciones, o null si el recurso no existe,
+     *         el tamaño no es válido o la pirámide todavía no está preparada.
+     */
+    public Image obtenerAjustada(String ruta, int anchoMax, int altoMax, Runnable alPreparar) {
+        if (anchoMax <= 0 || altoMax <= 0 || ausentes.contains(ruta)) {
+            return null;
+        }
+        Piramide piramide = piramides.get(ruta);
+        if (piramide == null) {
+            preparando.computeIfAbsent(ruta, r -> CompletableFuture.supplyAsync(() -> piramide(r), CARGADOR))
+                    .thenAccept(preparada -> {
+                        if (preparada != null) {
+                            EventQueue.invokeLater(alPreparar);
+                        }
+                    });
+            return null;
+        }
+        double factor = Math.min((double) anchoMax / piramide.anchos[0], (double) altoMax / piramide.altos[0]);
+        return new Vista(piramide, Math.max(1, (int) (piramide.anchos[0] * factor)),
+                Math.max(1, (int) (piramide.altos[0] * factor)));
+    }
+
+    /**
+     * Consulta si un recurso se puede mostrar con un tamaño sin leer ni escalar
+     * nada, es decir, si su pirámide ya está comprobada y el nivel que se usará
+     * ya está en memoria. Pensado para el hilo de despacho de eventos.
+     *
+     * @param ruta   la ruta del recurso.
+     * @param ancho  el ancho lógico.
+     * @param alto   el alto lógico.
+     * @param escala la escala de la pantalla.
+     * @return la imagen de varias resoluciones, o null si todavía no está lista.
+     */
+    public Image consultarVista(String ruta, int ancho, int alto, double escala) {
+        Piramide piramide = piramides.get(ruta);
+        if (piramide == null || ancho <= 0 || alto <= 0
+                || !piramide.cargado(piramide.elegir(ancho * escala, alto * escala))) {
+            return null;
+        }
+        return new Vista(piramide, ancho, alto);
+    }
+
+    /**
+     * Obtiene todos los niveles de un recurso, del mayor al menor. Sirve, por
+     * ejemplo, para dar al sistema el icono de una ventana en varios tamaños.
+     *
+     * @param ruta la ruta del recurso.
+     * @return los niveles, o una lista vacía si el recurso no existe.
+     */
+    public List<Image> obtenerNiveles(String ruta) {
+        Piramide piramide = piramide(ruta);
+        List<Image> niveles = new ArrayList<>();
+        if (piramide != null) {
+            for (int nivel = 0; nivel < piramide.anchos.length; nivel++) {
+                niveles.add(piramide.nivel(nivel));
+            }
+        }
+        return niveles;
+    }
+
+    /**
+     * Crea el icono de una imagen que se dibuja con interpolación bilineal. Es
+     * lo que conviene para las imágenes de las pirámides: el nivel que se dibuja
+     * casi nunca tiene exactamente el tamaño pedido, y mientras se lee el exacto
+     * puede dibujarse uno bastante mayor o menor.
+     *
+     * @param imagen la imagen.
+     * @return el icono.
+     */
+    public static ImageIcon icono(Image imagen) {
+        return new IconoBilineal(imagen);
+    }
+
+    /**
+     * Olvida las pirámides comprobadas y los niveles leídos, sin borrar nada del
+     * disco ni reiniciar los contadores.
+     */
+    public void limpiar() {
+        piramides.clear();
+        ausentes.clear();
+        preparando.clear();
+    }
+
+    /** @return el número de pirámides construidas porque no estaban en disco o eran de otra versión. */
+    public long getConstrucciones() {
+        return construcciones.get();
+    }
+
+    /** @return el número de niveles obtenidos reduciendo el nivel anterior. */
+    public long getNivelesEscalados() {
+        return nivelesEscalados.get();
+    }
+
+    /** @return el número de niveles leídos del disco. */
+    public long getNivelesLeidos() {
+        return nivelesLeidos.get();
+    }
+
+    /**
+     * Obtiene un resumen legible del uso de las pirámides.
+     *
+     * @return el resumen con las construcciones y los niveles escalados y leídos.
+     */
+    public String obtenerResumen() {
+        return String.format("Pirámides de imágenes: %d construidas, %d niveles escalados, %d leídos de disco",
+                getConstrucciones(), getNivelesEscalados(), getNivelesLeidos());
+    }
+
+    /**
+     * Obtiene la pirámide de un recurso, comprobándola o construyéndola solo la primera vez.
+     *
+     * @param ruta la ruta del recurso.
+     * @return la pirámide, o null si el recurso no existe o no se puede leer.
+     */
+    private Piramide piramide(String ruta) {
+        Piramide piramide = piramides.get(ruta);
+        if (piramide == null && !ausentes.contains(ruta)) {
+            piramide = cargar(ruta);
+            if (piramide == null) {
+                ausentes.add(ruta); // El error ya se ha anotado una vez
+            } else {
+                Piramide anterior = piramides.putIfAbsent(ruta, piramide);
+                if (anterior != null) {
+                    piramide = anterior;
+                }
+            }
+        }
+        return piramide;
+    }
+
+    /**
+     * Calcula el hash del recurso y sus niveles, y construye la pirámide si
+     * falta en disco alguno de ellos.
+     *
+     * @param ruta la ruta del recurso.
+     * @return la pirámide, o null si el recurso no existe o no se puede leer.
+     */
+    private Piramide cargar(String ruta) {
+        byte[] contenido;
+        try (InputStream entrada = PiramideImagenes.class.getResourceAsStream(ruta)) {
+            if (entrada == null) {
+                System.err.println("Error al cargar la imagen: " + ruta);
+                return null;
+            }
+            contenido = entrada.readAllBytes();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        Dimension tamano = leerTamano(contenido);
+        if (tamano == null) {
+            System.err.println("Error al leer el tamaño de la imagen: " + ruta);
+            return null;
+        }
+        String base = ruta.replaceFirst("^/", "").replaceFirst("\\.[^./]*$", "").replace('/', '_');
+        Piramide piramide = new Piramide(ruta, base + "-" + hash(contenido), tamano.width, tamano.height);
+        for (int nivel = 1; nivel < piramide.anchos.length; nivel++) {
+            if (directorio == null || !Files.isRegularFile(piramide.archivo(nivel))) {
+                construir(piramide, base);
+                break;
+            }
+        }
+        return piramide;
+    }
+
+    /**
+     * Construye todos los niveles de una pirámide a partir de la imagen original,
+     * los guarda en disco y borra los de otras versiones del mismo recurso.
+     *
+     * @param piramide la pirámide.
+     * @param base     el nombre de los archivos del recurso sin el hash.
+     */
+    private void construir(Piramide piramide, String base) {
+        construcciones.incrementAndGet();
+        for (int nivel = 1; nivel < piramide.anchos.length; nivel++) {
+            piramide.nivel(nivel); // Cada nivel se reduce desde el anterior y se guarda
+        }
+        if (directorio == null) {
+            return;
+        }
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, base + "-*.png")) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                if (!nombre.startsWith(piramide.prefijo + "-")
+                        && nombre.substring(base.length() + 1).indexOf('-') == BYTES_HASH * 2) {
+                    Files.deleteIfExists(archivo);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("No se pueden borrar las miniaturas anteriores de " + piramide.ruta + ": " + e);
+        }
+    }
+
+    /**
+     * Guarda un nivel en disco. Se escribe en un archivo temporal que después
+     * se renombra, de modo que nunca queda un nivel a medio escribir.
+     *
+     * @param piramide la pirámide.
+     * @param nivel    el número del nivel.
+     * @param imagen   la imagen del nivel.
+     */
+    private void guardar(Piramide piramide, int nivel, BufferedImage imagen) {
+        if (directorio == null) {
+            return;
+        }
+        Path temporal = null;
+        try {
+            temporal = Files.createTempFile(directorio, piramide.prefijo, ".tmp");
+            ImageIO.write(imagen, "png", temporal.toFile());
+            Files.move(temporal, piramide.archivo(nivel), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("No se puede guardar la miniatura de " + piramide.ruta + ": " + e);
+            try {
+                if (temporal != null) {
+                    Files.deleteIfExists(temporal);
+                }
+            } catch (IOException ignorada) {
+                // El temporal se queda; no afecta a las miniaturas
+            }
+        }
+    }
+
+    /**
+     * Lee el tamaño de una imagen de su cabecera, sin decodificarla.
+     *
+     * @param contenido el contenido del archivo de la imagen.
+     * @return el tamaño, o null si no es una imagen que se pueda leer.
+     */
+    private static Dimension leerTamano(byte[] contenido) {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(new ByteArrayInputStream(contenido))) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                return new Dimension(lector.getWidth(0), lector.getHeight(0));
+            } finally {
+                lector.dispose();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calcula el principio del hash SHA-256 de un contenido en hexadecimal.
+     *
+     * @param contenido el contenido.
+     * @return los primeros {@value #BYTES_HASH} bytes del hash en hexadecimal.
+     */
+    private static String hash(byte[] contenido) {
+        byte[] resumen;
+        try {
+            resumen = MessageDigest.getInstance("SHA-256").digest(contenido);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Toda máquina virtual tiene SHA-256
+        }
+        StringBuilder texto = new StringBuilder(BYTES_HASH * 2);
+        for (int i = 0; i < BYTES_HASH; i++) {
+            texto.append(Character.forDigit((resumen[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(resumen[i] & 0xF, 16));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Reduce una imagen a la mitad. La interpolación bilineal a la mitad exacta
+     * promedia cada bloque de 2x2 píxeles, así que no pierde detalle a saltos
+     * como el vecino más próximo ni difumina como el escalado suave de AWT.
+     *
+     * @param origen la imagen.
+     * @param ancho  el ancho de destino, la mitad del original redondeada hacia arriba.
+     * @param alto   el alto de destino, la mitad del original redondeada hacia arriba.
+     * @return la imagen reducida.
+     */
+    static BufferedImage reducirMitad(BufferedImage origen, int ancho, int alto) {
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = destino.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(origen, 0, 0, ancho, alto, null);
+        g.dispose();
+        return destino;
+    }
+
+    /**
+     * Pirámide de un recurso: el tamaño de cada nivel y los niveles ya leídos o construidos.
+     */
+    private final class Piramide {
+
+        /** La ruta del recurso. */
+        final String ruta;
+
+        /** Principio del nombre de los archivos de los niveles, con el hash del recurso. */
+        final String prefijo;
+
+        /** Ancho de cada nivel; el nivel 0 es el original. */
+        final int[] anchos;
+
+        /** Alto de cada nivel. */
+        final int[] altos;
+
+        /** Niveles en memoria, o null los que todavía no se han leído. Se protege con el propio array. */
+        private final BufferedImage[] niveles;
+
+        /** Niveles cuya lectura en segundo plano ya se ha pedido. Se protege con {@link #niveles}. */
+        private final boolean[] pedidos;
+
+        /**
+         * Crea una pirámide con los niveles sin leer.
+         *
+         * @param ruta    la ruta del recurso.
+         * @param prefijo el principio del nombre de los archivos.
+         * @param ancho   el ancho del original.
+         * @param alto    el alto del original.
+         */
+        Piramide(String ruta, String prefijo, int ancho, int alto) {
+            this.ruta = ruta;
+            this.prefijo = prefijo;
+            int numero = 1;
+            for (int lado = Math.max(ancho, alto); lado > LADO_MINIMO; lado = (lado + 1) / 2) {
+                numero++;
+            }
+            anchos = new int[numero];
+            altos = new int[numero];
+            anchos[0] = ancho;
+            altos[0] = alto;
+            for (int nivel = 1; nivel < numero; nivel++) {
+                anchos[nivel] = (anchos[nivel - 1] + 1) / 2;
+                altos[nivel] = (altos[nivel - 1] + 1) / 2;
+            }
+            niveles = new BufferedImage[numero];
+            pedidos = new boolean[numero];
+        }
+
+        /**
+         * Obtiene la ruta del archivo de un nivel.
+         *
+         * @param nivel el número del nivel, mayor que 0.
+         * @return la ruta del archivo.
+         */
+        Path archivo(int nivel) {
+            return directorio.resolve(prefijo + "-" + anchos[nivel] + "x" + altos[nivel] + ".png");
+        }
+
+        /**
+         * Elige el nivel más pequeño que no es menor que un tamaño en píxeles
+         * del dispositivo, o el original si todos lo son.
+         *
+         * @param ancho el ancho de destino.
+         * @param alto  el alto de destino.
+         * @return el número del nivel.
+         */
+        int elegir(double ancho, double alto) {
+            int nivel = anchos.length - 1;
+            while (nivel > 0 && (anchos[nivel] < ancho || altos[nivel] < alto)) {
+                nivel--;
+            }
+            return nivel;
+        }
+
+        /**
+         * Indica si un nivel ya está en memoria.
+         *
+         * @param nivel el número del nivel.
+         * @return verdadero si se puede dibujar sin leer nada.
+         */
+        boolean cargado(int nivel) {
+            if (nivel == 0) {
+                return CacheImagenes.getInstancia().consultarOriginal(ruta) != null;
+            }
+            synchronized (niveles) {
+                return niveles[nivel] != null;
+            }
+        }
+
+        /**
+         * Obtiene sin esperar el nivel en memoria que mejor sustituye a otro:
+         * el mismo si ya está, y si no, el más cercano de los mayores o, si no
+         * hay ninguno, el más cercano de los menores.
+         *
+         * @param nivel el número del nivel que se quiere dibujar.
+         * @return el nivel en memoria, o null si no hay ninguno.
+         */
+        BufferedImage mejorCargado(int nivel) {
+            synchronized (niveles) {
+                for (int n = nivel; n > 0; n--) {
+                    if (niveles[n] != null) {
+                        return niveles[n];
+                    }
+                }
+            }
+            BufferedImage original = CacheImagenes.getInstancia().consultarOriginal(ruta);
+            if (original != null) {
+                return original;
+            }
+            synchronized (niveles) {
+                for (int n = nivel + 1; n < niveles.length; n++) {
+                    if (niveles[n] != null) {
+                        return niveles[n];
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Pide que se lea un nivel en el hilo de fondo, si no se ha pedido ya, y
+         * que se vuelvan a pintar las ventanas cuando esté en memoria.
+         *
+         * @param nivel el número del nivel.
+         */
+        void pedir(int nivel) {
+            synchronized (niveles) {
+                if (pedidos[nivel]) {
+                    return;
+                }
+                pedidos[nivel] = true;
+            }
+            CARGADOR.execute(() -> {
+                if (nivel(nivel) != null) {
+                    EventQueue.invokeLater(() -> {
+                        for (Window ventana : Window.getWindows()) {
+                            ventana.repaint();
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * Obtiene un nivel, leyéndolo del disco la primera vez. Si no está en
+         * disco o no se puede leer, se reduce desde el nivel anterior y se guarda.
+         *
+         * @param nivel el número del nivel.
+         * @return la imagen del nivel, o null si no se puede obtener el original.
+         */
+        BufferedImage nivel(int nivel) {
+            if (nivel == 0) {
+                return CacheImagenes.getInstancia().obtenerOriginal(ruta);
+            }
+            synchronized (niveles) {
+                if (niveles[nivel] != null) {
+                    return niveles[nivel];
+                }
+            }
+            BufferedImage imagen = leer(nivel);
+            if (imagen == null) {
+                BufferedImage anterior = nivel(nivel - 1);
+                if (anterior == null) {
+                    return null;
+                }
+                imagen = reducirMitad(anterior, anchos[nivel], altos[nivel]);
+                nivelesEscalados.incrementAndGet();
+                guardar(this, nivel, imagen);
+            }
+            synchronized (niveles) {
+                if (niveles[nivel] == null) {
+                    niveles[nivel] = imagen;
+                }
+                return niveles[nivel];
+            }
+        }
+
+        /**
+         * Lee un nivel del disco.
+         *
+         * @param nivel el número del nivel.
+         * @return la imagen, o null si no está o no tiene el tamaño esperado.
+         */
+        private BufferedImage leer(int nivel) {
+            if (directorio == null || !Files.isRegularFile(archivo(nivel))) {
+                return null;
+            }
+            try {
+                BufferedImage imagen = ImageIO.read(archivo(nivel).toFile());
+                if (imagen == null || imagen.getWidth() != anchos[nivel] || imagen.getHeight() != altos[nivel]) {
+                    return null;
+                }
+                nivelesLeidos.incrementAndGet();
+                return imagen;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Recurso con un tamaño lógico que, al dibujarse, usa el nivel de la
+     * pirámide que corresponde al tamaño en píxeles del dispositivo. Como se
+     * dibuja en el hilo de despacho de eventos, nunca espera a leer un nivel.
+     */
+    private static final class Vista extends AbstractMultiResolutionImage {
+
+        /** La pirámide del recurso. */
+        private final Piramide piramide;
+
+        /** El ancho lógico. */
+        private final int ancho;
+
+        /** El alto lógico. */
+        private final int alto;
+
+        /**
+         * Crea una vista de una pirámide.
+         *
+         * @param piramide la pirámide.
+         * @param ancho    el ancho lógico.
+         * @param alto     el alto lógico.
+         */
+        Vista(Piramide piramide, int ancho, int alto) {
+            this.piramide = piramide;
+            this.ancho = ancho;
+            this.alto = alto;
+        }
+
+        @Override
+        public int getWidth(ImageObserver observador) {
+            return ancho;
+        }
+
+        @Override
+        public int getHeight(ImageObserver observador) {
+            return alto;
+        }
+
+        @Override
+        protected Image getBaseImage() {
+            return getResolutionVariant(ancho, alto);
+        }
+
+        /**
+         * Obtiene el nivel para un tamaño en píxeles del dispositivo. Si no
+         * está en memoria, se pide en segundo plano y mientras tanto se da el
+         * que mejor lo sustituye.
+         */
+        @Override
+        public Image getResolutionVariant(double anchoDestino, double altoDestino) {
+            int nivel = piramide.elegir(anchoDestino, altoDestino);
+            BufferedImage imagen = piramide.mejorCargado(nivel);
+            if (!piramide.cargado(nivel)) {
+                piramide.pedir(nivel);
+            }
+            return imagen != null ? imagen : VACIA;
+        }
+
+        /**
+         * Obtiene los niveles que ya están en memoria, del mayor al menor.
+         */
+        @Override
+        public List<Image> getResolutionVariants() {
+            List<Image> variantes = new ArrayList<>();
+            for (int nivel = 0; nivel < piramide.anchos.length; nivel++) {
+                if (piramide.cargado(nivel)) {
+                    variantes.add(piramide.mejorCargado(nivel));
+                }
+            }
+            if (variantes.isEmpty()) {
+                variantes.add(VACIA);
+            }
+            return variantes;
+        }
+    }
+
+    /**
+     * Icono que dibuja su imagen con interpolación bilineal en lugar de la del
+     * vecino más próximo, que es la que usa Java2D si no se le indica otra.
+     */
+    private static final class IconoBilineal extends ImageIcon {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Crea el icono.
+         *
+         * @param imagen la imagen.
+         */
+        IconoBilineal(Image imagen) {
+            super(imagen);
+        }
+
+        @Override
+        public synchronized void paintIcon(Component componente, Graphics g, int x, int y) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                super.paintIcon(componente, g2, x, y);
+            } finally {
+                g2.dispose();
+            }
+        }
+    }
+}
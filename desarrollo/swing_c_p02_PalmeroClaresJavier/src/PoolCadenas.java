@@ -0,0 +1,219 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+
+/**
+ * Almacén de cadenas sin repetir, que asigna a cada cadena distinta un
+ * identificador entero consecutivo. Los nombres y apellidos de los clientes se
+ * repiten muchísimo, así que guardar el identificador en lugar de la cadena
+ * hace que cada aparición cueste cuatro bytes y que la cadena exista una sola vez.
+ *
+ * <p>Usa direccionamiento abierto con sondeo lineal sobre un array de enteros
+ * que guarda el identificador de cada cadena, sin objetos por entrada. No es
+ * seguro entre hilos: quien lo usa debe sincronizar el acceso.</p>
+ */
+final class PoolCadenas {
+
+    /** Valor de las posiciones de la tabla sin cadena. */
+    private static final int LIBRE = -1;
+
+    /** Factor de carga máximo de la tabla antes de ampliarla. */
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    /** Identificador de cada posición de la tabla, o {@link #LIBRE}. */
+    private int[] tabla;
+
+    /** Cadenas guardadas, indexadas por su identificador. */
+    private String[] cadenas;
+
+    /** Número de cadenas distintas guardadas. */
+    private int numCadenas;
+
+    /**
+     * Crea un almacén vacío.
+     */
+    PoolCadenas() {
+        tabla = new int[1024];
+        cadenas = new String[256];
+        Arrays.fill(tabla, LIBRE);
+    }
+
+    /**
+     * Obtiene el identificador de una cadena, añadiéndola si todavía no está.
+     *
+     * @param cadena la cadena.
+     * @return el identificador de la cadena.
+     */
+    int identificador(String cadena) {
+        int pos = posicion(cadena, cadena.hashCode());
+        if (tabla[pos] != LIBRE) {
+            return tabla[pos];
+        }
+        if (numCadenas == cadenas.length) {
+            cadenas = Arrays.copyOf(cadenas, numCadenas * 2);
+        }
+        int id = numCadenas++;
+        cadenas[id] = cadena;
+        tabla[pos] = id;
+        if (numCadenas > tabla.length * CARGA_MAXIMA) {
+            ampliar();
+        }
+        return id;
+    }
+
+    /**
+     * Busca el identificador de una cadena sin añadirla.
+     *
+     * @param cadena la cadena.
+     * @return el identificador de la cadena, o -1 si no está.
+     */
+    int buscar(String cadena) {
+        return tabla[posicion(cadena, cadena.hashCode())];
+    }
+
+    /**
+     * Obtiene la cadena de un identificador.
+     *
+     * @param id el identificador devuelto por {@link #identificador(String)}.
+     * @return la cadena.
+     */
+    String cadena(int id) {
+        return cadenas[id];
+    }
+
+    /**
+     * Obtiene el número de cadenas distintas guardadas.
+     *
+     * @return el número de cadenas.
+     */
+    int getNumCadenas() {
+        return numCadenas;
+    }
+
+    /**
+     * Copia el almacén. Las cadenas se comparten, ya que no cambian.
+     *
+     * @return la copia.
+     */
+    PoolCadenas copia() {
+        PoolCadenas copia = new PoolCadenas();
+        copia.tabla = tabla.clone();
+        copia.cadenas = Arrays.copyOf(cadenas, cadenas.length);
+        copia.numCadenas = numCadenas;
+        return copia;
+    }
+
+    /**
+     * Escribe las cadenas en una instantánea, en el orden de sus identificadores.
+     *
+     * @param salida el flujo de la instantánea.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    void escribir(DataOutputStream salida) throws IOException {
+        salida.writeInt(numCadenas);
+        for (int id = 0; id < numCadenas; id++) {
+            InstantaneaReservas.escribirTexto(salida, cadenas[id]);
+        }
+    }
+
+    /**
+     * Lee las cadenas escritas con {@link #escribir}; cada una recupera su identificador.
+     *
+     * @param entrada la instantánea, en la posición de las cadenas.
+     * @return el almacén leído.
+     */
+    static PoolCadenas leer(ByteBuffer entrada) {
+        PoolCadenas pool = new PoolCadenas();
+        int numero = entrada.getInt();
+        for (int id = 0; id < numero; id++) {
+            pool.identificador(InstantaneaReservas.leerTexto(entrada));
+        }
+        return pool;
+    }
+
+    /**
+     * Copia las cadenas guardadas, en el orden de sus identificadores. Las
+     * cadenas no cambian, así que basta con copiar las referencias.
+     *
+     * @return las cadenas, indexadas por su identificador.
+     */
+    String[] textos() {
+        return Arrays.copyOf(cadenas, numCadenas);
+    }
+
+    /**
+     * Calcula la posición de cada cadena en el orden alfabético de un
+     * intercalador, para poder ordenar por un texto comparando enteros en lugar
+     * de cadenas. Cada cadena se convierte una sola vez en su clave de
+     * intercalación, y se ordenan las claves, que se comparan byte a byte.
+     *
+     * @param textos las cadenas, indexadas por su identificador, obtenidas con {@link #textos()}.
+     * @param orden  el intercalador que da el orden alfabético.
+     * @return la posición de cada cadena, indexada por su identificador.
+     */
+    static int[] rangos(String[] textos, Collator orden) {
+        CollationKey[] claves = new CollationKey[textos.length];
+        Integer[] ids = new Integer[textos.length];
+        for (int id = 0; id < textos.length; id++) {
+            claves[id] = orden.getCollationKey(textos[id]);
+            ids[id] = id;
+        }
+        Arrays.sort(ids, (a, b) -> claves[a].compareTo(claves[b]));
+        int[] rangos = new int[textos.length];
+        for (int i = 0; i < textos.length; i++) {
+            rangos[ids[i]] = i;
+        }
+        return rangos;
+    }
+
+    /**
+     * Estima la memoria que ocupan las cadenas guardadas y sus tablas, suponiendo
+     * cadenas compactas de un byte por carácter.
+     *
+     * @return el número aproximado de bytes.
+     */
+    long estimarBytes() {
+        long bytes = 4L * tabla.length + 4L * cadenas.length;
+        for (int i = 0; i < numCadenas; i++) {
+            // Cabecera del objeto String y de su array de bytes, más los caracteres
+            bytes += 24 + 16 + ((cadenas[i].length() + 7) & ~7);
+        }
+        return bytes;
+    }
+
+    /**
+     * Busca la posición de una cadena en la tabla, o la posición libre donde iría.
+     *
+     * @param cadena la cadena.
+     * @param hash   el código hash de la cadena.
+     * @return la posición en la tabla.
+     */
+    private int posicion(String cadena, int hash) {
+        int mascara = tabla.length - 1;
+        int pos = (hash ^ (hash >>> 16)) & mascara;
+        while (tabla[pos] != LIBRE && !cadenas[tabla[pos]].equals(cadena)) {
+            pos = (pos + 1) & mascara;
+        }
+        return pos;
+    }
+
+    /**
+     * Duplica la capacidad de la tabla y recoloca los identificadores.
+     */
+    private void ampliar() {
+        tabla = new int[tabla.length * 2];
+        Arrays.fill(tabla, LIBRE);
+        int mascara = tabla.length - 1;
+        for (int id = 0; id < numCadenas; id++) {
+            int hash = cadenas[id].hashCode();
+            int pos = (hash ^ (hash >>> 16)) & mascara;
+            while (tabla[pos] != LIBRE) {
+                pos = (pos + 1) & mascara;
+            }
+            tabla[pos] = id;
+        }
+    }
+}
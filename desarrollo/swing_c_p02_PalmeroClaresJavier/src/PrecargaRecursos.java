@@ -0,0 +1,132 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Precarga en paralelo las imágenes de {@code /recursos/} en la caché
+ * compartida mientras se muestra la pantalla de carga, para que la ventana
+ * principal y el diálogo de alta no tengan que decodificar nada al construirse.
+ * También comprueba la pirámide de miniaturas de cada imagen
+ * ({@link PiramideImagenes}) y la construye si es la primera vez que se usa
+ * esa versión de la imagen.
+ *
+ * <p>Cada imagen se decodifica en su propio hilo virtual cuando la máquina
+ * virtual los ofrece (Java 21 o posterior). En versiones anteriores se usa un
+ * grupo de hilos de plataforma con un hilo por procesador.</p>
+ */
+public final class PrecargaRecursos {
+
+    /** Imágenes de la aplicación que se precargan. */
+    static final String[] RECURSOS = { "/recursos/anagrama.png", "/recursos/nuevo.png", "/recursos/eliminar.png",
+            "/recursos/imprimir.png", "/recursos/guardar.png", "/recursos/simple.png", "/recursos/doble.png",
+            "/recursos/suite.png", "/recursos/hotel.png" };
+
+    /** Señal de que todas las imágenes ya están decodificadas. */
+    private final CountDownLatch pendientes = new CountDownLatch(RECURSOS.length);
+
+    /** Futuros que se completan cuando cada imagen original está en la caché, por ruta. */
+    private final Map<String, CompletableFuture<Void>> originales = new HashMap<>();
+
+    /** Indica si la precarga se hace con hilos virtuales. */
+    private final boolean hilosVirtuales;
+
+    /**
+     * Crea una precarga y lanza la decodificación de todas las imágenes.
+     */
+    private PrecargaRecursos() {
+        ExecutorService ejecutor = crearEjecutorVirtual();
+        hilosVirtuales = ejecutor != null;
+        if (ejecutor == null) {
+            ejecutor = Executors.newFixedThreadPool(Math.min(RECURSOS.length, Runtime.getRuntime().availableProcessors()),
+                    tarea -> {
+                        Thread hilo = new Thread(tarea, "precarga-recursos");
+                        hilo.setDaemon(true);
+                        return hilo;
+                    });
+        }
+        for (String ruta : RECURSOS) {
+            originales.put(ruta, new CompletableFuture<>());
+        }
+        for (String ruta : RECURSOS) {
+            CompletableFuture<Void> original = originales.get(ruta);
+            ejecutor.execute(() -> {
+                try {
+                    try {
+                        CacheImagenes.getInstancia().obtenerOriginal(ruta);
+                    } finally {
+                        original.complete(null);
+                    }
+                    PiramideImagenes.getInstancia().preparar(ruta);
+                } finally {
+                    pendientes.countDown();
+                }
+            });
+        }
+        ejecutor.shutdown();
+    }
+
+    /**
+     * Lanza la precarga de todas las imágenes en segundo plano.
+     *
+     * @return la precarga en curso.
+     */
+    public static PrecargaRecursos iniciar() {
+        return new PrecargaRecursos();
+    }
+
+    /**
+     * Espera a que terminen de decodificarse todas las imágenes, como mucho el
+     * tiempo indicado.
+     *
+     * @param milisegundos el tiempo máximo de espera.
+     * @return verdadero si la precarga ha terminado.
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    public boolean esperar(long milisegundos) throws InterruptedException {
+        return pendientes.await(milisegundos, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene un futuro que se completa cuando la imagen original ya se ha
+     * intentado decodificar, aunque aún no esté lista su pirámide de miniaturas.
+     *
+     * @param ruta la ruta de una de las imágenes de {@link #RECURSOS}.
+     * @return el futuro de la imagen.
+     * @throws IllegalArgumentException si la imagen no se precarga.
+     */
+    public CompletableFuture<Void> original(String ruta) {
+        CompletableFuture<Void> original = originales.get(ruta);
+        if (original == null) {
+            throw new IllegalArgumentException("Imagen sin precarga: " + ruta);
+        }
+        return original;
+    }
+
+    /**
+     * Indica si la precarga usa hilos virtuales.
+     *
+     * @return verdadero con hilos virtuales, falso con hilos de plataforma.
+     */
+    public boolean usaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea si la máquina virtual lo
+     * ofrece. Se busca por reflexión para que la aplicación siga funcionando en
+     * Java 17.
+     *
+     * @return el ejecutor, o null si no hay hilos virtuales.
+     */
+    static ExecutorService crearEjecutorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
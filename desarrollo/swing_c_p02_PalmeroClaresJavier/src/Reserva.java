@@ -0,0 +1,109 @@
+/**
+ * Clase que representa una reserva del hotel con los datos recogidos en los
+ * paneles de cliente y de habitación. Es inmutable: una vez creada, sus datos
+ * no cambian.
+ */
+public final class Reserva {
+
+    /** Valor de la edad de los niños cuando la reserva no incluye niños. */
+    public static final int SIN_NINOS = -1;
+
+    // Datos del cliente
+    private final String nombre;
+    private final String apellidos;
+    private final String dni;
+    private final String telefono;
+
+    // Fechas de la estancia, en días desde el 1 de enero de 1970
+    private final int fechaEntrada;
+    private final int fechaSalida;
+
+    // Datos de la habitación
+    private final TipoHabitacion tipoHabitacion;
+    private final int numHabitaciones;
+    private final int edadNinos;
+    private final int importeCentimos;
+
+    /**
+     * Constructor de la clase Reserva.
+     *
+     * @param nombre          el nombre del cliente.
+     * @param apellidos       los apellidos del cliente.
+     * @param dni             el DNI del cliente.
+     * @param telefono        el teléfono del cliente.
+     * @param fechaEntrada    el día de entrada, en días desde el 1 de enero de 1970.
+     * @param fechaSalida     el día de salida, en días desde el 1 de enero de 1970.
+     * @param tipoHabitacion  el tipo de habitación.
+     * @param numHabitaciones el número de habitaciones reservadas.
+     * @param edadNinos       la edad de los niños, o {@link #SIN_NINOS} si no hay niños.
+     * @param importeCentimos el importe total de la reserva en céntimos.
+     */
+    public Reserva(String nombre, String apellidos, String dni, String telefono, int fechaEntrada,
+            int fechaSalida, TipoHabitacion tipoHabitacion, int numHabitaciones, int edadNinos, int importeCentimos) {
+        this.nombre = nombre;
+        this.apellidos = apellidos;
+        this.dni = dni;
+        this.telefono = telefono;
+        this.fechaEntrada = fechaEntrada;
+        this.fechaSalida = fechaSalida;
+        this.tipoHabitacion = tipoHabitacion;
+        this.numHabitaciones = numHabitaciones;
+        this.edadNinos = edadNinos;
+        this.importeCentimos = importeCentimos;
+    }
+
+    /** @return el nombre del cliente. */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /** @return los apellidos del cliente. */
+    public String getApellidos() {
+        return apellidos;
+    }
+
+    /** @return el DNI del cliente. */
+    public String getDNI() {
+        return dni;
+    }
+
+    /** @return el teléfono del cliente. */
+    public String getTelefono() {
+        return telefono;
+    }
+
+    /** @return el día de entrada, en días desde el 1 de enero de 1970. */
+    public int getFechaEntrada() {
+        return fechaEntrada;
+    }
+
+    /** @return el día de salida, en días desde el 1 de enero de 1970. */
+    public int getFechaSalida() {
+        return fechaSalida;
+    }
+
+    /** @return el número de noches de la estancia. */
+    public int getNoches() {
+        return CalculadoraEstancia.noches(fechaEntrada, fechaSalida);
+    }
+
+    /** @return el tipo de habitación. */
+    public TipoHabitacion getTipoHabitacion() {
+        return tipoHabitacion;
+    }
+
+    /** @return el número de habitaciones reservadas. */
+    public int getNumHabitaciones() {
+        return numHabitaciones;
+    }
+
+    /** @return la edad de los niños, o {@link #SIN_NINOS} si no hay niños. */
+    public int getEdadNinos() {
+        return edadNinos;
+    }
+
+    /** @return el importe total de la reserva en céntimos. */
+    public int getImporteCentimos() {
+        return importeCentimos;
+    }
+}
@@ -0,0 +1,344 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversión entre reservas y los objetos JSON que intercambian
+ * {@link ServidorReservas} y {@link ClienteReservas}. Los objetos son planos:
+ * sus valores son cadenas, números, {@code true}, {@code false} o {@code null},
+ * sin objetos ni arrays anidados, así que basta con un lector sencillo.
+ *
+ * <p>Una reserva tiene los campos {@code nombre}, {@code apellidos}, {@code dni},
+ * {@code telefono}, {@code entrada} y {@code salida} (con el formato
+ * {@code yyyy-MM-dd}), {@code tipo} (la etiqueta del tipo de habitación),
+ * {@code habitaciones}, {@code edadNinos} ({@code null} si no hay niños) e
+ * {@code importeCentimos}.</p>
+ */
+final class ReservaJSON {
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private ReservaJSON() {
+    }
+
+    /**
+     * Escribe una reserva como objeto JSON.
+     *
+     * @param reserva la reserva.
+     * @return el objeto JSON.
+     */
+    static String escribir(Reserva reserva) {
+        StringBuilder texto = new StringBuilder(256);
+        texto.append("{\"nombre\": ");
+        cadena(reserva.getNombre(), texto);
+        texto.append(", \"apellidos\": ");
+        cadena(reserva.getApellidos(), texto);
+        texto.append(", \"dni\": ");
+        cadena(reserva.getDNI(), texto);
+        texto.append(", \"telefono\": ");
+        cadena(reserva.getTelefono(), texto);
+        texto.append(", \"entrada\": \"");
+        CalculadoraEstancia.formatearISO(reserva.getFechaEntrada(), texto).append("\", \"salida\": \"");
+        CalculadoraEstancia.formatearISO(reserva.getFechaSalida(), texto).append("\", \"tipo\": \"");
+        texto.append(reserva.getTipoHabitacion().getEtiqueta()).append("\", \"habitaciones\": ");
+        texto.append(reserva.getNumHabitaciones()).append(", \"edadNinos\": ");
+        texto.append(reserva.getEdadNinos() == Reserva.SIN_NINOS ? "null" : String.valueOf(reserva.getEdadNinos()));
+        texto.append(", \"importeCentimos\": ").append(reserva.getImporteCentimos()).append('}');
+        return texto.toString();
+    }
+
+    /**
+     * Crea una reserva con los campos de un objeto JSON. Si falta el importe, vale 0.
+     *
+     * @param campos los campos del objeto, leídos con {@link #leer(String)}.
+     * @return la reserva.
+     * @throws IllegalArgumentException si falta algún campo o tiene un valor no válido.
+     */
+    static Reserva aReserva(Map<String, String> campos) {
+        int entrada = fecha(obligatorio(campos, "entrada"));
+        int salida = fecha(obligatorio(campos, "salida"));
+        if (salida <= entrada) {
+            throw new IllegalArgumentException("La salida debe ser posterior a la entrada");
+        }
+        if (!DisponibilidadHabitaciones.enHorizonte(entrada, salida)) {
+            throw new IllegalArgumentException("Las fechas de la estancia están fuera de las que admite el hotel");
+        }
+        int habitaciones = entero(obligatorio(campos, "habitaciones"), "habitaciones");
+        if (habitaciones < 1 || habitaciones > DisponibilidadHabitaciones.CAPACIDAD) {
+            throw new IllegalArgumentException("Número de habitaciones no válido: " + habitaciones);
+        }
+        // Mismas reglas que el panel de datos del cliente y el importador
+        String nombre = obligatorio(campos, "nombre").trim();
+        String apellidos = obligatorio(campos, "apellidos").trim();
+        if (nombre.isEmpty()) {
+            throw new IllegalArgumentException("Falta el nombre");
+        }
+        if (apellidos.isEmpty()) {
+            throw new IllegalArgumentException("Faltan los apellidos");
+        }
+        // El almacén guarda la edad en un byte: una edad fuera de rango se cobraría con una y se guardaría con otra
+        String edad = campos.get("edadNinos");
+        int edadNinos = edad == null ? Reserva.SIN_NINOS : entero(edad, "edadNinos");
+        if (edad != null && (edadNinos < 0 || edadNinos > TablaTarifas.EDAD_MAXIMA_NINOS)) {
+            throw new IllegalArgumentException("Edad de los niños no válida: " + edadNinos);
+        }
+        String importe = campos.get("importeCentimos");
+        return new Reserva(nombre, apellidos, obligatorio(campos, "dni"), obligatorio(campos, "telefono"), entrada,
+                salida, TipoHabitacion.desdeEtiqueta(obligatorio(campos, "tipo")), habitaciones, edadNinos,
+                importe == null ? 0 : entero(importe, "importeCentimos"));
+    }
+
+    /**
+     * Lee un objeto JSON plano.
+     *
+     * @param json el texto del objeto.
+     * @return los campos del objeto; los valores {@code null} no se incluyen y
+     *         los demás se guardan como texto.
+     * @throws IllegalArgumentException si el texto no es un objeto JSON plano.
+     */
+    static Map<String, String> leer(String json) {
+        Lector lector = new Lector(json);
+        Map<String, String> campos = new HashMap<>();
+        lector.esperar('{');
+        if (!lector.consumir('}')) {
+            do {
+                String clave = lector.cadena();
+                lector.esperar(':');
+                String valor = lector.valor();
+                if (valor != null) {
+                    campos.put(clave, valor);
+                }
+            } while (lector.consumir(','));
+            lector.esperar('}');
+        }
+        lector.terminar();
+        return campos;
+    }
+
+    /**
+     * Añade una cadena JSON al texto, con las comillas y los caracteres especiales escapados.
+     *
+     * @param valor el valor de la cadena.
+     * @param texto el texto donde se añade.
+     * @return el texto, para encadenar llamadas.
+     */
+    static StringBuilder cadena(String valor, StringBuilder texto) {
+        texto.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') {
+                texto.append('\\').append(c);
+            } else if (c < 0x20) {
+                texto.append(String.format("\\u%04x", (int) c));
+            } else {
+                texto.append(c);
+            }
+        }
+        return texto.append('"');
+    }
+
+    /**
+     * Obtiene un campo que debe estar presente.
+     *
+     * @param campos los campos del objeto.
+     * @param nombre el nombre del campo.
+     * @return el valor del campo.
+     * @throws IllegalArgumentException si el campo no está.
+     */
+    static String obligatorio(Map<String, String> campos, String nombre) {
+        String valor = campos.get(nombre);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta el campo " + nombre);
+        }
+        return valor;
+    }
+
+    /**
+     * Convierte el valor de un campo en un número entero.
+     *
+     * @param valor  el valor.
+     * @param nombre el nombre del campo, para el mensaje de error.
+     * @return el número.
+     * @throws IllegalArgumentException si el valor no es un número entero.
+     */
+    static int entero(String valor, String nombre) {
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El campo " + nombre + " no es un número entero: " + valor);
+        }
+    }
+
+    /**
+     * Convierte una fecha con el formato {@code yyyy-MM-dd} en días desde 1970.
+     *
+     * @param texto la fecha.
+     * @return la fecha, en días desde 1970.
+     * @throws IllegalArgumentException si la fecha no tiene el formato correcto o no existe.
+     */
+    static int fecha(String texto) {
+        if (texto.length() != 10 || texto.charAt(4) != '-' || texto.charAt(7) != '-') {
+            throw new IllegalArgumentException("Fecha no válida: " + texto);
+        }
+        return CalculadoraEstancia.diaDeFecha(entero(texto.substring(0, 4), "fecha"),
+                entero(texto.substring(5, 7), "fecha"), entero(texto.substring(8, 10), "fecha"));
+    }
+
+    /**
+     * Lector de un texto JSON carácter a carácter.
+     */
+    private static final class Lector {
+
+        /** El texto. */
+        private final String texto;
+
+        /** Posición del siguiente carácter. */
+        private int posicion;
+
+        /**
+         * Crea un lector al principio de un texto.
+         *
+         * @param texto el texto.
+         */
+        Lector(String texto) {
+            this.texto = texto;
+        }
+
+        /**
+         * Salta los espacios y consume un carácter si es el siguiente.
+         *
+         * @param c el carácter.
+         * @return verdadero si se ha consumido.
+         */
+        boolean consumir(char c) {
+            saltarEspacios();
+            if (posicion < texto.length() && texto.charAt(posicion) == c) {
+                posicion++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consume un carácter que debe ser el siguiente.
+         *
+         * @param c el carácter.
+         * @throws IllegalArgumentException si el siguiente carácter es otro.
+         */
+        void esperar(char c) {
+            if (!consumir(c)) {
+                throw error("Se esperaba '" + c + "'");
+            }
+        }
+
+        /**
+         * Comprueba que ya no quedan más que espacios.
+         *
+         * @throws IllegalArgumentException si queda algo más.
+         */
+        void terminar() {
+            saltarEspacios();
+            if (posicion < texto.length()) {
+                throw error("Sobra texto");
+            }
+        }
+
+        /**
+         * Lee un valor: una cadena, un número, {@code true}, {@code false} o {@code null}.
+         *
+         * @return el valor como texto, o null si es {@code null}.
+         * @throws IllegalArgumentException si no hay un valor válido.
+         */
+        String valor() {
+            saltarEspacios();
+            if (posicion < texto.length() && texto.charAt(posicion) == '"') {
+                return cadena();
+            }
+            int inicio = posicion;
+            while (posicion < texto.length() && "{}[],: \t\r\n\"".indexOf(texto.charAt(posicion)) < 0) {
+                posicion++;
+            }
+            String literal = texto.substring(inicio, posicion);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw error("Valor no válido");
+        }
+
+        /**
+         * Lee una cadena entre comillas, resolviendo las secuencias de escape.
+         *
+         * @return el contenido de la cadena.
+         * @throws IllegalArgumentException si la cadena no es válida.
+         */
+        String cadena() {
+            esperar('"');
+            StringBuilder resultado = new StringBuilder();
+            while (posicion < texto.length()) {
+                char c = texto.charAt(posicion++);
+                if (c == '"') {
+                    return resultado.toString();
+                }
+                if (c != '\\') {
+                    resultado.append(c);
+                } else if (posicion < texto.length()) {
+                    char escape = texto.charAt(posicion++);
+                    switch (escape) {
+                        case 'b':
+                            resultado.append('\b');
+                            break;
+                        case 'f':
+                            resultado.append('\f');
+                            break;
+                        case 'n':
+                            resultado.append('\n');
+                            break;
+                        case 'r':
+                            resultado.append('\r');
+                            break;
+                        case 't':
+                            resultado.append('\t');
+                            break;
+                        case 'u':
+                            if (posicion + 4 > texto.length()) {
+                                throw error("Escape incompleto");
+                            }
+                            try {
+                                resultado.append((char) Integer.parseInt(texto.substring(posicion, posicion + 4), 16));
+                            } catch (NumberFormatException e) {
+                                throw error("Escape no válido");
+                            }
+                            posicion += 4;
+                            break;
+                        default:
+                            resultado.append(escape);
+                            break;
+                    }
+                }
+            }
+            throw error("Cadena sin terminar");
+        }
+
+        /**
+         * Avanza hasta el siguiente carácter que no es un espacio.
+         */
+        private void saltarEspacios() {
+            while (posicion < texto.length() && Character.isWhitespace(texto.charAt(posicion))) {
+                posicion++;
+            }
+        }
+
+        /**
+         * Crea la excepción de un error de formato en la posición actual.
+         *
+         * @param mensaje el motivo del error.
+         * @return la excepción.
+         */
+        private IllegalArgumentException error(String mensaje) {
+            return new IllegalArgumentException(mensaje + " en la posición " + posicion + " del JSON");
+        }
+    }
+}
@@ -0,0 +1,812 @@
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicio que reúne las operaciones sobre las reservas guardadas: altas,
+ * consultas por DNI, bajas y disponibilidad. Mantiene el almacén de reservas,
+ * la tabla de reservas en memoria, el índice por DNI, la ocupación de
+ * habitaciones y los totales de ingresos coherentes entre sí. Todo salvo el
+ * almacén vive solo en memoria: se reconstruye la primera vez que se necesita,
+ * y las consultas se responden desde memoria sin leer el almacén.
+ *
+ * <p>Para que el arranque no dependa de la longitud del historial, cada cierto
+ * tiempo se guarda en segundo plano una {@link InstantaneaReservas} con solo
+ * las reservas activas, y al arrancar se lee la instantánea y solo se aplican
+ * los registros posteriores. Cuando la mayor parte del almacén son reservas
+ * canceladas y bajas, también se compacta, copiando a un archivo nuevo solo
+ * los registros de las reservas activas.</p>
+ *
+ * <p>Casi todas las operaciones retienen el servicio. Las excepciones son la
+ * consulta de habitaciones libres y la ocupación de las habitaciones al
+ * guardar, que se hacen sin cerrojos con {@link DisponibilidadHabitaciones}:
+ * así las altas de varios puestos a la vez solo se esperan para escribir en el
+ * almacén, y nunca se venden más habitaciones de las que hay.</p>
+ */
+public final class ServicioReservas {
+
+    /** Número de reservas que {@link #recorrerActivas} copia cada vez que retiene el servicio. */
+    private static final int TAMANO_BLOQUE = 4096;
+
+    /**
+     * Número máximo de reservas para el que se reserva memoria al recorrer el
+     * almacén entero; a partir de ahí la tabla y el índice crecen según hace falta.
+     */
+    private static final int PREVISION_MAXIMA = 1 << 16;
+
+    /** Nombre de la propiedad del sistema con el intervalo entre instantáneas, en segundos (0 las desactiva). */
+    public static final String PROPIEDAD_INTERVALO = "hotel.instantanea.intervalo";
+
+    /** Nombre de la propiedad del sistema con el número de registros nuevos que justifica una instantánea. */
+    public static final String PROPIEDAD_REGISTROS = "hotel.instantanea.registros";
+
+    /** Intervalo por defecto entre comprobaciones de instantánea, en segundos. */
+    private static final long INTERVALO_POR_DEFECTO = 300;
+
+    /** Número de registros nuevos por defecto que justifica una instantánea. */
+    private static final long REGISTROS_POR_DEFECTO = 1000;
+
+    /** Servicio compartido por la aplicación. */
+    private static volatile ServicioReservas compartido;
+
+    /** El almacén donde se guardan los registros. */
+    private final AlmacenReservas almacen;
+
+    /** Diario que escribe en disco las altas guardadas con {@link #guardarConfirmado}. */
+    private final DiarioReservas diario;
+
+    /** Todas las reservas dadas de alta, por columnas, construida junto con el índice. */
+    private TablaReservas tabla;
+
+    /** Índice de las filas de la tabla por el principio de las palabras del nombre y los apellidos. */
+    private IndicePrefijos prefijos;
+
+    /** Índice de las filas activas de la tabla por DNI, o null si todavía no se ha construido. */
+    private IndiceDNI indice;
+
+    /** Ocupación de las habitaciones por día, construida junto con el índice. */
+    private DisponibilidadHabitaciones disponibilidad;
+
+    /** Totales de ingresos por tipo y mes, construidos junto con el índice. */
+    private AgregadosReservas agregados;
+
+    /** Indica si el índice y la ocupación ya están construidos. */
+    private volatile boolean cargado;
+
+    /** Número de registros del almacén que cubre la última instantánea leída o escrita. */
+    private long cubiertosInstantanea;
+
+    /** Número de altas descartadas al reconstruir el estado, que se resumen al terminar. */
+    private long descartadasCarga;
+
+    /** Motivo del descarte de la primera alta descartada al reconstruir el estado, con su registro. */
+    private String primerDescarte;
+
+    /** Cerrojo que impide escribir dos instantáneas a la vez. */
+    private final Object cerrojoInstantanea = new Object();
+
+    /**
+     * Indica si el sistema no ha dejado sustituir el almacén por el compactado,
+     * como pasa en Windows con los archivos proyectados en memoria. Entonces no
+     * se vuelve a compactar en esta sesión, solo se escriben instantáneas.
+     */
+    private volatile boolean sinCompactar;
+
+    /**
+     * Crea un servicio sobre un almacén de reservas.
+     *
+     * @param almacen el almacén de reservas.
+     */
+    public ServicioReservas(AlmacenReservas almacen) {
+        this(almacen, new DiarioReservas(almacen));
+    }
+
+    /**
+     * Crea un servicio sobre un almacén de reservas con un diario concreto, por
+     * ejemplo para comparar distintas esperas y lotes.
+     *
+     * @param almacen el almacén de reservas.
+     * @param diario  el diario que escribe en disco las altas de ese almacén.
+     */
+    ServicioReservas(AlmacenReservas almacen, DiarioReservas diario) {
+        this.almacen = almacen;
+        this.diario = diario;
+    }
+
+    /**
+     * Obtiene el servicio compartido por la aplicación, sobre el almacén compartido.
+     *
+     * @return el servicio compartido.
+     * @throws IOException si el almacén no se puede abrir.
+     */
+    public static synchronized ServicioReservas getCompartido() throws IOException {
+        if (compartido == null) {
+            compartido = new ServicioReservas(AlmacenReservas.getCompartido());
+            compartido.programarInstantaneas(Long.getLong(PROPIEDAD_INTERVALO, INTERVALO_POR_DEFECTO),
+                    Long.getLong(PROPIEDAD_REGISTROS, REGISTROS_POR_DEFECTO));
+        }
+        return compartido;
+    }
+
+    /**
+     * Programa la comprobación periódica, en un hilo de fondo, de si se han
+     * añadido bastantes registros desde la última instantánea como para escribir
+     * otra.
+     *
+     * @param segundos el intervalo entre comprobaciones, en segundos; con 0 no se programa.
+     * @param minimo   el número de registros nuevos a partir del cual se escribe una instantánea.
+     */
+    private void programarInstantaneas(long segundos, long minimo) {
+        if (segundos <= 0) {
+            return;
+        }
+        ScheduledExecutorService programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "instantaneas-reservas");
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(() -> {
+            try {
+                if (cargado && almacen.getNumRegistros() - registrosCubiertos() >= minimo) {
+                    guardarInstantanea(minimo);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se ha podido guardar la instantánea de reservas: " + e);
+            }
+        }, Math.min(segundos, 60), segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Obtiene el número de registros que cubre la última instantánea.
+     *
+     * @return el número de registros.
+     */
+    private synchronized long registrosCubiertos() {
+        return cubiertosInstantanea;
+    }
+
+    /**
+     * Obtiene el servicio compartido solo si ya está abierto y cargado, sin
+     * esperar nunca. Pensado para el hilo de despacho de eventos.
+     *
+     * @return el servicio compartido, o null si todavía no está listo.
+     */
+    public static ServicioReservas getCompartidoSiCargado() {
+        ServicioReservas servicio = compartido;
+        return servicio != null && servicio.cargado ? servicio : null;
+    }
+
+    /**
+     * Guarda el alta de una reserva si quedan habitaciones libres para toda la
+     * estancia. Las habitaciones se ocupan sin retener el servicio, de modo que
+     * solo la escritura en el almacén espera a otras operaciones. El registro
+     * queda en memoria hasta que el sistema lo escribe en disco; para esperar a
+     * que esté escrito se usa {@link #guardarConfirmado}.
+     *
+     * @param reserva la reserva.
+     * @return el índice del registro guardado, o -1 si no quedan habitaciones suficientes.
+     * @throws IllegalArgumentException si la reserva no supera {@link #validar}.
+     */
+    public long guardar(Reserva reserva) {
+        if (!cargado) {
+            prepararIndice();
+        }
+        validar(reserva);
+        if (!reservar(reserva)) {
+            return -1;
+        }
+        try {
+            synchronized (this) {
+                long registro = almacen.anadirAlta(reserva);
+                aplicarAlta(reserva, registro);
+                return registro;
+            }
+        } catch (RuntimeException e) {
+            liberar(reserva);
+            throw e;
+        }
+    }
+
+    /**
+     * Guarda el alta de una reserva como {@link #guardar} y pide al diario que la
+     * escriba en disco. El diario junta en una sola escritura las altas que se
+     * guardan a la vez, por lo que no conviene esperar al futuro reteniendo nada
+     * que necesiten otras altas.
+     *
+     * @param reserva la reserva.
+     * @return un futuro que se completa con el índice del registro cuando está
+     *         escrito en disco, o con -1 en el momento si no quedan habitaciones suficientes.
+     * @throws IllegalArgumentException si la reserva no supera {@link #validar}.
+     */
+    public CompletableFuture<Long> guardarConfirmado(Reserva reserva) {
+        long registro = guardar(reserva);
+        return registro < 0 ? CompletableFuture.completedFuture(-1L) : diario.confirmar(registro);
+    }
+
+    /**
+     * Guarda un lote de reservas de una sola vez, comprobando la disponibilidad de
+     * cada una en orden. Las posiciones null del lote se ignoran.
+     *
+     * @param reservas  las reservas del lote.
+     * @param numero    el número de posiciones del lote que se usan.
+     * @param guardadas el array donde se indica si cada reserva se ha guardado.
+     * @return el número de reservas guardadas.
+     * @throws IllegalArgumentException si alguna reserva no supera {@link #validar};
+     *                                  las anteriores quedan guardadas.
+     */
+    public synchronized int guardarLote(Reserva[] reservas, int numero, boolean[] guardadas) {
+        cargar();
+        int total = 0;
+        for (int i = 0; i < numero; i++) {
+            Reserva reserva = reservas[i];
+            if (reserva != null) {
+                validar(reserva);
+            }
+            guardadas[i] = reserva != null && reservar(reserva);
+            if (guardadas[i]) {
+                aplicarAlta(reserva, almacen.anadirAlta(reserva));
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Fuerza la escritura en disco de los registros guardados hasta ahora.
+     */
+    public void forzar() {
+        almacen.forzar();
+    }
+
+    /**
+     * Escribe una instantánea de las reservas activas, que el siguiente arranque
+     * leerá en lugar de recorrer todo el almacén. El estado solo se retiene
+     * mientras se copia la tabla; la compactación de la tabla, la reconstrucción
+     * de los índices y la escritura se hacen sin retenerlo.
+     *
+     * <p>Si al menos la mitad de los registros del almacén, y no menos de
+     * {@code minimoCompactar}, son de reservas canceladas, de bajas o de altas
+     * descartadas, después se compacta el almacén y se escribe otra instantánea
+     * sobre el almacén compactado. Los almacenes con un formato anterior se
+     * compactan siempre, lo que los pasa al formato actual. Si el sistema no deja
+     * sustituir el almacén abierto, no se vuelve a compactar en esta sesión.</p>
+     *
+     * @param minimoCompactar el número mínimo de registros sobrantes para compactar el almacén.
+     * @return verdadero si se ha compactado el almacén.
+     * @throws IOException si no se puede escribir la instantánea o el almacén compactado.
+     */
+    public boolean guardarInstantanea(long minimoCompactar) throws IOException {
+        synchronized (cerrojoInstantanea) {
+            TablaReservas copia;
+            long cubiertos;
+            long huecosDiccionario;
+            long huella;
+            synchronized (this) {
+                cargar();
+                copia = tabla.copia();
+                cubiertos = almacen.getNumRegistros();
+                huecosDiccionario = almacen.getNumHuecosDiccionario();
+                huella = cubiertos > 0 ? almacen.huella(cubiertos - 1) : 0;
+            }
+            TablaReservas compacta = copia.compactada();
+            IndicePrefijos nuevosPrefijos = new IndicePrefijos();
+            DisponibilidadHabitaciones nuevaDisponibilidad = new DisponibilidadHabitaciones();
+            AgregadosReservas nuevosAgregados = new AgregadosReservas();
+            for (int fila = 0; fila < compacta.getNumFilas(); fila++) {
+                nuevosPrefijos.anadir(fila, compacta.getNombre(fila), compacta.getApellidos(fila));
+                nuevaDisponibilidad.ocupar(compacta.getCodigoTipo(fila), compacta.getNumHabitaciones(fila),
+                        compacta.getFechaEntrada(fila), compacta.getFechaSalida(fila));
+                nuevosAgregados.sumar(compacta.getCodigoTipo(fila), compacta.getFechaEntrada(fila),
+                        compacta.getImporteCentimos(fila), 1);
+            }
+            Path ruta = InstantaneaReservas.ruta(almacen);
+            InstantaneaReservas.publicar(InstantaneaReservas.escribir(ruta, cubiertos, huella, compacta, nuevosPrefijos,
+                    nuevaDisponibilidad, nuevosAgregados), ruta);
+            synchronized (this) {
+                cubiertosInstantanea = Math.max(cubiertosInstantanea, cubiertos);
+            }
+
+            // El diccionario de titulares se rehace al compactar, pero no cuenta como sobrante
+            long sobrantes = cubiertos - huecosDiccionario - compacta.getNumFilas();
+            boolean migrar = almacen.getVersion() != AlmacenReservas.VERSION;
+            long utiles = cubiertos - huecosDiccionario;
+            if (sinCompactar || (!migrar && (sobrantes < Math.max(1, minimoCompactar) || sobrantes * 2 < utiles))) {
+                return false;
+            }
+            cubiertos = compactarAlmacen(compacta, cubiertos);
+            huella = cubiertos > 0 ? almacen.huella(cubiertos - 1) : 0;
+            InstantaneaReservas.publicar(InstantaneaReservas.escribir(ruta, cubiertos, huella, compacta,
+                    nuevosPrefijos, nuevaDisponibilidad, nuevosAgregados), ruta);
+            return true;
+        }
+    }
+
+    /**
+     * Sustituye el almacén por uno nuevo con solo los registros de las reservas
+     * activas de una tabla compactada, seguidos de los registros añadidos
+     * después de copiarla. Los registros se copian con su marca de tiempo, en el
+     * formato actual, y el almacén nuevo solo tiene en su diccionario los
+     * titulares que se usan. Solo se retiene el servicio para copiar esos
+     * últimos registros y sustituir el archivo; la tabla en memoria conserva sus
+     * filas y solo cambia el registro al que apunta cada una.
+     *
+     * @param compacta  la tabla compactada; al terminar, sus filas apuntan a los registros nuevos.
+     * @param cubiertos el número de registros del almacén cuando se copió la tabla.
+     * @return el número de registros del almacén nuevo que corresponden a la tabla compactada.
+     * @throws IOException si no se puede escribir o sustituir el almacén.
+     */
+    private long compactarAlmacen(TablaReservas compacta, long cubiertos) throws IOException {
+        Path ruta = almacen.getRuta();
+        Path nueva = ruta.resolveSibling(ruta.getFileName() + ".compactado");
+        Files.deleteIfExists(nueva);
+        int numActivas = compacta.getNumFilas();
+        int[] anteriores = new int[numActivas];
+        int[] nuevos = new int[numActivas];
+        AlmacenReservas compactado = AlmacenReservas.abrir(nueva);
+        try {
+            for (int fila = 0; fila < numActivas; fila++) {
+                anteriores[fila] = compacta.getRegistro(fila);
+                nuevos[fila] = (int) compactado.anadirCopia(almacen, anteriores[fila]);
+            }
+            long copiados = compactado.getNumRegistros();
+            synchronized (this) {
+                long total = almacen.getNumRegistros();
+                int[] anterioresCola = new int[(int) (total - cubiertos)];
+                int[] nuevosCola = new int[anterioresCola.length];
+                int numCola = 0;
+                for (long registro = cubiertos; registro < total; registro++) {
+                    byte tipo = almacen.leerTipoRegistro(registro);
+                    if (tipo == AlmacenReservas.ALTA || tipo == AlmacenReservas.BAJA) {
+                        anterioresCola[numCola] = (int) registro;
+                        nuevosCola[numCola++] = (int) compactado.anadirCopia(almacen, registro);
+                    }
+                }
+                compactado.close();
+                // Las confirmaciones pendientes se refieren a los índices del almacén de antes
+                if (total > 0) {
+                    diario.confirmar(total - 1).join();
+                }
+                try {
+                    almacen.reemplazar(nueva);
+                } catch (FileSystemException e) {
+                    // El almacén de antes sigue abierto e íntegro; reintentarlo fallaría igual
+                    sinCompactar = true;
+                    throw e;
+                }
+                diario.reiniciar(almacen.getNumRegistros());
+
+                // Las filas apuntan a su registro en el almacén nuevo
+                for (int fila = 0; fila < tabla.getNumFilas(); fila++) {
+                    int registro = tabla.getRegistro(fila);
+                    int posicion = registro >= cubiertos ? Arrays.binarySearch(anterioresCola, 0, numCola, registro)
+                            : Arrays.binarySearch(anteriores, registro);
+                    int nuevo = posicion < 0 ? -1 : registro >= cubiertos ? nuevosCola[posicion] : nuevos[posicion];
+                    tabla.setRegistro(fila, nuevo);
+                }
+                cubiertosInstantanea = copiados;
+                for (int fila = 0; fila < numActivas; fila++) {
+                    compacta.setRegistro(fila, nuevos[fila]);
+                }
+                return copiados;
+            }
+        } finally {
+            compactado.close();
+            Files.deleteIfExists(nueva);
+        }
+    }
+
+    /**
+     * Calcula las habitaciones libres de un tipo durante todas las noches de una estancia.
+     *
+     * @param tipo  el código del tipo de habitación ({@link TipoHabitacion#getCodigo()}).
+     * @param desde el día de entrada, en días desde 1970.
+     * @param hasta el día de salida, en días desde 1970 (no incluido).
+     * @return el número de habitaciones libres.
+     */
+    public int libres(int tipo, int desde, int hasta) {
+        if (!cargado) {
+            prepararIndice();
+        }
+        return disponibilidad.libres(tipo, desde, hasta);
+    }
+
+    /**
+     * Indica si el índice y la ocupación ya están construidos, de modo que las
+     * consultas no tendrán que esperar a recorrer el almacén.
+     *
+     * @return verdadero si el servicio ya está cargado.
+     */
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Obtiene las habitaciones de un tipo ocupadas una noche, sin esperar a que
+     * termine otra operación del servicio. Pensado para el panel de resumen.
+     *
+     * @param tipo el código del tipo de habitación.
+     * @param dia  el día, en días desde 1970.
+     * @return el número de habitaciones ocupadas, o -1 si el servicio todavía no está cargado.
+     */
+    public int ocupadas(int tipo, int dia) {
+        return cargado ? disponibilidad.ocupadas(tipo, dia) : -1;
+    }
+
+    /**
+     * Obtiene los totales de ingresos y reservas, que se pueden consultar sin
+     * esperar a que termine otra operación del servicio.
+     *
+     * @return los totales, o null si el servicio todavía no está cargado.
+     */
+    public AgregadosReservas getAgregados() {
+        return cargado ? agregados : null;
+    }
+
+    /**
+     * Busca las reservas activas de un cliente.
+     *
+     * @param dni el DNI del cliente.
+     * @return las reservas activas, de la más reciente a la más antigua.
+     */
+    public synchronized List<Reserva> buscarActivas(String dni) {
+        List<Reserva> activas = new ArrayList<>();
+        int numero = ValidadorDatos.numeroDNI(dni);
+        if (numero < 0) {
+            return activas;
+        }
+        cargar();
+        for (int r = indice.primero(numero); r != IndiceDNI.NINGUNO; r = indice.siguiente(r)) {
+            activas.add(tabla.obtener(r));
+        }
+        return activas;
+    }
+
+    /**
+     * Recorre todas las reservas activas en el orden en que se dieron de alta.
+     * Las reservas se sacan de la tabla por bloques de {@value #TAMANO_BLOQUE},
+     * reteniendo el servicio solo mientras se copia cada bloque, y se entregan al
+     * visitante fuera de la sincronización para no bloquear las altas.
+     *
+     * @param visitante el visitante que recibe la fila de la tabla y los datos de
+     *                  cada reserva activa.
+     */
+    public void recorrerActivas(AlmacenReservas.Visitante visitante) {
+        Reserva[] bloque = new Reserva[TAMANO_BLOQUE];
+        int[] filas = new int[TAMANO_BLOQUE];
+        int siguiente = 0;
+        while (true) {
+            int enBloque = 0;
+            synchronized (this) {
+                cargar();
+                int total = tabla.getNumFilas();
+                for (; siguiente < total && enBloque < TAMANO_BLOQUE; siguiente++) {
+                    if (tabla.estaActiva(siguiente)) {
+                        filas[enBloque] = siguiente;
+                        bloque[enBloque++] = tabla.obtener(siguiente);
+                    }
+                }
+            }
+            if (enBloque == 0) {
+                return;
+            }
+            for (int i = 0; i < enBloque; i++) {
+                visitante.visitar(filas[i], AlmacenReservas.ALTA, bloque[i]);
+                bloque[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Obtiene las filas de la tabla de reservas activas ordenadas por una columna.
+     * Es el índice con el que un listado recorre las reservas sin cargarlas. Como
+     * {@link #guardarInstantanea}, solo retiene el servicio para copiar los
+     * valores de la columna; la ordenación se hace sin retenerlo, para que las
+     * altas y las bajas no la esperen.
+     *
+     * @param columna    la columna de ordenación, o null para el orden de alta.
+     * @param ascendente verdadero para orden ascendente, falso para descendente.
+     * @return las filas activas en el orden pedido.
+     */
+    public int[] ordenarActivas(TablaReservas.Columna columna, boolean ascendente) {
+        TablaReservas.ClavesOrden claves;
+        synchronized (this) {
+            cargar();
+            if (columna == null) {
+                return tabla.ordenarActivas(null, ascendente);
+            }
+            claves = tabla.clavesOrden(tabla.filasActivas(), columna);
+        }
+        return claves.ordenar(ascendente);
+    }
+
+    /**
+     * Ordena unas filas de la tabla de reservas por una columna, por ejemplo el
+     * resultado de una búsqueda.
+     *
+     * @param filas      las filas que se ordenan; el array no se modifica.
+     * @param columna    la columna de ordenación.
+     * @param ascendente verdadero para orden ascendente, falso para descendente.
+     * @return las filas ordenadas.
+     * @see #ordenarActivas
+     */
+    public int[] ordenarFilas(int[] filas, TablaReservas.Columna columna, boolean ascendente) {
+        TablaReservas.ClavesOrden claves;
+        synchronized (this) {
+            cargar();
+            claves = tabla.clavesOrden(filas, columna);
+        }
+        return claves.ordenar(ascendente);
+    }
+
+    /**
+     * Busca las reservas activas de los clientes cuyo nombre o apellidos tienen
+     * palabras que empiezan por las palabras de un texto, sin distinguir
+     * mayúsculas ni acentos. Por ejemplo, "jos gar" encuentra a José García.
+     *
+     * @param texto  el texto buscado.
+     * @param maximo el número máximo de resultados.
+     * @return las filas de la tabla de las reservas encontradas, con las más
+     *         parecidas al texto primero, e indicación de si hay más.
+     */
+    public synchronized ResultadoBusqueda buscarPorNombre(String texto, int maximo) {
+        cargar();
+        // Se pide un resultado de más para saber si quedan otros sin mostrar
+        int[] encontradas = new int[maximo + 1];
+        int numero = prefijos.buscar(texto, tabla, encontradas);
+        boolean hayMas = numero < 0 || numero > maximo;
+        numero = numero < 0 ? -(numero + 1) : numero;
+        return new ResultadoBusqueda(Arrays.copyOf(encontradas, Math.min(numero, maximo)), hayMas);
+    }
+
+    /**
+     * Obtiene los datos de un tramo de filas de la tabla de reservas.
+     *
+     * @param filas   las filas, obtenidas de {@link #ordenarActivas}.
+     * @param desde   la primera posición de {@code filas} que se lee.
+     * @param numero  el número de posiciones que se leen.
+     * @param destino el array donde se guardan las reservas, desde la posición 0.
+     */
+    public synchronized void obtenerFilas(int[] filas, int desde, int numero, Reserva[] destino) {
+        cargar();
+        for (int i = 0; i < numero; i++) {
+            destino[i] = tabla.obtener(filas[desde + i]);
+        }
+    }
+
+    /**
+     * Da de baja todas las reservas activas de un cliente.
+     *
+     * @param dni el DNI del cliente.
+     * @return el número de reservas canceladas.
+     */
+    public synchronized int cancelar(String dni) {
+        int numero = ValidadorDatos.numeroDNI(dni);
+        if (numero < 0) {
+            return 0;
+        }
+        cargar();
+        if (indice.primero(numero) == IndiceDNI.NINGUNO) {
+            return 0;
+        }
+        almacen.anadirBaja(dni);
+        return aplicarBaja(numero);
+    }
+
+    /**
+     * Construye el índice por DNI y la ocupación si todavía no se han construido.
+     * Puede llamarse desde un hilo de fondo al arrancar para que la primera
+     * consulta no espere.
+     */
+    public synchronized void prepararIndice() {
+        cargar();
+    }
+
+    /**
+     * Lee el diccionario de titulares del almacén, para que la primera alta de
+     * un cliente que ya estaba no tenga que esperar a leerlo. No retiene el
+     * servicio; se llama desde un hilo de fondo después de {@link #prepararIndice}.
+     */
+    public void prepararAltas() {
+        almacen.leerDiccionario();
+    }
+
+    /**
+     * Reconstruye la tabla, el índice por DNI y la ocupación si es necesario: a
+     * partir de la instantánea y los registros añadidos después, o, si no hay
+     * una instantánea que sirva, a partir de todo el almacén. Las altas con un
+     * DNI o un teléfono sin el formato correcto no se pueden guardar por
+     * columnas y se descartan.
+     */
+    private void cargar() {
+        if (indice == null) {
+            InstantaneaReservas instantanea = InstantaneaReservas.leer(almacen);
+            if (instantanea != null) {
+                tabla = instantanea.tabla;
+                prefijos = instantanea.prefijos;
+                disponibilidad = instantanea.disponibilidad;
+                agregados = instantanea.agregados;
+                cubiertosInstantanea = instantanea.cubiertos;
+                indice = new IndiceDNI(tabla.getNumActivas());
+                for (int fila = 0; fila < tabla.getNumFilas(); fila++) {
+                    if (tabla.estaActiva(fila)) {
+                        indice.anadir(tabla.getNumeroDNI(fila), fila);
+                    }
+                }
+            } else {
+                // Los registros incluyen el diccionario, las bajas y las altas canceladas,
+                // así que solo acotan las reservas por arriba
+                int previstas = (int) Math.min(PREVISION_MAXIMA,
+                        almacen.getNumRegistros() - almacen.getNumHuecosDiccionario());
+                tabla = new TablaReservas(previstas);
+                indice = new IndiceDNI(previstas);
+                prefijos = new IndicePrefijos();
+                disponibilidad = new DisponibilidadHabitaciones();
+                agregados = new AgregadosReservas();
+            }
+            descartadasCarga = 0;
+            primerDescarte = null;
+            almacen.recorrer(cubiertosInstantanea, this::reproducir);
+            if (descartadasCarga > 0) {
+                // Un almacén dañado o antiguo puede tener miles: se avisa una sola vez
+                System.err.println("Reservas descartadas al cargar el almacén: " + descartadasCarga + " (la primera, "
+                        + primerDescarte + ")");
+            }
+            cargado = true;
+        }
+    }
+
+    /**
+     * Aplica un registro del almacén al reconstruir el estado.
+     *
+     * @param registro     el índice del registro.
+     * @param tipoRegistro el tipo de registro.
+     * @param reserva      los datos del registro.
+     */
+    private void reproducir(long registro, byte tipoRegistro, Reserva reserva) {
+        if (tipoRegistro == AlmacenReservas.ALTA) {
+            try {
+                aplicarAlta(reserva, registro);
+                disponibilidad.ocupar(reserva.getTipoHabitacion().getCodigo(), reserva.getNumHabitaciones(),
+                        reserva.getFechaEntrada(), reserva.getFechaSalida());
+            } catch (IllegalArgumentException e) {
+                if (descartadasCarga++ == 0) {
+                    primerDescarte = "en el registro " + registro + ": " + e.getMessage();
+                }
+            }
+        } else {
+            aplicarBaja(ValidadorDatos.numeroDNI(reserva.getDNI()));
+        }
+    }
+
+    /**
+     * Comprueba que una reserva se puede guardar por columnas antes de ocupar sus
+     * habitaciones o escribirla en el almacén.
+     *
+     * @param reserva la reserva.
+     * @throws IllegalArgumentException si el DNI o el teléfono no tienen el formato
+     *                                  correcto, si no se reserva ninguna habitación o
+     *                                  si la salida no es posterior a la entrada.
+     */
+    private static void validar(Reserva reserva) {
+        // Mismas reglas que el servidor y el importador, para que ninguna entrada guarde reservas vacías
+        if (reserva.getNumHabitaciones() < 1) {
+            throw new IllegalArgumentException("Número de habitaciones no válido: " + reserva.getNumHabitaciones());
+        }
+        if (reserva.getFechaSalida() <= reserva.getFechaEntrada()) {
+            throw new IllegalArgumentException("La salida debe ser posterior a la entrada");
+        }
+        if (ValidadorDatos.numeroDNI(reserva.getDNI()) < 0) {
+            throw new IllegalArgumentException("DNI sin el formato correcto: " + reserva.getDNI());
+        }
+        if (ValidadorDatos.numeroTelefono(reserva.getTelefono()) < 0) {
+            throw new IllegalArgumentException("Teléfono sin el formato correcto: " + reserva.getTelefono());
+        }
+    }
+
+    /**
+     * Ocupa las habitaciones de una reserva si quedan libres todas las noches.
+     *
+     * @param reserva la reserva.
+     * @return verdadero si se han ocupado.
+     */
+    private boolean reservar(Reserva reserva) {
+        return disponibilidad.reservar(reserva.getTipoHabitacion().getCodigo(), reserva.getNumHabitaciones(),
+                reserva.getFechaEntrada(), reserva.getFechaSalida());
+    }
+
+    /**
+     * Libera las habitaciones de una reserva que no se ha podido guardar.
+     *
+     * @param reserva la reserva.
+     */
+    private void liberar(Reserva reserva) {
+        disponibilidad.liberar(reserva.getTipoHabitacion().getCodigo(), reserva.getNumHabitaciones(),
+                reserva.getFechaEntrada(), reserva.getFechaSalida());
+    }
+
+    /**
+     * Refleja el alta de una reserva en la tabla, en los índices y en los totales
+     * de ingresos. Sus habitaciones ya deben estar ocupadas.
+     *
+     * @param reserva  la reserva.
+     * @param registro el índice del registro del alta en el almacén.
+     * @throws IllegalArgumentException si el DNI o el teléfono no tienen el formato correcto.
+     */
+    private void aplicarAlta(Reserva reserva, long registro) {
+        int fila = tabla.anadir(reserva, registro);
+        indice.anadir(tabla.getNumeroDNI(fila), fila);
+        prefijos.anadir(fila, reserva.getNombre(), reserva.getApellidos());
+        agregados.sumar(reserva.getTipoHabitacion().getCodigo(), reserva.getFechaEntrada(), reserva.getImporteCentimos(), 1);
+    }
+
+    /**
+     * Refleja la baja de las reservas activas de un cliente en la tabla, en el
+     * índice, en la ocupación y en los totales, liberando sus habitaciones.
+     *
+     * @param numero el número del DNI del cliente.
+     * @return el número de reservas anuladas.
+     */
+    private int aplicarBaja(int numero) {
+        int anuladas = 0;
+        for (int r = indice.anular(numero); r != IndiceDNI.NINGUNO; r = indice.siguiente(r)) {
+            tabla.anular(r);
+            disponibilidad.liberar(tabla.getCodigoTipo(r), tabla.getNumHabitaciones(r), tabla.getFechaEntrada(r),
+                    tabla.getFechaSalida(r));
+            agregados.sumar(tabla.getCodigoTipo(r), tabla.getFechaEntrada(r), tabla.getImporteCentimos(r), -1);
+            anuladas++;
+        }
+        return anuladas;
+    }
+
+    /**
+     * Resultado de una búsqueda por nombre: las filas encontradas y si hay más
+     * reservas que coinciden y no se han devuelto.
+     */
+    public static final class ResultadoBusqueda {
+
+        /** Filas de la tabla de las reservas encontradas. */
+        private final int[] filas;
+
+        /** Indica si quedan reservas que coinciden sin devolver. */
+        private final boolean hayMas;
+
+        /**
+         * Crea el resultado de una búsqueda.
+         *
+         * @param filas  las filas encontradas.
+         * @param hayMas verdadero si quedan reservas sin devolver.
+         */
+        public ResultadoBusqueda(int[] filas, boolean hayMas) {
+            this.filas = filas;
+            this.hayMas = hayMas;
+        }
+
+        /**
+         * Obtiene las filas encontradas, con las más parecidas al texto primero.
+         *
+         * @return las filas de la tabla de reservas.
+         */
+        public int[] getFilas() {
+            return filas;
+        }
+
+        /**
+         * Indica si hay más reservas que coinciden con el texto, porque se ha
+         * llegado al número máximo de resultados o al de filas examinadas.
+         *
+         * @return verdadero si quedan reservas sin devolver.
+         */
+        public boolean hayMas() {
+            return hayMas;
+        }
+    }
+}
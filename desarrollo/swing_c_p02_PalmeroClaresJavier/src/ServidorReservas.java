@@ -0,0 +1,396 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor de reservas sin interfaz gráfica, para que varios puestos de
+ * recepción compartan las mismas reservas y no vendan dos veces la misma
+ * habitación. Atiende peticiones HTTP con cuerpos JSON en la dirección local,
+ * con el servidor incluido en el JDK, y delega en {@link ServicioReservas}, que
+ * comprueba la disponibilidad y guarda cada alta de forma atómica.
+ *
+ * <ul>
+ * <li>{@code POST /reservas/cotizacion}: calcula el importe de una reserva y las
+ * habitaciones libres de su tipo para toda la estancia.</li>
+ * <li>{@code POST /reservas}: guarda una reserva; responde 201, o 409 si no
+ * quedan habitaciones.</li>
+ * <li>{@code GET /reservas/libres?entrada=yyyy-MM-dd&salida=yyyy-MM-dd}: habitaciones
+ * libres de cada tipo para toda la estancia, con la etiqueta del tipo como clave.</li>
+ * <li>{@code GET /reservas/{dni}}: número de reservas activas de un cliente.</li>
+ * <li>{@code DELETE /reservas/{dni}}: cancela las reservas activas de un cliente.</li>
+ * </ul>
+ *
+ * <p>Las reservas se escriben con el formato de {@link ReservaJSON}. El importe lo
+ * calcula siempre el servidor con las tarifas estándar, sin fiarse del que envía
+ * el cliente. Cada petición se atiende en su propio hilo virtual cuando la
+ * máquina virtual los ofrece (Java 21 o posterior), y si no, en un grupo de
+ * hilos de plataforma.</p>
+ */
+public final class ServidorReservas {
+
+    /** Puerto en el que escucha el servidor si no se indica otro. */
+    public static final int PUERTO_POR_DEFECTO = 8470;
+
+    /** Ruta base de las peticiones. */
+    static final String RUTA = "/reservas";
+
+    /** Tamaño máximo del cuerpo de una petición. */
+    private static final int MAX_CUERPO = 16 * 1024;
+
+    /** Número máximo de conexiones pendientes de aceptar. */
+    private static final int MAX_PENDIENTES = 1024;
+
+    static {
+        // El servidor del JDK escribe las cabeceras y el cuerpo por separado; con el
+        // algoritmo de Nagle activo, cada respuesta espera unos 40 ms al ACK retardado
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /** Servidor HTTP del JDK. */
+    private final HttpServer servidor;
+
+    /** Hilos que atienden las peticiones. */
+    private final ExecutorService hilos;
+
+    /** Servicio que guarda las reservas. */
+    private final ServicioReservas servicio;
+
+    /** Indica si las peticiones se atienden con hilos virtuales. */
+    private final boolean hilosVirtuales;
+
+    /**
+     * Crea un servidor en un puerto de la dirección local, sin arrancarlo.
+     *
+     * @param servicio el servicio de reservas.
+     * @param puerto   el puerto, o 0 para uno libre cualquiera.
+     * @throws IOException si no se puede abrir el puerto.
+     */
+    private ServidorReservas(ServicioReservas servicio, int puerto) throws IOException {
+        this.servicio = servicio;
+        ExecutorService virtual = PrecargaRecursos.crearEjecutorVirtual();
+        hilosVirtuales = virtual != null;
+        hilos = virtual != null ? virtual
+                : Executors.newFixedThreadPool(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()), tarea -> {
+                    Thread hilo = new Thread(tarea, "servidor-reservas");
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), MAX_PENDIENTES);
+        servidor.setExecutor(hilos);
+        servidor.createContext(RUTA, this::atender);
+    }
+
+    /**
+     * Arranca un servidor de reservas en la dirección local.
+     *
+     * @param servicio el servicio de reservas.
+     * @param puerto   el puerto, o 0 para uno libre cualquiera.
+     * @return el servidor arrancado.
+     * @throws IOException si no se puede abrir el puerto.
+     */
+    public static ServidorReservas iniciar(ServicioReservas servicio, int puerto) throws IOException {
+        ServidorReservas servidor = new ServidorReservas(servicio, puerto);
+        servidor.servidor.start();
+        return servidor;
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha el servidor.
+     *
+     * @return el puerto.
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Indica si las peticiones se atienden con hilos virtuales.
+     *
+     * @return verdadero con hilos virtuales, falso con hilos de plataforma.
+     */
+    public boolean usaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    /**
+     * Deja de aceptar peticiones, espera como mucho un segundo a las que están
+     * en curso y fuerza la escritura de las reservas en disco.
+     */
+    public void detener() {
+        servidor.stop(1);
+        hilos.shutdown();
+        servicio.forzar();
+    }
+
+    /**
+     * Atiende una petición, respondiendo con un objeto JSON.
+     *
+     * @param intercambio la petición y su respuesta.
+     */
+    private void atender(HttpExchange intercambio) {
+        try {
+            String metodo = intercambio.getRequestMethod();
+            String ruta = intercambio.getRequestURI().getPath();
+            try {
+                if (ruta.equals(RUTA + "/cotizacion")) {
+                    exigirMetodo(intercambio, metodo, "POST");
+                    cotizar(intercambio);
+                } else if (ruta.equals(RUTA + "/libres")) {
+                    exigirMetodo(intercambio, metodo, "GET");
+                    libres(intercambio);
+                } else if (ruta.equals(RUTA) || ruta.equals(RUTA + "/")) {
+                    exigirMetodo(intercambio, metodo, "POST");
+                    guardar(intercambio);
+                } else if (ruta.startsWith(RUTA + "/") && ruta.indexOf('/', RUTA.length() + 1) < 0) {
+                    exigirMetodo(intercambio, metodo, "GET", "DELETE");
+                    String dni = ruta.substring(RUTA.length() + 1);
+                    if (metodo.equals("GET")) {
+                        contarActivas(intercambio, dni);
+                    } else {
+                        cancelar(intercambio, dni);
+                    }
+                } else {
+                    responderError(intercambio, 404, "Ruta desconocida: " + ruta);
+                }
+            } catch (MetodoNoPermitido e) {
+                responderError(intercambio, 405, "Método no permitido: " + metodo);
+            } catch (IllegalArgumentException e) {
+                responderError(intercambio, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                responderError(intercambio, 500, "Error interno del servidor");
+            }
+        } catch (IOException e) {
+            // El cliente ha cerrado la conexión antes de recibir la respuesta
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Calcula el importe de la reserva del cuerpo y las habitaciones libres de su tipo.
+     *
+     * @param intercambio la petición y su respuesta.
+     * @throws IOException si no se puede leer la petición o escribir la respuesta.
+     */
+    private void cotizar(HttpExchange intercambio) throws IOException {
+        Reserva reserva = leerReserva(intercambio);
+        int libres = servicio.libres(reserva.getTipoHabitacion().getCodigo(), reserva.getFechaEntrada(),
+                reserva.getFechaSalida());
+        responder(intercambio, 200, "{\"importeCentimos\": " + reserva.getImporteCentimos() + ", \"noches\": "
+                + reserva.getNoches() + ", \"libres\": " + libres + "}");
+    }
+
+    /**
+     * Responde con las habitaciones libres de cada tipo para las fechas de la consulta.
+     *
+     * @param intercambio la petición y su respuesta.
+     * @throws IOException si no se puede escribir la respuesta.
+     */
+    private void libres(HttpExchange intercambio) throws IOException {
+        Map<String, String> parametros = leerConsulta(intercambio);
+        int entrada = ReservaJSON.fecha(ReservaJSON.obligatorio(parametros, "entrada"));
+        int salida = ReservaJSON.fecha(ReservaJSON.obligatorio(parametros, "salida"));
+        if (salida <= entrada) {
+            throw new IllegalArgumentException("La salida debe ser posterior a la entrada");
+        }
+        if (!DisponibilidadHabitaciones.enHorizonte(entrada, salida)) {
+            throw new IllegalArgumentException("Las fechas de la estancia están fuera de las que admite el hotel");
+        }
+        StringBuilder texto = new StringBuilder(64).append('{');
+        for (TipoHabitacion tipo : TipoHabitacion.values()) {
+            if (tipo.getCodigo() > 0) {
+                texto.append(", ");
+            }
+            ReservaJSON.cadena(tipo.getEtiqueta(), texto).append(": ")
+                    .append(servicio.libres(tipo.getCodigo(), entrada, salida));
+        }
+        responder(intercambio, 200, texto.append('}').toString());
+    }
+
+    /**
+     * Guarda la reserva del cuerpo si quedan habitaciones libres.
+     *
+     * @param intercambio la petición y su respuesta.
+     * @throws IOException si no se puede leer la petición o escribir la respuesta.
+     */
+    private void guardar(HttpExchange intercambio) throws IOException {
+        Reserva reserva = leerReserva(intercambio);
+        if (!ValidadorDatos.esDNIValido(reserva.getDNI())) {
+            throw new IllegalArgumentException("DNI no válido: " + reserva.getDNI());
+        }
+        if (!ValidadorDatos.esTelefonoValido(reserva.getTelefono())) {
+            throw new IllegalArgumentException("Teléfono no válido: " + reserva.getTelefono());
+        }
+        // Solo se responde cuando el alta está escrita en disco
+        long registro = servicio.guardarConfirmado(reserva).join();
+        if (registro < 0) {
+            responderError(intercambio, 409, "No quedan habitaciones libres de ese tipo para las fechas elegidas");
+        } else {
+            responder(intercambio, 201, "{\"registro\": " + registro + ", \"importeCentimos\": "
+                    + reserva.getImporteCentimos() + "}");
+        }
+    }
+
+    /**
+     * Responde con el número de reservas activas de un cliente.
+     *
+     * @param intercambio la petición y su respuesta.
+     * @param dni         el DNI del cliente, tomado de la ruta.
+     * @throws IOException si no se pueden leer las reservas o escribir la respuesta.
+     */
+    private void contarActivas(HttpExchange intercambio, String dni) throws IOException {
+        if (ValidadorDatos.numeroDNI(dni) < 0) {
+            throw new IllegalArgumentException("DNI no válido: " + dni);
+        }
+        responder(intercambio, 200, "{\"activas\": " + servicio.buscarActivas(dni).size() + "}");
+    }
+
+    /**
+     * Cancela las reservas activas de un cliente.
+     *
+     * @param intercambio la petición y su respuesta.
+     * @param dni         el DNI del cliente, tomado de la ruta.
+     * @throws IOException si no se puede escribir la respuesta.
+     */
+    private void cancelar(HttpExchange intercambio, String dni) throws IOException {
+        if (ValidadorDatos.numeroDNI(dni) < 0) {
+            throw new IllegalArgumentException("DNI no válido: " + dni);
+        }
+        responder(intercambio, 200, "{\"canceladas\": " + servicio.cancelar(dni) + "}");
+    }
+
+    /**
+     * Lee la reserva del cuerpo de la petición y le pone el importe de las tarifas estándar.
+     *
+     * @param intercambio la petición.
+     * @return la reserva con el importe calculado.
+     * @throws IOException si no se puede leer la petición.
+     * @throws IllegalArgumentException si el cuerpo no es una reserva válida.
+     */
+    private static Reserva leerReserva(HttpExchange intercambio) throws IOException {
+        Map<String, String> campos = ReservaJSON.leer(leerCuerpo(intercambio));
+        Reserva leida = ReservaJSON.aReserva(campos);
+        long importe = MotorPrecios.getEstandar().cotizar(leida.getTipoHabitacion(), leida.getNumHabitaciones(),
+                leida.getNoches(), leida.getEdadNinos());
+        if (importe > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("El importe de la reserva es demasiado alto");
+        }
+        return new Reserva(leida.getNombre(), leida.getApellidos(), leida.getDNI(), leida.getTelefono(),
+                leida.getFechaEntrada(), leida.getFechaSalida(), leida.getTipoHabitacion(),
+                leida.getNumHabitaciones(), leida.getEdadNinos(), (int) importe);
+    }
+
+    /**
+     * Lee el cuerpo de una petición como texto UTF-8.
+     *
+     * @param intercambio la petición.
+     * @return el cuerpo.
+     * @throws IOException si no se puede leer.
+     * @throws IllegalArgumentException si el cuerpo es demasiado grande.
+     */
+    private static String leerCuerpo(HttpExchange intercambio) throws IOException {
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            byte[] cuerpo = entrada.readNBytes(MAX_CUERPO + 1);
+            if (cuerpo.length > MAX_CUERPO) {
+                throw new IllegalArgumentException("El cuerpo de la petición es demasiado grande");
+            }
+            return new String(cuerpo, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Lee los parámetros de la consulta de una petición, sin caracteres escapados.
+     *
+     * @param intercambio la petición.
+     * @return los parámetros.
+     */
+    private static Map<String, String> leerConsulta(HttpExchange intercambio) {
+        Map<String, String> parametros = new HashMap<>();
+        String consulta = intercambio.getRequestURI().getQuery();
+        if (consulta != null) {
+            for (String parametro : consulta.split("&")) {
+                int igual = parametro.indexOf('=');
+                if (igual > 0) {
+                    parametros.put(parametro.substring(0, igual), parametro.substring(igual + 1));
+                }
+            }
+        }
+        return parametros;
+    }
+
+    /**
+     * Comprueba el método de una petición.
+     *
+     * @param intercambio la petición.
+     * @param metodo      el método de la petición.
+     * @param admitidos   los métodos que admite la ruta.
+     * @throws MetodoNoPermitido si el método no es uno de los admitidos.
+     */
+    private static void exigirMetodo(HttpExchange intercambio, String metodo, String... admitidos) {
+        for (String admitido : admitidos) {
+            if (metodo.equals(admitido)) {
+                return;
+            }
+        }
+        intercambio.getResponseHeaders().set("Allow", String.join(", ", admitidos));
+        throw new MetodoNoPermitido();
+    }
+
+    /**
+     * Responde con un objeto JSON de error.
+     *
+     * @param intercambio la petición y su respuesta.
+     * @param codigo      el código de estado HTTP.
+     * @param mensaje     el mensaje de error.
+     * @throws IOException si no se puede escribir la respuesta.
+     */
+    private static void responderError(HttpExchange intercambio, int codigo, String mensaje) throws IOException {
+        StringBuilder texto = new StringBuilder(mensaje.length() + 16).append("{\"error\": ");
+        responder(intercambio, codigo, ReservaJSON.cadena(mensaje, texto).append('}').toString());
+    }
+
+    /**
+     * Responde con un objeto JSON.
+     *
+     * @param intercambio la petición y su respuesta.
+     * @param codigo      el código de estado HTTP.
+     * @param json        el cuerpo de la respuesta.
+     * @throws IOException si no se puede escribir la respuesta.
+     */
+    private static void responder(HttpExchange intercambio, int codigo, String json) throws IOException {
+        byte[] cuerpo = json.getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(codigo, cuerpo.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(cuerpo);
+        }
+    }
+
+    /**
+     * Indica que una ruta no admite el método de la petición.
+     */
+    private static final class MetodoNoPermitido extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Crea la excepción sin pila, porque solo sirve para salir del enrutado.
+         */
+        MetodoNoPermitido() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,653 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Modelo en memoria de las reservas, guardado por columnas en arrays de tipos
+ * primitivos: cada reserva es una fila y cada dato es una posición de un array.
+ * El DNI se guarda como su parte numérica (la letra se deduce de ella), el
+ * teléfono como número, las fechas en días desde 1970, el tipo de habitación
+ * como su código y el importe en céntimos. Los nombres y apellidos se guardan
+ * como identificadores de un {@link PoolCadenas}, de modo que cada texto
+ * distinto existe una sola vez.
+ *
+ * <p>Así cada reserva ocupa unos 36 bytes, frente a los cientos de bytes de un
+ * objeto {@link Reserva} con sus cadenas, y recorrer una columna para un informe
+ * lee memoria contigua. Las reservas canceladas se marcan como anuladas pero
+ * conservan su fila, así que los números de fila no cambian nunca.</p>
+ *
+ * <p>Cada fila recuerda también el registro del {@link AlmacenReservas} de
+ * donde sale, para poder compactar el almacén copiando solo los registros de
+ * las reservas activas.</p>
+ *
+ * <p>No es segura entre hilos: {@link ServicioReservas} sincroniza el acceso.</p>
+ */
+public final class TablaReservas {
+
+    /** Columnas de la tabla por las que se pueden ordenar las reservas. */
+    public enum Columna {
+        NOMBRE("Nombre"),
+        APELLIDOS("Apellidos"),
+        DNI("DNI"),
+        TELEFONO("Teléfono"),
+        ENTRADA("Entrada"),
+        SALIDA("Salida"),
+        NOCHES("Noches"),
+        TIPO("Tipo"),
+        HABITACIONES("Habitaciones"),
+        EDAD_NINOS("Edad niños"),
+        IMPORTE("Importe");
+
+        /** Título de la columna. */
+        private final String titulo;
+
+        Columna(String titulo) {
+            this.titulo = titulo;
+        }
+
+        /** @return el título de la columna. */
+        public String getTitulo() {
+            return titulo;
+        }
+    }
+
+    /** Capacidad inicial de las columnas si no se indica otra. */
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    // Datos del cliente: números del DNI y del teléfono, e identificadores del pool
+    private int[] dnis;
+    private int[] telefonos;
+    private int[] nombres;
+    private int[] apellidos;
+
+    // Fechas de la estancia, en días desde el 1 de enero de 1970
+    private int[] entradas;
+    private int[] salidas;
+
+    // Datos de la habitación
+    private byte[] tipos;
+    private byte[] habitaciones;
+    private byte[] edades;
+    private int[] importes;
+
+    /** Índice del registro del almacén de cada reserva. */
+    private int[] registros;
+
+    /** Filas de las reservas canceladas. */
+    private BitSet anuladas = new BitSet();
+
+    /** Textos de los nombres y apellidos. */
+    private PoolCadenas pool = new PoolCadenas();
+
+    /** Número de filas ocupadas. */
+    private int numFilas;
+
+    /** Número de filas anuladas. */
+    private int numAnuladas;
+
+    /**
+     * Crea una tabla vacía.
+     */
+    public TablaReservas() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * Crea una tabla vacía con capacidad para el número de reservas indicado.
+     *
+     * @param capacidadInicial el número de reservas previsto.
+     */
+    public TablaReservas(int capacidadInicial) {
+        int capacidad = Math.max(16, capacidadInicial);
+        dnis = new int[capacidad];
+        telefonos = new int[capacidad];
+        nombres = new int[capacidad];
+        apellidos = new int[capacidad];
+        entradas = new int[capacidad];
+        salidas = new int[capacidad];
+        tipos = new byte[capacidad];
+        habitaciones = new byte[capacidad];
+        edades = new byte[capacidad];
+        importes = new int[capacidad];
+        registros = new int[capacidad];
+    }
+
+    /**
+     * Añade una reserva al final de la tabla.
+     *
+     * @param reserva  la reserva.
+     * @param registro el índice del registro del almacén donde está guardada.
+     * @return la fila de la reserva.
+     * @throws IllegalArgumentException si el DNI o el teléfono no tienen el formato correcto.
+     */
+    public int anadir(Reserva reserva, long registro) {
+        int dni = ValidadorDatos.numeroDNI(reserva.getDNI());
+        int telefono = ValidadorDatos.numeroTelefono(reserva.getTelefono());
+        if (dni < 0 || telefono < 0) {
+            throw new IllegalArgumentException("DNI o teléfono con formato incorrecto");
+        }
+        if (numFilas == dnis.length) {
+            ampliar(numFilas + (numFilas >> 1));
+        }
+        int fila = numFilas++;
+        dnis[fila] = dni;
+        telefonos[fila] = telefono;
+        nombres[fila] = pool.identificador(reserva.getNombre());
+        apellidos[fila] = pool.identificador(reserva.getApellidos());
+        entradas[fila] = reserva.getFechaEntrada();
+        salidas[fila] = reserva.getFechaSalida();
+        tipos[fila] = (byte) reserva.getTipoHabitacion().getCodigo();
+        habitaciones[fila] = (byte) reserva.getNumHabitaciones();
+        edades[fila] = (byte) reserva.getEdadNinos();
+        importes[fila] = reserva.getImporteCentimos();
+        registros[fila] = Math.toIntExact(registro);
+        return fila;
+    }
+
+    /**
+     * Marca una reserva como cancelada.
+     *
+     * @param fila la fila de la reserva.
+     */
+    public void anular(int fila) {
+        if (!anuladas.get(fila)) {
+            anuladas.set(fila);
+            numAnuladas++;
+        }
+    }
+
+    /**
+     * Indica si una reserva sigue activa.
+     *
+     * @param fila la fila de la reserva.
+     * @return verdadero si la reserva no se ha cancelado.
+     */
+    public boolean estaActiva(int fila) {
+        return !anuladas.get(fila);
+    }
+
+    /**
+     * Reconstruye el objeto de una reserva a partir de sus columnas.
+     *
+     * @param fila la fila de la reserva.
+     * @return la reserva.
+     */
+    public Reserva obtener(int fila) {
+        return new Reserva(getNombre(fila), getApellidos(fila), getDNI(fila), getTelefono(fila), entradas[fila],
+                salidas[fila], getTipoHabitacion(fila), habitaciones[fila], edades[fila], importes[fila]);
+    }
+
+    /**
+     * Obtiene el número de filas de la tabla, incluidas las anuladas.
+     *
+     * @return el número de filas.
+     */
+    public int getNumFilas() {
+        return numFilas;
+    }
+
+    /**
+     * Obtiene el número de reservas activas.
+     *
+     * @return el número de filas no anuladas.
+     */
+    public int getNumActivas() {
+        return numFilas - numAnuladas;
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el nombre del cliente.
+     */
+    public String getNombre(int fila) {
+        return pool.cadena(nombres[fila]);
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return los apellidos del cliente.
+     */
+    public String getApellidos(int fila) {
+        return pool.cadena(apellidos[fila]);
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return la parte numérica del DNI del cliente.
+     */
+    public int getNumeroDNI(int fila) {
+        return dnis[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el DNI del cliente, con la letra en mayúscula.
+     */
+    public String getDNI(int fila) {
+        char[] texto = new char[9];
+        escribirDigitos(dnis[fila], texto, 8);
+        texto[8] = ValidadorDatos.letraDNI(dnis[fila]);
+        return new String(texto);
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el valor numérico del teléfono del cliente.
+     */
+    public int getNumeroTelefono(int fila) {
+        return telefonos[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el teléfono del cliente, con sus 9 dígitos.
+     */
+    public String getTelefono(int fila) {
+        char[] texto = new char[9];
+        escribirDigitos(telefonos[fila], texto, 9);
+        return new String(texto);
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el día de entrada, en días desde el 1 de enero de 1970.
+     */
+    public int getFechaEntrada(int fila) {
+        return entradas[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el día de salida, en días desde el 1 de enero de 1970.
+     */
+    public int getFechaSalida(int fila) {
+        return salidas[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el número de noches de la estancia.
+     */
+    public int getNoches(int fila) {
+        return CalculadoraEstancia.noches(entradas[fila], salidas[fila]);
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el código del tipo de habitación ({@link TipoHabitacion#getCodigo()}).
+     */
+    public int getCodigoTipo(int fila) {
+        return tipos[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el tipo de habitación.
+     */
+    public TipoHabitacion getTipoHabitacion(int fila) {
+        return TipoHabitacion.desdeCodigo(tipos[fila]);
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el número de habitaciones reservadas.
+     */
+    public int getNumHabitaciones(int fila) {
+        return habitaciones[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return la edad de los niños, o {@link Reserva#SIN_NINOS} si no hay niños.
+     */
+    public int getEdadNinos(int fila) {
+        return edades[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el importe total de la reserva en céntimos.
+     */
+    public int getImporteCentimos(int fila) {
+        return importes[fila];
+    }
+
+    /**
+     * @param fila la fila de la reserva.
+     * @return el índice del registro del almacén donde está guardada la reserva.
+     */
+    public int getRegistro(int fila) {
+        return registros[fila];
+    }
+
+    /**
+     * Cambia el registro del almacén de una reserva, tras compactar el almacén.
+     *
+     * @param fila     la fila de la reserva.
+     * @param registro el nuevo índice del registro.
+     */
+    void setRegistro(int fila, int registro) {
+        registros[fila] = registro;
+    }
+
+    /**
+     * Copia la tabla, para trabajar con la copia sin retener a quien sincroniza
+     * el acceso a esta. Los textos se comparten, ya que no cambian.
+     *
+     * @return la copia.
+     */
+    TablaReservas copia() {
+        TablaReservas copia = new TablaReservas(0);
+        copia.dnis = Arrays.copyOf(dnis, numFilas);
+        copia.telefonos = Arrays.copyOf(telefonos, numFilas);
+        copia.nombres = Arrays.copyOf(nombres, numFilas);
+        copia.apellidos = Arrays.copyOf(apellidos, numFilas);
+        copia.entradas = Arrays.copyOf(entradas, numFilas);
+        copia.salidas = Arrays.copyOf(salidas, numFilas);
+        copia.tipos = Arrays.copyOf(tipos, numFilas);
+        copia.habitaciones = Arrays.copyOf(habitaciones, numFilas);
+        copia.edades = Arrays.copyOf(edades, numFilas);
+        copia.importes = Arrays.copyOf(importes, numFilas);
+        copia.registros = Arrays.copyOf(registros, numFilas);
+        copia.anuladas = (BitSet) anuladas.clone();
+        copia.pool = pool.copia();
+        copia.numFilas = numFilas;
+        copia.numAnuladas = numAnuladas;
+        return copia;
+    }
+
+    /**
+     * Crea una tabla con solo las reservas activas, en el mismo orden, y con
+     * solo los textos que usan. Las filas cambian de número.
+     *
+     * @return la tabla compactada.
+     */
+    TablaReservas compactada() {
+        TablaReservas compacta = new TablaReservas(getNumActivas());
+        for (int fila = anuladas.nextClearBit(0); fila < numFilas; fila = anuladas.nextClearBit(fila + 1)) {
+            int nueva = compacta.numFilas++;
+            compacta.dnis[nueva] = dnis[fila];
+            compacta.telefonos[nueva] = telefonos[fila];
+            compacta.nombres[nueva] = compacta.pool.identificador(pool.cadena(nombres[fila]));
+            compacta.apellidos[nueva] = compacta.pool.identificador(pool.cadena(apellidos[fila]));
+            compacta.entradas[nueva] = entradas[fila];
+            compacta.salidas[nueva] = salidas[fila];
+            compacta.tipos[nueva] = tipos[fila];
+            compacta.habitaciones[nueva] = habitaciones[fila];
+            compacta.edades[nueva] = edades[fila];
+            compacta.importes[nueva] = importes[fila];
+            compacta.registros[nueva] = registros[fila];
+        }
+        return compacta;
+    }
+
+    /**
+     * Escribe la tabla en una instantánea: los textos del pool, las columnas y
+     * las filas anuladas.
+     *
+     * @param salida el flujo de la instantánea.
+     * @throws IOException si ocurre un error de escritura.
+     */
+    void escribir(DataOutputStream salida) throws IOException {
+        pool.escribir(salida);
+        salida.writeInt(numFilas);
+        InstantaneaReservas.escribirEnteros(salida, dnis, numFilas);
+        InstantaneaReservas.escribirEnteros(salida, telefonos, numFilas);
+        InstantaneaReservas.escribirEnteros(salida, nombres, numFilas);
+        InstantaneaReservas.escribirEnteros(salida, apellidos, numFilas);
+        InstantaneaReservas.escribirEnteros(salida, entradas, numFilas);
+        InstantaneaReservas.escribirEnteros(salida, salidas, numFilas);
+        InstantaneaReservas.escribirEnteros(salida, importes, numFilas);
+        InstantaneaReservas.escribirEnteros(salida, registros, numFilas);
+        salida.write(tipos, 0, numFilas);
+        salida.write(habitaciones, 0, numFilas);
+        salida.write(edades, 0, numFilas);
+        long[] marcas = anuladas.toLongArray();
+        salida.writeInt(marcas.length);
+        InstantaneaReservas.escribirLargos(salida, marcas, marcas.length);
+    }
+
+    /**
+     * Lee una tabla escrita con {@link #escribir}. Las columnas se copian de la
+     * instantánea de una vez, sin decodificar reserva por reserva.
+     *
+     * @param entrada la instantánea, en la posición de la tabla.
+     * @return la tabla leída.
+     */
+    static TablaReservas leer(ByteBuffer entrada) {
+        PoolCadenas pool = PoolCadenas.leer(entrada);
+        int numFilas = entrada.getInt();
+        TablaReservas tabla = new TablaReservas(0);
+        tabla.pool = pool;
+        tabla.dnis = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.telefonos = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.nombres = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.apellidos = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.entradas = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.salidas = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.importes = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.registros = InstantaneaReservas.leerEnteros(entrada, numFilas);
+        tabla.tipos = InstantaneaReservas.leerBytes(entrada, numFilas);
+        tabla.habitaciones = InstantaneaReservas.leerBytes(entrada, numFilas);
+        tabla.edades = InstantaneaReservas.leerBytes(entrada, numFilas);
+        tabla.anuladas = BitSet.valueOf(InstantaneaReservas.leerLargos(entrada, entrada.getInt()));
+        tabla.numFilas = numFilas;
+        tabla.numAnuladas = tabla.anuladas.cardinality();
+        // Margen para las altas siguientes
+        tabla.ampliar(Math.max(16, numFilas + (numFilas >> 3)));
+        return tabla;
+    }
+
+    /**
+     * Obtiene las filas de las reservas activas ordenadas por una columna.
+     *
+     * @param columna    la columna de ordenación, o null para el orden de alta.
+     * @param ascendente verdadero para orden ascendente, falso para descendente.
+     * @return las filas activas en el orden pedido.
+     * @see #ordenar(int[], Columna, boolean)
+     */
+    public int[] ordenarActivas(Columna columna, boolean ascendente) {
+        int[] filas = filasActivas();
+        if (columna == null) {
+            if (!ascendente) {
+                invertir(filas);
+            }
+            return filas;
+        }
+        return clavesOrden(filas, columna).ordenar(ascendente);
+    }
+
+    /**
+     * Ordena unas filas por una columna.
+     *
+     * @param filas      las filas que se ordenan; el array no se modifica.
+     * @param columna    la columna de ordenación.
+     * @param ascendente verdadero para orden ascendente, falso para descendente.
+     * @return las filas ordenadas; a igualdad de valor, por número de fila en el mismo sentido.
+     * @see ClavesOrden
+     */
+    public int[] ordenar(int[] filas, Columna columna, boolean ascendente) {
+        return clavesOrden(filas, columna).ordenar(ascendente);
+    }
+
+    /**
+     * Obtiene las filas de las reservas activas, en orden de alta.
+     *
+     * @return las filas activas.
+     */
+    public int[] filasActivas() {
+        int[] filas = new int[getNumActivas()];
+        int n = 0;
+        for (int fila = anuladas.nextClearBit(0); fila < numFilas; fila = anuladas.nextClearBit(fila + 1)) {
+            filas[n++] = fila;
+        }
+        return filas;
+    }
+
+    /**
+     * Copia los valores por los que se ordenan unas filas, para ordenarlas
+     * después sin retener la tabla. La copia es un recorrido lineal de la
+     * columna; lo costoso, ordenar y poner los textos en orden alfabético, lo
+     * hace {@link ClavesOrden#ordenar}.
+     *
+     * @param filas   las filas que se ordenan; el array no se modifica.
+     * @param columna la columna de ordenación.
+     * @return las claves de ordenación de las filas.
+     */
+    public ClavesOrden clavesOrden(int[] filas, Columna columna) {
+        int n = filas.length;
+        long[] claves = new long[n];
+        for (int i = 0; i < n; i++) {
+            claves[i] = (long) valorOrden(columna, filas[i]) << 32 | filas[i];
+        }
+        boolean texto = columna == Columna.NOMBRE || columna == Columna.APELLIDOS;
+        return new ClavesOrden(claves, texto ? pool.textos() : null);
+    }
+
+    /**
+     * Obtiene el valor de una fila por el que se ordena una columna. En las
+     * columnas de texto es el identificador del texto en el pool.
+     *
+     * @param columna la columna.
+     * @param fila    la fila.
+     * @return el valor de ordenación.
+     */
+    private int valorOrden(Columna columna, int fila) {
+        switch (columna) {
+            case NOMBRE:
+                return nombres[fila];
+            case APELLIDOS:
+                return apellidos[fila];
+            case DNI:
+                return dnis[fila];
+            case TELEFONO:
+                return telefonos[fila];
+            case ENTRADA:
+                return entradas[fila];
+            case SALIDA:
+                return salidas[fila];
+            case NOCHES:
+                return salidas[fila] - entradas[fila];
+            case TIPO:
+                return tipos[fila];
+            case HABITACIONES:
+                return habitaciones[fila];
+            case EDAD_NINOS:
+                return edades[fila];
+            default:
+                return importes[fila];
+        }
+    }
+
+    /**
+     * Invierte el orden de un array.
+     *
+     * @param filas el array.
+     */
+    private static void invertir(int[] filas) {
+        for (int i = 0, j = filas.length - 1; i < j; i++, j--) {
+            int aux = filas[i];
+            filas[i] = filas[j];
+            filas[j] = aux;
+        }
+    }
+
+    /**
+     * Estima la memoria que ocupa la tabla: las columnas reservadas, las marcas
+     * de anulación y los textos del pool.
+     *
+     * @return el número aproximado de bytes.
+     */
+    public long estimarBytes() {
+        long columnas = (long) dnis.length * (8 * Integer.BYTES + 3);
+        return columnas + anuladas.size() / 8 + pool.estimarBytes();
+    }
+
+    /**
+     * Amplía la capacidad de todas las columnas.
+     *
+     * @param capacidad la nueva capacidad.
+     */
+    private void ampliar(int capacidad) {
+        dnis = Arrays.copyOf(dnis, capacidad);
+        telefonos = Arrays.copyOf(telefonos, capacidad);
+        nombres = Arrays.copyOf(nombres, capacidad);
+        apellidos = Arrays.copyOf(apellidos, capacidad);
+        entradas = Arrays.copyOf(entradas, capacidad);
+        salidas = Arrays.copyOf(salidas, capacidad);
+        tipos = Arrays.copyOf(tipos, capacidad);
+        habitaciones = Arrays.copyOf(habitaciones, capacidad);
+        edades = Arrays.copyOf(edades, capacidad);
+        importes = Arrays.copyOf(importes, capacidad);
+        registros = Arrays.copyOf(registros, capacidad);
+    }
+
+    /**
+     * Escribe un número con un número fijo de dígitos, completando con ceros por la izquierda.
+     *
+     * @param numero   el número.
+     * @param destino  el array donde se escribe, desde la posición 0.
+     * @param longitud el número de dígitos.
+     */
+    private static void escribirDigitos(int numero, char[] destino, int longitud) {
+        for (int i = longitud - 1; i >= 0; i--) {
+            destino[i] = (char) ('0' + numero % 10);
+            numero /= 10;
+        }
+    }
+
+    /**
+     * Valores por los que se ordenan unas filas, copiados de la tabla con
+     * {@link #clavesOrden}. La ordenación no compara objetos: cada fila se
+     * empaqueta en un long con el valor de la columna en la mitad alta y el
+     * número de fila en la baja, y se ordena el array de longs. Los textos se
+     * ordenan por su posición en el orden alfabético de la copia del pool,
+     * calculada una sola vez para todos.
+     */
+    public static final class ClavesOrden {
+
+        /** Valor de la columna (o identificador del texto) y número de fila de cada fila. */
+        private final long[] claves;
+
+        /** Copia de los textos del pool, o null si la columna no es de texto. */
+        private final String[] textos;
+
+        /**
+         * Crea las claves de ordenación.
+         *
+         * @param claves las claves empaquetadas.
+         * @param textos la copia de los textos del pool, o null.
+         */
+        private ClavesOrden(long[] claves, String[] textos) {
+            this.claves = claves;
+            this.textos = textos;
+        }
+
+        /**
+         * Ordena las filas. Solo se puede llamar una vez, porque ordena las
+         * claves sin copiarlas.
+         *
+         * @param ascendente verdadero para orden ascendente, falso para descendente.
+         * @return las filas ordenadas; a igualdad de valor, por número de fila en el mismo sentido.
+         */
+        public int[] ordenar(boolean ascendente) {
+            int n = claves.length;
+            if (textos != null) {
+                int[] rangos = PoolCadenas.rangos(textos, Collator.getInstance(new Locale("es", "ES")));
+                for (int i = 0; i < n; i++) {
+                    claves[i] = (long) rangos[(int) (claves[i] >>> 32)] << 32 | (claves[i] & 0xFFFF_FFFFL);
+                }
+            }
+            Arrays.sort(claves);
+            int[] ordenadas = new int[n];
+            for (int i = 0; i < n; i++) {
+                ordenadas[ascendente ? i : n - 1 - i] = (int) claves[i];
+            }
+            return ordenadas;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Tabla de tarifas del hotel, con todos los importes en céntimos de euro para
+ * evitar errores de redondeo. Es inmutable, de modo que puede compartirse
+ * entre hilos sin sincronización.
+ */
+public final class TablaTarifas {
+
+    /** Tarifas estándar: 50 € la simple, 75 € la doble, 125 € la suite y 20 € por niños. */
+    public static final TablaTarifas ESTANDAR = new TablaTarifas(new int[] { 5000, 7500, 12500 }, 2000);
+
+    /** Edad máxima de los niños con suplemento. */
+    public static final int EDAD_MAXIMA_NINOS = 14;
+
+    /** Precio por habitación y noche de cada tipo, indexado por código de tipo. */
+    private final int[] precioNoche;
+
+    /** Suplemento por habitación y noche cuando la reserva incluye niños. */
+    private final int suplementoNinos;
+
+    /**
+     * Crea una tabla de tarifas.
+     *
+     * @param precioNoche     el precio por habitación y noche de cada tipo, en céntimos,
+     *                        en el orden de {@link TipoHabitacion}.
+     * @param suplementoNinos el suplemento por habitación y noche con niños, en céntimos.
+     */
+    public TablaTarifas(int[] precioNoche, int suplementoNinos) {
+        if (precioNoche.length != TipoHabitacion.numTipos()) {
+            throw new IllegalArgumentException("Debe haber un precio por cada tipo de habitación");
+        }
+        this.precioNoche = precioNoche.clone();
+        this.suplementoNinos = suplementoNinos;
+    }
+
+    /**
+     * Obtiene el precio por habitación y noche de un tipo.
+     *
+     * @param codigoTipo el código del tipo de habitación.
+     * @return el precio en céntimos.
+     */
+    public int getPrecioNoche(int codigoTipo) {
+        return precioNoche[codigoTipo];
+    }
+
+    /**
+     * Obtiene el suplemento por habitación y noche cuando la reserva incluye niños.
+     *
+     * @return el suplemento en céntimos.
+     */
+    public int getSuplementoNinos() {
+        return suplementoNinos;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Tipos de habitación que ofrece el hotel. El orden de las constantes es el
+ * código con el que se guardan en el almacén de reservas y la posición que
+ * ocupan en las tablas de tarifas y de ocupación, por lo que no debe cambiarse.
+ */
+public enum TipoHabitacion {
+
+    /** Habitación simple. */
+    SIMPLE("Simple"),
+
+    /** Habitación doble. */
+    DOBLE("Doble"),
+
+    /** Suite. */
+    SUITE("Suite");
+
+    /** Todos los tipos, en orden de código, sin copiar el array en cada consulta. */
+    private static final TipoHabitacion[] TIPOS = values();
+
+    /** Nombre del tipo tal y como se muestra al usuario. */
+    private final String etiqueta;
+
+    /**
+     * Constructor del tipo de habitación.
+     *
+     * @param etiqueta el nombre que se muestra al usuario.
+     */
+    TipoHabitacion(String etiqueta) {
+        this.etiqueta = etiqueta;
+    }
+
+    /** @return el nombre del tipo tal y como se muestra al usuario. */
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    /** @return el código del tipo en el almacén y en las tablas. */
+    public int getCodigo() {
+        return ordinal();
+    }
+
+    /**
+     * Obtiene el tipo de habitación correspondiente a un código.
+     *
+     * @param codigo el código del tipo.
+     * @return el tipo de habitación.
+     */
+    public static TipoHabitacion desdeCodigo(int codigo) {
+        return TIPOS[codigo];
+    }
+
+    /**
+     * Obtiene el tipo de habitación correspondiente a una etiqueta, sin
+     * distinguir mayúsculas de minúsculas.
+     *
+     * @param etiqueta el nombre del tipo, por ejemplo "Doble".
+     * @return el tipo de habitación.
+     * @throws IllegalArgumentException si la etiqueta no corresponde a ningún tipo.
+     */
+    public static TipoHabitacion desdeEtiqueta(String etiqueta) {
+        for (TipoHabitacion tipo : TIPOS) {
+            if (tipo.etiqueta.equalsIgnoreCase(etiqueta)) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de habitación desconocido: " + etiqueta);
+    }
+
+    /** @return el número de tipos de habitación. */
+    public static int numTipos() {
+        return TIPOS.length;
+    }
+
+    @Override
+    public String toString() {
+        return etiqueta;
+    }
+}
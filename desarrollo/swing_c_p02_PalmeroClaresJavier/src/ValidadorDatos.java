@@ -0,0 +1,214 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Validadores de los datos de los clientes, independientes de Swing.
+ * Recorren el texto carácter a carácter con una tabla de clasificación, sin
+ * expresiones regulares ni objetos intermedios, de modo que validar un dato no
+ * reserva memoria. Incluye además un método para validar grandes lotes de
+ * registros en paralelo con el marco fork/join.
+ */
+public final class ValidadorDatos {
+
+    /** Resultado de la validación de un DNI. */
+    public enum ResultadoDNI {
+        /** El DNI tiene 8 dígitos y la letra de control correcta. */
+        VALIDO,
+        /** El DNI tiene 8 dígitos y una letra, pero la letra no es la que corresponde. */
+        LETRA_INCORRECTA,
+        /** El DNI no tiene el formato de 8 dígitos seguidos de una letra. */
+        FORMATO_INCORRECTO
+    }
+
+    /** Letras de control del DNI, indexadas por el resto de dividir el número entre 23. */
+    private static final char[] LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE".toCharArray();
+
+    // Clases de carácter de la tabla de clasificación
+    private static final byte OTRO = 0;
+    private static final byte DIGITO = 1;
+    private static final byte LETRA = 2;
+
+    /** Clase de cada carácter ASCII. */
+    private static final byte[] CLASES = new byte[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            CLASES[c] = DIGITO;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASES[c] = LETRA;
+            CLASES[Character.toLowerCase(c)] = LETRA;
+        }
+    }
+
+    /** Número de registros por debajo del cual un lote se valida sin dividirlo. */
+    private static final int UMBRAL_LOTE = 8192;
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private ValidadorDatos() {
+    }
+
+    /**
+     * Comprueba un DNI e indica el motivo por el que no es válido.
+     *
+     * @param dni el DNI a comprobar.
+     * @return el resultado de la comprobación.
+     */
+    public static ResultadoDNI comprobarDNI(CharSequence dni) {
+        int numero = numeroDNI(dni);
+        if (numero < 0 || clase(dni.charAt(8)) != LETRA) {
+            return ResultadoDNI.FORMATO_INCORRECTO;
+        }
+        char letra = (char) (dni.charAt(8) & ~0x20); // Pasa la letra ASCII a mayúscula
+        return letra == LETRAS_DNI[numero % 23] ? ResultadoDNI.VALIDO : ResultadoDNI.LETRA_INCORRECTA;
+    }
+
+    /**
+     * Comprueba si un DNI tiene 8 dígitos y la letra de control correcta.
+     *
+     * @param dni el DNI a comprobar.
+     * @return verdadero si el DNI es válido.
+     */
+    public static boolean esDNIValido(CharSequence dni) {
+        return comprobarDNI(dni) == ResultadoDNI.VALIDO;
+    }
+
+    /**
+     * Obtiene la parte numérica de un DNI con el formato de 8 dígitos y una letra.
+     * No comprueba la letra de control.
+     *
+     * @param dni el DNI.
+     * @return el número del DNI, o -1 si el formato no es correcto.
+     */
+    public static int numeroDNI(CharSequence dni) {
+        if (dni == null || dni.length() != 9) {
+            return -1;
+        }
+        return leerDigitos(dni, 8);
+    }
+
+    /**
+     * Obtiene la letra de control que corresponde al número de un DNI.
+     *
+     * @param numero el número del DNI.
+     * @return la letra de control en mayúscula.
+     */
+    public static char letraDNI(int numero) {
+        return LETRAS_DNI[numero % 23];
+    }
+
+    /**
+     * Comprueba si un teléfono tiene exactamente 9 dígitos.
+     *
+     * @param telefono el teléfono a comprobar.
+     * @return verdadero si el teléfono es válido.
+     */
+    public static boolean esTelefonoValido(CharSequence telefono) {
+        return numeroTelefono(telefono) >= 0;
+    }
+
+    /**
+     * Obtiene el valor numérico de un teléfono de 9 dígitos, que cabe en un int.
+     *
+     * @param telefono el teléfono.
+     * @return el número de teléfono, o -1 si no tiene exactamente 9 dígitos.
+     */
+    public static int numeroTelefono(CharSequence telefono) {
+        if (telefono == null || telefono.length() != 9) {
+            return -1;
+        }
+        return leerDigitos(telefono, 9);
+    }
+
+    /**
+     * Valida en paralelo un lote de registros de clientes. Un registro es válido
+     * si su DNI es válido y, cuando se indican teléfonos, si su teléfono también
+     * lo es.
+     *
+     * @param dnis       los DNI de los registros.
+     * @param telefonos  los teléfonos de los registros, o null para validar solo los DNI.
+     * @param resultados el array donde se escribe si cada registro es válido.
+     * @return el número de registros válidos.
+     */
+    public static int validarLote(String[] dnis, String[] telefonos, boolean[] resultados) {
+        if (telefonos != null && telefonos.length != dnis.length || resultados.length < dnis.length) {
+            throw new IllegalArgumentException("Los arrays del lote no tienen el mismo tamaño");
+        }
+        return ForkJoinPool.commonPool().invoke(new TareaLote(dnis, telefonos, resultados, 0, dnis.length));
+    }
+
+    /**
+     * Lee un número formado por los primeros dígitos de un texto.
+     *
+     * @param texto    el texto.
+     * @param longitud el número de dígitos a leer.
+     * @return el número leído, o -1 si alguno de los caracteres no es un dígito.
+     */
+    private static int leerDigitos(CharSequence texto, int longitud) {
+        int numero = 0;
+        for (int i = 0; i < longitud; i++) {
+            char c = texto.charAt(i);
+            if (clase(c) != DIGITO) {
+                return -1;
+            }
+            numero = numero * 10 + (c - '0');
+        }
+        return numero;
+    }
+
+    /**
+     * Obtiene la clase de un carácter en la tabla de clasificación.
+     *
+     * @param c el carácter.
+     * @return su clase ({@link #DIGITO}, {@link #LETRA} u {@link #OTRO}).
+     */
+    private static byte clase(char c) {
+        return c < CLASES.length ? CLASES[c] : OTRO;
+    }
+
+    /**
+     * Tarea fork/join que valida un rango de un lote, dividiéndolo en mitades
+     * mientras sea mayor que {@link #UMBRAL_LOTE}.
+     */
+    private static final class TareaLote extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] dnis;
+        private final String[] telefonos;
+        private final boolean[] resultados;
+        private final int desde;
+        private final int hasta;
+
+        TareaLote(String[] dnis, String[] telefonos, boolean[] resultados, int desde, int hasta) {
+            this.dnis = dnis;
+            this.telefonos = telefonos;
+            this.resultados = resultados;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (hasta - desde <= UMBRAL_LOTE) {
+                int validos = 0;
+                for (int i = desde; i < hasta; i++) {
+                    boolean valido = dnis[i] != null && esDNIValido(dnis[i])
+                            && (telefonos == null || esTelefonoValido(telefonos[i]));
+                    resultados[i] = valido;
+                    if (valido) {
+                        validos++;
+                    }
+                }
+                return validos;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            TareaLote izquierda = new TareaLote(dnis, telefonos, resultados, desde, mitad);
+            izquierda.fork();
+            int derecha = new TareaLote(dnis, telefonos, resultados, mitad, hasta).compute();
+            return derecha + izquierda.join();
+        }
+    }
+}
@@ -1,4 +1,9 @@
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.swing.*;
 
@@ -7,8 +12,30 @@ import javax.swing.*;
  * que permite gestionar reservas de un hotel. Incorpora diferentes
  * paneles para capturar datos del cliente, habitación, imágenes y
  * detalles adicionales.
+ *
+ * <p>La ventana principal crea un solo diálogo al arrancar y lo reutiliza en
+ * cada alta: al cerrarlo solo se oculta, y al volver a abrirlo se restauran los
+ * valores por defecto del formulario.</p>
  */
 public class VentanaDialogo extends JDialog {
+
+    /**
+     * Tiempo máximo, en milisegundos, que debería tardar el diálogo en mostrarse
+     * tras el clic. Es solo informativo: pasarlo se avisa por la salida de error,
+     * pero ninguna prueba falla por ello, porque el banco de pruebas se ejecuta
+     * sin pantalla y no puede abrir el diálogo.
+     */
+    public static final long PRESUPUESTO_APERTURA_MS = 50;
+
+    /** Imágenes que usa el diálogo, para decodificarlas antes de construirlo. */
+    static final String[] IMAGENES = { "/recursos/anagrama.png", "/recursos/imprimir.png", "/recursos/nuevo.png",
+            "/recursos/guardar.png", "/recursos/simple.png", "/recursos/doble.png", "/recursos/suite.png" };
+
+    /** Instante del clic que abrió el diálogo, en milisegundos desde 1970. */
+    private long instanteClic;
+
+    /** Tiempo que tardó el diálogo en mostrarse la última vez, en milisegundos, o -1. */
+    private long ultimoTiempoApertura = -1;
     
     /** Panel que contiene los datos del cliente. */
     private PanelDatosCliente panelCliente;
@@ -22,6 +49,12 @@ public class VentanaDialogo extends JDialog {
     /** Panel que recopila detalles adicionales de la reserva. */
     private PanelRecogerDatos panelDetalles;
 
+    /** Cliente del servidor de reservas compartido, o null si las reservas se guardan en local. */
+    private final ClienteReservas servidor = ClienteReservas.configurado();
+
+    /** Botón de guardar, desactivado mientras se espera a que una reserva quede escrita en disco. */
+    private JButton btnGuardar;
+
     /**
      * Constructor de la clase VentanaDialogo.
      * Inicializa y configura los elementos gráficos de la ventana.
@@ -30,14 +63,17 @@ public class VentanaDialogo extends JDialog {
      */
     public VentanaDialogo(JFrame owner) {
         super(owner, "Alta Reservas", true);
-        setIconImage(Toolkit.getDefaultToolkit().getImage(getClass().getResource("/recursos/anagrama.png")));
+        EventosHotel.ConstruccionDialogo evento = new EventosHotel.ConstruccionDialogo();
+        evento.begin();
+        evento.imagenesPrecargadas = evento.isEnabled() && imagenesPrecargadas();
+        setIconImage(CacheImagenes.getInstancia().obtenerOriginal("/recursos/anagrama.png"));
         
         // Configuración de la ventana
         Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
         setSize(screenSize);
         setResizable(false);
         setLocation(0, 0);
-        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setDefaultCloseOperation(HIDE_ON_CLOSE);
         setLayout(new BorderLayout());
 
         // Panel superior (Título)
@@ -46,7 +82,7 @@ public class VentanaDialogo extends JDialog {
         // Inicialización de paneles
         panelCliente = new PanelDatosCliente();
         panelImagenes = new PanelImagenes();
-        panelHabitacion = new PanelDatosHabitacion(panelCliente, panelImagenes);
+        panelHabitacion = new PanelDatosHabitacion(panelCliente, panelImagenes, servidor);
         panelDetalles = new PanelRecogerDatos();
 
         // Panel central con diseño en cuadrícula
@@ -60,6 +96,93 @@ public class VentanaDialogo extends JDialog {
 
         // Panel inferior (Botones)
         add(crearPanelBotones(), BorderLayout.SOUTH);
+
+        // Medición del tiempo desde el clic hasta que el diálogo se muestra
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                registrarApertura();
+            }
+        });
+        evento.commit();
+    }
+
+    /**
+     * Decodifica las imágenes del diálogo en la caché compartida. Se llama desde
+     * un hilo de fondo antes de construir el diálogo, para que su construcción en
+     * el hilo de eventos no tenga que leer ningún archivo.
+     */
+    static void precargarImagenes() {
+        for (String ruta : IMAGENES) {
+            CacheImagenes.getInstancia().obtenerOriginal(ruta);
+        }
+    }
+
+    /**
+     * Comprueba si las imágenes del diálogo ya están decodificadas en la caché.
+     *
+     * @return verdadero si lo están todas.
+     */
+    private static boolean imagenesPrecargadas() {
+        for (String ruta : IMAGENES) {
+            if (CacheImagenes.getInstancia().consultarOriginal(ruta) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prepara el diálogo para que la primera apertura sea tan rápida como las
+     * siguientes: crea los recursos nativos de la ventana y calcula la
+     * disposición de los paneles, lo que también lanza el escalado de las fotos
+     * de las habitaciones a su tamaño definitivo.
+     */
+    public void precalentar() {
+        Dimension tamano = getSize();
+        pack();
+        setSize(tamano);
+        validate();
+    }
+
+    /**
+     * Restaura el formulario y muestra el diálogo. Como el diálogo es modal,
+     * el método no vuelve hasta que se cierra.
+     *
+     * @param instanteClic el instante del clic que abre el diálogo, en
+     *                     milisegundos desde 1970 (por ejemplo, {@code ActionEvent.getWhen()}).
+     */
+    public void mostrar(long instanteClic) {
+        resetearFormulario();
+        this.instanteClic = instanteClic;
+        setVisible(true);
+    }
+
+    /**
+     * Obtiene lo que tardó el diálogo en mostrarse la última vez que se abrió.
+     *
+     * @return el tiempo en milisegundos, o -1 si todavía no se ha abierto.
+     */
+    public long getUltimoTiempoApertura() {
+        return ultimoTiempoApertura;
+    }
+
+    /**
+     * Calcula el tiempo desde el clic hasta que el diálogo se ha mostrado y avisa
+     * por la salida de error si supera el presupuesto. El aviso no interrumpe
+     * nada; para medir aperturas lentas de forma sistemática está el
+     * {@link VigilanteEDT}.
+     */
+    private void registrarApertura() {
+        if (instanteClic <= 0) {
+            return;
+        }
+        ultimoTiempoApertura = System.currentTimeMillis() - instanteClic;
+        instanteClic = 0;
+        if (ultimoTiempoApertura > PRESUPUESTO_APERTURA_MS) {
+            System.err.printf("Alta Reservas ha tardado %d ms en abrirse (presupuesto: %d ms)%n",
+                    ultimoTiempoApertura, PRESUPUESTO_APERTURA_MS);
+        }
     }
 
     /**
@@ -75,7 +198,7 @@ public class VentanaDialogo extends JDialog {
         // Creación de botones con iconos
         JButton btnImprimir = crearBotonConIcono("Imprimir a Documento", "imprimir.png");
         JButton btnNuevo = crearBotonConIcono("Nuevo", "nuevo.png");
-        JButton btnGuardar = crearBotonConIcono("Guardar", "guardar.png");
+        btnGuardar = crearBotonConIcono("Guardar", "guardar.png");
 
         // Añadir acciones a los botones
         btnImprimir.addActionListener(e -> imprimirDocumento());
@@ -100,10 +223,11 @@ public class VentanaDialogo extends JDialog {
     private JButton crearBotonConIcono(String texto, String nombreImagen) {
         JButton boton = new JButton(texto);
         Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        ImageIcon iconoOriginal = new ImageIcon(getClass().getResource("/recursos/" + nombreImagen));
-        Image imagenEscalada = iconoOriginal.getImage().getScaledInstance(
-            screenSize.width / 70, screenSize.height / 40, Image.SCALE_SMOOTH);
-        boton.setIcon(new ImageIcon(imagenEscalada));
+        Image imagenEscalada = CacheImagenes.getInstancia().obtenerEscalada(
+            "/recursos/" + nombreImagen, screenSize.width / 70, screenSize.height / 40);
+        if (imagenEscalada != null) {
+            boton.setIcon(new ImageIcon(imagenEscalada));
+        }
         boton.setHorizontalTextPosition(SwingConstants.RIGHT);
         boton.setPreferredSize(new Dimension(200, 50));
         boton.setFont(new Font("SansSerif", Font.PLAIN, 14));
@@ -111,7 +235,8 @@ public class VentanaDialogo extends JDialog {
     }
 
     /**
-     * Muestra los datos del cliente y la habitación en el panel de detalles.
+     * Muestra los datos del cliente y la habitación en el panel de detalles y
+     * ofrece exportar la reserva a un documento CSV, JSON o HTML imprimible.
      * Realiza una validación previa de los datos del cliente.
      */
     private void imprimirDocumento() {
@@ -120,6 +245,22 @@ public class VentanaDialogo extends JDialog {
             String habitacionInfo = panelHabitacion.obtenerDatos();
             panelDetalles.mostrarDatosCliente(clienteInfo);
             panelDetalles.mostrarDatosHabitacion(habitacionInfo);
+
+            Reserva reserva = crearReserva();
+            AsistenteExportacion.exportar(this, "reserva-" + reserva.getDNI(),
+                    "Reserva de " + reserva.getNombre() + " " + reserva.getApellidos(),
+                    exportador -> {
+                        EventosHotel.ImprimirDocumento evento = new EventosHotel.ImprimirDocumento();
+                        evento.begin();
+                        exportador.escribir(reserva);
+                        if (evento.shouldCommit()) {
+                            evento.tipoHabitacion = reserva.getTipoHabitacion().getEtiqueta();
+                            evento.numHabitaciones = reserva.getNumHabitaciones();
+                            evento.noches = reserva.getNoches();
+                            evento.formato = exportador.getFormato().name();
+                            evento.commit();
+                        }
+                    });
         }
     }
 
@@ -134,14 +275,117 @@ public class VentanaDialogo extends JDialog {
 
     /**
      * Guarda los datos de la reserva después de validar los datos del cliente.
-     * Muestra un mensaje de éxito al usuario si todo es correcto.
+     * La reserva se guarda en el almacén local de reservas, o en el servidor de
+     * reservas si se ha configurado uno ({@link ClienteReservas#PROPIEDAD}), si
+     * quedan habitaciones libres para toda la estancia, y se muestra un mensaje
+     * de éxito al usuario cuando la reserva está escrita en disco.
      */
     private void guardarRegistro() {
         if (panelCliente.validarDatosCliente()) {
-            JOptionPane.showMessageDialog(this, "Registro Guardado", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+            if (panelHabitacion.getNumHabitaciones() < 1) {
+                mostrarMensaje("Hay que reservar al menos una habitación");
+                return;
+            }
+            // Con un servidor compartido, la disponibilidad local no está al día: decide el servidor
+            if (servidor == null && !panelHabitacion.hayDisponibilidad()) {
+                mostrarMensaje("No quedan habitaciones libres de ese tipo para las fechas elegidas");
+                return;
+            }
+            Reserva reserva = crearReserva();
+            EventosHotel.GuardarReserva evento = new EventosHotel.GuardarReserva();
+            evento.begin();
+            CompletableFuture<Long> guardada;
+            try {
+                guardada = servidor != null ? servidor.guardarAsincrono(reserva) : guardarLocal(reserva);
+            } catch (RuntimeException e) {
+                terminarGuardado(evento, reserva, null, e);
+                return;
+            }
+            // El diario o el servidor escriben la reserva en disco junto con otras; la ventana no se bloquea mientras
+            btnGuardar.setEnabled(false);
+            guardada.whenComplete((registro, error) -> SwingUtilities.invokeLater(() -> {
+                btnGuardar.setEnabled(true);
+                terminarGuardado(evento, reserva, registro, error);
+            }));
+        }
+    }
+
+    /**
+     * Guarda una reserva en el almacén local fuera del hilo de eventos, porque
+     * abrir el almacén o esperar a que termine una carga, una importación o una
+     * compactación que retiene el servicio puede tardar.
+     *
+     * @param reserva la reserva.
+     * @return un futuro que se completa con el índice del registro cuando está
+     *         escrito en disco, o con -1 si no quedan habitaciones suficientes.
+     */
+    private static CompletableFuture<Long> guardarLocal(Reserva reserva) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return ServicioReservas.getCompartido();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }).thenCompose(servicio -> servicio.guardarConfirmado(reserva));
+    }
+
+    /**
+     * Informa al usuario del resultado del guardado de una reserva.
+     *
+     * @param evento   el evento de guardado.
+     * @param reserva  la reserva.
+     * @param registro el índice del registro guardado, -1 si no quedaban habitaciones, o null si ha fallado.
+     * @param error    el error del guardado, o null si no ha fallado.
+     */
+    private void terminarGuardado(EventosHotel.GuardarReserva evento, Reserva reserva, Long registro,
+            Throwable error) {
+        if (error != null) {
+            registrarGuardado(evento, reserva, "Error");
+            error.printStackTrace();
+            JOptionPane.showMessageDialog(this, "No se ha podido guardar el registro", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        registrarGuardado(evento, reserva, registro < 0 ? "Sin disponibilidad" : "Guardada");
+        if (registro < 0) {
+            mostrarMensaje("No quedan habitaciones libres de ese tipo para las fechas elegidas");
+            return;
+        }
+        panelHabitacion.actualizarDisponibilidad();
+        JOptionPane.showMessageDialog(this, "Registro Guardado", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Termina el evento de guardado de una reserva, sin incluir los mensajes que
+     * se muestran después al usuario.
+     *
+     * @param evento    el evento.
+     * @param reserva   la reserva.
+     * @param resultado el resultado del guardado.
+     */
+    private static void registrarGuardado(EventosHotel.GuardarReserva evento, Reserva reserva, String resultado) {
+        if (evento.shouldCommit()) {
+            evento.tipoHabitacion = reserva.getTipoHabitacion().getEtiqueta();
+            evento.numHabitaciones = reserva.getNumHabitaciones();
+            evento.noches = reserva.getNoches();
+            evento.importeCentimos = reserva.getImporteCentimos();
+            evento.resultado = resultado;
+            evento.commit();
         }
     }
 
+    /**
+     * Crea una reserva con los datos introducidos en los paneles de cliente y habitación.
+     *
+     * @return la reserva con los datos del formulario.
+     */
+    private Reserva crearReserva() {
+        return new Reserva(panelCliente.getNombre(), panelCliente.getApellidos(), panelCliente.getDNI(),
+                panelCliente.getTelefono(), panelCliente.getDiaEntrada(), panelCliente.getDiaSalida(),
+                panelHabitacion.getTipoHabitacion(), panelHabitacion.getNumHabitaciones(),
+                panelHabitacion.getEdadNinos(), Math.toIntExact(panelHabitacion.getImporteCentimos()));
+    }
+
     /**
      * Muestra un mensaje de advertencia en un cuadro de diálogo.
      *
@@ -0,0 +1,167 @@
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.text.NumberFormat;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableColumn;
+
+/**
+ * Ventana con el listado de todas las reservas activas en una tabla. La tabla
+ * usa un {@link ModeloTablaReservas}, que solo carga las filas visibles, así
+ * que se desplaza con fluidez aunque haya millones de reservas. Al pulsar en la
+ * cabecera de una columna se ordena por ella, y al pulsar otra vez se invierte
+ * el orden. La ordenación se hace sobre un índice en el servicio de reservas,
+ * sin cargar las filas. El campo de búsqueda filtra las reservas por el principio
+ * del nombre o los apellidos a medida que se escribe, en cuanto se deja de
+ * teclear durante {@value #RETARDO_BUSQUEDA_MS} ms.
+ */
+public class VentanaListadoReservas extends JDialog {
+
+    /** Anchos preferidos de las columnas, en el orden del modelo. */
+    private static final int[] ANCHOS = { 110, 170, 90, 90, 85, 85, 60, 60, 90, 75, 90 };
+
+    /** Tiempo de espera sin nuevas pulsaciones antes de buscar, en milisegundos. */
+    private static final int RETARDO_BUSQUEDA_MS = 150;
+
+    /** Modelo de la tabla. */
+    private final ModeloTablaReservas modelo;
+
+    /** Tabla con las reservas. */
+    private final JTable tabla;
+
+    /** Campo para buscar por nombre y apellidos. */
+    private final JTextField tfBuscar = new JTextField(30);
+
+    /** Etiqueta con el número de reservas listadas. */
+    private final JLabel lbEstado = new JLabel("Cargando reservas...");
+
+    /** Temporizador que agrupa los cambios del campo de búsqueda en una sola búsqueda. */
+    private final Timer temporizadorBusqueda = new Timer(RETARDO_BUSQUEDA_MS, e -> buscar());
+
+    /**
+     * Constructor de la ventana del listado.
+     *
+     * @param owner    la ventana principal.
+     * @param servicio el servicio de reservas.
+     */
+    public VentanaListadoReservas(JFrame owner, ServicioReservas servicio) {
+        super(owner, "Listado de Reservas", false);
+        setIconImage(CacheImagenes.getInstancia().obtenerOriginal("/recursos/anagrama.png"));
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout(5, 5));
+
+        // Tabla sobre el modelo paginado, sin ordenación propia de Swing: un
+        // RowSorter pediría todas las filas al modelo para compararlas
+        modelo = new ModeloTablaReservas(servicio);
+        tabla = new JTable(modelo);
+        tabla.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        tabla.setFillsViewportHeight(true);
+        tabla.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        tabla.getTableHeader().setReorderingAllowed(false);
+        for (int i = 0; i < ANCHOS.length; i++) {
+            tabla.getColumnModel().getColumn(i).setPreferredWidth(ANCHOS[i]);
+        }
+
+        // Ordenación al pulsar en la cabecera
+        tabla.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                JTableHeader cabecera = (JTableHeader) e.getSource();
+                int columna = cabecera.columnAtPoint(e.getPoint());
+                if (columna >= 0) {
+                    lbEstado.setText("Ordenando...");
+                    modelo.ordenar(tabla.convertColumnIndexToModel(columna), VentanaListadoReservas.this::ordenAplicado);
+                }
+            }
+        });
+        add(new JScrollPane(tabla), BorderLayout.CENTER);
+
+        // Campo de búsqueda: cada cambio del texto reinicia el temporizador, y la
+        // búsqueda se lanza cuando se deja de escribir
+        temporizadorBusqueda.setRepeats(false);
+        JPanel panelBusqueda = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        panelBusqueda.add(new JLabel("Buscar por nombre o apellidos:"));
+        panelBusqueda.add(tfBuscar);
+        tfBuscar.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                temporizadorBusqueda.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                temporizadorBusqueda.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                temporizadorBusqueda.restart();
+            }
+        });
+        add(panelBusqueda, BorderLayout.NORTH);
+
+        // Panel inferior con el estado y el botón de actualizar
+        JPanel panelInferior = new JPanel(new BorderLayout());
+        panelInferior.setBorder(BorderFactory.createEmptyBorder(0, 10, 5, 10));
+        panelInferior.add(lbEstado, BorderLayout.WEST);
+        JButton btnActualizar = new JButton("Actualizar");
+        btnActualizar.addActionListener(e -> {
+            lbEstado.setText("Cargando reservas...");
+            modelo.recargar(this::ordenAplicado);
+        });
+        panelInferior.add(btnActualizar, BorderLayout.EAST);
+        add(panelInferior, BorderLayout.SOUTH);
+
+        // Al cerrar la ventana se detiene el hilo de carga del modelo
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                temporizadorBusqueda.stop();
+                modelo.cerrar();
+            }
+        });
+
+        setSize(1000, 600);
+        setLocationRelativeTo(owner);
+        modelo.recargar(this::ordenAplicado);
+    }
+
+    /**
+     * Busca el texto del campo de búsqueda y muestra los resultados en la tabla.
+     */
+    private void buscar() {
+        modelo.buscar(tfBuscar.getText(), this::ordenAplicado);
+    }
+
+    /**
+     * Actualiza la cabecera y el estado cuando el modelo tiene un índice nuevo:
+     * marca con una flecha la columna de ordenación y muestra el número de reservas.
+     */
+    private void ordenAplicado() {
+        int columnaOrden = modelo.getColumnaOrden();
+        for (int i = 0; i < tabla.getColumnCount(); i++) {
+            TableColumn columna = tabla.getColumnModel().getColumn(i);
+            int enModelo = columna.getModelIndex();
+            String titulo = modelo.getColumnName(enModelo);
+            if (enModelo == columnaOrden) {
+                titulo += modelo.isAscendente() ? " ▲" : " ▼";
+            }
+            columna.setHeaderValue(titulo);
+        }
+        tabla.getTableHeader().repaint();
+        String numero = NumberFormat.getIntegerInstance().format(modelo.getRowCount());
+        if (!modelo.hayBusqueda()) {
+            lbEstado.setText(numero + " reservas activas");
+        } else if (!modelo.hayMasResultados()) {
+            lbEstado.setText(numero + " reservas encontradas");
+        } else {
+            lbEstado.setText("Se muestran las " + numero + " reservas más parecidas; hay más resultados");
+        }
+    }
+}
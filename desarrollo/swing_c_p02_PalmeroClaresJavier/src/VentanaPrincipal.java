@@ -1,9 +1,13 @@
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 /**
  * Clase que representa la ventana principal de la aplicación de gestión hotelera.
@@ -16,16 +20,113 @@ public class VentanaPrincipal extends JFrame {
     /** Dimensiones iniciales de la ventana. */
     private Dimension tamanoInicial;
 
+    /** Diálogo de alta de reservas, creado una sola vez y reutilizado, o null si aún no existe. */
+    private VentanaDialogo dialogoAlta;
+
+    /** Ventana del listado de reservas, o null si no está abierta. */
+    private VentanaListadoReservas listado;
+
+    /** Cliente del servidor de reservas compartido, o null si las reservas están en el almacén local. */
+    private final ClienteReservas servidor = ClienteReservas.configurado();
+
     /**
      * Constructor que inicializa la ventana principal.
      */
     public VentanaPrincipal() {
         setTitle("Gestión Hotel Continental");
-        setIconImage(escalarImagen("/recursos/anagrama.png", 64, 64).getImage());
+        ponerIconos();
         configurarVentana();
         inicializarComponentes();
         configurarMenu();
         setVisible(true);
+        prepararReservasEnSegundoPlano();
+        prepararDialogoAlta();
+    }
+
+    /**
+     * Pone como iconos de la ventana todos los niveles de la pirámide del
+     * anagrama, para que el sistema elija el tamaño. Los niveles se leen en un
+     * hilo de fondo, y hasta entonces la ventana tiene el icono por defecto.
+     */
+    private void ponerIconos() {
+        new SwingWorker<List<Image>, Void>() {
+            @Override
+            protected List<Image> doInBackground() {
+                return PiramideImagenes.getInstancia().obtenerNiveles("/recursos/anagrama.png");
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<Image> iconos = get();
+                    if (!iconos.isEmpty()) {
+                        setIconImages(iconos);
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Prepara el diálogo de alta después de mostrar la ventana principal: sus
+     * imágenes se decodifican en un hilo de fondo y el diálogo se construye
+     * después en el hilo de eventos, de modo que el primer clic no tenga que
+     * esperar a ninguna de las dos cosas.
+     */
+    private void prepararDialogoAlta() {
+        Thread hilo = new Thread(() -> {
+            VentanaDialogo.precargarImagenes();
+            SwingUtilities.invokeLater(this::obtenerDialogoAlta);
+        }, "prepara-alta");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Obtiene el diálogo de alta, construyéndolo y precalentándolo si todavía no existe.
+     *
+     * @return el diálogo de alta.
+     */
+    private VentanaDialogo obtenerDialogoAlta() {
+        if (dialogoAlta == null) {
+            dialogoAlta = new VentanaDialogo(this);
+            dialogoAlta.precalentar();
+        }
+        return dialogoAlta;
+    }
+
+    /**
+     * Abre el diálogo de alta de reservas, reutilizando el que ya existe.
+     *
+     * @param e el evento del botón o del menú, cuyo instante sirve para medir la apertura.
+     */
+    private void abrirAltaReservas(ActionEvent e) {
+        obtenerDialogoAlta().mostrar(e.getWhen());
+    }
+
+    /**
+     * Abre el almacén de reservas, reconstruye el índice por DNI y lee el
+     * diccionario de titulares en un hilo de fondo, para que la primera baja y
+     * la primera alta no tengan que esperar a nada de ello. Con un servidor de
+     * reservas no se usa el almacén local y no hay nada que preparar.
+     */
+    private void prepararReservasEnSegundoPlano() {
+        if (servidor != null) {
+            return;
+        }
+        Thread hilo = new Thread(() -> {
+            try {
+                ServicioReservas servicio = ServicioReservas.getCompartido();
+                servicio.prepararIndice();
+                servicio.prepararAltas();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, "carga-reservas");
+        hilo.setDaemon(true);
+        hilo.start();
     }
 
     /**
@@ -55,12 +156,18 @@ public class VentanaPrincipal extends JFrame {
         actualizarImagenHotel((int) (tamanoInicial.width * 3.5), tamanoInicial.height * 2 / 3);
         add(imagenHotel, BorderLayout.CENTER);
 
+        // Resumen de ocupación e ingresos, que se refresca solo. Sale de los contadores
+        // del almacén local, que con un servidor compartido no están al día
+        if (servidor == null) {
+            add(new PanelResumen(), BorderLayout.EAST);
+        }
+
         JPanel panelBotones = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 10));
         panelBotones.setOpaque(false);
 
         // Botones para la gestión de reservas
-        panelBotones.add(crearBoton("Alta Reservas", "/recursos/nuevo.png", e -> new VentanaDialogo(this).setVisible(true)));
-        panelBotones.add(crearBoton("Baja Reservas", "/recursos/eliminar.png", e -> JOptionPane.showMessageDialog(this, "Función no implementada")));
+        panelBotones.add(crearBoton("Alta Reservas", "/recursos/nuevo.png", this::abrirAltaReservas));
+        panelBotones.add(crearBoton("Baja Reservas", "/recursos/eliminar.png", e -> darDeBajaReservas()));
 
         add(panelBotones, BorderLayout.SOUTH);
     }
@@ -74,7 +181,8 @@ public class VentanaPrincipal extends JFrame {
      * @return El botón creado.
      */
     private JButton crearBoton(String texto, String rutaImagen, ActionListener accion) {
-        JButton boton = new JButton(texto, escalarImagen(rutaImagen, 50, 50));
+        JButton boton = new JButton(texto);
+        ponerImagen(rutaImagen, 50, 50, boton::setIcon);
         boton.setHorizontalTextPosition(SwingConstants.CENTER);
         boton.setVerticalTextPosition(SwingConstants.BOTTOM);
         boton.addActionListener(accion);
@@ -88,30 +196,171 @@ public class VentanaPrincipal extends JFrame {
      * @param alto  La altura deseada de la imagen.
      */
     private void actualizarImagenHotel(int ancho, int alto) {
-        imagenHotel.setIcon(escalarImagen("/recursos/hotel.png", ancho, alto - 20));
+        ponerImagen("/recursos/hotel.png", ancho, alto - 20, imagenHotel::setIcon);
     }
 
     /**
-     * Escala una imagen desde la ruta especificada.
+     * Pone una imagen escalada desde la ruta especificada manteniendo su proporción.
+     * La imagen se obtiene de su pirámide de miniaturas, por lo que no se escala
+     * nada al crear el icono y en pantallas HiDPI se dibuja con el nivel que
+     * corresponde a su resolución, que se lee en segundo plano si todavía no
+     * está en memoria. Si la pirámide aún no está preparada, el componente se
+     * queda sin imagen hasta que se prepara en segundo plano.
      *
      * @param rutaImagen La ruta del archivo de imagen.
      * @param ancho      El ancho deseado de la imagen escalada.
      * @param alto       La altura deseada de la imagen escalada.
-     * @return Un ImageIcon con la imagen escalada, o null si ocurre un error.
+     * @param destino    La acción que pone el icono, o null si no hay imagen, en el componente.
+     */
+    private void ponerImagen(String rutaImagen, int ancho, int alto, Consumer<Icon> destino) {
+        Image imagenEscalada = PiramideImagenes.getInstancia().obtenerAjustada(rutaImagen, ancho, alto,
+                () -> ponerImagen(rutaImagen, ancho, alto, destino));
+        destino.accept(imagenEscalada != null ? PiramideImagenes.icono(imagenEscalada) : null);
+    }
+
+    /**
+     * Pide el DNI de un cliente y cancela todas sus reservas activas tras
+     * confirmarlo con el usuario. La búsqueda y la cancelación se hacen en un
+     * hilo de fondo, ya que pueden esperar a que se carguen las reservas, a
+     * otras operaciones del servicio o al servidor de reservas.
      */
-    private ImageIcon escalarImagen(String rutaImagen, int ancho, int alto) {
+    private void darDeBajaReservas() {
+        String dni = JOptionPane.showInputDialog(this, "DNI del cliente:", "Baja Reservas", JOptionPane.QUESTION_MESSAGE);
+        if (dni == null) {
+            return; // El usuario ha cancelado
+        }
+        final String dniCliente = dni.trim().toUpperCase();
+        if (!ValidadorDatos.esDNIValido(dniCliente)) {
+            JOptionPane.showMessageDialog(this, "El DNI no es válido", "Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        // El resultado es la pregunta de confirmación, o null si no hay reservas activas
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws IOException {
+                if (servidor != null) {
+                    int activas = servidor.contarActivas(dniCliente);
+                    return activas == 0 ? null : String.format("Se cancelarán %d reservas del DNI %s.", activas,
+                            dniCliente);
+                }
+                List<Reserva> activas = ServicioReservas.getCompartido().buscarActivas(dniCliente);
+                if (activas.isEmpty()) {
+                    return null;
+                }
+                Reserva ultima = activas.get(0);
+                return String.format("Se cancelarán %d reservas de %s %s.", activas.size(), ultima.getNombre(),
+                        ultima.getApellidos());
+            }
+
+            @Override
+            protected void done() {
+                String pregunta;
+                try {
+                    pregunta = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    avisarErrorBaja(e);
+                    return;
+                }
+                if (pregunta == null) {
+                    JOptionPane.showMessageDialog(VentanaPrincipal.this, "No hay reservas activas para ese DNI",
+                            "Baja Reservas", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                int respuesta = JOptionPane.showConfirmDialog(VentanaPrincipal.this,
+                        pregunta + "\n¿Desea continuar?", "Baja Reservas", JOptionPane.YES_NO_OPTION);
+                if (respuesta == JOptionPane.YES_OPTION) {
+                    cancelarEnSegundoPlano(dniCliente);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Cancela en un hilo de fondo las reservas activas de un cliente e informa
+     * del resultado al terminar.
+     *
+     * @param dni el DNI del cliente.
+     */
+    private void cancelarEnSegundoPlano(String dni) {
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws IOException {
+                return servidor != null ? servidor.cancelar(dni) : ServicioReservas.getCompartido().cancelar(dni);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    JOptionPane.showMessageDialog(VentanaPrincipal.this, "Reservas canceladas: " + get(), "Éxito",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    avisarErrorBaja(e);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Informa al usuario de que no se han podido cancelar las reservas.
+     *
+     * @param e el error.
+     */
+    private void avisarErrorBaja(Exception e) {
+        e.printStackTrace();
+        JOptionPane.showMessageDialog(this, "No se han podido cancelar las reservas", "Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Abre la ventana del listado de reservas, o la trae al frente si ya está abierta.
+     */
+    private void abrirListadoReservas() {
+        if (listado != null && listado.isDisplayable()) {
+            listado.toFront();
+            return;
+        }
         try {
-            BufferedImage img = ImageIO.read(getClass().getResource(rutaImagen));
-            double escala = Math.min((double) ancho / img.getWidth(), (double) alto / img.getHeight());
-            Image imagenEscalada = img.getScaledInstance((int) (img.getWidth() * escala),
-                    (int) (img.getHeight() * escala), Image.SCALE_SMOOTH);
-            return new ImageIcon(imagenEscalada);
-        } catch (IOException e) {
+            listado = new VentanaListadoReservas(this, ServicioReservas.getCompartido());
+            listado.setVisible(true);
+        } catch (IOException | RuntimeException e) {
             e.printStackTrace();
-            return null;
+            JOptionPane.showMessageDialog(this, "No se han podido leer las reservas", "Error",
+                    JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    /**
+     * Pide un archivo CSV de reservas e importa su contenido mostrando el progreso.
+     */
+    private void importarReservas() {
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle("Importar Reservas");
+        selector.setFileFilter(new FileNameExtensionFilter("Archivos CSV", "csv", "txt"));
+        if (selector.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            new DialogoImportacion(this, selector.getSelectedFile().toPath()).importar();
+        }
+    }
+
+    /**
+     * Exporta todas las reservas activas a un documento CSV, JSON o HTML imprimible.
+     */
+    private void exportarReservas() {
+        AsistenteExportacion.exportar(this, "reservas", "Libro de reservas", exportador -> {
+            try {
+                ServicioReservas.getCompartido().recorrerActivas((registro, tipo, reserva) -> {
+                    try {
+                        exportador.escribir(reserva);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
     /**
      * Configura la barra de menú de la ventana.
      */
@@ -126,14 +375,39 @@ public class VentanaPrincipal extends JFrame {
         JMenu menuRegistro = new JMenu("Registro");
         JMenuItem itemAltaReservas = new JMenuItem("Alta Reservas");
         itemAltaReservas.setAccelerator(KeyStroke.getKeyStroke("ctrl A"));
-        itemAltaReservas.addActionListener(e -> new VentanaDialogo(this).setVisible(true));
+        itemAltaReservas.addActionListener(this::abrirAltaReservas);
 
         JMenuItem itemBajaReservas = new JMenuItem("Baja Reservas");
         itemBajaReservas.setAccelerator(KeyStroke.getKeyStroke("ctrl S"));
-        itemBajaReservas.addActionListener(e -> JOptionPane.showMessageDialog(this, "Función no implementada"));
+        itemBajaReservas.addActionListener(e -> darDeBajaReservas());
+
+        JMenuItem itemImportar = new JMenuItem("Importar Reservas...");
+        itemImportar.setAccelerator(KeyStroke.getKeyStroke("ctrl I"));
+        itemImportar.addActionListener(e -> importarReservas());
+
+        JMenuItem itemListado = new JMenuItem("Listado de Reservas");
+        itemListado.setAccelerator(KeyStroke.getKeyStroke("ctrl L"));
+        itemListado.addActionListener(e -> abrirListadoReservas());
 
         menuRegistro.add(itemAltaReservas);
         menuRegistro.add(itemBajaReservas);
+        menuRegistro.add(itemListado);
+        JMenuItem itemExportar = new JMenuItem("Exportar Reservas...");
+        itemExportar.setAccelerator(KeyStroke.getKeyStroke("ctrl E"));
+        itemExportar.addActionListener(e -> exportarReservas());
+
+        menuRegistro.addSeparator();
+        menuRegistro.add(itemImportar);
+        menuRegistro.add(itemExportar);
+
+        // El listado, la importación y la exportación trabajan sobre el almacén local,
+        // que con un servidor de reservas compartido no está al día
+        if (servidor != null) {
+            for (JMenuItem item : new JMenuItem[] {itemListado, itemImportar, itemExportar}) {
+                item.setEnabled(false);
+                item.setToolTipText("No disponible con un servidor de reservas");
+            }
+        }
 
         JMenu menuAyuda = new JMenu("Ayuda");
         JMenuItem itemAcercaDe = new JMenuItem("Acerca de...");
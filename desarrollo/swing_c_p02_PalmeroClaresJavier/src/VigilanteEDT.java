@@ -0,0 +1,380 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Vigilante del hilo de despacho de eventos. Sustituye la cola de eventos del
+ * sistema por una que mide cuánto tarda en atenderse cada evento y guarda esos
+ * tiempos en un histograma. Un hilo aparte comprueba varias veces por umbral si
+ * el evento en curso lleva más del umbral sin terminar y, en ese caso, copia la
+ * pila del hilo de eventos en el informe, que es justo lo que se necesita para
+ * saber qué congela la ventana.
+ *
+ * <p>El informe se escribe en {@value #ARCHIVO} dentro del directorio de datos.
+ * Cada minuto con actividad se añade un resumen del histograma. Cuando el
+ * archivo pasa de {@value #MAX_BYTES} bytes se renombra a {@value #ARCHIVO_ANTERIOR}
+ * y se empieza otro, de modo que nunca ocupa más del doble de eso.</p>
+ *
+ * <p>El umbral se configura en milisegundos con la propiedad del sistema
+ * {@value #PROPIEDAD_UMBRAL}; con 0 el vigilante no se instala. El tiempo que el
+ * hilo de eventos pasa dentro de un bucle secundario, como el de un diálogo
+ * modal abierto, no cuenta para el evento que lo abrió.</p>
+ */
+public final class VigilanteEDT extends EventQueue {
+
+    /** Nombre de la propiedad del sistema con el umbral en milisegundos. */
+    public static final String PROPIEDAD_UMBRAL = "hotel.vigilante.umbral";
+
+    /** Umbral por defecto, en milisegundos. */
+    private static final long UMBRAL_POR_DEFECTO = 200;
+
+    /** Nombre del archivo del informe. */
+    static final String ARCHIVO = "vigilante-edt.log";
+
+    /** Nombre del informe anterior, tras renombrarlo. */
+    static final String ARCHIVO_ANTERIOR = "vigilante-edt.1.log";
+
+    /** Tamaño a partir del cual se renombra el informe. */
+    private static final long MAX_BYTES = 1_000_000;
+
+    /** Intervalo entre resúmenes del histograma, en milisegundos. */
+    private static final long INTERVALO_RESUMEN = 60_000;
+
+    /** Número máximo de marcos de la pila que se copian en cada bloqueo. */
+    private static final int MAX_MARCOS = 60;
+
+    /** Límites superiores de los intervalos del histograma, en milisegundos. El último intervalo no tiene límite. */
+    private static final long[] LIMITES = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+    /** Umbral a partir del cual un evento se considera un bloqueo, en nanosegundos. */
+    private final long umbral;
+
+    /** Número de eventos de cada intervalo del histograma. */
+    private final AtomicLongArray histograma = new AtomicLongArray(LIMITES.length + 1);
+
+    /** Número de eventos que han superado el umbral. */
+    private final AtomicLong bloqueos = new AtomicLong();
+
+    /** Duración del evento más largo, en nanosegundos. */
+    private final AtomicLong maximo = new AtomicLong();
+
+    /** Instante en que empezó a contar el evento en curso, o 0 si el hilo de eventos está esperando. */
+    private volatile long inicioEvento;
+
+    /** Número del evento en curso, que cambia con cada evento para no copiar dos veces la misma pila. */
+    private volatile long numEvento;
+
+    /** Evento en curso, o null. */
+    private volatile AWTEvent eventoActual;
+
+    /** Hilo de despacho de eventos que atiende el evento en curso. */
+    private volatile Thread hiloEventos;
+
+    /** Eventos anidados en curso. Solo lo usa el hilo de eventos. */
+    private int profundidad;
+
+    /** Tiempo del evento en curso pasado fuera de él, en bucles secundarios. Solo lo usa el hilo de eventos. */
+    private long tiempoFuera;
+
+    /** Informe donde se escriben los bloqueos y los resúmenes. */
+    private final Path informe;
+
+    /**
+     * Crea un vigilante con un umbral.
+     *
+     * @param umbralMs el umbral en milisegundos.
+     * @param informe  la ruta del informe.
+     */
+    private VigilanteEDT(long umbralMs, Path informe) {
+        this.umbral = umbralMs * 1_000_000;
+        this.informe = informe;
+    }
+
+    /**
+     * Instala el vigilante en la cola de eventos del sistema y arranca el hilo
+     * que lo comprueba, salvo que el umbral configurado sea 0. Debe llamarse al
+     * principio del arranque, antes de crear las ventanas.
+     *
+     * @return el vigilante instalado, o null si está desactivado o no se puede
+     *         crear el informe.
+     */
+    public static VigilanteEDT instalar() {
+        long umbralMs = Long.getLong(PROPIEDAD_UMBRAL, UMBRAL_POR_DEFECTO);
+        if (umbralMs <= 0) {
+            return null;
+        }
+        VigilanteEDT vigilante;
+        try {
+            vigilante = new VigilanteEDT(umbralMs, DirectorioDatos.archivo(ARCHIVO));
+        } catch (IOException e) {
+            System.err.println("No se puede crear el informe del vigilante del hilo de eventos: " + e.getMessage());
+            return null;
+        }
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(vigilante);
+
+        Thread hilo = new Thread(vigilante::vigilar, "vigilante-edt");
+        hilo.setDaemon(true);
+        hilo.setPriority(Thread.MAX_PRIORITY);
+        hilo.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(vigilante::escribirResumen, "vigilante-edt-cierre"));
+        return vigilante;
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent evento) {
+        long inicio = System.nanoTime();
+        AWTEvent anterior = eventoActual;
+        long fueraAnterior = tiempoFuera;
+        tiempoFuera = 0;
+        profundidad++;
+        hiloEventos = Thread.currentThread();
+        eventoActual = evento;
+        numEvento++;
+        inicioEvento = inicio;
+        try {
+            super.dispatchEvent(evento);
+        } finally {
+            long fin = System.nanoTime();
+            registrar(fin - inicio - tiempoFuera);
+            profundidad--;
+
+            // Si era un evento anidado, el que lo contenía sigue contando desde ahora
+            tiempoFuera = fueraAnterior + (fin - inicio);
+            eventoActual = anterior;
+            numEvento++;
+            inicioEvento = anterior != null ? fin : 0;
+        }
+    }
+
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+        // Dentro de un bucle secundario la espera no cuenta para el evento que lo abrió
+        long pausado = inicioEvento;
+        inicioEvento = 0;
+        long inicio = System.nanoTime();
+        try {
+            return super.getNextEvent();
+        } finally {
+            if (profundidad > 0) {
+                long fin = System.nanoTime();
+                tiempoFuera += fin - inicio;
+                inicioEvento = pausado != 0 ? fin : 0;
+            }
+        }
+    }
+
+    /**
+     * Obtiene el número de eventos que han superado el umbral.
+     *
+     * @return el número de bloqueos.
+     */
+    public long getBloqueos() {
+        return bloqueos.get();
+    }
+
+    /**
+     * Obtiene la duración del evento más largo atendido hasta ahora.
+     *
+     * @return la duración en milisegundos.
+     */
+    public long getMaximoMs() {
+        return maximo.get() / 1_000_000;
+    }
+
+    /**
+     * Suma la duración de un evento al histograma. Se ejecuta en el hilo de eventos.
+     *
+     * @param duracion la duración en nanosegundos.
+     */
+    private void registrar(long duracion) {
+        long ms = duracion / 1_000_000;
+        int intervalo = 0;
+        while (intervalo < LIMITES.length && ms >= LIMITES[intervalo]) {
+            intervalo++;
+        }
+        histograma.incrementAndGet(intervalo);
+        if (duracion > umbral) {
+            bloqueos.incrementAndGet();
+        }
+        if (duracion > maximo.get()) {
+            maximo.set(duracion);
+        }
+    }
+
+    /**
+     * Bucle del hilo vigilante: comprueba el evento en curso cuatro veces por
+     * umbral, copia la pila del hilo de eventos la primera vez que un evento
+     * supera el umbral y escribe el resumen cada minuto.
+     */
+    private void vigilar() {
+        long espera = Math.max(10, umbral / 4_000_000);
+        long capturado = -1;
+        long ultimoResumen = System.currentTimeMillis();
+        long eventosResumen = 0;
+        while (true) {
+            try {
+                Thread.sleep(espera);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long inicio = inicioEvento;
+            long numero = numEvento;
+            long transcurrido = System.nanoTime() - inicio;
+            if (inicio != 0 && transcurrido > umbral && numero != capturado) {
+                capturado = numero;
+                escribirBloqueo(eventoActual, hiloEventos, transcurrido);
+            }
+            if (System.currentTimeMillis() - ultimoResumen >= INTERVALO_RESUMEN) {
+                ultimoResumen = System.currentTimeMillis();
+                long eventos = contarEventos();
+                if (eventos != eventosResumen) {
+                    eventosResumen = eventos;
+                    escribirResumen();
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe en el informe la pila del hilo de eventos bloqueado.
+     *
+     * @param evento       el evento en curso, o null si acaba de terminar.
+     * @param hilo         el hilo de eventos.
+     * @param transcurrido el tiempo que lleva el evento, en nanosegundos.
+     */
+    private void escribirBloqueo(AWTEvent evento, Thread hilo, long transcurrido) {
+        StackTraceElement[] pila = hilo != null ? hilo.getStackTrace() : new StackTraceElement[0];
+        StringBuilder texto = new StringBuilder(4096);
+        texto.append(ahora()).append(" Bloqueo del hilo de eventos: más de ").append(transcurrido / 1_000_000)
+                .append(" ms atendiendo ").append(describir(evento)).append(System.lineSeparator());
+        for (int i = 0; i < pila.length && i < MAX_MARCOS; i++) {
+            texto.append("\tat ").append(pila[i]).append(System.lineSeparator());
+        }
+        if (pila.length > MAX_MARCOS) {
+            texto.append("\t... ").append(pila.length - MAX_MARCOS).append(" más").append(System.lineSeparator());
+        }
+        escribir(texto);
+    }
+
+    /**
+     * Escribe en el informe el resumen del histograma desde el arranque, con los
+     * percentiles aproximados por el límite de su intervalo.
+     */
+    private void escribirResumen() {
+        long eventos = contarEventos();
+        if (eventos == 0) {
+            return;
+        }
+        StringBuilder texto = new StringBuilder(1024);
+        texto.append(ahora()).append(" Resumen: ").append(eventos).append(" eventos, ").append(bloqueos.get())
+                .append(" de más de ").append(umbral / 1_000_000).append(" ms, máximo ").append(getMaximoMs())
+                .append(" ms; p50 ").append(percentil(eventos, 0.50)).append(", p99 ").append(percentil(eventos, 0.99))
+                .append(", p99.9 ").append(percentil(eventos, 0.999)).append(System.lineSeparator());
+        for (int i = 0; i < histograma.length(); i++) {
+            long numero = histograma.get(i);
+            if (numero > 0) {
+                texto.append('\t').append(intervalo(i)).append(": ").append(numero).append(System.lineSeparator());
+            }
+        }
+        escribir(texto);
+    }
+
+    /**
+     * Añade un texto al informe, renombrando antes el informe si ha crecido demasiado.
+     *
+     * @param texto el texto.
+     */
+    private synchronized void escribir(CharSequence texto) {
+        try {
+            if (Files.exists(informe) && Files.size(informe) > MAX_BYTES) {
+                Files.move(informe, informe.resolveSibling(ARCHIVO_ANTERIOR), StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (BufferedWriter salida = Files.newBufferedWriter(informe, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                salida.append(texto);
+            }
+        } catch (IOException e) {
+            System.err.println("No se puede escribir el informe del vigilante del hilo de eventos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cuenta los eventos del histograma.
+     *
+     * @return el número de eventos atendidos.
+     */
+    private long contarEventos() {
+        long total = 0;
+        for (int i = 0; i < histograma.length(); i++) {
+            total += histograma.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Calcula el intervalo del histograma en que cae un percentil.
+     *
+     * @param eventos el número de eventos.
+     * @param fraccion el percentil, entre 0 y 1.
+     * @return el intervalo, como texto.
+     */
+    private String percentil(long eventos, double fraccion) {
+        long objetivo = (long) Math.ceil(eventos * fraccion);
+        long acumulado = 0;
+        for (int i = 0; i < histograma.length(); i++) {
+            acumulado += histograma.get(i);
+            if (acumulado >= objetivo) {
+                return intervalo(i);
+            }
+        }
+        return intervalo(histograma.length() - 1);
+    }
+
+    /**
+     * Describe un intervalo del histograma.
+     *
+     * @param i la posición del intervalo.
+     * @return el intervalo, como texto.
+     */
+    private static String intervalo(int i) {
+        if (i == LIMITES.length) {
+            return ">= " + LIMITES[i - 1] + " ms";
+        }
+        return (i == 0 ? "0" : String.valueOf(LIMITES[i - 1])) + "-" + LIMITES[i] + " ms";
+    }
+
+    /**
+     * Describe un evento por su clase, su identificador y el componente o la tarea de origen.
+     *
+     * @param evento el evento, o null.
+     * @return la descripción.
+     */
+    private static String describir(AWTEvent evento) {
+        if (evento == null) {
+            return "un evento que acaba de terminar";
+        }
+        Object fuente = evento.getSource();
+        return evento.getClass().getName() + " #" + evento.getID() + " de "
+                + (fuente != null ? fuente.getClass().getName() : "origen desconocido");
+    }
+
+    /**
+     * Obtiene la fecha y la hora actuales, con precisión de segundos.
+     *
+     * @return la fecha y la hora en formato ISO.
+     */
+    private static String ahora() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString();
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Banco de pruebas de rendimiento sencillo. Cada prueba se ejecuta primero
+ * varias iteraciones de calentamiento, para que el compilador JIT optimice el
+ * código, y después varias iteraciones medidas de duración fija. El resultado
+ * de cada operación se acumula y se publica en un campo volátil para que el
+ * compilador no pueda eliminar el trabajo medido.
+ */
+final class BancoPruebas {
+
+    /**
+     * Operación que se mide. Devuelve un valor derivado de su resultado
+     * (por ejemplo, 1 si un DNI es válido o la longitud de un texto).
+     */
+    interface Operacion {
+        long ejecutar();
+    }
+
+    /** Destino de los resultados de las operaciones, para evitar que se eliminen. */
+    static volatile long sumidero;
+
+    /** Número de iteraciones de calentamiento. */
+    private final int calentamiento;
+
+    /** Número de iteraciones medidas. */
+    private final int mediciones;
+
+    /** Duración de cada iteración en nanosegundos. */
+    private final long duracionIteracion;
+
+    /** Resultados obtenidos, en orden de ejecución. */
+    private final List<Resultado> resultados = new ArrayList<>();
+
+    /**
+     * Crea un banco de pruebas.
+     *
+     * @param calentamiento       el número de iteraciones de calentamiento.
+     * @param mediciones          el número de iteraciones medidas.
+     * @param milisIteracion      la duración de cada iteración en milisegundos.
+     */
+    BancoPruebas(int calentamiento, int mediciones, long milisIteracion) {
+        this.calentamiento = calentamiento;
+        this.mediciones = mediciones;
+        this.duracionIteracion = milisIteracion * 1_000_000L;
+    }
+
+    /**
+     * Mide el tiempo medio por operación de una prueba.
+     *
+     * @param nombre    el nombre de la prueba.
+     * @param operacion la operación a medir.
+     */
+    void medir(String nombre, Operacion operacion) {
+        for (int i = 0; i < calentamiento; i++) {
+            iterar(operacion);
+        }
+        double[] tiempos = new double[mediciones];
+        for (int i = 0; i < mediciones; i++) {
+            tiempos[i] = iterar(operacion);
+        }
+        Resultado resultado = new Resultado(nombre, tiempos);
+        resultados.add(resultado);
+        System.out.println(resultado);
+    }
+
+    /**
+     * Ejecuta la operación repetidamente durante una iteración.
+     *
+     * @param operacion la operación a medir.
+     * @return el tiempo medio por operación en nanosegundos.
+     */
+    private double iterar(Operacion operacion) {
+        long acumulado = 0;
+        long operaciones = 0;
+        long lote = 1;
+        long inicio = System.nanoTime();
+        long transcurrido;
+        do {
+            for (long i = 0; i < lote; i++) {
+                acumulado += operacion.ejecutar();
+            }
+            operaciones += lote;
+            if (lote < 1_000_000) {
+                lote <<= 1;
+            }
+            transcurrido = System.nanoTime() - inicio;
+        } while (transcurrido < duracionIteracion);
+        sumidero = acumulado;
+        return (double) transcurrido / operaciones;
+    }
+
+    /**
+     * Escribe los resultados en un archivo, con una línea "prueba=ns/op" por prueba.
+     *
+     * @param archivo el archivo de resultados.
+     * @throws IOException si no se puede escribir el archivo.
+     */
+    void guardar(Path archivo) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        texto.append("# Tiempo medio por operación en nanosegundos (").append(System.getProperty("java.vm.name"))
+                .append(' ').append(System.getProperty("java.version")).append(", ")
+                .append(Runtime.getRuntime().availableProcessors()).append(" procesadores)\n");
+        for (Resultado r : resultados) {
+            texto.append(r.nombre).append('=').append(String.format(Locale.ROOT, "%.1f", r.media)).append('\n');
+        }
+        Files.createDirectories(archivo.toAbsolutePath().getParent());
+        Files.write(archivo, texto.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compara los resultados con una línea base guardada y muestra las pruebas
+     * que han empeorado más de la tolerancia indicada.
+     *
+     * @param lineaBase  el archivo de la línea base.
+     * @param tolerancia el empeoramiento admitido, por ejemplo 0.10 para un 10 %.
+     * @param salida     donde se escribe la comparación.
+     * @return el número de pruebas que han empeorado más de la tolerancia.
+     * @throws IOException si no se puede leer la línea base.
+     */
+    int comparar(Path lineaBase, double tolerancia, PrintStream salida) throws IOException {
+        Map<String, Double> base = new LinkedHashMap<>();
+        for (String linea : Files.readAllLines(lineaBase, StandardCharsets.UTF_8)) {
+            int igual = linea.indexOf('=');
+            if (!linea.startsWith("#") && igual > 0) {
+                base.put(linea.substring(0, igual), Double.parseDouble(linea.substring(igual + 1)));
+            }
+        }
+        int regresiones = 0;
+        salida.println("Comparación con " + lineaBase.getFileName() + ":");
+        for (Resultado r : resultados) {
+            Double anterior = base.get(r.nombre);
+            if (anterior == null) {
+                salida.printf(Locale.ROOT, "  %-40s %12.1f ns/op (nueva)%n", r.nombre, r.media);
+                continue;
+            }
+            double cambio = (r.media - anterior) / anterior;
+            boolean regresion = cambio > tolerancia;
+            if (regresion) {
+                regresiones++;
+            }
+            salida.printf(Locale.ROOT, "  %-40s %12.1f ns/op  base %12.1f  %+7.1f %%%s%n", r.nombre, r.media, anterior,
+                    cambio * 100, regresion ? "  REGRESIÓN" : "");
+        }
+        return regresiones;
+    }
+
+    /**
+     * Resultado de una prueba: tiempo medio, mínimo y desviación entre iteraciones.
+     */
+    private static final class Resultado {
+        private final String nombre;
+        private final double media;
+        private final double minimo;
+        private final double desviacion;
+
+        Resultado(String nombre, double[] tiempos) {
+            this.nombre = nombre;
+            double suma = 0;
+            double min = Double.MAX_VALUE;
+            for (double t : tiempos) {
+                suma += t;
+                min = Math.min(min, t);
+            }
+            this.media = suma / tiempos.length;
+            double cuadrados = 0;
+            for (double t : tiempos) {
+                cuadrados += (t - media) * (t - media);
+            }
+            this.minimo = min;
+            this.desviacion = Math.sqrt(cuadrados / tiempos.length);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-40s %12.1f ns/op  ± %8.1f  (mín. %.1f)", nombre, media, desviacion,
+                    minimo);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga del servidor de reservas, entera en la dirección local.
+ * Arranca un {@link ServidorReservas} sobre un almacén vacío en un directorio
+ * temporal y lanza varios puestos de recepción simulados, cada uno en su hilo,
+ * que repiten sin pausa el ciclo de una venta: cotizar, guardar y cancelar.
+ * Comparten un solo {@link ClienteReservas}, como los hilos de una misma
+ * aplicación, para que la prueba mida el servidor y no los hilos de selección
+ * de muchos clientes HTTP. Al terminar muestra las operaciones por segundo y la
+ * latencia de cada operación.
+ *
+ * <p>Uso: {@code java CargaServidor [puestos] [segundos]}; por defecto, 32
+ * puestos durante 10 segundos.</p>
+ */
+public class CargaServidor {
+
+    /** Número de puestos si no se indica otro. */
+    private static final int PUESTOS_POR_DEFECTO = 32;
+
+    /** Duración de la prueba si no se indica otra, en segundos. */
+    private static final int SEGUNDOS_POR_DEFECTO = 10;
+
+    /** Duración del calentamiento previo, en segundos. */
+    private static final int SEGUNDOS_CALENTAMIENTO = 3;
+
+    /** Nombres de las operaciones medidas. */
+    private static final String[] OPERACIONES = { "cotizar", "guardar", "cancelar" };
+
+    /** Peticiones que han fallado. */
+    private static final AtomicLong errores = new AtomicLong();
+
+    /** Altas rechazadas por falta de habitaciones. */
+    private static final AtomicLong sinDisponibilidad = new AtomicLong();
+
+    /**
+     * Método principal que ejecuta la prueba de carga.
+     *
+     * @param args el número de puestos y la duración en segundos, opcionales.
+     * @throws IOException          si no se puede crear el almacén o arrancar el servidor.
+     * @throws InterruptedException si se interrumpe la espera a los puestos.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int numPuestos = args.length > 0 ? Integer.parseInt(args[0]) : PUESTOS_POR_DEFECTO;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : SEGUNDOS_POR_DEFECTO;
+
+        Path datos = Files.createTempDirectory("carga-servidor");
+        System.setProperty(DirectorioDatos.PROPIEDAD, datos.toString());
+        ServicioReservas servicio = ServicioReservas.getCompartido();
+        servicio.prepararIndice();
+        ServidorReservas servidor = ServidorReservas.iniciar(servicio, 0);
+        String direccion = "http://127.0.0.1:" + servidor.getPuerto();
+        System.out.printf("Servidor en %s (hilos %s), %d puestos, %d s, datos en %s%n", direccion,
+                servidor.usaHilosVirtuales() ? "virtuales" : "de plataforma", numPuestos, segundos, datos);
+
+        // Calentamiento, para que la medida no incluya la compilación del código
+        ejecutar(direccion, numPuestos, SEGUNDOS_CALENTAMIENTO);
+        errores.set(0);
+        sinDisponibilidad.set(0);
+
+        long inicio = System.nanoTime();
+        Puesto[] puestos = ejecutar(direccion, numPuestos, segundos);
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+        servidor.detener();
+
+        long total = 0;
+        for (int op = 0; op < OPERACIONES.length; op++) {
+            int numero = 0;
+            for (Puesto puesto : puestos) {
+                numero += puesto.numLatencias[op];
+            }
+            int[] todas = new int[numero];
+            int posicion = 0;
+            for (Puesto puesto : puestos) {
+                System.arraycopy(puesto.latencias[op], 0, todas, posicion, puesto.numLatencias[op]);
+                posicion += puesto.numLatencias[op];
+            }
+            Arrays.sort(todas);
+            total += numero;
+            if (numero > 0) {
+                System.out.printf("%-9s %9d ops  %8.0f ops/s  p50 %6d µs  p99 %6d µs  máx. %7d µs%n", OPERACIONES[op],
+                        numero, numero / transcurrido, todas[numero / 2], todas[(int) (numero * 0.99)],
+                        todas[numero - 1]);
+            }
+        }
+        System.out.printf("Total     %9d ops  %8.0f ops/s  (%d sin disponibilidad, %d errores)%n", total,
+                total / transcurrido, sinDisponibilidad.get(), errores.get());
+    }
+
+    /**
+     * Lanza los puestos y espera a que terminen.
+     *
+     * @param direccion  la dirección del servidor.
+     * @param numPuestos el número de puestos.
+     * @param segundos   la duración, en segundos.
+     * @return los puestos, con sus latencias.
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    private static Puesto[] ejecutar(String direccion, int numPuestos, int segundos) throws InterruptedException {
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        ClienteReservas cliente = new ClienteReservas(direccion);
+        Puesto[] puestos = new Puesto[numPuestos];
+        Thread[] hilos = new Thread[numPuestos];
+        for (int i = 0; i < numPuestos; i++) {
+            puestos[i] = new Puesto(cliente, i, fin);
+            hilos[i] = new Thread(puestos[i], "puesto-" + i);
+            hilos[i].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        return puestos;
+    }
+
+    /**
+     * Puesto de recepción simulado que vende y cancela reservas sin pausa.
+     */
+    private static final class Puesto implements Runnable {
+
+        /** Cliente del servidor, compartido por todos los puestos. */
+        private final ClienteReservas cliente;
+
+        /** Número del puesto, que separa sus DNI de los de los demás. */
+        private final int numero;
+
+        /** Instante en que termina la prueba, según {@link System#nanoTime()}. */
+        private final long fin;
+
+        /** Latencias de cada operación, en microsegundos. */
+        final int[][] latencias = new int[OPERACIONES.length][1024];
+
+        /** Número de latencias guardadas de cada operación. */
+        final int[] numLatencias = new int[OPERACIONES.length];
+
+        /**
+         * Crea un puesto.
+         *
+         * @param cliente el cliente del servidor.
+         * @param numero  el número del puesto.
+         * @param fin     el instante en que termina la prueba.
+         */
+        Puesto(ClienteReservas cliente, int numero, long fin) {
+            this.cliente = cliente;
+            this.numero = numero;
+            this.fin = fin;
+        }
+
+        @Override
+        public void run() {
+            int hoy = CalculadoraEstancia.hoy();
+            TipoHabitacion[] tipos = TipoHabitacion.values();
+            for (int n = 0; System.nanoTime() < fin; n++) {
+                int numeroDNI = (numero * 1_000_003 + n) % 100_000_000;
+                String dni = String.format("%08d%c", numeroDNI, ValidadorDatos.letraDNI(numeroDNI));
+                int entrada = hoy + 1 + n % 300;
+                Reserva reserva = new Reserva("Cliente " + n, "Puesto " + numero, dni,
+                        String.valueOf(600_000_000 + numeroDNI % 100_000_000), entrada, entrada + 1 + n % 3,
+                        tipos[n % tipos.length], 1, Reserva.SIN_NINOS, 0);
+                try {
+                    long t0 = System.nanoTime();
+                    cliente.cotizar(reserva);
+                    long t1 = System.nanoTime();
+                    long registro = cliente.guardar(reserva);
+                    long t2 = System.nanoTime();
+                    anotar(0, t1 - t0);
+                    anotar(1, t2 - t1);
+                    if (registro < 0) {
+                        sinDisponibilidad.incrementAndGet();
+                        continue;
+                    }
+                    cliente.cancelar(dni);
+                    anotar(2, System.nanoTime() - t2);
+                } catch (IOException e) {
+                    if (errores.incrementAndGet() == 1) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Guarda la latencia de una operación.
+         *
+         * @param operacion la operación.
+         * @param nanos     la latencia en nanosegundos.
+         */
+        private void anotar(int operacion, long nanos) {
+            if (numLatencias[operacion] == latencias[operacion].length) {
+                latencias[operacion] = Arrays.copyOf(latencias[operacion], numLatencias[operacion] * 2);
+            }
+            latencias[operacion][numLatencias[operacion]++] = (int) Math.min(Integer.MAX_VALUE, nanos / 1000);
+        }
+    }
+}
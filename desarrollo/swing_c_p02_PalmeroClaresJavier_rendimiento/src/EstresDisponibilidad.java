@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Prueba de estrés de {@link DisponibilidadHabitaciones} con muchos hilos
+ * reservando y cancelando a la vez sobre las mismas noches. Comprueba que:
+ *
+ * <ul>
+ * <li>ninguna noche pasa nunca de la capacidad, ni siquiera un instante (un
+ * hilo vigilante recorre los contadores mientras dura la prueba);</li>
+ * <li>no se pierde ninguna actualización: al terminar, cada contador es igual a
+ * la suma de las habitaciones de las reservas que cada hilo sabe que le han
+ * aceptado y no ha cancelado.</li>
+ * </ul>
+ *
+ * <p>También mide las operaciones por segundo con 1, 2, 4... hilos hasta el
+ * número de procesadores, para ver cómo escala. Termina con código 1 si falla
+ * alguna comprobación.</p>
+ *
+ * <p>Uso: {@code java EstresDisponibilidad [hilos] [segundos]}; por defecto, el
+ * doble de procesadores (al menos 8) durante 5 segundos.</p>
+ */
+public class EstresDisponibilidad {
+
+    /** Primer día de las estancias: dentro del horizonte de la ocupación. */
+    private static final int PRIMER_DIA = DisponibilidadHabitaciones.DIA_INICIAL + 2000;
+
+    /** Número de días sobre los que se reparten las estancias, pocos para forzar la contención. */
+    private static final int DIAS = 14;
+
+    /** Duración máxima de una estancia, en noches. */
+    private static final int MAX_NOCHES = 7;
+
+    /** Duración de cada medida de escalado, en milisegundos. */
+    private static final int MS_ESCALADO = 2000;
+
+    /**
+     * Método principal que ejecuta la prueba.
+     *
+     * @param args el número de hilos y la duración en segundos, opcionales.
+     * @throws InterruptedException si se interrumpe la espera a los hilos.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int procesadores = Runtime.getRuntime().availableProcessors();
+        int numHilos = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(8, 2 * procesadores);
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // Comprobación de corrección con mucha contención
+        DisponibilidadHabitaciones disponibilidad = new DisponibilidadHabitaciones();
+        AtomicBoolean terminar = new AtomicBoolean();
+        int[] maximoVisto = new int[1];
+        Thread vigilante = new Thread(() -> {
+            while (!terminar.get()) {
+                for (int tipo = 0; tipo < TipoHabitacion.numTipos(); tipo++) {
+                    for (int d = 0; d < DIAS + MAX_NOCHES; d++) {
+                        maximoVisto[0] = Math.max(maximoVisto[0], disponibilidad.ocupadas(tipo, PRIMER_DIA + d));
+                    }
+                }
+            }
+        }, "vigilante-capacidad");
+        vigilante.start();
+        Hilo[] hilos = ejecutar(disponibilidad, numHilos, segundos * 1000L);
+        terminar.set(true);
+        vigilante.join();
+
+        long operaciones = 0;
+        long aceptadas = 0;
+        int[][] esperadas = new int[TipoHabitacion.numTipos()][DIAS + MAX_NOCHES];
+        for (Hilo hilo : hilos) {
+            operaciones += hilo.operaciones;
+            aceptadas += hilo.aceptadas;
+            for (int tipo = 0; tipo < esperadas.length; tipo++) {
+                for (int d = 0; d < esperadas[tipo].length; d++) {
+                    esperadas[tipo][d] += hilo.ocupadas[tipo][d];
+                }
+            }
+        }
+        int diferencias = 0;
+        for (int tipo = 0; tipo < esperadas.length; tipo++) {
+            for (int d = 0; d < esperadas[tipo].length; d++) {
+                int real = disponibilidad.ocupadas(tipo, PRIMER_DIA + d);
+                if (real != esperadas[tipo][d] || real > DisponibilidadHabitaciones.CAPACIDAD) {
+                    diferencias++;
+                    System.out.printf("Tipo %d, día %d: contador %d, esperado %d%n", tipo, d, real, esperadas[tipo][d]);
+                }
+            }
+        }
+        System.out.printf("%d hilos, %d s: %d operaciones (%d reservas aceptadas), ocupación máxima vista %d de %d%n",
+                numHilos, segundos, operaciones, aceptadas, maximoVisto[0], DisponibilidadHabitaciones.CAPACIDAD);
+        boolean correcto = diferencias == 0 && maximoVisto[0] <= DisponibilidadHabitaciones.CAPACIDAD;
+        System.out.println(correcto ? "Sin sobreventas ni actualizaciones perdidas"
+                : "FALLO: " + diferencias + " contadores incorrectos, máximo visto " + maximoVisto[0]);
+
+        // Escalado con el número de hilos
+        for (int n = 1; n <= procesadores; n *= 2) {
+            Hilo[] medida = ejecutar(new DisponibilidadHabitaciones(), n, MS_ESCALADO);
+            long total = Arrays.stream(medida).mapToLong(h -> h.operaciones).sum();
+            System.out.printf("Escalado: %2d hilos, %,12.0f operaciones/s%n", n, total * 1000.0 / MS_ESCALADO);
+        }
+        if (!correcto) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Lanza los hilos a la vez y espera a que terminen.
+     *
+     * @param disponibilidad la ocupación compartida.
+     * @param numHilos       el número de hilos.
+     * @param milisegundos   la duración.
+     * @return los hilos, con sus cuentas.
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    private static Hilo[] ejecutar(DisponibilidadHabitaciones disponibilidad, int numHilos, long milisegundos)
+            throws InterruptedException {
+        CountDownLatch salida = new CountDownLatch(1);
+        Hilo[] hilos = new Hilo[numHilos];
+        Thread[] threads = new Thread[numHilos];
+        for (int i = 0; i < numHilos; i++) {
+            hilos[i] = new Hilo(disponibilidad, salida, milisegundos);
+            threads[i] = new Thread(hilos[i], "estres-" + i);
+            threads[i].start();
+        }
+        salida.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return hilos;
+    }
+
+    /**
+     * Hilo que reserva estancias al azar y cancela algunas de las que ha conseguido.
+     */
+    private static final class Hilo implements Runnable {
+
+        /** La ocupación compartida. */
+        private final DisponibilidadHabitaciones disponibilidad;
+
+        /** Señal de salida común a todos los hilos. */
+        private final CountDownLatch salida;
+
+        /** Duración, en milisegundos. */
+        private final long milisegundos;
+
+        /** Habitaciones que este hilo tiene ocupadas, por tipo y día. */
+        final int[][] ocupadas = new int[TipoHabitacion.numTipos()][DIAS + MAX_NOCHES];
+
+        /** Reservas aceptadas y todavía no canceladas: tipo, habitaciones, día y noches. */
+        private int[] activas = new int[64 * 4];
+
+        /** Número de reservas activas. */
+        private int numActivas;
+
+        /** Número de operaciones hechas. */
+        long operaciones;
+
+        /** Número de reservas aceptadas. */
+        long aceptadas;
+
+        /**
+         * Crea un hilo de la prueba.
+         *
+         * @param disponibilidad la ocupación compartida.
+         * @param salida         la señal de salida.
+         * @param milisegundos   la duración.
+         */
+        Hilo(DisponibilidadHabitaciones disponibilidad, CountDownLatch salida, long milisegundos) {
+            this.disponibilidad = disponibilidad;
+            this.salida = salida;
+            this.milisegundos = milisegundos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                salida.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            ThreadLocalRandom azar = ThreadLocalRandom.current();
+            long fin = System.nanoTime() + milisegundos * 1_000_000;
+            while (System.nanoTime() < fin) {
+                for (int i = 0; i < 256; i++, operaciones++) {
+                    // Cancela una reserva propia de vez en cuando, o siempre que tenga muchas
+                    if (numActivas > 0 && (numActivas == activas.length / 4 || azar.nextInt(3) == 0)) {
+                        int r = azar.nextInt(numActivas) * 4;
+                        anotar(activas[r], activas[r + 1], activas[r + 2], activas[r + 3], -1);
+                        disponibilidad.liberar(activas[r], activas[r + 1], PRIMER_DIA + activas[r + 2],
+                                PRIMER_DIA + activas[r + 2] + activas[r + 3]);
+                        numActivas--;
+                        System.arraycopy(activas, numActivas * 4, activas, r, 4);
+                        continue;
+                    }
+                    int tipo = azar.nextInt(TipoHabitacion.numTipos());
+                    int habitaciones = 1 + azar.nextInt(3);
+                    int dia = azar.nextInt(DIAS);
+                    int noches = 1 + azar.nextInt(MAX_NOCHES);
+                    if (disponibilidad.reservar(tipo, habitaciones, PRIMER_DIA + dia, PRIMER_DIA + dia + noches)) {
+                        aceptadas++;
+                        anotar(tipo, habitaciones, dia, noches, 1);
+                        int r = numActivas++ * 4;
+                        activas[r] = tipo;
+                        activas[r + 1] = habitaciones;
+                        activas[r + 2] = dia;
+                        activas[r + 3] = noches;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Suma o resta las habitaciones de una estancia a las cuentas del hilo.
+         *
+         * @param tipo         el tipo de habitación.
+         * @param habitaciones el número de habitaciones.
+         * @param dia          el primer día, relativo a {@link #PRIMER_DIA}.
+         * @param noches       el número de noches.
+         * @param signo        1 al reservar, -1 al cancelar.
+         */
+        private void anotar(int tipo, int habitaciones, int dia, int noches, int signo) {
+            for (int d = dia; d < dia + noches; d++) {
+                ocupadas[tipo][d] += signo * habitaciones;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Compara el tamaño y la velocidad de lectura de los formatos del
+ * {@link AlmacenReservas} con las mismas reservas guardadas como texto CSV.
+ * Las reservas se reparten entre un número de clientes, de modo que los
+ * titulares se repiten como en un hotel con clientes habituales. Para cada
+ * formato muestra los bytes por reserva y cuánto se tarda en recorrer todas
+ * las reservas del almacén.
+ *
+ * <p>Uso: {@code java FormatoAlmacen [reservas] [clientes] [directorio]}; por
+ * defecto, 1000000 reservas de 100000 clientes.</p>
+ */
+public class FormatoAlmacen {
+
+    /** Nombres de los clientes generados. */
+    private static final String[] NOMBRES = { "José", "María", "Antonio", "Carmen", "Manuel", "Ana", "Francisco",
+        "Lucía", "David", "Laura", "Javier", "Marta", "Daniel", "Elena", "Carlos", "Isabel", "Miguel", "Pilar",
+        "Alejandro", "Cristina" };
+
+    /** Apellidos de los clientes generados. */
+    private static final String[] APELLIDOS = { "García", "Rodríguez", "González", "Fernández", "López",
+        "Martínez", "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz",
+        "Álvarez", "Romero", "Alonso", "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos", "Gil",
+        "Ramírez", "Serrano", "Blanco", "Molina" };
+
+    /** Número de veces que se recorre cada almacén; se muestra la mejor. */
+    private static final int REPETICIONES = 3;
+
+    /**
+     * Método principal que ejecuta la comparación.
+     *
+     * @param args el número de reservas, el de clientes y el directorio de los
+     *             almacenes, opcionales.
+     * @throws IOException si no se puede crear algún almacén.
+     */
+    public static void main(String[] args) throws IOException {
+        int numReservas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int numClientes = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path directorio = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("formato-almacen");
+        Reserva[] reservas = generar(numReservas, numClientes);
+        System.out.printf("%,d reservas de %,d clientes, almacenes en %s%n", numReservas, numClientes, directorio);
+        System.out.printf("%-22s %14s %12s %14s%n", "Formato", "bytes", "bytes/res.", "recorrido ms");
+
+        long bytesTexto = 0;
+        for (Reserva reserva : reservas) {
+            bytesTexto += lineaCSV(reserva).getBytes(StandardCharsets.UTF_8).length;
+        }
+        System.out.printf("%-22s %,14d %12.1f %14s%n", "texto CSV", bytesTexto, bytesTexto / (double) numReservas,
+                "-");
+
+        medir("versión 1 (textos)", directorio, AlmacenReservas.VERSION_1, reservas);
+        medir("versión 2 (diccionario)", directorio, AlmacenReservas.VERSION, reservas);
+    }
+
+    /**
+     * Genera reservas de clientes al azar, con una semilla fija.
+     *
+     * @param numReservas el número de reservas.
+     * @param numClientes el número de clientes distintos.
+     * @return las reservas.
+     */
+    private static Reserva[] generar(int numReservas, int numClientes) {
+        Random azar = new Random(42);
+        TipoHabitacion[] tipos = TipoHabitacion.values();
+        Reserva[] reservas = new Reserva[numReservas];
+        for (int i = 0; i < numReservas; i++) {
+            int cliente = azar.nextInt(numClientes);
+            int entrada = DisponibilidadHabitaciones.DIA_INICIAL + azar.nextInt(3000);
+            reservas[i] = new Reserva(NOMBRES[cliente % NOMBRES.length],
+                    APELLIDOS[cliente / NOMBRES.length % APELLIDOS.length] + " "
+                            + APELLIDOS[cliente / 7 % APELLIDOS.length] + " " + cliente,
+                    String.format("%08d%c", cliente, ValidadorDatos.letraDNI(cliente)),
+                    String.valueOf(600_000_000 + cliente), entrada, entrada + 1 + azar.nextInt(7),
+                    tipos[azar.nextInt(tipos.length)], 1 + azar.nextInt(3),
+                    azar.nextInt(4) == 0 ? azar.nextInt(12) : Reserva.SIN_NINOS, 5_000 + azar.nextInt(100_000));
+        }
+        return reservas;
+    }
+
+    /**
+     * Escribe una reserva como una línea del CSV de exportación, con las fechas
+     * en formato ISO.
+     *
+     * @param reserva la reserva.
+     * @return la línea, con su salto de línea.
+     */
+    private static String lineaCSV(Reserva reserva) {
+        StringBuilder linea = new StringBuilder(96);
+        linea.append(reserva.getNombre()).append(';').append(reserva.getApellidos()).append(';')
+                .append(reserva.getDNI()).append(';').append(reserva.getTelefono()).append(';');
+        CalculadoraEstancia.formatearISO(reserva.getFechaEntrada(), linea).append(';');
+        CalculadoraEstancia.formatearISO(reserva.getFechaSalida(), linea).append(';');
+        linea.append(reserva.getTipoHabitacion().getEtiqueta()).append(';').append(reserva.getNumHabitaciones())
+                .append(';');
+        if (reserva.getEdadNinos() != Reserva.SIN_NINOS) {
+            linea.append(reserva.getEdadNinos());
+        }
+        return linea.append(';').append(reserva.getImporteCentimos()).append('\n').toString();
+    }
+
+    /**
+     * Guarda las reservas en un almacén nuevo con un formato y mide su tamaño y
+     * cuánto se tarda en recorrerlo.
+     *
+     * @param nombre     el nombre del formato.
+     * @param directorio el directorio del almacén.
+     * @param version    la versión del formato.
+     * @param reservas   las reservas.
+     * @throws IOException si no se puede crear el almacén.
+     */
+    private static void medir(String nombre, Path directorio, short version, Reserva[] reservas) throws IOException {
+        Path ruta = directorio.resolve("reservas-v" + version + ".dat");
+        Files.deleteIfExists(ruta);
+        long bytes;
+        long mejor = Long.MAX_VALUE;
+        try (AlmacenReservas almacen = AlmacenReservas.abrir(ruta, version)) {
+            for (Reserva reserva : reservas) {
+                almacen.anadirAlta(reserva);
+            }
+            almacen.forzar();
+            int tamRegistro = version == AlmacenReservas.VERSION ? AlmacenReservas.TAM_REGISTRO
+                    : AlmacenReservas.TAM_REGISTRO_V1;
+            bytes = AlmacenReservas.TAM_CABECERA + almacen.getNumRegistros() * tamRegistro;
+            for (int i = 0; i < REPETICIONES; i++) {
+                long[] suma = new long[1];
+                long inicio = System.nanoTime();
+                almacen.recorrer((indice, tipo, reserva) -> suma[0] += reserva.getImporteCentimos());
+                mejor = Math.min(mejor, System.nanoTime() - inicio);
+            }
+        }
+        System.out.printf("%-22s %,14d %12.1f %14.0f%n", nombre, bytes, bytes / (double) reservas.length,
+                mejor / 1e6);
+        Files.delete(ruta);
+    }
+}
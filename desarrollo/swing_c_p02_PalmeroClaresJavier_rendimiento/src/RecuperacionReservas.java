@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Prueba del tiempo de arranque del {@link ServicioReservas} según crece el
+ * historial. Para cada tamaño crea un almacén con ese número de altas, de las
+ * que solo quedan activas las últimas y el resto se cancelan, como ocurre con
+ * los años de uso. Mide cuánto tarda en cargarse el estado:
+ *
+ * <ul>
+ * <li>recorriendo todo el almacén, sin instantánea;</li>
+ * <li>desde una instantánea sin compactar el almacén, más una cola de registros
+ * posteriores;</li>
+ * <li>desde una instantánea con el almacén compactado, más la misma cola.</li>
+ * </ul>
+ *
+ * <p>Con instantánea, el tiempo debería depender de las reservas activas y de la
+ * cola, y no del número de altas del historial.</p>
+ *
+ * <p>Uso: {@code java RecuperacionReservas [activas] [cola] [directorio]}; por
+ * defecto, 20000 reservas activas y una cola de 1000 altas.</p>
+ */
+public class RecuperacionReservas {
+
+    /** Tamaños del historial que se prueban, en altas. */
+    private static final int[] HISTORIALES = { 50_000, 100_000, 200_000, 400_000, 800_000 };
+
+    /** Número de veces que se mide cada carga; se muestra la mejor. */
+    private static final int REPETICIONES = 3;
+
+    /** Tamaño de los lotes con los que se guardan las altas. */
+    private static final int TAMANO_LOTE = 1000;
+
+    /**
+     * Método principal que ejecuta la prueba.
+     *
+     * @param args el número de reservas activas, el de altas de la cola y el
+     *             directorio de los almacenes, opcionales.
+     * @throws IOException si no se puede crear algún almacén o instantánea.
+     */
+    public static void main(String[] args) throws IOException {
+        int activas = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int cola = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Path directorio = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("recuperacion-reservas");
+        System.out.printf("%d reservas activas, cola de %d altas, almacenes en %s%n", activas, cola, directorio);
+        System.out.printf("%10s %10s %14s %16s %16s%n", "altas", "registros", "sin inst. ms", "instantánea ms",
+                "compactado ms");
+
+        for (int historial : HISTORIALES) {
+            Path ruta = directorio.resolve("reservas-" + historial + ".dat");
+            crear(ruta, historial, activas);
+            long registros;
+            try (AlmacenReservas almacen = AlmacenReservas.abrir(ruta)) {
+                registros = almacen.getNumRegistros();
+            }
+            double sinInstantanea = medirCarga(ruta);
+
+            // Instantánea sin compactar el almacén, y después una cola de altas nuevas
+            try (AlmacenReservas almacen = AlmacenReservas.abrir(ruta)) {
+                ServicioReservas servicio = new ServicioReservas(almacen);
+                servicio.guardarInstantanea(Long.MAX_VALUE);
+                guardarAltas(servicio, historial, cola);
+            }
+            double conInstantanea = medirCarga(ruta);
+
+            try (AlmacenReservas almacen = AlmacenReservas.abrir(ruta)) {
+                new ServicioReservas(almacen).guardarInstantanea(1);
+            }
+            try (AlmacenReservas almacen = AlmacenReservas.abrir(ruta)) {
+                guardarAltas(new ServicioReservas(almacen), historial + cola, cola);
+            }
+            double compactado = medirCarga(ruta);
+
+            System.out.printf("%,10d %,10d %14.1f %16.1f %16.1f%n", historial, registros, sinInstantanea,
+                    conInstantanea, compactado);
+            Files.deleteIfExists(instantanea(ruta));
+            Files.delete(ruta);
+        }
+    }
+
+    /**
+     * Crea un almacén con un número de altas de las que solo quedan activas las
+     * últimas: cada cliente nuevo cancela la reserva del que llegó
+     * {@code activas} altas antes.
+     *
+     * @param ruta      la ruta del almacén.
+     * @param historial el número de altas.
+     * @param activas   el número de reservas que quedan activas.
+     * @throws IOException si no se puede crear el almacén.
+     */
+    private static void crear(Path ruta, int historial, int activas) throws IOException {
+        Files.deleteIfExists(ruta);
+        Files.deleteIfExists(instantanea(ruta));
+        try (AlmacenReservas almacen = AlmacenReservas.abrir(ruta)) {
+            ServicioReservas servicio = new ServicioReservas(almacen);
+            servicio.prepararIndice();
+            for (int desde = 0; desde < historial; desde += TAMANO_LOTE) {
+                guardarAltas(servicio, desde, Math.min(TAMANO_LOTE, historial - desde));
+                for (int n = desde; n < desde + TAMANO_LOTE && n < historial; n++) {
+                    if (n >= activas) {
+                        servicio.cancelar(dni(n - activas));
+                    }
+                }
+            }
+            servicio.forzar();
+        }
+    }
+
+    /**
+     * Guarda altas de clientes consecutivos, cada una de una habitación una noche.
+     *
+     * @param servicio el servicio.
+     * @param primero  el número del primer cliente.
+     * @param numero   el número de altas.
+     */
+    private static void guardarAltas(ServicioReservas servicio, int primero, int numero) {
+        TipoHabitacion[] tipos = TipoHabitacion.values();
+        Reserva[] lote = new Reserva[numero];
+        for (int i = 0; i < numero; i++) {
+            int n = primero + i;
+            int entrada = DisponibilidadHabitaciones.DIA_INICIAL
+                    + (n / tipos.length) % DisponibilidadHabitaciones.NUM_DIAS;
+            lote[i] = new Reserva("Cliente " + n, "Recuperación", dni(n), String.valueOf(600_000_000 + n), entrada,
+                    entrada + 1, tipos[n % tipos.length], 1, Reserva.SIN_NINOS, 10_000);
+        }
+        servicio.guardarLote(lote, numero, new boolean[numero]);
+        servicio.forzar();
+    }
+
+    /**
+     * Obtiene el DNI del cliente con un número.
+     *
+     * @param n el número del cliente.
+     * @return el DNI.
+     */
+    private static String dni(int n) {
+        return String.format("%08d%c", n, ValidadorDatos.letraDNI(n));
+    }
+
+    /**
+     * Obtiene la ruta de la instantánea de un almacén, junto a su archivo.
+     *
+     * @param ruta la ruta del almacén.
+     * @return la ruta de la instantánea.
+     */
+    private static Path instantanea(Path ruta) {
+        return ruta.resolveSibling(ruta.getFileName() + ".instantanea");
+    }
+
+    /**
+     * Mide la mejor de varias cargas del estado desde un almacén.
+     *
+     * @param ruta la ruta del almacén.
+     * @return el tiempo de la carga más rápida, en milisegundos.
+     * @throws IOException si no se puede abrir el almacén.
+     */
+    private static double medirCarga(Path ruta) throws IOException {
+        long mejor = Long.MAX_VALUE;
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            try (AlmacenReservas almacen = AlmacenReservas.abrir(ruta)) {
+                new ServicioReservas(almacen).prepararIndice();
+            }
+            mejor = Math.min(mejor, System.nanoTime() - inicio);
+        }
+        return mejor / 1e6;
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de rendimiento del {@link DiarioReservas}. Varios puestos simulados,
+ * cada uno en su hilo, guardan altas sin pausa y esperan a que cada una esté
+ * escrita en disco antes de guardar la siguiente. Se repite con distintas
+ * esperas y lotes del diario, y también sin agruparlas, escribiendo en disco
+ * cada alta por separado, que es la referencia. Para cada configuración
+ * muestra las altas por segundo, la latencia y el tamaño medio de los grupos.
+ *
+ * <p>Cada configuración usa un almacén nuevo en un directorio temporal, o en el
+ * directorio indicado, que conviene que esté en el disco que se quiere medir y
+ * no en memoria.</p>
+ *
+ * <p>Uso: {@code java RendimientoDiario [puestos] [segundos] [directorio]}; por
+ * defecto, 16 puestos durante 3 segundos por configuración.</p>
+ */
+public class RendimientoDiario {
+
+    /** Configuraciones del diario que se prueban: espera en microsegundos y lote. */
+    private static final int[][] CONFIGURACIONES = {
+        { 0, 1 }, { 200, 4 }, { 200, 16 }, { 1000, 16 }, { 1000, 64 }, { 5000, 256 } };
+
+    /** Altas completadas en la configuración en curso, que también reparte los días de las reservas. */
+    private static final AtomicInteger contador = new AtomicInteger();
+
+    /**
+     * Método principal que ejecuta la prueba.
+     *
+     * @param args el número de puestos, la duración de cada configuración en
+     *             segundos y el directorio de los almacenes, opcionales.
+     * @throws IOException          si no se puede crear algún almacén.
+     * @throws InterruptedException si se interrumpe la espera a los puestos.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int numPuestos = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path directorio = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("rendimiento-diario");
+        System.out.printf("%d puestos, %d s por configuración, almacenes en %s%n", numPuestos, segundos, directorio);
+        System.out.printf("%-22s %10s %10s %10s %8s%n", "Configuración", "altas/s", "p50 µs", "p99 µs", "grupo");
+
+        medir("sin agrupar", directorio, null, numPuestos, segundos);
+        for (int[] configuracion : CONFIGURACIONES) {
+            medir(String.format("espera %d µs, lote %d", configuracion[0], configuracion[1]), directorio, configuracion,
+                    numPuestos, segundos);
+        }
+    }
+
+    /**
+     * Mide una configuración sobre un almacén nuevo.
+     *
+     * @param nombre        el nombre de la configuración.
+     * @param directorio    el directorio del almacén.
+     * @param configuracion la espera y el lote del diario, o null para escribir cada alta por separado.
+     * @param numPuestos    el número de puestos.
+     * @param segundos      la duración, en segundos.
+     * @throws IOException          si no se puede crear el almacén.
+     * @throws InterruptedException si se interrumpe la espera a los puestos.
+     */
+    private static void medir(String nombre, Path directorio, int[] configuracion, int numPuestos, int segundos)
+            throws IOException, InterruptedException {
+        Path ruta = Files.createTempFile(directorio, "reservas", ".dat");
+        Files.delete(ruta);
+        AlmacenReservas almacen = AlmacenReservas.abrir(ruta);
+        DiarioReservas diario = configuracion == null ? null
+                : new DiarioReservas(almacen, configuracion[0], configuracion[1]);
+        ServicioReservas servicio = diario == null ? new ServicioReservas(almacen)
+                : new ServicioReservas(almacen, diario);
+        servicio.prepararIndice();
+        contador.set(0);
+
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        Puesto[] puestos = new Puesto[numPuestos];
+        Thread[] hilos = new Thread[numPuestos];
+        for (int i = 0; i < numPuestos; i++) {
+            puestos[i] = new Puesto(servicio, almacen, diario != null, fin);
+            hilos[i] = new Thread(puestos[i], "puesto-" + i);
+            hilos[i].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        int numero = Arrays.stream(puestos).mapToInt(p -> p.numLatencias).sum();
+        int[] todas = new int[numero];
+        int posicion = 0;
+        for (Puesto puesto : puestos) {
+            System.arraycopy(puesto.latencias, 0, todas, posicion, puesto.numLatencias);
+            posicion += puesto.numLatencias;
+        }
+        Arrays.sort(todas);
+        double grupo = 1;
+        if (diario != null) {
+            diario.cerrar();
+            grupo = (double) diario.getNumConfirmaciones() / Math.max(1, diario.getNumEscrituras());
+        }
+        if (numero > 0) {
+            System.out.printf("%-22s %10.0f %10d %10d %8.1f%n", nombre, numero / (double) segundos, todas[numero / 2],
+                    todas[(int) (numero * 0.99)], grupo);
+        }
+        almacen.close();
+        Files.delete(ruta);
+    }
+
+    /**
+     * Puesto de recepción simulado que guarda altas sin pausa.
+     */
+    private static final class Puesto implements Runnable {
+
+        /** El servicio donde se guardan las altas. */
+        private final ServicioReservas servicio;
+
+        /** El almacén del servicio, para escribir las altas por separado. */
+        private final AlmacenReservas almacen;
+
+        /** Si se usa el diario; si no, cada alta se escribe en disco por separado. */
+        private final boolean conDiario;
+
+        /** Instante en que termina la prueba, según {@link System#nanoTime()}. */
+        private final long fin;
+
+        /** Latencias de las altas, en microsegundos. */
+        int[] latencias = new int[1024];
+
+        /** Número de latencias guardadas. */
+        int numLatencias;
+
+        /**
+         * Crea un puesto.
+         *
+         * @param servicio  el servicio.
+         * @param almacen   el almacén del servicio.
+         * @param conDiario si se usa el diario.
+         * @param fin       el instante en que termina la prueba.
+         */
+        Puesto(ServicioReservas servicio, AlmacenReservas almacen, boolean conDiario, long fin) {
+            this.servicio = servicio;
+            this.almacen = almacen;
+            this.conDiario = conDiario;
+            this.fin = fin;
+        }
+
+        @Override
+        public void run() {
+            TipoHabitacion[] tipos = TipoHabitacion.values();
+            while (System.nanoTime() < fin) {
+                // Cada alta ocupa una habitación una noche distinta, para no agotar la capacidad
+                int n = contador.getAndIncrement();
+                int entrada = DisponibilidadHabitaciones.DIA_INICIAL
+                        + (n / tipos.length) % DisponibilidadHabitaciones.NUM_DIAS;
+                Reserva reserva = new Reserva("Cliente " + n, "Diario", String.format("%08d%c", n,
+                        ValidadorDatos.letraDNI(n)), String.valueOf(600_000_000 + n), entrada, entrada + 1,
+                        tipos[n % tipos.length], 1, Reserva.SIN_NINOS, 10_000);
+                long inicio = System.nanoTime();
+                if (conDiario) {
+                    servicio.guardarConfirmado(reserva).join();
+                } else {
+                    // Cada puesto fuerza su registro sin retener el almacén, como el diario
+                    long registro = servicio.guardar(reserva);
+                    almacen.forzar(registro, registro + 1);
+                }
+                if (numLatencias == latencias.length) {
+                    latencias = Arrays.copyOf(latencias, numLatencias * 2);
+                }
+                latencias[numLatencias++] = (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - inicio) / 1000);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.imageio.ImageIO;
+
+/**
+ * Pruebas de rendimiento de las operaciones que la recepción usa a diario:
+ * validación de DNI y teléfono, cálculo de importes, escalado de imágenes y
+ * formato de los datos de la reserva.
+ *
+ * <p>Uso: {@code java RendimientoReservas [--linea-base]}. Sin argumentos, los
+ * resultados se guardan en {@code resultados/ultima-ejecucion.txt} y se comparan
+ * con {@code resultados/linea-base.txt}; con {@code --linea-base}, los resultados
+ * pasan a ser la nueva línea base.</p>
+ */
+public class RendimientoReservas {
+
+    /** Empeoramiento admitido respecto a la línea base antes de avisar. */
+    private static final double TOLERANCIA = 0.10;
+
+    /** Tamaño de los conjuntos de datos de prueba (potencia de dos). */
+    private static final int TAMANO_DATOS = 1024;
+
+    /** Número de registros del lote de validación en paralelo. */
+    private static final int TAMANO_LOTE = 1_000_000;
+
+    /** Letras de control del DNI. */
+    private static final String LETRAS = "TRWAGMYFPDXBNJZSQVHLCKE";
+
+    /** Posición actual en los conjuntos de datos. */
+    private static int posicion;
+
+    /**
+     * Método principal que ejecuta todas las pruebas.
+     *
+     * @param args {@code --linea-base} para guardar los resultados como línea base.
+     * @throws IOException si no se pueden leer los recursos o escribir los resultados.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        boolean lineaBase = args.length > 0 && args[0].equals("--linea-base");
+        BancoPruebas banco = new BancoPruebas(3, 5, 500);
+
+        // Datos de prueba: DNI correctos, con la letra equivocada y con formato incorrecto
+        String[] dnis = new String[TAMANO_DATOS];
+        String[] telefonos = new String[TAMANO_DATOS];
+        for (int i = 0; i < TAMANO_DATOS; i++) {
+            int numero = (i * 7919 + 12345678) % 100_000_000;
+            char letra = LETRAS.charAt(numero % 23);
+            if (i % 4 == 1) {
+                letra = LETRAS.charAt((numero + 1) % 23);
+            }
+            dnis[i] = i % 8 == 3 ? "1234X678A" : String.format("%08d%c", numero, letra);
+            telefonos[i] = i % 8 == 5 ? "6000000" : String.valueOf(600_000_000 + i * 31);
+        }
+        int mascara = TAMANO_DATOS - 1;
+
+        banco.medir("validacion.dni", () -> ValidadorDatos.esDNIValido(dnis[posicion++ & mascara]) ? 1 : 0);
+        banco.medir("validacion.telefono",
+                () -> ValidadorDatos.esTelefonoValido(telefonos[posicion++ & mascara]) ? 1 : 0);
+
+        // Validación de un lote grande de registros en paralelo
+        String[] loteDNI = new String[TAMANO_LOTE];
+        String[] loteTelefonos = new String[TAMANO_LOTE];
+        boolean[] validos = new boolean[TAMANO_LOTE];
+        for (int i = 0; i < TAMANO_LOTE; i++) {
+            loteDNI[i] = dnis[i & mascara];
+            loteTelefonos[i] = telefonos[i & mascara];
+        }
+        banco.medir("validacion.lote.1000000", () -> ValidadorDatos.validarLote(loteDNI, loteTelefonos, validos));
+
+        // Cálculo de importes, individual y por lotes
+        MotorPrecios motor = MotorPrecios.getEstandar();
+        TipoHabitacion[] tipos = TipoHabitacion.values();
+        byte[] codigos = new byte[TAMANO_DATOS];
+        byte[] habitaciones = new byte[TAMANO_DATOS];
+        byte[] edades = new byte[TAMANO_DATOS];
+        int[] noches = new int[TAMANO_DATOS];
+        long[] importes = new long[TAMANO_DATOS];
+        for (int i = 0; i < TAMANO_DATOS; i++) {
+            codigos[i] = (byte) (i % tipos.length);
+            habitaciones[i] = (byte) (1 + i % 5);
+            edades[i] = (byte) (i % 3 == 0 ? i % 15 : Reserva.SIN_NINOS);
+            noches[i] = 1 + i % 14;
+        }
+        banco.medir("precio.cotizar", () -> {
+            int i = posicion++ & mascara;
+            return motor.cotizar(tipos[codigos[i]], habitaciones[i], noches[i], edades[i]);
+        });
+        banco.medir("precio.cotizarLote.1024", () -> {
+            motor.cotizarLote(codigos, habitaciones, noches, edades, importes, 0, TAMANO_DATOS);
+            return importes[posicion++ & mascara];
+        });
+
+        // Escalado de imágenes: el camino antiguo (decodificar y escalar en cada
+        // llamada), solo el escalado suave y el camino actual a través de la caché
+        BufferedImage nuevo = ImageIO.read(RendimientoReservas.class.getResource("/recursos/nuevo.png"));
+        banco.medir("imagen.decodificarYEscalar", () -> {
+            try {
+                BufferedImage original = ImageIO.read(RendimientoReservas.class.getResource("/recursos/nuevo.png"));
+                return CacheImagenes.escalarSuave(original, 50, 50).getWidth();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        banco.medir("imagen.escalarSuave", () -> CacheImagenes.escalarSuave(nuevo, 50, 50).getWidth());
+        banco.medir("imagen.escalarImagen.cache",
+                () -> CacheImagenes.getInstancia().obtenerAjustada("/recursos/nuevo.png", 50, 50).getWidth());
+
+        // Redimensionado de una foto de habitación a un ancho nuevo en cada llamada:
+        // escalado suave del original frente a dibujar el nivel de su pirámide
+        BufferedImage doble = ImageIO.read(RendimientoReservas.class.getResource("/recursos/doble.png"));
+        BufferedImage lienzo = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+        PiramideImagenes piramides = new PiramideImagenes(Files.createTempDirectory("piramide-imagenes"));
+        piramides.preparar("/recursos/doble.png");
+        banco.medir("imagen.redimensionar.suave",
+                () -> CacheImagenes.escalarSuave(doble, 300 + (posicion++ & 63), 300).getWidth());
+        banco.medir("imagen.redimensionar.piramide", () -> {
+            Image vista = piramides.obtenerVista("/recursos/doble.png", 300 + (posicion++ & 63), 300, 1);
+            Graphics2D g = lienzo.createGraphics();
+            g.drawImage(vista, 0, 0, null);
+            g.dispose();
+            return vista.getWidth(null);
+        });
+
+        // Cálculo de estancias a partir de las fechas de los spinners y formato de fechas
+        long[] instantes = new long[TAMANO_DATOS];
+        for (int i = 0; i < TAMANO_DATOS; i++) {
+            instantes[i] = 1_700_000_000_000L + i * 7_919_000_000L;
+        }
+        banco.medir("fecha.noches", () -> {
+            int i = posicion++ & mascara;
+            return CalculadoraEstancia.noches(CalculadoraEstancia.diaLocal(instantes[i]),
+                    CalculadoraEstancia.diaLocal(instantes[i] + noches[i] * 86_400_000L));
+        });
+        StringBuilder textoFecha = new StringBuilder(16);
+        banco.medir("fecha.formatear", () -> {
+            textoFecha.setLength(0);
+            return CalculadoraEstancia.formatear(20_000 + (posicion++ & mascara), textoFecha).length();
+        });
+
+        // Formato de los datos para el panel de detalles
+        banco.medir("formato.datosCliente", () -> {
+            int i = posicion++ & mascara;
+            return PanelDatosCliente.formatearDatos("José María", "Núñez Pérez", dnis[i], telefonos[i],
+                    String.valueOf(noches[i])).length();
+        });
+        banco.medir("formato.datosHabitacion", () -> {
+            int i = posicion++ & mascara;
+            return PanelDatosHabitacion.formatearDatos(tipos[codigos[i]], habitaciones[i], "Cuna",
+                    MotorPrecios.formatearEuros(importes[i])).length();
+        });
+
+        Path resultados = Paths.get("resultados");
+        if (lineaBase) {
+            banco.guardar(resultados.resolve("linea-base.txt"));
+            System.out.println("Línea base guardada en " + resultados.resolve("linea-base.txt"));
+        } else {
+            banco.guardar(resultados.resolve("ultima-ejecucion.txt"));
+            Path base = resultados.resolve("linea-base.txt");
+            if (base.toFile().exists() && banco.comparar(base, TOLERANCIA, System.out) > 0) {
+                System.exit(1);
+            }
+        }
+    }
+}